@@ -0,0 +1,143 @@
+package com.payfort.start;
+
+import com.payfort.start.error.CardVerificationException;
+import com.payfort.start.error.StartApiException;
+import com.payfort.start.web.ExecutorRetryScheduler;
+import com.payfort.start.web.StartApiFactoryAccess;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.tls.HandshakeCertificates;
+import okhttp3.tls.HeldCertificate;
+
+/**
+ * Throughput of {@link Start#createTokens(java.util.Collection, int, BatchTokenCallback)} against local server which
+ * answers after fixed latency, like API does over mobile network. Time of batch should fall in proportion to
+ * concurrency until server or client becomes a bottleneck.
+ * <p>
+ * Requests go the same way as in app: through Retrofit, retry wrapper and converter of responses, over transport
+ * configured as {@link com.payfort.start.web.StartApiFactory}'s shared one and over TLS.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TokenBatchBenchmark {
+
+    private static final String API_KEY = "test_open_k_benchmark";
+    private static final int BATCH_SIZE = 128;
+    private static final long SERVER_LATENCY_MS = 20;
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    @Param({"1", "5", "16", "64"})
+    public int concurrency;
+
+    private MockWebServer server;
+    private OkHttpClient client;
+    private ScheduledThreadPoolExecutor retryExecutor;
+    private Start start;
+    private List<Card> cards;
+
+    @Setup
+    public void setUp() throws IOException, CardVerificationException {
+        HeldCertificate localhost = new HeldCertificate.Builder()
+                .addSubjectAlternativeName("localhost")
+                .build();
+        HandshakeCertificates serverCertificates = new HandshakeCertificates.Builder()
+                .heldCertificate(localhost)
+                .build();
+        HandshakeCertificates clientCertificates = new HandshakeCertificates.Builder()
+                .addTrustedCertificate(localhost.certificate())
+                .build();
+        server = new MockWebServer();
+        // API is https only, so is its stand-in
+        server.useHttps(serverCertificates.sslSocketFactory(), false);
+        server.setDispatcher(new Dispatcher() {
+
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                Thread.sleep(SERVER_LATENCY_MS);
+                return new MockResponse().setBody("{\"id\":\"tok_1\",\"verification_required\":false}");
+            }
+        });
+        server.start();
+        client = StartApiFactoryAccess.newClientBuilder()
+                .sslSocketFactory(clientCertificates.sslSocketFactory(), clientCertificates.trustManager())
+                .build();
+        retryExecutor = new ScheduledThreadPoolExecutor(1);
+        retryExecutor.setRemoveOnCancelPolicy(true);
+        start = new Start.Builder(API_KEY)
+                .callbackExecutor(DIRECT_EXECUTOR)
+                .retryScheduler(new ExecutorRetryScheduler(retryExecutor))
+                .build(StartApiFactoryAccess.newStartApi(API_KEY, server.url("/"), client));
+        cards = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            cards.add(new Card("4111111111111111", "123", 11, 2030, "John Doe"));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        retryExecutor.shutdownNow();
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+        server.shutdown();
+    }
+
+    @Benchmark
+    public TokenBatchResult createTokens() throws InterruptedException {
+        AwaitingCallback callback = new AwaitingCallback();
+        start.createTokens(cards, concurrency, callback);
+        callback.latch.await();
+        if (callback.result.getTokenCount() != BATCH_SIZE) {
+            throw new IllegalStateException("Batch failed: " + callback.result);
+        }
+        return callback.result;
+    }
+
+    private static final class AwaitingCallback implements BatchTokenCallback {
+
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private volatile TokenBatchResult result;
+
+        @Override
+        public void onToken(int index, Token token) {
+        }
+
+        @Override
+        public void onError(int index, StartApiException error) {
+        }
+
+        @Override
+        public void onComplete(TokenBatchResult result) {
+            this.result = result;
+            latch.countDown();
+        }
+    }
+}
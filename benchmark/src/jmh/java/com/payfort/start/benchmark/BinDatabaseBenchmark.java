@@ -0,0 +1,67 @@
+package com.payfort.start.benchmark;
+
+import com.payfort.start.Card;
+import com.payfort.start.bin.BinDatabase;
+import com.payfort.start.bin.BinInfo;
+import com.payfort.start.bin.BinTableWriter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup in memory-mapped {@link BinDatabase} with 200 000 6-digit BINs and 50 000 8-digit BINs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BinDatabaseBenchmark {
+
+    private static final int LOOKUPS_COUNT = 1 << 16;
+
+    private File file;
+    private BinDatabase database;
+    private String[] numbers;
+    private int index;
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(42);
+        BinTableWriter writer = new BinTableWriter();
+        for (int bin = 100000; bin < 1000000; bin += 4 + random.nextInt(2)) {
+            writer.add(String.valueOf(bin), "Bank " + bin % 5000, "SA", BinInfo.CardType.DEBIT, Card.Brand.UNKNOWN);
+            if (bin % 4 == 0) {
+                writer.add(bin + "55", "Bank " + bin % 5000, "SA", BinInfo.CardType.PREPAID, Card.Brand.UNKNOWN);
+            }
+        }
+        file = File.createTempFile("bins", ".dat");
+        writer.writeTo(file);
+        database = BinDatabase.open(file);
+
+        numbers = new String[LOOKUPS_COUNT];
+        for (int i = 0; i < LOOKUPS_COUNT; i++) {
+            numbers[i] = String.valueOf(1000000000000000L + (long) (random.nextDouble() * 8999999999999999L));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public BinInfo lookup() {
+        index = (index + 1) & (LOOKUPS_COUNT - 1);
+        return database.lookup(numbers[index]);
+    }
+}
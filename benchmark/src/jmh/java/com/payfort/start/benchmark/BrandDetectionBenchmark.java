@@ -0,0 +1,60 @@
+package com.payfort.start.benchmark;
+
+import com.payfort.start.Card;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares prefix trie used by {@link Card.Brand#detect(String)} with linear scan of brand prefixes ({@link LegacyBrand}).
+ * Every invocation detects brand of the next number from a pool of 2^20 random card numbers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BrandDetectionBenchmark {
+
+    private static final int NUMBERS_COUNT = 1 << 20;
+    private static final String[] PREFIXES = {"4", "51", "55", "2221", "2720", "34", "37", "6011", "65", "3530", "36", "62",
+            "6759", "446404", "588845", "1", "7", "8", "9", "0"};
+
+    private String[] numbers;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        numbers = new String[NUMBERS_COUNT];
+        for (int i = 0; i < NUMBERS_COUNT; i++) {
+            StringBuilder number = new StringBuilder(PREFIXES[random.nextInt(PREFIXES.length)]);
+            int length = 12 + random.nextInt(8);
+            while (number.length() < length) {
+                number.append((char) ('0' + random.nextInt(10)));
+            }
+            numbers[i] = number.toString();
+        }
+    }
+
+    @Benchmark
+    public Card.Brand trie() {
+        return Card.Brand.detect(nextNumber());
+    }
+
+    @Benchmark
+    public LegacyBrand linearScan() {
+        return LegacyBrand.detect(nextNumber());
+    }
+
+    private String nextNumber() {
+        index = (index + 1) & (NUMBERS_COUNT - 1);
+        return numbers[index];
+    }
+}
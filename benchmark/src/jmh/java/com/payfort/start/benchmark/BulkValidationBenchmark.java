@@ -0,0 +1,81 @@
+package com.payfort.start.benchmark;
+
+import com.payfort.start.bulk.BulkCardValidator;
+import com.payfort.start.bulk.BulkValidationReport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link BulkCardValidator} over a file with 1 000 000 rows depending on parallelism.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BulkValidationBenchmark {
+
+    private static final int ROWS = 1000000;
+    private static final String[] NUMBERS = {"4111 1111 1111 1111", "5555555555554444", "378282246310005", "4111111111111112"};
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    private File file;
+    private ForkJoinPool pool;
+    private BulkCardValidator validator;
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(42);
+        file = File.createTempFile("cards", ".csv");
+        BufferedWriter writer = new BufferedWriter(new FileWriter(file));
+        try {
+            for (int i = 0; i < ROWS; i++) {
+                writer.write(NUMBERS[random.nextInt(NUMBERS.length)]);
+                writer.write(",123," + (1 + random.nextInt(12)) + "," + (2015 + random.nextInt(15)) + ",John Doe\n");
+            }
+        } finally {
+            writer.close();
+        }
+        pool = new ForkJoinPool(parallelism);
+        validator = new BulkCardValidator(pool, 8 * 1024 * 1024);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+        file.delete();
+    }
+
+    @Benchmark
+    public BulkValidationReport mappedFile() throws IOException {
+        return validator.validate(file, null);
+    }
+
+    @Benchmark
+    public BulkValidationReport stream() throws IOException {
+        InputStream inputStream = new FileInputStream(file);
+        try {
+            return validator.validate(inputStream, null);
+        } finally {
+            inputStream.close();
+        }
+    }
+}
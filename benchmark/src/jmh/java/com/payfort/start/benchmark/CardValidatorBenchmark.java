@@ -0,0 +1,82 @@
+package com.payfort.start.benchmark;
+
+import com.payfort.start.Card;
+import com.payfort.start.CardValidationResult;
+import com.payfort.start.CardValidator;
+import com.payfort.start.ExpiryCutoff;
+import com.payfort.start.error.CardVerificationException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for {@link CardValidator}. Run with {@code -prof gc}: all validator benchmarks must show
+ * {@code gc.alloc.rate.norm} equal to 0 B/op, {@link #newCard()} shows the cost of {@link Card} construction for comparison.
+ * {@link #checkInvalidCard()} and {@link #newInvalidCard()} compare failure paths of non-throwing and throwing API.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-XX:+UseParallelGC")
+public class CardValidatorBenchmark {
+
+    private String formattedNumber = "4111 1111-1111.1111";
+    private StringBuilder typedNumber = new StringBuilder("5555555555554444");
+    private char[] numberBuffer = "3714 4963 5398 431".toCharArray();
+    private String invalidNumber = "4111 1111-1111.1112";
+    private String cvc = "123";
+    private String owner = "John Doe";
+    private int expirationMonth = 12;
+    private int expirationYear = 2030;
+
+    @Benchmark
+    public boolean validateFormattedNumber() {
+        return CardValidator.isNumberValid(formattedNumber);
+    }
+
+    @Benchmark
+    public boolean validateTypedNumber() {
+        return CardValidator.isNumberValid(typedNumber);
+    }
+
+    @Benchmark
+    public boolean validateCharArray() {
+        return CardValidator.isNumberValid(numberBuffer, 0, numberBuffer.length);
+    }
+
+    @Benchmark
+    public int validateAllFields() {
+        return CardValidator.validate(formattedNumber, cvc, expirationMonth, expirationYear, owner, 2017, 1);
+    }
+
+    @Benchmark
+    public int validateAllFieldsWithCutoff() {
+        return CardValidator.validate(formattedNumber, cvc, expirationMonth, expirationYear, owner, ExpiryCutoff.getDefault());
+    }
+
+    @Benchmark
+    public Card newCard() throws CardVerificationException {
+        return new Card(formattedNumber, cvc, expirationMonth, expirationYear, owner);
+    }
+
+    @Benchmark
+    public CardValidationResult checkInvalidCard() {
+        return CardValidator.check(invalidNumber, cvc, expirationMonth, expirationYear, owner);
+    }
+
+    @Benchmark
+    public Object newInvalidCard() {
+        try {
+            return new Card(invalidNumber, cvc, expirationMonth, expirationYear, owner);
+        } catch (CardVerificationException e) {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.payfort.start.benchmark;
+
+/**
+ * Copy of {@code Card.Brand} detection before it was replaced with prefix trie. Used as a baseline in benchmarks.
+ */
+enum LegacyBrand {
+
+    VISA(new int[]{13, 16}, "4"),
+    MASTER_CARD(new int[]{16}, "50", "51", "52", "53", "54", "55", "2221", "2222", "2223", "2224", "2225", "2226", "2227", "2228", "2229", "223", "224", "225", "226", "227", "228", "229", "23", "24", "25", "26", "271", "2720"),
+    UNKNOWN(new int[0]);
+
+    private final String[] prefixes;
+    private final int[] length;
+
+    LegacyBrand(int[] length, String... prefixes) {
+        this.length = length;
+        this.prefixes = prefixes;
+    }
+
+    public static LegacyBrand detect(String number) {
+        for (LegacyBrand brand : values()) {
+            if (hasPrefix(number, brand.prefixes) && hasLength(number, brand.length)) {
+                return brand;
+            }
+        }
+        return UNKNOWN;
+    }
+
+    private static boolean hasPrefix(String number, String[] prefixes) {
+        for (String prefix : prefixes) {
+            if (number.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasLength(String number, int[] lengthList) {
+        for (int length : lengthList) {
+            if (number.length() == length) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
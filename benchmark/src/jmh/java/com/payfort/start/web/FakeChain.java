@@ -0,0 +1,83 @@
+package com.payfort.start.web;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * {@link Interceptor.Chain} which answers every request with the same empty response without network.
+ */
+final class FakeChain implements Interceptor.Chain {
+
+    private static final ResponseBody EMPTY_BODY = ResponseBody.create(MediaType.parse("application/json"), "{}");
+
+    private final Request request;
+
+    FakeChain(Request request) {
+        this.request = request;
+    }
+
+    @Override
+    public Request request() {
+        return request;
+    }
+
+    @Override
+    public Response proceed(Request request) throws IOException {
+        return new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(200)
+                .message("OK")
+                .body(EMPTY_BODY)
+                .build();
+    }
+
+    @Override
+    public Connection connection() {
+        return null;
+    }
+
+    @Override
+    public Call call() {
+        return null;
+    }
+
+    @Override
+    public int connectTimeoutMillis() {
+        return 0;
+    }
+
+    @Override
+    public Interceptor.Chain withConnectTimeout(int timeout, TimeUnit unit) {
+        return this;
+    }
+
+    @Override
+    public int readTimeoutMillis() {
+        return 0;
+    }
+
+    @Override
+    public Interceptor.Chain withReadTimeout(int timeout, TimeUnit unit) {
+        return this;
+    }
+
+    @Override
+    public int writeTimeoutMillis() {
+        return 0;
+    }
+
+    @Override
+    public Interceptor.Chain withWriteTimeout(int timeout, TimeUnit unit) {
+        return this;
+    }
+}
@@ -0,0 +1,67 @@
+package com.payfort.start.web;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.FormBody;
+import okhttp3.Request;
+import okhttp3.Response;
+import okio.Buffer;
+
+/**
+ * Per request cost of interceptors added by {@link StartApiFactory} and {@link HttpLoggingInterceptor#isPlaintext(Buffer)}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class InterceptorBenchmark {
+
+    private HeadersInterceptor headersInterceptor;
+    private FakeChain chain;
+    private Buffer textBody;
+    private Buffer binaryBody;
+
+    @Setup
+    public void setUp() throws IOException {
+        headersInterceptor = new HeadersInterceptor("test_open_k_84493c9cebc499dfa6ac");
+        Request request = new Request.Builder()
+                .url(StartApiFactory.BASE_URL + "tokens/")
+                .post(new FormBody.Builder()
+                        .add("number", "4111111111111111")
+                        .add("cvc", "123")
+                        .add("exp_month", "11")
+                        .add("exp_year", "2019")
+                        .add("name", "John Doe")
+                        .build())
+                .build();
+        chain = new FakeChain(request);
+
+        textBody = new Buffer();
+        request.body().writeTo(textBody);
+        binaryBody = new Buffer().write(new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 0, 0, 0, 0x0D});
+    }
+
+    @Benchmark
+    public Response headersInterceptor() throws IOException {
+        return headersInterceptor.intercept(chain);
+    }
+
+    @Benchmark
+    public boolean isPlaintextText() throws EOFException {
+        return HttpLoggingInterceptor.isPlaintext(textBody);
+    }
+
+    @Benchmark
+    public boolean isPlaintextBinary() throws EOFException {
+        return HttpLoggingInterceptor.isPlaintext(binaryBody);
+    }
+}
@@ -0,0 +1,105 @@
+package com.payfort.start.web;
+
+import com.google.gson.FieldNamingPolicy;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.payfort.start.Token;
+import com.payfort.start.TokenVerification;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+/**
+ * Deserialization of API responses by {@link StartConverterFactory} compared with reflective {@link Gson} converter
+ * which SDK used before. Both read bytes of {@link ResponseBody}, as Retrofit does.
+ * {@code warm} benchmarks reuse converter, {@code cold} ones look converter up for every response: Gson pays for
+ * creation of {@link Gson} and reflective type adapters, streaming converter has nothing to build.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JsonBenchmark {
+
+    static final String TOKEN_JSON = "{\"id\":\"tok_9a2e6ac8b4f0e0c1e4b5d0a77e3\",\"card\":{\"id\":\"card_4f8b1b2c3d\",\"last4\":\"1111\"," +
+            "\"brand\":\"Visa\",\"exp_month\":11,\"exp_year\":2019,\"name\":\"John Doe\"},\"verification_required\":true," +
+            "\"livemode\":false,\"created_at\":\"2017-01-15T11:22:33Z\"}";
+    static final String TOKEN_VERIFICATION_JSON = "{\"id\":\"tokv_0b3a5d2f1c\",\"enrolled\":true,\"finalized\":false," +
+            "\"amount\":100,\"currency\":\"USD\"}";
+
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final byte[] TOKEN_BYTES = TOKEN_JSON.getBytes(UTF_8);
+    private static final byte[] TOKEN_VERIFICATION_BYTES = TOKEN_VERIFICATION_JSON.getBytes(UTF_8);
+    private static final Annotation[] NO_ANNOTATIONS = new Annotation[0];
+
+    private final Converter<ResponseBody, Token> tokenConverter = tokenConverter(StartConverterFactory.INSTANCE);
+    private final Converter<ResponseBody, TokenVerification> tokenVerificationConverter =
+            tokenVerificationConverter(StartConverterFactory.INSTANCE);
+    private final Converter.Factory gsonFactory = GsonConverterFactory.create(newGson());
+    private final Converter<ResponseBody, Token> gsonTokenConverter = tokenConverter(gsonFactory);
+    private final Converter<ResponseBody, TokenVerification> gsonTokenVerificationConverter = tokenVerificationConverter(gsonFactory);
+
+    @Benchmark
+    public Token tokenWarm() throws IOException {
+        return tokenConverter.convert(ResponseBody.create(JSON, TOKEN_BYTES));
+    }
+
+    @Benchmark
+    public TokenVerification tokenVerificationWarm() throws IOException {
+        return tokenVerificationConverter.convert(ResponseBody.create(JSON, TOKEN_VERIFICATION_BYTES));
+    }
+
+    @Benchmark
+    public Token tokenCold() throws IOException {
+        return tokenConverter(StartConverterFactory.INSTANCE).convert(ResponseBody.create(JSON, TOKEN_BYTES));
+    }
+
+    @Benchmark
+    public Token gsonTokenWarm() throws IOException {
+        return gsonTokenConverter.convert(ResponseBody.create(JSON, TOKEN_BYTES));
+    }
+
+    @Benchmark
+    public TokenVerification gsonTokenVerificationWarm() throws IOException {
+        return gsonTokenVerificationConverter.convert(ResponseBody.create(JSON, TOKEN_VERIFICATION_BYTES));
+    }
+
+    @Benchmark
+    public Token gsonTokenCold() throws IOException {
+        return tokenConverter(GsonConverterFactory.create(newGson())).convert(ResponseBody.create(JSON, TOKEN_BYTES));
+    }
+
+    /**
+     * Returns {@link Gson} configured as {@link StartApiFactory} configured it before streaming converter.
+     */
+    private static Gson newGson() {
+        return new GsonBuilder()
+                .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
+                .create();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Converter<ResponseBody, Token> tokenConverter(Converter.Factory factory) {
+        // none of factories uses retrofit instance
+        return (Converter<ResponseBody, Token>) factory.responseBodyConverter(Token.class, NO_ANNOTATIONS, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Converter<ResponseBody, TokenVerification> tokenVerificationConverter(Converter.Factory factory) {
+        return (Converter<ResponseBody, TokenVerification>) factory.responseBodyConverter(TokenVerification.class, NO_ANNOTATIONS, null);
+    }
+}
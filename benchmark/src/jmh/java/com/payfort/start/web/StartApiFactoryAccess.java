@@ -0,0 +1,24 @@
+package com.payfort.start.web;
+
+import android.os.Build;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+
+/**
+ * Gives benchmarks of other packages access to package-private methods of {@link StartApiFactory}.
+ */
+public final class StartApiFactoryAccess {
+
+    private StartApiFactoryAccess() {
+    }
+
+    public static OkHttpClient.Builder newClientBuilder() {
+        // Build.VERSION isn't real outside of Android, so transport is configured for fixed version
+        return StartApiFactory.newClientBuilder(Build.VERSION_CODES.LOLLIPOP, null);
+    }
+
+    public static StartApi newStartApi(String apiKey, HttpUrl baseUrl, OkHttpClient client) {
+        return StartApiFactory.newStartApi(apiKey, baseUrl, client);
+    }
+}
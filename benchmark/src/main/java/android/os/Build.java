@@ -0,0 +1,29 @@
+package android.os;
+
+/**
+ * Replacement of framework class which reads device properties by native methods, they exist only on Android.
+ * Classes of benchmark module precede android-all jar on classpath, so Retrofit reads {@link VERSION#SDK_INT} 0 from
+ * this class and falls back to plain Java platform instead of failing to initialize. Only members used by library are
+ * declared.
+ */
+public final class Build {
+
+    private Build() {
+    }
+
+    public static final class VERSION {
+
+        public static final int SDK_INT = 0;
+
+        private VERSION() {
+        }
+    }
+
+    public static final class VERSION_CODES {
+
+        public static final int LOLLIPOP = 21;
+
+        private VERSION_CODES() {
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.payfort.start;
+
+/**
+ * Replacement of class generated by android gradle plugin for library module.
+ */
+public final class BuildConfig {
+
+    public static final boolean DEBUG = false;
+    public static final String VERSION_NAME = "benchmark";
+}
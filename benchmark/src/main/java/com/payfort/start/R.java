@@ -0,0 +1,20 @@
+package com.payfort.start;
+
+/**
+ * Replacement of resources class generated by android gradle plugin for library module.
+ * Resources are never used in benchmarks, so ids are fake.
+ */
+public final class R {
+
+    public static final class id {
+        public static final int webView = 0;
+    }
+
+    public static final class layout {
+        public static final int web_dialog = 0;
+    }
+
+    public static final class string {
+        public static final int web_view_validation_alert = 0;
+    }
+}
@@ -0,0 +1,33 @@
+package com.payfort.start;
+
+import com.payfort.start.error.StartApiException;
+
+/**
+ * Callback of {@link TokenBatch}. Results of cards are delivered as soon as they are received, in order of completion.
+ */
+public interface BatchTokenCallback {
+
+    /**
+     * To be called after token for card is received.
+     *
+     * @param index an index of card in batch
+     * @param token a token received from API
+     */
+    void onToken(int index, Token token);
+
+    /**
+     * To be called if error during receiving token for card occurs. Other cards of batch are still processed.
+     *
+     * @param index an index of card in batch
+     * @param error an error occurred during receiving token from API
+     */
+    void onError(int index, StartApiException error);
+
+    /**
+     * To be called once, after all cards are processed or batch is canceled.
+     *
+     * @param result results of all cards
+     */
+    void onComplete(TokenBatchResult result);
+
+}
@@ -0,0 +1,101 @@
+package com.payfort.start;
+
+import java.util.Arrays;
+
+/**
+ * A digit trie of card number prefixes compiled once from {@link Card.Brand} definitions.
+ * Lookup walks at most {@link #depth} digits and returns brand of the longest matching prefix.
+ */
+final class BrandTrie {
+
+    private static final int NO_BRAND = -1;
+
+    private final Card.Brand[] brands;
+    // children of node n are stored in children[n * 10 + digit], 0 means no child (root is never a child)
+    private int[] children;
+    private byte[] nodeBrands;
+    private int nodeCount;
+    private int depth;
+
+    BrandTrie(Card.Brand[] brands) {
+        this.brands = brands;
+        this.children = new int[10 * 64];
+        this.nodeBrands = new byte[64];
+        this.nodeCount = 1;
+        nodeBrands[0] = NO_BRAND;
+        for (Card.Brand brand : brands) {
+            for (String prefix : brand.getPrefixes()) {
+                addPrefix(prefix, brand);
+            }
+        }
+        children = Arrays.copyOf(children, nodeCount * 10);
+        nodeBrands = Arrays.copyOf(nodeBrands, nodeCount);
+    }
+
+    Card.Brand find(CharSequence digits) {
+        int node = 0;
+        int brand = NO_BRAND;
+        // separators are skipped, so not normalized number can be looked up without copying
+        for (int i = 0, found = 0; i < digits.length() && found < depth; i++) {
+            char c = digits.charAt(i);
+            if (CardValidator.isSeparator(c)) {
+                continue;
+            }
+            int digit = c - '0';
+            if (digit < 0 || digit > 9) {
+                break;
+            }
+            found++;
+            node = children[node * 10 + digit];
+            if (node == 0) {
+                break;
+            }
+            if (nodeBrands[node] != NO_BRAND) {
+                brand = nodeBrands[node];
+            }
+        }
+        return brand == NO_BRAND ? Card.Brand.UNKNOWN : brands[brand];
+    }
+
+    private void addPrefix(String prefix, Card.Brand brand) {
+        int rangeSeparator = prefix.indexOf('-');
+        if (rangeSeparator < 0) {
+            add(prefix, brand);
+            return;
+        }
+        String from = prefix.substring(0, rangeSeparator);
+        String to = prefix.substring(rangeSeparator + 1);
+        if (from.length() != to.length()) {
+            throw new IllegalStateException("Bounds of prefix range " + prefix + " must have the same length");
+        }
+        for (int value = Integer.parseInt(from); value <= Integer.parseInt(to); value++) {
+            add(String.valueOf(value), brand);
+        }
+    }
+
+    private void add(String prefix, Card.Brand brand) {
+        int node = 0;
+        for (int i = 0; i < prefix.length(); i++) {
+            int index = node * 10 + prefix.charAt(i) - '0';
+            if (children[index] == 0) {
+                int child = newNode();  // may reallocate children array
+                children[index] = child;
+            }
+            node = children[index];
+        }
+        if (nodeBrands[node] != NO_BRAND && nodeBrands[node] != brand.ordinal()) {
+            throw new IllegalStateException("Prefix " + prefix + " of " + brand + " is already used by " + brands[nodeBrands[node]]);
+        }
+        nodeBrands[node] = (byte) brand.ordinal();
+        depth = Math.max(depth, prefix.length());
+    }
+
+    private int newNode() {
+        if (nodeCount == nodeBrands.length) {
+            nodeBrands = Arrays.copyOf(nodeBrands, nodeCount * 2);
+            children = Arrays.copyOf(children, nodeCount * 2 * 10);
+        }
+        nodeBrands[nodeCount] = NO_BRAND;
+        return nodeCount++;
+    }
+}
@@ -1,20 +1,14 @@
 package com.payfort.start;
 
-import android.text.TextUtils;
-
 import com.payfort.start.error.CardVerificationException;
 
-import java.util.Calendar;
-import java.util.EnumSet;
-import java.util.regex.Pattern;
+import static com.payfort.start.util.Preconditions.checkNotNull;
 
 /**
  * A representation of plastic card. It let developer validate card details and show errors on payment form.
  */
 public class Card {
 
-    private static final Pattern CVC_PATTERN = Pattern.compile("[0-9]{3,4}");
-
     public final String number;
     public final String cvc;
     public final int expirationMonth;
@@ -32,13 +26,31 @@ public class Card {
      * @throws CardVerificationException if any field is invalid
      */
     public Card(String number, String cvc, int expirationMonth, int expirationYear, String owner) throws CardVerificationException {
+        this(number, cvc, expirationMonth, expirationYear, owner, ExpiryCutoff.getDefault());
+    }
+
+    /**
+     * Constructs new instance and throw {@link CardVerificationException} if any field is invalid.
+     * Expiration date is checked against current year and month provided by {@code expiryCutoff}.
+     *
+     * @param number          a number of card
+     * @param cvc             a cvc of card
+     * @param expirationMonth an expiration month of card
+     * @param expirationYear  an expiration year of card
+     * @param owner           an owner of card
+     * @param expiryCutoff    a source of current year and month. Can't be {@code null}
+     * @throws CardVerificationException if any field is invalid
+     */
+    public Card(String number, String cvc, int expirationMonth, int expirationYear, String owner, ExpiryCutoff expiryCutoff)
+            throws CardVerificationException {
+        checkNotNull(expiryCutoff);
         this.number = normalize(number);
         this.cvc = normalize(cvc);
         this.expirationMonth = expirationMonth;
         this.expirationYear = expirationYear;
         this.owner = owner;
 
-        validate();
+        validate(expiryCutoff);
     }
 
     /**
@@ -68,86 +80,36 @@ public class Card {
         return number.substring(0, 6);
     }
 
-    private String normalize(String text) {
-        return text == null ? null : text.replaceAll("[\\s\\.-]", "");
-    }
-
-    private void validate() throws CardVerificationException {
-        EnumSet<Field> invalidFields = EnumSet.noneOf(Field.class);
-
-        if (!isNumberValid()) {
-            invalidFields.add(Field.NUMBER);
-        }
-        if (!isCvcValid()) {
-            invalidFields.add(Field.CVC);
-        }
-        if (!isExpirationMonthValid()) {
-            invalidFields.add(Field.EXPIRATION_MONTH);
+    private static String normalize(String text) {
+        if (text == null) {
+            return null;
         }
-        if (!isExpirationYearValid()) {
-            invalidFields.add(Field.EXPIRATION_YEAR);
+        int length = text.length();
+        int firstSeparator = 0;
+        while (firstSeparator < length && !CardValidator.isSeparator(text.charAt(firstSeparator))) {
+            firstSeparator++;
         }
-        if (!isOwnerValid()) {
-            invalidFields.add(Field.OWNER);
-        }
-
-        if (!invalidFields.isEmpty()) {
-            throw new CardVerificationException(invalidFields);
-        }
-    }
-
-    private boolean isNumberValid() {
-        return number != null &&
-                TextUtils.isDigitsOnly(number) &&
-                number.length() >= 12 && number.length() <= 19 &&   // https://en.wikipedia.org/wiki/Payment_card_number#Issuer_identification_number_.28IIN.29
-                checkLuhn(getNumberDigits());
-    }
-
-    private int[] getNumberDigits() {
-        int[] digits = new int[number.length()];
-        for (int i = 0; i < number.length(); i++) {
-            digits[i] = number.charAt(i) - '0';
+        if (firstSeparator == length) {
+            return text;
         }
-        return digits;
-    }
-
-    // https://de.wikipedia.org/wiki/Luhn-Algorithmus#Java
-    private boolean checkLuhn(int[] digits) {
-        int sum = 0;
-        int length = digits.length;
-        for (int i = 0; i < length; i++) {
-
-            // get digits in reverse order
-            int digit = digits[length - i - 1];
-
-            // every 2nd number multiply with 2
-            if (i % 2 == 1) {
-                digit *= 2;
+        char[] chars = new char[length];
+        text.getChars(0, firstSeparator, chars, 0);
+        int count = firstSeparator;
+        for (int i = firstSeparator + 1; i < length; i++) {
+            char c = text.charAt(i);
+            if (!CardValidator.isSeparator(c)) {
+                chars[count++] = c;
             }
-            sum += digit > 9 ? digit - 9 : digit;
         }
-        return sum % 10 == 0;
+        return new String(chars, 0, count);
     }
 
-    private boolean isCvcValid() {
-        return cvc != null && CVC_PATTERN.matcher(cvc).matches();
-    }
+    private void validate(ExpiryCutoff expiryCutoff) throws CardVerificationException {
+        int invalidFields = CardValidator.validate(number, cvc, expirationMonth, expirationYear, owner, expiryCutoff);
 
-    private boolean isExpirationMonthValid() {
-        Calendar calendar = Calendar.getInstance();
-        int currentYear = calendar.get(Calendar.YEAR);
-        int currentMonth = calendar.get(Calendar.MONTH) + 1;
-        return expirationMonth >= 1 && expirationMonth <= 12 &&
-                (expirationYear != currentYear || expirationMonth >= currentMonth);
-    }
-
-    private boolean isExpirationYearValid() {
-        int currentYear = Calendar.getInstance().get(Calendar.YEAR);
-        return expirationYear >= currentYear && expirationYear <= 2100;
-    }
-
-    private boolean isOwnerValid() {
-        return owner != null && !owner.trim().isEmpty();
+        if (invalidFields != 0) {
+            throw new CardVerificationException(CardValidationResult.of(invalidFields));
+        }
     }
 
     /**
@@ -159,46 +121,116 @@ public class Card {
 
     /**
      * A list of card issuers.
+     * <p>
+     * Each brand is defined by prefixes of card number (IIN ranges), valid number lengths and cvc length.
+     * Prefix may be a range like {@code "644-649"}, both bounds must have the same length.
+     * If number matches prefixes of several brands, brand with the longest matching prefix wins.
      */
     public enum Brand {
 
-        VISA(new int[]{13, 16}, "4"),
-        MASTER_CARD(new int[]{16}, "50", "51", "52", "53", "54", "55", "2221", "2222", "2223", "2224", "2225", "2226", "2227", "2228", "2229", "223", "224", "225", "226", "227", "228", "229", "23", "24", "25", "26", "271", "2720"),
-        UNKNOWN(new int[0]);
-
+        VISA(0, new int[]{13, 16}, 3, "4"),
+        MASTER_CARD(1, new int[]{16}, 3, "50-55", "2221-2229", "223-229", "23-26", "270-271", "2720"),
+        AMERICAN_EXPRESS(2, new int[]{15}, 4, "34", "37"),
+        DISCOVER(3, new int[]{16, 19}, 3, "6011", "644-649", "65"),
+        JCB(4, new int[]{16, 17, 18, 19}, 3, "3528-3589"),
+        DINERS_CLUB(5, new int[]{14, 15, 16, 17, 18, 19}, 3, "300-305", "3095", "36", "38-39"),
+        UNION_PAY(6, new int[]{16, 17, 18, 19}, 3, "62"),
+        MAESTRO(7, new int[]{12, 13, 14, 15, 16, 17, 18, 19}, 3, "5018", "5020", "5038", "5893", "6304", "6759", "6761-6763"),
+        // https://www.mada.com.sa, debit cards of Saudi Payments Network, co-branded with Visa and MasterCard
+        MADA(8, new int[]{16}, 3, "400861", "401757", "406136", "406996", "409201", "410621", "410685", "417633", "419593", "420132",
+                "422817-422819", "428331", "428671-428673", "431361", "432328", "434107", "439954", "439956", "440533", "440647",
+                "440795", "445564", "446393", "446404", "455036", "455708", "457865", "458456", "462220", "468540-468543",
+                "483010-483012", "484783", "486094-486096", "489317-489319", "504300", "508160", "521076", "529741", "530060",
+                "530906", "531095", "531196", "532013", "535825", "535989", "536023", "537767", "543085", "543357", "549760",
+                "554180", "585265", "588845", "588847-588848", "588850", "588982-588983", "589005", "589206", "604906", "605141",
+                "636120", "968201-968209", "968211"),
+        UNKNOWN(9, new int[0], 3);
+
+        private static final BrandTrie TRIE = new BrandTrie(values());
+
+        private final int code;
         private final String[] prefixes;
         private final int[] length;
+        private final int cvcLength;
 
-        Brand(int[] length, String... prefixes) {
+        Brand(int code, int[] length, int cvcLength, String... prefixes) {
+            this.code = code;
             this.length = length;
+            this.cvcLength = cvcLength;
             this.prefixes = prefixes;
         }
 
+        /**
+         * Detects brand of card number. Number must be normalized (contain digits only).
+         *
+         * @param number a card number
+         * @return a brand of card or {@link #UNKNOWN} if number doesn't match any known brand
+         */
         public static Brand detect(String number) {
-            for (Brand brand : values()) {
-                if (hasPrefix(number, brand.prefixes) && hasLength(number, brand.length)) {
-                    return brand;
-                }
-            }
-            return UNKNOWN;
+            Brand brand = detectByPrefix(number);
+            return brand.isValidLength(number.length()) ? brand : UNKNOWN;
+        }
+
+        /**
+         * Detects brand by first digits of card number ignoring its length. It is useful to detect brand of partially typed number.
+         * Detection is a single pass over at most 6 first digits.
+         *
+         * @param digits a card number or its first digits. Must contain digits only
+         * @return a brand which prefix matches digits or {@link #UNKNOWN}
+         */
+        public static Brand detectByPrefix(CharSequence digits) {
+            return TRIE.find(digits);
         }
 
-        private static boolean hasPrefix(String number, String[] prefixes) {
-            for (String prefix : prefixes) {
-                if (number.startsWith(prefix)) {
+        /**
+         * Returns code of brand which is stored instead of it, e.g. in BIN table. Codes never change and aren't reused,
+         * so stored data stays valid when brands are added or reordered.
+         *
+         * @return a code of brand
+         */
+        public int getCode() {
+            return code;
+        }
+
+        /**
+         * Checks if card number length is valid for this brand.
+         *
+         * @param length a length of card number
+         * @return {@code true} if length is valid
+         */
+        public boolean isValidLength(int length) {
+            for (int validLength : this.length) {
+                if (length == validLength) {
                     return true;
                 }
             }
             return false;
         }
 
-        private static boolean hasLength(String number, int[] lengthList) {
-            for (int length : lengthList) {
-                if (number.length() == length) {
-                    return true;
-                }
+        /**
+         * Returns max length of card number for this brand.
+         *
+         * @return a max length of card number
+         */
+        public int getMaxLength() {
+            int maxLength = 0;
+            for (int validLength : length) {
+                maxLength = Math.max(maxLength, validLength);
             }
-            return false;
+            return maxLength == 0 ? CardValidator.MAX_NUMBER_LENGTH : maxLength;
+        }
+
+        /**
+         * Returns length of cvc used by this brand.
+         *
+         * @return a length of cvc
+         */
+        public int getCvcLength() {
+            return cvcLength;
+        }
+
+        String[] getPrefixes() {
+            return prefixes;
         }
     }
-}
\ No newline at end of file
+}
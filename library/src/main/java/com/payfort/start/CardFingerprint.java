@@ -0,0 +1,74 @@
+package com.payfort.start;
+
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Fingerprint of token request: keyed hash of card details, amount and currency. Key is random and lives only in
+ * memory of current process, so fingerprint can be kept in maps without exposing card number and can't be matched
+ * across processes. {@link Card} and {@link PackedCard} with the same details have the same fingerprint.
+ */
+final class CardFingerprint {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final byte SEPARATOR = 0;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final SecretKeySpec KEY = newKey();
+
+    private CardFingerprint() {
+    }
+
+    static String of(Card card, Integer amountInCents, String currency) {
+        Mac mac = newMac();
+        mac.update(card.number.getBytes(UTF_8));
+        mac.update(SEPARATOR);
+        mac.update(card.cvc.getBytes(UTF_8));
+        return finish(mac, card.expirationMonth, card.expirationYear, card.owner, amountInCents, currency);
+    }
+
+    static String of(PackedCard card, Integer amountInCents, String currency) {
+        Mac mac = newMac();
+        byte[] digits = new byte[card.length()];
+        try {
+            mac.update(digits, 0, card.copyNumberTo(digits, 0));
+            mac.update(SEPARATOR);
+            mac.update(digits, 0, card.copyCvcTo(digits, 0));
+        } finally {
+            Arrays.fill(digits, (byte) 0);
+        }
+        return finish(mac, card.getExpirationMonth(), card.getExpirationYear(), card.getOwner(), amountInCents, currency);
+    }
+
+    private static String finish(Mac mac, int month, int year, String owner, Integer amountInCents, String currency) {
+        String rest = "\u0000" + month + "\u0000" + year + "\u0000" + owner + "\u0000" + amountInCents + "\u0000" + currency;
+        byte[] hash = mac.doFinal(rest.getBytes(UTF_8));
+        char[] hex = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            hex[i * 2] = HEX[(hash[i] >> 4) & 0xf];
+            hex[i * 2 + 1] = HEX[hash[i] & 0xf];
+        }
+        return new String(hex);
+    }
+
+    private static Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(KEY);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Error creating " + ALGORITHM, e);
+        }
+    }
+
+    private static SecretKeySpec newKey() {
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        return new SecretKeySpec(key, ALGORITHM);
+    }
+}
@@ -0,0 +1,112 @@
+package com.payfort.start;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * A result of card validation which doesn't require exception to be thrown.
+ * <p>
+ * Invalid fields are stored as a bit mask, where each bit is {@code 1 << Card.Field.ordinal()}. There is only one
+ * instance per combination of invalid fields, so obtaining a result never allocates and results can be compared by reference.
+ */
+public final class CardValidationResult {
+
+    private static final Card.Field[] FIELDS = Card.Field.values();
+    private static final CardValidationResult[] RESULTS = new CardValidationResult[1 << FIELDS.length];
+
+    static {
+        for (int mask = 0; mask < RESULTS.length; mask++) {
+            RESULTS[mask] = new CardValidationResult(mask);
+        }
+    }
+
+    /**
+     * A result without invalid fields.
+     */
+    public static final CardValidationResult VALID = RESULTS[0];
+
+    private final int invalidFields;
+    private final Set<Card.Field> invalidFieldSet;
+
+    private CardValidationResult(int invalidFields) {
+        this.invalidFields = invalidFields;
+        EnumSet<Card.Field> fields = EnumSet.noneOf(Card.Field.class);
+        for (Card.Field field : FIELDS) {
+            if ((invalidFields & CardValidator.maskOf(field)) != 0) {
+                fields.add(field);
+            }
+        }
+        this.invalidFieldSet = Collections.unmodifiableSet(fields);
+    }
+
+    /**
+     * Returns result for bit mask of invalid fields.
+     *
+     * @param invalidFields a bit mask of invalid fields as returned by {@link CardValidator#validate(CharSequence, CharSequence, int, int, CharSequence, int, int)}
+     * @return a shared result instance
+     * @throws IllegalArgumentException if mask has bits which don't correspond to any {@link Card.Field}
+     */
+    public static CardValidationResult of(int invalidFields) {
+        if (invalidFields < 0 || invalidFields >= RESULTS.length) {
+            throw new IllegalArgumentException("Invalid fields mask: " + Integer.toBinaryString(invalidFields));
+        }
+        return RESULTS[invalidFields];
+    }
+
+    /**
+     * Returns result for set of invalid fields.
+     *
+     * @param invalidFields a set of invalid fields
+     * @return a shared result instance
+     */
+    public static CardValidationResult of(Set<Card.Field> invalidFields) {
+        int mask = 0;
+        for (Card.Field field : invalidFields) {
+            mask |= CardValidator.maskOf(field);
+        }
+        return RESULTS[mask];
+    }
+
+    /**
+     * Returns are all fields valid.
+     *
+     * @return {@code true} if there are no invalid fields
+     */
+    public boolean isValid() {
+        return invalidFields == 0;
+    }
+
+    /**
+     * Returns is specified field valid.
+     *
+     * @param field a field to check
+     * @return {@code true} if field is valid
+     */
+    public boolean isValid(Card.Field field) {
+        return (invalidFields & CardValidator.maskOf(field)) == 0;
+    }
+
+    /**
+     * Returns bit mask of invalid fields.
+     *
+     * @return a bit mask, where each bit is {@code 1 << Card.Field.ordinal()}
+     */
+    public int getInvalidFields() {
+        return invalidFields;
+    }
+
+    /**
+     * Returns set of invalid fields. The set is immutable and shared by all users of this result.
+     *
+     * @return an unmodifiable set of invalid fields
+     */
+    public Set<Card.Field> getErrorFields() {
+        return invalidFieldSet;
+    }
+
+    @Override
+    public String toString() {
+        return "CardValidationResult{invalidFields=" + invalidFieldSet + '}';
+    }
+}
@@ -0,0 +1,306 @@
+package com.payfort.start;
+
+/**
+ * Allocation-free validation of card details.
+ * <p>
+ * All methods work directly on {@link CharSequence} or {@code char[]} input in a single pass: separators (whitespaces,
+ * dots and dashes) are skipped on the fly, so there is no need to normalize input before validation. None of the
+ * methods allocates objects on the heap, so they are safe to be called on every keystroke or for bulk validation.
+ */
+public final class CardValidator {
+
+    /**
+     * A min length of valid card number.
+     * See https://en.wikipedia.org/wiki/Payment_card_number#Issuer_identification_number_.28IIN.29
+     */
+    public static final int MIN_NUMBER_LENGTH = 12;
+
+    /**
+     * A max length of valid card number.
+     */
+    public static final int MAX_NUMBER_LENGTH = 19;
+
+    /**
+     * A max expiration year accepted by validator.
+     */
+    public static final int MAX_EXPIRATION_YEAR = 2100;
+
+    private static final int MIN_CVC_LENGTH = 3;
+    private static final int MAX_CVC_LENGTH = 4;
+
+    private CardValidator() {
+    }
+
+    /**
+     * Validates all card's fields at once using current date provided by cutoff.
+     *
+     * @param number          a number of card, may contain separators
+     * @param cvc             a cvc of card, may contain separators
+     * @param expirationMonth an expiration month of card
+     * @param expirationYear  an expiration year of card
+     * @param owner           an owner of card
+     * @param expiryCutoff    a source of current year and month
+     * @return a bit mask of invalid fields, where each bit is {@code 1 << Card.Field.ordinal()}. Zero if card is valid
+     */
+    public static int validate(CharSequence number, CharSequence cvc, int expirationMonth, int expirationYear, CharSequence owner,
+                               ExpiryCutoff expiryCutoff) {
+        int yearMonth = expiryCutoff.getYearMonth();
+        return validate(number, cvc, expirationMonth, expirationYear, owner, ExpiryCutoff.yearOf(yearMonth), ExpiryCutoff.monthOf(yearMonth));
+    }
+
+    /**
+     * Validates all card's fields at once. Length of cvc must match brand detected by number, any cvc of 3 or 4 digits
+     * is accepted if brand is {@link Card.Brand#UNKNOWN unknown}.
+     *
+     * @param number          a number of card, may contain separators
+     * @param cvc             a cvc of card, may contain separators
+     * @param expirationMonth an expiration month of card
+     * @param expirationYear  an expiration year of card
+     * @param owner           an owner of card
+     * @param currentYear     a current year
+     * @param currentMonth    a current month, {@code 1} for January
+     * @return a bit mask of invalid fields, where each bit is {@code 1 << Card.Field.ordinal()}. Zero if card is valid
+     */
+    public static int validate(CharSequence number, CharSequence cvc, int expirationMonth, int expirationYear, CharSequence owner,
+                               int currentYear, int currentMonth) {
+        int invalidFields = 0;
+        if (!isNumberValid(number)) {
+            invalidFields |= maskOf(Card.Field.NUMBER);
+        }
+        if (!isCvcValid(cvc, detectBrand(number))) {
+            invalidFields |= maskOf(Card.Field.CVC);
+        }
+        if (!isExpirationMonthValid(expirationMonth, expirationYear, currentYear, currentMonth)) {
+            invalidFields |= maskOf(Card.Field.EXPIRATION_MONTH);
+        }
+        if (!isExpirationYearValid(expirationYear, currentYear)) {
+            invalidFields |= maskOf(Card.Field.EXPIRATION_YEAR);
+        }
+        if (!isOwnerValid(owner)) {
+            invalidFields |= maskOf(Card.Field.OWNER);
+        }
+        return invalidFields;
+    }
+
+    /**
+     * Validates all card's fields at once without throwing exception, so it can be used as a cheap alternative
+     * to {@link Card} construction on every keystroke.
+     *
+     * @param number          a number of card, may contain separators
+     * @param cvc             a cvc of card, may contain separators
+     * @param expirationMonth an expiration month of card
+     * @param expirationYear  an expiration year of card
+     * @param owner           an owner of card
+     * @param expiryCutoff    a source of current year and month
+     * @return a shared result with invalid fields
+     */
+    public static CardValidationResult check(CharSequence number, CharSequence cvc, int expirationMonth, int expirationYear,
+                                             CharSequence owner, ExpiryCutoff expiryCutoff) {
+        return CardValidationResult.of(validate(number, cvc, expirationMonth, expirationYear, owner, expiryCutoff));
+    }
+
+    /**
+     * Validates all card's fields at once without throwing exception using current system date.
+     *
+     * @param number          a number of card, may contain separators
+     * @param cvc             a cvc of card, may contain separators
+     * @param expirationMonth an expiration month of card
+     * @param expirationYear  an expiration year of card
+     * @param owner           an owner of card
+     * @return a shared result with invalid fields
+     * @see #check(CharSequence, CharSequence, int, int, CharSequence, ExpiryCutoff)
+     */
+    public static CardValidationResult check(CharSequence number, CharSequence cvc, int expirationMonth, int expirationYear,
+                                             CharSequence owner) {
+        return check(number, cvc, expirationMonth, expirationYear, owner, ExpiryCutoff.getDefault());
+    }
+
+    /**
+     * Returns bit of field in masks returned by {@link #validate(CharSequence, CharSequence, int, int, CharSequence, int, int)}.
+     *
+     * @param field a field
+     * @return a bit mask with single bit set
+     */
+    public static int maskOf(Card.Field field) {
+        return 1 << field.ordinal();
+    }
+
+    /**
+     * Checks card number: it must contain only digits and separators, have valid length and pass Luhn check.
+     *
+     * @param number a card number, may contain separators. Can be {@code null}
+     * @return {@code true} if number is valid
+     */
+    public static boolean isNumberValid(CharSequence number) {
+        if (number == null) {
+            return false;
+        }
+        // Luhn check goes from the rightmost digit, so scan number backward
+        int digits = 0;
+        int sum = 0;
+        for (int i = number.length() - 1; i >= 0; i--) {
+            char c = number.charAt(i);
+            if (isSeparator(c)) {
+                continue;
+            }
+            if (c < '0' || c > '9' || ++digits > MAX_NUMBER_LENGTH) {
+                return false;
+            }
+            sum += luhnValue(c - '0', digits);
+        }
+        return digits >= MIN_NUMBER_LENGTH && sum % 10 == 0;
+    }
+
+    /**
+     * Checks card number stored in a char array.
+     *
+     * @param number a buffer with card number, may contain separators. Can be {@code null}
+     * @param offset an offset of number in buffer
+     * @param length a length of number in buffer
+     * @return {@code true} if number is valid
+     */
+    public static boolean isNumberValid(char[] number, int offset, int length) {
+        if (number == null) {
+            return false;
+        }
+        int digits = 0;
+        int sum = 0;
+        for (int i = offset + length - 1; i >= offset; i--) {
+            char c = number[i];
+            if (isSeparator(c)) {
+                continue;
+            }
+            if (c < '0' || c > '9' || ++digits > MAX_NUMBER_LENGTH) {
+                return false;
+            }
+            sum += luhnValue(c - '0', digits);
+        }
+        return digits >= MIN_NUMBER_LENGTH && sum % 10 == 0;
+    }
+
+    /**
+     * Detects brand of card number the same way as {@link Card.Brand#detect(String)} does, but without normalizing it.
+     *
+     * @param number a card number, may contain separators. Can be {@code null}
+     * @return a brand of card or {@link Card.Brand#UNKNOWN}
+     */
+    static Card.Brand detectBrand(CharSequence number) {
+        if (number == null) {
+            return Card.Brand.UNKNOWN;
+        }
+        int digits = 0;
+        for (int i = 0; i < number.length(); i++) {
+            if (!isSeparator(number.charAt(i))) {
+                digits++;
+            }
+        }
+        Card.Brand brand = Card.Brand.detectByPrefix(number);
+        return brand.isValidLength(digits) ? brand : Card.Brand.UNKNOWN;
+    }
+
+    // https://en.wikipedia.org/wiki/Luhn_algorithm, position is 1-based from the rightmost digit
+    private static int luhnValue(int digit, int position) {
+        if ((position & 1) == 0) {
+            digit *= 2;
+            return digit > 9 ? digit - 9 : digit;
+        }
+        return digit;
+    }
+
+    /**
+     * Checks card's cvc: it must consist of 3 or 4 digits, separators are ignored.
+     *
+     * @param cvc a cvc. Can be {@code null}
+     * @return {@code true} if cvc is valid
+     */
+    public static boolean isCvcValid(CharSequence cvc) {
+        return isCvcValid(cvc, MIN_CVC_LENGTH, MAX_CVC_LENGTH);
+    }
+
+    /**
+     * Checks card's cvc against brand: it must consist of as many digits as {@link Card.Brand#getCvcLength()} is.
+     * Cvc of {@link Card.Brand#UNKNOWN} brand may have 3 or 4 digits. Separators are ignored.
+     *
+     * @param cvc   a cvc. Can be {@code null}
+     * @param brand a brand of card. Can't be {@code null}
+     * @return {@code true} if cvc is valid
+     */
+    public static boolean isCvcValid(CharSequence cvc, Card.Brand brand) {
+        if (brand == Card.Brand.UNKNOWN) {
+            return isCvcValid(cvc);
+        }
+        return isCvcValid(cvc, brand.getCvcLength(), brand.getCvcLength());
+    }
+
+    private static boolean isCvcValid(CharSequence cvc, int minLength, int maxLength) {
+        if (cvc == null) {
+            return false;
+        }
+        int digits = 0;
+        for (int i = 0; i < cvc.length(); i++) {
+            char c = cvc.charAt(i);
+            if (isSeparator(c)) {
+                continue;
+            }
+            if (c < '0' || c > '9' || ++digits > maxLength) {
+                return false;
+            }
+        }
+        return digits >= minLength;
+    }
+
+    /**
+     * Checks card's expiration month.
+     *
+     * @param expirationMonth an expiration month
+     * @param expirationYear  an expiration year
+     * @param currentYear     a current year
+     * @param currentMonth    a current month, {@code 1} for January
+     * @return {@code true} if month is valid and not expired
+     */
+    public static boolean isExpirationMonthValid(int expirationMonth, int expirationYear, int currentYear, int currentMonth) {
+        return expirationMonth >= 1 && expirationMonth <= 12 &&
+                (expirationYear != currentYear || expirationMonth >= currentMonth);
+    }
+
+    /**
+     * Checks card's expiration year.
+     *
+     * @param expirationYear an expiration year
+     * @param currentYear    a current year
+     * @return {@code true} if year is valid and not expired
+     */
+    public static boolean isExpirationYearValid(int expirationYear, int currentYear) {
+        return expirationYear >= currentYear && expirationYear <= MAX_EXPIRATION_YEAR;
+    }
+
+    /**
+     * Checks card's owner: it must contain at least one non whitespace character.
+     *
+     * @param owner an owner. Can be {@code null}
+     * @return {@code true} if owner is valid
+     */
+    public static boolean isOwnerValid(CharSequence owner) {
+        if (owner == null) {
+            return false;
+        }
+        for (int i = 0; i < owner.length(); i++) {
+            // the same rule as String.trim() uses
+            if (owner.charAt(i) > ' ') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if character is ignored in card number and cvc. Separators are whitespaces, dots and dashes.
+     *
+     * @param c a character to be checked
+     * @return {@code true} if character is separator
+     */
+    public static boolean isSeparator(char c) {
+        // the same set as regex [\s\.-]
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r' || c == '.' || c == '-';
+    }
+}
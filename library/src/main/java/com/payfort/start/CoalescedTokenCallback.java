@@ -0,0 +1,110 @@
+package com.payfort.start;
+
+import com.payfort.start.error.StartApiException;
+import com.payfort.start.web.CancellationScope;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@link TokenCallback} of token request shared by identical in-flight calls. Result is delivered to every callback
+ * joined before request completes, then request is removed from map of in-flight requests. Request is canceled when
+ * all callbacks leave it.
+ */
+final class CoalescedTokenCallback implements TokenCallback {
+
+    private final String key;
+    private final ConcurrentMap<String, CoalescedTokenCallback> inFlight;
+    private final CancellationScope cancellationScope;
+    private final List<TokenCallback> callbacks = new ArrayList<>(1);
+    private boolean completed;
+
+    CoalescedTokenCallback(String key, ConcurrentMap<String, CoalescedTokenCallback> inFlight, TokenCallback callback,
+            CancellationScope cancellationScope) {
+        this.key = key;
+        this.inFlight = inFlight;
+        this.cancellationScope = cancellationScope;
+        this.callbacks.add(callback);
+    }
+
+    /**
+     * Returns scope of shared request.
+     *
+     * @return a scope
+     */
+    CancellationScope cancellationScope() {
+        return cancellationScope;
+    }
+
+    /**
+     * Adds callback to be notified with result.
+     *
+     * @param callback a callback
+     * @return {@code false} if request is already completed and callback isn't added
+     */
+    synchronized boolean join(TokenCallback callback) {
+        if (completed) {
+            return false;
+        }
+        callbacks.add(callback);
+        return true;
+    }
+
+    /**
+     * Removes callback, so it isn't notified with result. Shared request is canceled when the last callback leaves it.
+     *
+     * @param callback a joined callback
+     * @return {@code false} if request is already completed or callback has already left
+     */
+    boolean leave(TokenCallback callback) {
+        boolean abandoned;
+        synchronized (this) {
+            if (completed || !callbacks.remove(callback)) {
+                return false;
+            }
+            abandoned = callbacks.isEmpty();
+            completed = abandoned;
+        }
+        if (abandoned) {
+            inFlight.remove(key, this);
+            cancellationScope.cancel();
+        }
+        return true;
+    }
+
+    @Override
+    public void onSuccess(Token token) {
+        for (TokenCallback callback : complete()) {
+            callback.onSuccess(token);
+        }
+    }
+
+    @Override
+    public void onError(StartApiException error) {
+        for (TokenCallback callback : complete()) {
+            callback.onError(error);
+        }
+    }
+
+    @Override
+    public void onCancel() {
+        for (TokenCallback callback : complete()) {
+            callback.onCancel();
+        }
+    }
+
+    private List<TokenCallback> complete() {
+        List<TokenCallback> snapshot;
+        synchronized (this) {
+            if (completed) {
+                return Collections.emptyList();
+            }
+            completed = true;
+            snapshot = new ArrayList<>(callbacks);
+        }
+        inFlight.remove(key, this);
+        return snapshot;
+    }
+}
@@ -0,0 +1,99 @@
+package com.payfort.start;
+
+import com.payfort.start.util.Clock;
+
+import java.util.Calendar;
+
+import static com.payfort.start.util.Preconditions.checkNotNull;
+
+/**
+ * Current year and month used to check card's expiration date.
+ * <p>
+ * Calendar is resolved only when month rolls over, all other calls just compare current time with cached bounds of month.
+ * Bounds are calculated in default time zone at the moment of rollover.
+ * This implementation is thread-safe.
+ */
+public final class ExpiryCutoff {
+
+    private static final ExpiryCutoff DEFAULT = new ExpiryCutoff(Clock.SYSTEM);
+
+    private final Clock clock;
+    private volatile Month month;
+
+    /**
+     * Constructs new instance.
+     *
+     * @param clock a source of current time. Can't be {@code null}
+     */
+    public ExpiryCutoff(Clock clock) {
+        this.clock = checkNotNull(clock);
+    }
+
+    /**
+     * Returns instance which uses system clock. It is used by {@link Card} by default.
+     *
+     * @return a shared instance
+     */
+    public static ExpiryCutoff getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Returns current year and month packed into single int, so both values are consistent.
+     *
+     * @return a {@code year * 12 + month - 1}, where month is {@code 1} for January
+     * @see #yearOf(int)
+     * @see #monthOf(int)
+     */
+    public int getYearMonth() {
+        long now = clock.currentTimeMillis();
+        Month month = this.month;
+        if (month == null || now < month.startMillis || now >= month.endMillis) {
+            month = new Month(now);
+            this.month = month;
+        }
+        return month.yearMonth;
+    }
+
+    /**
+     * Returns year of value returned by {@link #getYearMonth()}.
+     *
+     * @param yearMonth a packed year and month
+     * @return a year
+     */
+    public static int yearOf(int yearMonth) {
+        return yearMonth / 12;
+    }
+
+    /**
+     * Returns month of value returned by {@link #getYearMonth()}.
+     *
+     * @param yearMonth a packed year and month
+     * @return a month, {@code 1} for January
+     */
+    public static int monthOf(int yearMonth) {
+        return yearMonth % 12 + 1;
+    }
+
+    private static final class Month {
+
+        private final int yearMonth;
+        private final long startMillis;
+        private final long endMillis;
+
+        private Month(long now) {
+            Calendar calendar = Calendar.getInstance();
+            calendar.setTimeInMillis(now);
+            this.yearMonth = calendar.get(Calendar.YEAR) * 12 + calendar.get(Calendar.MONTH);
+
+            calendar.set(Calendar.DAY_OF_MONTH, 1);
+            calendar.set(Calendar.HOUR_OF_DAY, 0);
+            calendar.set(Calendar.MINUTE, 0);
+            calendar.set(Calendar.SECOND, 0);
+            calendar.set(Calendar.MILLISECOND, 0);
+            this.startMillis = calendar.getTimeInMillis();
+            calendar.add(Calendar.MONTH, 1);
+            this.endMillis = calendar.getTimeInMillis();
+        }
+    }
+}
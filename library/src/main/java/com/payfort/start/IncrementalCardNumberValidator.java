@@ -0,0 +1,162 @@
+package com.payfort.start;
+
+/**
+ * Validator of card number which is typed digit by digit.
+ * <p>
+ * It keeps running Luhn sums for both parities of number length, so validity of number, possibility to become valid
+ * and card's brand are available in O(1) after every appended or deleted digit regardless of number's length.
+ * Validation rules are the same as {@link Card} uses. Validator doesn't allocate objects after construction.
+ * <p>
+ * This implementation is not thread-safe and is supposed to be used from UI thread.
+ */
+public final class IncrementalCardNumberValidator implements CharSequence {
+
+    /**
+     * A count of first digits enough to detect card's brand.
+     */
+    private static final int BRAND_PREFIX_LENGTH = 6;
+
+    private final char[] digits = new char[CardValidator.MAX_NUMBER_LENGTH];
+    private int length;
+    // sum of Luhn values if digits at even (0-based) positions are doubled, it is Luhn sum for number of even length
+    private int evenLengthSum;
+    // sum of Luhn values if digits at odd (0-based) positions are doubled, it is Luhn sum for number of odd length
+    private int oddLengthSum;
+    private Card.Brand brand = Card.Brand.UNKNOWN;
+
+    /**
+     * Appends character to the end of number. Separators (whitespaces, dots and dashes) are ignored.
+     *
+     * @param c a character to be appended
+     * @return {@code false} if character is not a digit or separator, or number already has max length. State isn't changed in this case
+     */
+    public boolean append(char c) {
+        if (CardValidator.isSeparator(c)) {
+            return true;
+        }
+        if (c < '0' || c > '9' || length == digits.length) {
+            return false;
+        }
+        int digit = c - '0';
+        int doubled = doubledLuhnValue(digit);
+        if ((length & 1) == 0) {
+            evenLengthSum += doubled;
+            oddLengthSum += digit;
+        } else {
+            evenLengthSum += digit;
+            oddLengthSum += doubled;
+        }
+        digits[length++] = c;
+        if (length <= BRAND_PREFIX_LENGTH) {
+            brand = Card.Brand.detectByPrefix(this);
+        }
+        return true;
+    }
+
+    /**
+     * Appends all characters of text to the end of number. Appending stops on first rejected character.
+     *
+     * @param text a text to be appended
+     * @return {@code true} if all characters are appended
+     * @see #append(char)
+     */
+    public boolean append(CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (!append(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Deletes last digit of number.
+     *
+     * @return {@code false} if number is empty
+     */
+    public boolean deleteLast() {
+        if (length == 0) {
+            return false;
+        }
+        int position = --length;
+        int digit = digits[position] - '0';
+        int doubled = doubledLuhnValue(digit);
+        if ((position & 1) == 0) {
+            evenLengthSum -= doubled;
+            oddLengthSum -= digit;
+        } else {
+            evenLengthSum -= digit;
+            oddLengthSum -= doubled;
+        }
+        digits[position] = 0;
+        if (length < BRAND_PREFIX_LENGTH) {
+            brand = Card.Brand.detectByPrefix(this);
+        }
+        return true;
+    }
+
+    /**
+     * Deletes all digits.
+     */
+    public void clear() {
+        while (deleteLast()) {
+            // keep deleting
+        }
+    }
+
+    /**
+     * Returns does typed number pass the same checks as {@link Card} does for number.
+     *
+     * @return {@code true} if number is valid
+     */
+    public boolean isValid() {
+        int luhnSum = (length & 1) == 0 ? evenLengthSum : oddLengthSum;
+        return length >= CardValidator.MIN_NUMBER_LENGTH && luhnSum % 10 == 0;
+    }
+
+    /**
+     * Returns can number become valid if more digits are appended. Max length of detected brand is taken into account.
+     *
+     * @return {@code true} if number is valid or can become valid after appending digits
+     */
+    public boolean canBecomeValid() {
+        return isValid() || length < brand.getMaxLength();
+    }
+
+    /**
+     * Returns brand detected by first digits of typed number.
+     *
+     * @return a card's brand or {@link Card.Brand#UNKNOWN}
+     */
+    public Card.Brand getBrand() {
+        return brand;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", length: " + length);
+        }
+        return digits[index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().substring(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return new String(digits, 0, length);
+    }
+
+    private static int doubledLuhnValue(int digit) {
+        int doubled = digit * 2;
+        return doubled > 9 ? doubled - 9 : doubled;
+    }
+}
@@ -0,0 +1,308 @@
+package com.payfort.start;
+
+import com.payfort.start.error.CardVerificationException;
+
+import java.io.Closeable;
+import java.util.Arrays;
+
+import static com.payfort.start.util.Preconditions.checkNotNull;
+import static com.payfort.start.util.Preconditions.checkState;
+
+/**
+ * A representation of plastic card which never keeps number and cvc in {@link String}s.
+ * <p>
+ * Digits are packed as BCD, two digits per byte, into arrays owned by this instance. Brand, BIN and last digits are
+ * derived from packed digits without allocation. Arrays are zeroed by {@link #wipe()}, so card details don't stay in memory
+ * after token is created. Accessors of wiped card throw {@link IllegalStateException}.
+ * <p>
+ * Use {@link Start#createTokenFromPackedCard(android.app.Activity, PackedCard, TokenCallback, Integer, String)} to create token:
+ * request body is written directly from packed digits.
+ */
+public final class PackedCard implements Closeable {
+
+    private static final int BIN_LENGTH = 6;
+    private static final int LAST_DIGITS_LENGTH = 4;
+
+    private final byte[] number;
+    private final int numberLength;
+    private final byte[] cvc;
+    private final int cvcLength;
+    private final int expirationMonth;
+    private final int expirationYear;
+    private final String owner;
+    private final Card.Brand brand;
+    private volatile boolean wiped;
+
+    /**
+     * Constructs new instance and throw {@link CardVerificationException} if any field is invalid.
+     * Number and cvc may contain separators. Pass {@link java.nio.CharBuffer#wrap(char[])} or
+     * {@link IncrementalCardNumberValidator} to avoid creation of {@link String}s with card details.
+     *
+     * @param number          a number of card
+     * @param cvc             a cvc of card
+     * @param expirationMonth an expiration month of card
+     * @param expirationYear  an expiration year of card
+     * @param owner           an owner of card
+     * @throws CardVerificationException if any field is invalid
+     */
+    public PackedCard(CharSequence number, CharSequence cvc, int expirationMonth, int expirationYear, String owner)
+            throws CardVerificationException {
+        this(number, cvc, expirationMonth, expirationYear, owner, ExpiryCutoff.getDefault());
+    }
+
+    /**
+     * Constructs new instance and throw {@link CardVerificationException} if any field is invalid.
+     * Expiration date is checked against current year and month provided by {@code expiryCutoff}.
+     *
+     * @param number          a number of card
+     * @param cvc             a cvc of card
+     * @param expirationMonth an expiration month of card
+     * @param expirationYear  an expiration year of card
+     * @param owner           an owner of card
+     * @param expiryCutoff    a source of current year and month. Can't be {@code null}
+     * @throws CardVerificationException if any field is invalid
+     */
+    public PackedCard(CharSequence number, CharSequence cvc, int expirationMonth, int expirationYear, String owner,
+                      ExpiryCutoff expiryCutoff) throws CardVerificationException {
+        checkNotNull(expiryCutoff);
+        int invalidFields = CardValidator.validate(number, cvc, expirationMonth, expirationYear, owner, expiryCutoff);
+        if (invalidFields != 0) {
+            throw new CardVerificationException(CardValidationResult.of(invalidFields));
+        }
+        this.number = new byte[(CardValidator.MAX_NUMBER_LENGTH + 1) / 2];
+        this.numberLength = pack(number, this.number);
+        this.cvc = new byte[2];
+        this.cvcLength = pack(cvc, this.cvc);
+        this.expirationMonth = expirationMonth;
+        this.expirationYear = expirationYear;
+        this.owner = owner;
+
+        Card.Brand brand = Card.Brand.detectByPrefix(new DigitSequence(this.number, numberLength));
+        this.brand = brand.isValidLength(numberLength) ? brand : Card.Brand.UNKNOWN;
+    }
+
+    /**
+     * Returns card's issuer detected during construction.
+     *
+     * @return a brand of card
+     */
+    public Card.Brand getBrand() {
+        return brand;
+    }
+
+    /**
+     * Returns count of digits in card number.
+     *
+     * @return a length of number
+     */
+    public int length() {
+        checkNotWiped();
+        return numberLength;
+    }
+
+    /**
+     * Returns count of digits in cvc.
+     *
+     * @return a length of cvc
+     */
+    public int cvcLength() {
+        checkNotWiped();
+        return cvcLength;
+    }
+
+    /**
+     * Returns digit of card number.
+     *
+     * @param index an index of digit
+     * @return a digit from 0 to 9
+     * @throws IndexOutOfBoundsException if index is out of number
+     */
+    public int digitAt(int index) {
+        checkNotWiped();
+        if (index < 0 || index >= numberLength) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", length: " + numberLength);
+        }
+        return digit(number, index);
+    }
+
+    /**
+     * Returns bin of card (first 6 number's digits) as a number.
+     *
+     * @return first 6 digits
+     */
+    public int getBin() {
+        checkNotWiped();
+        return toInt(number, 0, BIN_LENGTH);
+    }
+
+    /**
+     * Returns last 4 number digits as a number. Format it with {@code "%04d"} to keep leading zeros.
+     *
+     * @return last digits
+     */
+    public int getLastDigits() {
+        checkNotWiped();
+        return toInt(number, numberLength - LAST_DIGITS_LENGTH, numberLength);
+    }
+
+    /**
+     * Returns expiration month of card.
+     *
+     * @return a month, {@code 1} for January
+     */
+    public int getExpirationMonth() {
+        return expirationMonth;
+    }
+
+    /**
+     * Returns expiration year of card.
+     *
+     * @return a year
+     */
+    public int getExpirationYear() {
+        return expirationYear;
+    }
+
+    /**
+     * Returns owner of card.
+     *
+     * @return an owner's name
+     */
+    public String getOwner() {
+        return owner;
+    }
+
+    /**
+     * Writes ASCII digits of card number to destination.
+     *
+     * @param destination a destination array
+     * @param offset      an offset in destination array
+     * @return count of written digits
+     */
+    public synchronized int copyNumberTo(byte[] destination, int offset) {
+        checkNotWiped();
+        return unpack(number, numberLength, destination, offset);
+    }
+
+    /**
+     * Writes ASCII digits of cvc to destination.
+     *
+     * @param destination a destination array
+     * @param offset      an offset in destination array
+     * @return count of written digits
+     */
+    public synchronized int copyCvcTo(byte[] destination, int offset) {
+        checkNotWiped();
+        return unpack(cvc, cvcLength, destination, offset);
+    }
+
+    /**
+     * Zeroes packed number and cvc. Card can't be used after this call.
+     */
+    public synchronized void wipe() {
+        wiped = true;
+        Arrays.fill(number, (byte) 0);
+        Arrays.fill(cvc, (byte) 0);
+    }
+
+    /**
+     * Same as {@link #wipe()}.
+     */
+    @Override
+    public void close() {
+        wipe();
+    }
+
+    /**
+     * Returns was card wiped.
+     *
+     * @return {@code true} if card details are zeroed
+     */
+    public boolean isWiped() {
+        return wiped;
+    }
+
+    @Override
+    public String toString() {
+        return "PackedCard{brand=" + brand + ", wiped=" + wiped + '}';
+    }
+
+    private void checkNotWiped() {
+        checkState(!wiped, "Card is wiped");
+    }
+
+    private static int pack(CharSequence text, byte[] destination) {
+        int count = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (!CardValidator.isSeparator(c)) {
+                int shift = (count & 1) == 0 ? 4 : 0;
+                destination[count >> 1] |= (c - '0') << shift;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int unpack(byte[] packed, int length, byte[] destination, int offset) {
+        for (int i = 0; i < length; i++) {
+            destination[offset + i] = (byte) ('0' + digit(packed, i));
+        }
+        return length;
+    }
+
+    private static int digit(byte[] packed, int index) {
+        int value = packed[index >> 1];
+        return ((index & 1) == 0 ? value >> 4 : value) & 0x0F;
+    }
+
+    private static int toInt(byte[] packed, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            value = value * 10 + digit(packed, i);
+        }
+        return value;
+    }
+
+    /**
+     * A view of packed digits used for brand detection during construction. Subsequences share packed array.
+     * {@link #toString()} isn't overridden, so digits never end up in {@link String}.
+     */
+    private static final class DigitSequence implements CharSequence {
+
+        private final byte[] packed;
+        private final int offset;
+        private final int length;
+
+        private DigitSequence(byte[] packed, int length) {
+            this(packed, 0, length);
+        }
+
+        private DigitSequence(byte[] packed, int offset, int length) {
+            this.packed = packed;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", length: " + length);
+            }
+            return (char) ('0' + digit(packed, offset + index));
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            if (start < 0 || end > length || start > end) {
+                throw new IndexOutOfBoundsException("Start: " + start + ", end: " + end + ", length: " + length);
+            }
+            return new DigitSequence(packed, offset + start, end - start);
+        }
+    }
+}
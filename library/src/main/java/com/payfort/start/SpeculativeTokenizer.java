@@ -0,0 +1,277 @@
+package com.payfort.start;
+
+import com.payfort.start.util.Clock;
+import com.payfort.start.web.CancellationScope;
+import com.payfort.start.web.RetryScheduler;
+
+import java.util.concurrent.TimeUnit;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Creates token in background while user is still on payment form, so submit only waits for amount-dependent
+ * verification. Tokenization starts when valid card hasn't changed for idle delay. Speculation for previous card is
+ * discarded as soon as card changes. This implementation is thread-safe.
+ */
+final class SpeculativeTokenizer {
+
+    /**
+     * Max age of speculative token. Older one isn't used, because user may have left payment form long ago.
+     */
+    static final long MAX_AGE_MS = TimeUnit.MINUTES.toMillis(5);
+
+    private final TokenCallFactory callFactory;
+    private final RetryScheduler scheduler;
+    private final long idleDelayMillis;
+    private final Clock clock;
+    private String pendingFingerprint;
+    private RetryScheduler.Task pendingTask;
+    private Speculation speculation;
+
+    SpeculativeTokenizer(TokenCallFactory callFactory, RetryScheduler scheduler, long idleDelayMillis, Clock clock) {
+        this.callFactory = callFactory;
+        this.scheduler = scheduler;
+        this.idleDelayMillis = idleDelayMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * Updates card entered by user.
+     *
+     * @param card a valid card or {@code null} if input isn't valid now
+     */
+    synchronized void onCardChanged(final Card card) {
+        String fingerprint = card != null ? CardFingerprint.of(card, null, null) : null;
+        if (fingerprint != null && (fingerprint.equals(pendingFingerprint)
+                || (speculation != null && fingerprint.equals(speculation.fingerprint)))) {
+            return;
+        }
+        discard();
+        if (card != null) {
+            pendingFingerprint = fingerprint;
+            pendingTask = scheduler.schedule(new Runnable() {
+
+                @Override
+                public void run() {
+                    start(card);
+                }
+            }, idleDelayMillis);
+        }
+    }
+
+    private synchronized void start(Card card) {
+        String fingerprint = CardFingerprint.of(card, null, null);
+        if (!fingerprint.equals(pendingFingerprint)) {
+            return;
+        }
+        pendingFingerprint = null;
+        pendingTask = null;
+        speculation = new Speculation(fingerprint, callFactory.newTokenCall(card), clock.currentTimeMillis());
+        speculation.start();
+    }
+
+    /**
+     * Takes speculation for card. Speculation is used once, the next call returns {@code null}.
+     *
+     * @param card a card submitted by user
+     * @return a pending or finished speculation or {@code null} if there is no one for card
+     */
+    synchronized Speculation take(Card card) {
+        Speculation speculation = this.speculation;
+        if (speculation == null || !speculation.fingerprint.equals(CardFingerprint.of(card, null, null))) {
+            return null;
+        }
+        this.speculation = null;
+        long now = clock.currentTimeMillis();
+        if (now - speculation.startedAt > MAX_AGE_MS) {
+            speculation.discard();
+            return null;
+        }
+        speculation.takenAt = now;
+        return speculation;
+    }
+
+    /**
+     * Discards pending and started speculations.
+     */
+    synchronized void discard() {
+        if (pendingTask != null) {
+            pendingTask.cancel();
+            pendingTask = null;
+        }
+        pendingFingerprint = null;
+        if (speculation != null) {
+            speculation.discard();
+            speculation = null;
+        }
+    }
+
+    /**
+     * Creates calls of token requests.
+     */
+    interface TokenCallFactory {
+
+        /**
+         * Creates token request for card.
+         *
+         * @param card a card
+         * @return a call to be started by speculation
+         */
+        Call<Token> newTokenCall(Card card);
+
+        /**
+         * Enqueues call with retries.
+         *
+         * @param call              a call created by {@link #newTokenCall(Card)}
+         * @param callback          a callback
+         * @param cancellationScope a scope which cancels call and its retries
+         */
+        void enqueue(Call<Token> call, Callback<Token> callback, CancellationScope cancellationScope);
+    }
+
+    /**
+     * Listener of speculation result.
+     */
+    interface Listener {
+
+        /**
+         * Called when token is created.
+         *
+         * @param token       a token
+         * @param savedMillis a time token request had been running before user submitted card
+         * @param startedAt   a time speculative request was sent at
+         */
+        void onToken(Token token, long savedMillis, long startedAt);
+
+        /**
+         * Called when server rejects card with client error, e.g. 4xx. It is final, so card must not be sent again.
+         *
+         * @param errorResponse an error response
+         */
+        void onError(Response<Token> errorResponse);
+
+        /**
+         * Called when speculative request fails because of transport or server (5xx) error after all retries.
+         * Token must be requested as usual.
+         */
+        void onFailure();
+    }
+
+    /**
+     * Speculative token request. Discarded speculation cancels call in flight or pending retry, whichever is active.
+     * Taken speculation is registered in scope of request which uses it until its result is delivered, so cancellation
+     * of that request discards it.
+     */
+    final class Speculation implements Callback<Token>, CancellationScope.Cancelable {
+
+        private final String fingerprint;
+        private final Call<Token> call;
+        private final CancellationScope cancellationScope = new CancellationScope();
+        private final long startedAt;
+        private volatile long takenAt;
+        private Token token;
+        private Response<Token> errorResponse;
+        private long finishedAt;
+        private boolean failed;
+        private Listener listener;
+        private CancellationScope requestScope;
+
+        private Speculation(String fingerprint, Call<Token> call, long startedAt) {
+            this.fingerprint = fingerprint;
+            this.call = call;
+            this.startedAt = startedAt;
+        }
+
+        private void start() {
+            callFactory.enqueue(call, this, cancellationScope);
+        }
+
+        private void discard() {
+            cancellationScope.cancel();
+            StartMetrics.getInstance().recordSpeculationDiscarded();
+        }
+
+        /**
+         * Sets listener of result. It is called at once if speculation is finished.
+         *
+         * @param listener     a listener
+         * @param requestScope a scope of request which takes speculation, its cancellation discards speculation
+         */
+        void attach(Listener listener, CancellationScope requestScope) {
+            if (!requestScope.add(this)) {
+                discard();
+                return;
+            }
+            Token token;
+            Response<Token> errorResponse;
+            boolean failed;
+            synchronized (this) {
+                this.listener = listener;
+                this.requestScope = requestScope;
+                token = this.token;
+                errorResponse = this.errorResponse;
+                failed = this.failed;
+            }
+            notifyListener(listener, token, errorResponse, failed);
+        }
+
+        @Override
+        public void cancel() {
+            discard();
+        }
+
+        @Override
+        public void onResponse(Call<Token> call, Response<Token> response) {
+            if (response.isSuccessful()) {
+                finish(response.body(), null, false);
+            } else if (response.code() >= 500) {
+                finish(null, null, true);
+            } else {
+                // error body is buffered by Retrofit, so it can be read when listener is attached
+                finish(null, response, false);
+            }
+        }
+
+        @Override
+        public void onFailure(Call<Token> call, Throwable t) {
+            finish(null, null, true);
+        }
+
+        private void finish(Token token, Response<Token> errorResponse, boolean failed) {
+            Listener listener;
+            synchronized (this) {
+                this.token = token;
+                this.errorResponse = errorResponse;
+                this.failed = failed;
+                this.finishedAt = clock.currentTimeMillis();
+                listener = this.listener;
+            }
+            notifyListener(listener, token, errorResponse, failed);
+        }
+
+        private void notifyListener(Listener listener, Token token, Response<Token> errorResponse, boolean failed) {
+            if (listener == null || (token == null && errorResponse == null && !failed)) {
+                return;
+            }
+            CancellationScope requestScope;
+            synchronized (this) {
+                requestScope = this.requestScope;
+            }
+            // request goes on with result, its cancellation no longer concerns speculation
+            requestScope.remove(this);
+            if (token != null) {
+                long savedMillis;
+                synchronized (this) {
+                    savedMillis = Math.min(finishedAt, takenAt) - startedAt;
+                }
+                listener.onToken(token, Math.max(0, savedMillis), startedAt);
+            } else if (errorResponse != null) {
+                listener.onError(errorResponse);
+            } else {
+                listener.onFailure();
+            }
+        }
+    }
+}
@@ -6,6 +6,8 @@ import android.app.Dialog;
 import android.content.Context;
 import android.content.DialogInterface;
 import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.DisplayMetrics;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -14,12 +16,31 @@ import android.webkit.WebViewClient;
 import android.widget.Toast;
 
 import com.payfort.start.error.StartApiException;
+import com.payfort.start.util.Clock;
+import com.payfort.start.web.CancellationScope;
+import com.payfort.start.web.CardFormBody;
+import com.payfort.start.web.ExecutorRetryScheduler;
+import com.payfort.start.web.HandlerRetryScheduler;
+import com.payfort.start.web.HedgePolicy;
+import com.payfort.start.web.MainThreadExecutor;
 import com.payfort.start.web.RetrofitUtils;
+import com.payfort.start.web.RetryPolicy;
+import com.payfort.start.web.RetryScheduler;
 import com.payfort.start.web.StartApi;
 import com.payfort.start.web.StartApiFactory;
 
+import java.io.IOException;
 import java.lang.ref.WeakReference;
+import java.util.Collection;
 import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import retrofit2.Call;
 import retrofit2.Callback;
@@ -30,95 +51,535 @@ import static com.payfort.start.util.Preconditions.checkNotNull;
 import static com.payfort.start.util.Preconditions.checkState;
 import static com.payfort.start.web.RetrofitUtils.enqueueWithCondition;
 import static com.payfort.start.web.RetrofitUtils.enqueueWithRetry;
+import static com.payfort.start.web.RetrofitUtils.executeWithRetry;
 import static com.payfort.start.web.RetrofitUtils.getRawErrorBody;
 
 /**
  * A class for creation card {@link Token}.
  * This implementation is thread-safe. It is recommended to use single instance of this class due to performance reasons.
+ * <p>
+ * By default {@link TokenCallback} is called and failed requests are retried on main thread. Use {@link Builder} to
+ * move this work to app's own threads.
  */
 public class Start {
 
-    private static final int MAX_REQUEST_ATTEMPTS = 4;
-    private static final long RETRY_DELAY_MS = 2000;
+    // verification is checked as soon as WebView returns to API, polling covers pages which don't return, e.g. when
+    // bank finishes verification in its own app, so it keeps the former interval
+    private static final long VERIFICATION_POLLING_DELAY_MS = 2000;
     private static final double WEB_VIEW_SCREEN_PERCENTS = 0.8f;
+    private static final long DEFAULT_CHECKOUT_WINDOW_MS = TimeUnit.MINUTES.toMillis(2);
+    private static final ConcurrentMap<String, Start> INSTANCES = new ConcurrentHashMap<>();
+
     private final StartApi startApi;
+    private final Executor callbackExecutor;
+    private final RetryScheduler retryScheduler;
+    private final RetryPolicy retryPolicy;
+    private final HedgePolicy hedgePolicy;
+    private final ConcurrentMap<String, CoalescedTokenCallback> inFlightRequests = new ConcurrentHashMap<>();
+    private final SpeculativeTokenizer speculativeTokenizer;
+    private final TokenCache tokenCache;
 
     /**
-     * Constructs new instance using api key.
+     * Returns instance for api key. Instances are cached, so all screens of app can use the same instance.
      * This <a href="https://docs.start.payfort.com/guides/api_keys/#how-to-get-api-keys">instruction</a> tells how to get API keys for SDK.
      *
      * @param apiKey a api key to be used for communication with API
+     * @return a shared instance
      * @throws NullPointerException if api key is {@code null}
      */
-    public Start(String apiKey) {
+    public static Start getInstance(String apiKey) {
         checkNotNull(apiKey);
-        this.startApi = StartApiFactory.newStartApi(apiKey);
+        Start start = INSTANCES.get(apiKey);
+        if (start == null) {
+            Start newStart = new Start(apiKey);
+            start = INSTANCES.putIfAbsent(apiKey, newStart);
+            if (start == null) {
+                start = newStart;
+            }
+        }
+        return start;
+    }
+
+    /**
+     * Constructs new instance using api key. All instances share connection pool and threads,
+     * but it is cheaper to use {@link #getInstance(String)}.
+     * This <a href="https://docs.start.payfort.com/guides/api_keys/#how-to-get-api-keys">instruction</a> tells how to get API keys for SDK.
+     *
+     * @param apiKey a api key to be used for communication with API
+     * @throws NullPointerException if api key is {@code null}
+     */
+    public Start(String apiKey) {
+        this(new Builder(apiKey));
+    }
+
+    private Start(Builder builder) {
+        this(StartApiFactory.getStartApi(builder.apiKey), builder);
     }
 
     Start(StartApi startApi) {
+        this(startApi, new Builder(""));
+    }
+
+    private Start(StartApi startApi, Builder builder) {
         this.startApi = checkNotNull(startApi);
+        this.callbackExecutor = builder.callbackExecutor != null ? builder.callbackExecutor : new MainThreadExecutor();
+        this.retryScheduler = builder.retryScheduler != null ? builder.retryScheduler : HandlerRetryScheduler.mainThread();
+        this.retryPolicy = builder.retryPolicy != null ? builder.retryPolicy : RetryPolicy.DEFAULT;
+        this.hedgePolicy = builder.hedgePolicy;
+        this.tokenCache = builder.tokenCache;
+        this.speculativeTokenizer = builder.speculationIdleMillis >= 0
+                ? new SpeculativeTokenizer(new SpeculativeCallFactory(), retryScheduler, builder.speculationIdleMillis, builder.clock)
+                : null;
+    }
+
+    /**
+     * Opens connection to API in background and keeps it alive for 2 minutes. Call it when user opens payment form,
+     * so token creation doesn't wait for DNS lookup and TLS handshake. It is safe to call this method repeatedly.
+     */
+    public void prewarm() {
+        prewarm(DEFAULT_CHECKOUT_WINDOW_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Opens connection to API in background and keeps it alive during checkout window.
+     * Repeated calls don't open new connections, they only extend the window.
+     *
+     * @param checkoutWindow a duration of checkout window. Must be positive
+     * @param timeUnit       a unit of duration. Can't be {@code null}
+     * @throws IllegalArgumentException if window isn't positive
+     */
+    public void prewarm(long checkoutWindow, TimeUnit timeUnit) {
+        checkNotNull(timeUnit, "TimeUnit must be not null!");
+        checkArgument(checkoutWindow > 0, "Checkout window must be positive!");
+        StartApiFactory.prewarm(timeUnit.toMillis(checkoutWindow), retryScheduler);
+    }
+
+    /**
+     * Tells SDK about card being entered, so token can be created before user submits payment form. Call it whenever
+     * card input changes, e.g. from {@code TextWatcher}. Token is requested when valid card hasn't changed for idle delay
+     * set by {@link Builder#speculativeTokenization(long, TimeUnit)}; {@link #createToken} with the same card uses it and
+     * only verifies amount. Token for previous card is discarded. Card rejected by speculative request (4xx) is reported
+     * to {@link #createToken} as error without sending it again, after transport or server error it is sent as usual.
+     *
+     * @param card a valid card or {@code null} if input isn't valid or complete
+     * @throws IllegalStateException if speculative tokenization isn't enabled
+     */
+    public void onCardChanged(Card card) {
+        checkState(speculativeTokenizer != null, "Speculative tokenization isn't enabled!");
+        speculativeTokenizer.onCardChanged(card);
+    }
+
+    /**
+     * Tells SDK that token has been charged, so it is removed from {@link TokenCache}.
+     *
+     * @param token a charged token. Can't be {@code null}
+     */
+    public void onTokenCharged(Token token) {
+        checkNotNull(token, "Token must be not null!");
+        if (tokenCache != null) {
+            tokenCache.invalidate(token);
+        }
+    }
+
+    /**
+     * Tells SDK that charge of token failed or was abandoned, so resubmit of the same card can reuse token from
+     * {@link TokenCache}. Delivered token isn't reused until this method is called.
+     *
+     * @param token a token which wasn't charged. Can't be {@code null}
+     */
+    public void onTokenNotCharged(Token token) {
+        checkNotNull(token, "Token must be not null!");
+        if (tokenCache != null) {
+            tokenCache.release(token);
+        }
+    }
+
+    /**
+     * Discards speculative token, e.g. when user leaves payment form.
+     */
+    public void discardSpeculativeToken() {
+        if (speculativeTokenizer != null) {
+            speculativeTokenizer.discard();
+        }
     }
 
     /**
      * Creates token asynchronously. Result will be returned via {@link TokenCallback} passed to arguments.
+     * Identical calls made while request is in flight (same card, amount and currency) don't send new requests,
+     * their callbacks receive result of the first one.
+     * <p>
+     * Returned handle stops request, e.g. when user leaves payment screen.
      *
      * @param activity      an activity. May be used to show dialog with {@link WebView} to perform token verification.
      * @param card          a card to be precessed and token will be received for. Can't be {@code null}
      * @param tokenCallback a callback to be called with results. Can't be {@code null}
      * @param amountInCents an amount in cents. Optional argument. Can be {@code null}, Can't be zero.
      * @param currency      a currency code of amount according to ISO4217.Optional argument. Can be {@code null}
+     * @return a handle of request, it can be canceled
      * @throws NullPointerException     if card or tokenCallback is {@code null}
      * @throws IllegalArgumentException if card amountInCents is zero or negative
      */
-    public void createToken(Activity activity, Card card, TokenCallback tokenCallback, Integer amountInCents, String currency) {
+    public TokenRequestHandle createToken(Activity activity, Card card, TokenCallback tokenCallback, Integer amountInCents, String currency) {
         checkNotNull(activity, "Activity must be not null!");
         checkNotNull(card, "Card must be not null!");
         checkNotNull(tokenCallback, "TokenCallback must be not null!");
         checkArgument(amountInCents == null || amountInCents > 0, "Amount must be positive!");
 
-        TokenRequest tokenRequest = new TokenRequest(activity, tokenCallback, amountInCents, currency);
-        Call<Token> tokenCall = startApi.createToken(card.number, card.cvc, card.expirationMonth, card.expirationYear, card.owner);
-        enqueueWithRetry(tokenCall, new CreateTokenCallback(tokenRequest), MAX_REQUEST_ATTEMPTS, RETRY_DELAY_MS);
+        return enqueueToken(activity, card, new ExecutorTokenCallback(callbackExecutor, tokenCallback), amountInCents, currency);
+    }
+
+    /**
+     * Creates token asynchronously and returns its future, so token creation can overlap app's own work, e.g. creation
+     * of order on app's backend. Result can be awaited on background thread or received by callbacks added to future.
+     * Identical calls made while request is in flight share it, as calls of
+     * {@link #createToken(Activity, Card, TokenCallback, Integer, String)} do. Cancellation of future cancels request.
+     *
+     * @param activity      an activity. May be used to show dialog with {@link WebView} to perform token verification.
+     * @param card          a card to be precessed and token will be received for. Can't be {@code null}
+     * @param amountInCents an amount in cents. Optional argument. Can be {@code null}, Can't be zero.
+     * @param currency      a currency code of amount according to ISO4217.Optional argument. Can be {@code null}
+     * @return a future of token
+     * @throws NullPointerException     if activity or card is {@code null}
+     * @throws IllegalArgumentException if card amountInCents is zero or negative
+     */
+    public TokenFuture createTokenFuture(Activity activity, Card card, Integer amountInCents, String currency) {
+        checkNotNull(activity, "Activity must be not null!");
+        checkNotNull(card, "Card must be not null!");
+        checkArgument(amountInCents == null || amountInCents > 0, "Amount must be positive!");
+
+        TokenFuture tokenFuture = new TokenFuture(callbackExecutor);
+        // future is completed on receiving thread, its callbacks are delivered with callback executor
+        tokenFuture.setHandle(enqueueToken(activity, card, tokenFuture.completer(), amountInCents, currency));
+        return tokenFuture;
+    }
+
+    /**
+     * Creates token using cache, speculative token or in-flight identical request if possible.
+     *
+     * @param deliveringCallback a callback which delivers result to app, it is called on thread which receives result
+     */
+    private TokenRequestHandle enqueueToken(Activity activity, Card card, TokenCallback deliveringCallback, Integer amountInCents,
+            String currency) {
+        String requestFingerprint = CardFingerprint.of(card, amountInCents, currency);
+        // lookups of both keys aren't counted, so request is counted by cache once
+        TokenCache.Entry cachedVerification = tokenCache != null ? tokenCache.take(requestFingerprint) : null;
+        if (cachedVerification != null) {
+            tokenCache.recordLookup(true);
+            deliveringCallback.onSuccess(cachedVerification.token);
+            return new TokenRequestHandle(null, deliveringCallback);
+        }
+        CoalescedTokenCallback newCallback = newCoalescedCallback(requestFingerprint, deliveringCallback);
+        CoalescedTokenCallback coalescedCallback = coalesce(requestFingerprint, newCallback, deliveringCallback);
+        if (coalescedCallback == newCallback) {
+            String cardFingerprint = CardFingerprint.of(card, null, null);
+            TokenRequest tokenRequest = newTokenRequest(activity, coalescedCallback, amountInCents, currency);
+            tokenRequest.cacheKeys(cardFingerprint, requestFingerprint);
+            TokenCache.Entry cachedToken = tokenCache != null ? tokenCache.take(cardFingerprint) : null;
+            if (tokenCache != null) {
+                tokenCache.recordLookup(cachedToken != null);
+            }
+            SpeculativeTokenizer.Speculation speculation = cachedToken == null && speculativeTokenizer != null
+                    ? speculativeTokenizer.take(card)
+                    : null;
+            if (cachedToken != null) {
+                tokenRequest.createdAt = cachedToken.createdAt;
+                // verification is requested again, because amount or currency differs
+                onTokenCreated(tokenRequest, cachedToken.token);
+            } else if (speculation != null) {
+                speculation.attach(new SpeculationListener(tokenRequest, card), tokenRequest.cancellationScope);
+            } else {
+                enqueueTokenCall(tokenRequest, newTokenCall(card));
+            }
+        } else if (tokenCache != null) {
+            // joined identical request in flight
+            tokenCache.recordLookup(false);
+        }
+        return new TokenRequestHandle(coalescedCallback, deliveringCallback);
+    }
+
+    /**
+     * Creates token asynchronously for card which keeps details in wipeable buffers. Request body is written directly
+     * from card's buffers. Card must not be wiped until callback is called.
+     *
+     * @param activity      an activity. May be used to show dialog with {@link WebView} to perform token verification.
+     * @param card          a card to be precessed and token will be received for. Can't be {@code null}
+     * @param tokenCallback a callback to be called with results. Can't be {@code null}
+     * @param amountInCents an amount in cents. Optional argument. Can be {@code null}, Can't be zero.
+     * @param currency      a currency code of amount according to ISO4217.Optional argument. Can be {@code null}
+     * @return a handle of request, it can be canceled
+     * @throws NullPointerException     if card or tokenCallback is {@code null}
+     * @throws IllegalArgumentException if card amountInCents is zero or negative
+     * @throws IllegalStateException    if card is wiped
+     */
+    public TokenRequestHandle createTokenFromPackedCard(Activity activity, PackedCard card, TokenCallback tokenCallback, Integer amountInCents, String currency) {
+        checkNotNull(activity, "Activity must be not null!");
+        checkNotNull(card, "Card must be not null!");
+        checkNotNull(tokenCallback, "TokenCallback must be not null!");
+        checkArgument(amountInCents == null || amountInCents > 0, "Amount must be positive!");
+        checkState(!card.isWiped(), "Card is wiped!");
+
+        TokenCallback deliveringCallback = new ExecutorTokenCallback(callbackExecutor, tokenCallback);
+        String requestFingerprint = CardFingerprint.of(card, amountInCents, currency);
+        CoalescedTokenCallback newCallback = newCoalescedCallback(requestFingerprint, deliveringCallback);
+        CoalescedTokenCallback coalescedCallback = coalesce(requestFingerprint, newCallback, deliveringCallback);
+        if (coalescedCallback == newCallback) {
+            Call<Token> tokenCall = hedge(startApi.createToken(newIdempotencyKey(), new CardFormBody(card)));
+            enqueueTokenCall(newTokenRequest(activity, coalescedCallback, amountInCents, currency), tokenCall);
+        }
+        return new TokenRequestHandle(coalescedCallback, deliveringCallback);
+    }
+
+    /**
+     * Creates token on calling thread, e.g. in {@code WorkManager}'s worker or app's own executor. Requests are executed
+     * on calling thread, failed requests are retried according to {@link RetryPolicy} after calling thread sleeps.
+     * Neither callback executor nor retry scheduler is involved, request which outlives timeout or whose thread is
+     * interrupted is canceled by SDK's own daemon thread, so it works even if main thread is blocked or there is no main
+     * looper.
+     * <p>
+     * 3-D Secure verification can't be shown without {@link Activity}, so token of enrolled card fails with error.
+     * Interruption cancels request in flight and aborts sleep between retries.
+     *
+     * @param card          a card to be precessed and token will be received for. Can't be {@code null}
+     * @param amountInCents an amount in cents. Optional argument. Can be {@code null}, Can't be zero.
+     * @param currency      a currency code of amount according to ISO4217.Optional argument. Can be {@code null}
+     * @param timeout       a max duration of token creation including retries. Must be positive
+     * @param timeUnit      a unit of timeout. Can't be {@code null}
+     * @return a created token
+     * @throws StartApiException        if API returns error, request fails or timeout elapses
+     * @throws InterruptedException     if calling thread is interrupted
+     * @throws NullPointerException     if card or timeUnit is {@code null}
+     * @throws IllegalArgumentException if card amountInCents is zero or negative or timeout isn't positive
+     * @throws IllegalStateException    if it is called on main thread of Android app
+     */
+    public Token createTokenSync(Card card, Integer amountInCents, String currency, long timeout, TimeUnit timeUnit)
+            throws StartApiException, InterruptedException {
+        checkNotNull(card, "Card must be not null!");
+        checkNotNull(timeUnit, "TimeUnit must be not null!");
+        checkArgument(amountInCents == null || amountInCents > 0, "Amount must be positive!");
+        checkArgument(timeout > 0, "Timeout must be positive!");
+        checkState(!isMainThread(), "Token can't be created synchronously on main thread!");
+
+        long deadlineNanos = System.nanoTime() + timeUnit.toNanos(timeout);
+        Call<Token> tokenCall = startApi.createToken(newIdempotencyKey(), card.number, card.cvc, card.expirationMonth,
+                card.expirationYear, card.owner);
+        Token token = executeSync(tokenCall, deadlineNanos, "Request to create new token failed");
+        if (!token.isVerificationRequired()) {
+            return token;
+        }
+        if (amountInCents == null) {
+            throw new StartApiException("Token requires verification, but amount isn't given");
+        }
+        Call<TokenVerification> verificationCall = startApi.createTokenVerification(token.getId(), amountInCents, currency);
+        TokenVerification tokenVerification = executeSync(verificationCall, deadlineNanos, "Request to create new token verification failed");
+        if (tokenVerification.isEnrolled()) {
+            throw new StartApiException("Token requires 3-D Secure verification, but there is no activity to show it");
+        }
+        return new Token(token, tokenVerification);
+    }
+
+    private <T> T executeSync(Call<T> call, long deadlineNanos, String errorMessage) throws StartApiException, InterruptedException {
+        long timeoutMillis = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+        if (timeoutMillis <= 0) {
+            throw new StartApiException(errorMessage + ": timeout");
+        }
+        Response<T> response;
+        try {
+            response = executeWithRetry(call, retryPolicy, Watchdog.SCHEDULER, timeoutMillis);
+        } catch (IOException e) {
+            throw new StartApiException(errorMessage, e);
+        }
+        if (!response.isSuccessful()) {
+            String error = String.format(Locale.US, "%s. Code: `%s`, response: `%s`", errorMessage, response.code(), getRawErrorBody(response));
+            throw new StartApiException(error);
+        }
+        return response.body();
+    }
+
+    /**
+     * Creates tokens for many cards, e.g. during migration of stored cards, with {@link TokenBatch#DEFAULT_CONCURRENCY}
+     * concurrent requests.
+     *
+     * @param cards    cards to create tokens for. Can't be {@code null} or contain {@code null}
+     * @param callback a callback to be called with results. Can't be {@code null}
+     * @return a started batch, it can be canceled
+     * @throws NullPointerException if cards, any card or callback is {@code null}
+     * @see #createTokens(Collection, int, BatchTokenCallback)
+     */
+    public TokenBatch createTokens(Collection<Card> cards, BatchTokenCallback callback) {
+        return createTokens(cards, TokenBatch.DEFAULT_CONCURRENCY, callback);
+    }
+
+    /**
+     * Creates tokens for many cards, e.g. during migration of stored cards. No more than {@code maxConcurrency} requests
+     * are in flight at once, result of every card is delivered to callback as soon as it is received.
+     * <p>
+     * Batch doesn't need {@link Activity}: 3-D Secure verification can't be shown, so card which requires it fails with
+     * error. Batch requests bypass {@link TokenCache} and coalescing of identical calls, failed requests are retried
+     * according to {@link RetryPolicy}.
+     *
+     * @param cards          cards to create tokens for. Can't be {@code null} or contain {@code null}
+     * @param maxConcurrency a max count of concurrent requests, from 1 to {@link TokenBatch#MAX_CONCURRENCY}
+     * @param callback       a callback to be called with results. Can't be {@code null}
+     * @return a started batch, it can be canceled
+     * @throws NullPointerException     if cards, any card or callback is {@code null}
+     * @throws IllegalArgumentException if max concurrency is out of range
+     */
+    public TokenBatch createTokens(Collection<Card> cards, int maxConcurrency, BatchTokenCallback callback) {
+        checkNotNull(cards, "Cards must be not null!");
+        checkNotNull(callback, "BatchTokenCallback must be not null!");
+
+        TokenBatch tokenBatch = new TokenBatch(cards, maxConcurrency, new BatchTokenizer(), callbackExecutor, callback);
+        tokenBatch.start();
+        return tokenBatch;
+    }
+
+    private CoalescedTokenCallback newCoalescedCallback(String fingerprint, TokenCallback tokenCallback) {
+        return new CoalescedTokenCallback(fingerprint, inFlightRequests, tokenCallback, new CancellationScope());
+    }
+
+    /**
+     * Joins identical in-flight request, e.g. started by double tap, or registers new one.
+     *
+     * @param coalescedCallback a callback of new request
+     * @return a callback of new request or of identical request in flight which callback joined
+     */
+    private CoalescedTokenCallback coalesce(String fingerprint, CoalescedTokenCallback coalescedCallback, TokenCallback tokenCallback) {
+        while (true) {
+            CoalescedTokenCallback inFlight = inFlightRequests.putIfAbsent(fingerprint, coalescedCallback);
+            if (inFlight == null) {
+                return coalescedCallback;
+            }
+            if (inFlight.join(tokenCallback)) {
+                return inFlight;
+            }
+            // request has just completed, but isn't removed from map yet
+            if (inFlightRequests.replace(fingerprint, inFlight, coalescedCallback)) {
+                return coalescedCallback;
+            }
+        }
+    }
+
+    // there is neither looper nor main thread off Android, e.g. when SDK is used by JVM tool, android.jar stubs throw then
+    private static boolean isMainThread() {
+        Looper mainLooper;
+        try {
+            mainLooper = Looper.getMainLooper();
+        } catch (RuntimeException e) {
+            return false;
+        }
+        return mainLooper != null && mainLooper.getThread() == Thread.currentThread();
+    }
+
+    private static String newIdempotencyKey() {
+        return UUID.randomUUID().toString();
+    }
+
+    private Call<Token> newTokenCall(Card card) {
+        Call<Token> tokenCall = startApi.createToken(newIdempotencyKey(), card.number, card.cvc, card.expirationMonth,
+                card.expirationYear, card.owner);
+        return hedge(tokenCall);
+    }
+
+    private Call<Token> hedge(Call<Token> tokenCall) {
+        return hedgePolicy != null ? hedgePolicy.hedge(tokenCall, retryScheduler) : tokenCall;
+    }
+
+    private TokenRequest newTokenRequest(Activity activity, CoalescedTokenCallback tokenCallback, Integer amountInCents, String currency) {
+        TokenRequest tokenRequest = new TokenRequest(activity, tokenCallback, tokenCallback.cancellationScope(), amountInCents, currency);
+        if (tokenCache != null) {
+            // token's lifetime is counted since request, so cached token never outlives server's one
+            tokenRequest.createdAt = tokenCache.currentTimeMillis();
+        }
+        return tokenRequest;
+    }
+
+    private void enqueueTokenCall(TokenRequest tokenRequest, Call<Token> tokenCall) {
+        enqueueWithRetry(tokenCall, new CreateTokenCallback(tokenRequest), retryPolicy, retryScheduler, tokenRequest.cancellationScope);
     }
 
     private void onTokenCreated(TokenRequest tokenRequest, Token token) {
-        if (token.isVerificationRequired()) {
+        if (token.isVerificationRequired() && tokenRequest.amountInCents == null) {
+            // verification is created for amount, e.g. batch requests have none
+            tokenRequest.tokenCallback.onError(new StartApiException("Token requires verification, but amount isn't given"));
+        } else if (token.isVerificationRequired()) {
             processTokenVerification(tokenRequest, token);
         } else {
-            tokenRequest.tokenCallback.onSuccess(token);
+            onTokenReady(tokenRequest, token);
         }
     }
 
+    private void onTokenRejected(TokenRequest tokenRequest, Response<Token> errorResponse) {
+        String error = String.format(Locale.US, "Request to create new token failed. Code: `%s`, response: `%s`", errorResponse.code(),
+                getRawErrorBody(errorResponse));
+        tokenRequest.tokenCallback.onError(new StartApiException(error));
+    }
+
+    private void onTokenReady(TokenRequest tokenRequest, Token token) {
+        if (tokenCache != null && tokenRequest.cardFingerprint != null) {
+            tokenCache.put(tokenRequest.cardFingerprint, token, tokenRequest.createdAt);
+            if (token.getVerification() != null) {
+                tokenCache.put(tokenRequest.requestFingerprint, token, tokenRequest.createdAt);
+            }
+        }
+        tokenRequest.tokenCallback.onSuccess(token);
+    }
+
     private void processTokenVerification(TokenRequest tokenRequest, Token token) {
         Call<TokenVerification> call = startApi.createTokenVerification(token.getId(), tokenRequest.amountInCents, tokenRequest.currency);
-        enqueueWithRetry(call, new CreateTokenVerificationCallback(tokenRequest, token), MAX_REQUEST_ATTEMPTS, RETRY_DELAY_MS);
+        enqueueWithRetry(call, new CreateTokenVerificationCallback(tokenRequest, token), retryPolicy, retryScheduler,
+                tokenRequest.cancellationScope);
     }
 
-    private void onTokenVerificationCreated(TokenRequest tokenRequest, TokenVerification tokenVerification, Token token) {
-        Token tokenWithVerification = new Token(token, tokenVerification);
-        if (tokenVerification.isEnrolled()) {
-            verifyTokenInBrowser(tokenRequest, tokenWithVerification);
+    private void onTokenVerificationCreated(final TokenRequest tokenRequest, TokenVerification tokenVerification, Token token) {
+        final Token tokenWithVerification = new Token(token, tokenVerification);
+        if (tokenVerification.isEnrolled() && tokenRequest.activityWeakReference == null) {
+            tokenRequest.tokenCallback.onError(new StartApiException("Token requires 3-D Secure verification, but there is no activity to show it"));
+        } else if (tokenVerification.isEnrolled()) {
+            // dialog with WebView can be shown only on main thread
+            MainThread.HANDLER.post(new Runnable() {
+
+                @Override
+                public void run() {
+                    verifyTokenInBrowser(tokenRequest, tokenWithVerification);
+                }
+            });
         } else {
-            tokenRequest.tokenCallback.onSuccess(tokenWithVerification);
+            onTokenReady(tokenRequest, tokenWithVerification);
         }
     }
 
     private void verifyTokenInBrowser(TokenRequest tokenRequest, Token token) {
-        if (tokenRequest.isActivityLive()) {
+        if (tokenRequest.cancellationScope.isCanceled()) {
+            return;
+        }
+        if (!tokenRequest.isActivityLive()) {
+            // nobody can complete verification, so request fails and identical calls made later don't join it
+            tokenRequest.tokenCallback.onError(new StartApiException("Token requires 3-D Secure verification, but activity is finished"));
+        } else {
             Context context = tokenRequest.activityWeakReference.get();
             Toast.makeText(context, R.string.web_view_validation_alert, Toast.LENGTH_LONG).show();
 
             Call<TokenVerification> call = startApi.getTokenVerification(token.getId());
+            CheckTokenVerificationCallback verificationCallback = new CheckTokenVerificationCallback(tokenRequest, token, call);
 
-            String url = String.format(Locale.US, "%stokens/%s/verification/verify", StartApiFactory.BASE_URL, token.getId());
-            Dialog verificationDialog = showVerificationDialog(context, url, new VerificationDialogDismissListener(call, tokenRequest));
+            String verificationUrl = String.format(Locale.US, "%stokens/%s/verification", StartApiFactory.BASE_URL, token.getId());
+            VerificationWebViewClient webViewClient = new VerificationWebViewClient(verificationUrl, verificationCallback);
+            Dialog dialog = showVerificationDialog(context, verificationUrl + "/verify", webViewClient,
+                    new VerificationDialogDismissListener(call, tokenRequest));
+            verificationCallback.dialogCloser = new DialogCloser(dialog);
+            if (!tokenRequest.cancellationScope.add(verificationCallback.dialogCloser)) {
+                // request is canceled on another thread while dialog was shown
+                dialog.dismiss();
+                return;
+            }
 
-            CheckTokenVerificationCallback verificationCallback = new CheckTokenVerificationCallback(tokenRequest, token, verificationDialog);
-            enqueueWithCondition(call, verificationCallback, new VerificationStatusRetryCondition(), RETRY_DELAY_MS);
+            enqueueWithCondition(call, verificationCallback, new VerificationStatusRetryCondition(), VERIFICATION_POLLING_DELAY_MS,
+                    retryScheduler, tokenRequest.cancellationScope);
         }
     }
 
-    private Dialog showVerificationDialog(Context context, String url, VerificationDialogDismissListener onDialogListener) {
+    private Dialog showVerificationDialog(Context context, String url, WebViewClient webViewClient,
+            VerificationDialogDismissListener onDialogListener) {
         LayoutInflater layoutInflater = LayoutInflater.from(context);
         View view = layoutInflater.inflate(R.layout.web_dialog, null);
         DisplayMetrics displayMetrics = context.getResources().getDisplayMetrics();
@@ -126,7 +587,7 @@ public class Start {
         view.setMinimumWidth((int) (displayMetrics.widthPixels * WEB_VIEW_SCREEN_PERCENTS));
 
         WebView webView = (WebView) view.findViewById(R.id.webView);
-        webView.setWebViewClient(new WebViewClient());
+        webView.setWebViewClient(webViewClient);
         webView.getSettings().setJavaScriptEnabled(true);
         webView.requestFocus(View.FOCUS_DOWN);
         webView.loadUrl(url);
@@ -157,8 +618,7 @@ public class Start {
                 Token token = response.body();
                 onTokenCreated(tokenRequest, token);
             } else {
-                String error = String.format(Locale.US, "Request to create new token failed. Code: `%s`, response: `%s`", response.code(), getRawErrorBody(response));
-                tokenRequest.tokenCallback.onError(new StartApiException(error));
+                onTokenRejected(tokenRequest, response);
             }
         }
 
@@ -195,16 +655,18 @@ public class Start {
         }
     }
 
-    private final class CheckTokenVerificationCallback implements Callback<TokenVerification> {
+    private final class CheckTokenVerificationCallback implements Callback<TokenVerification>, VerificationWebViewClient.Listener {
 
         private final TokenRequest tokenRequest;
         private final Token token;
-        private final Dialog verificationDialog;
+        private final Call<TokenVerification> pollingCall;
+        private final AtomicBoolean completed = new AtomicBoolean();
+        private volatile DialogCloser dialogCloser;
 
-        private CheckTokenVerificationCallback(TokenRequest tokenRequest, Token token, Dialog verificationDialog) {
+        private CheckTokenVerificationCallback(TokenRequest tokenRequest, Token token, Call<TokenVerification> pollingCall) {
             this.tokenRequest = tokenRequest;
             this.token = token;
-            this.verificationDialog = verificationDialog;
+            this.pollingCall = pollingCall;
         }
 
         @Override
@@ -212,14 +674,45 @@ public class Start {
             checkState(response.isSuccessful(), "Response isn't successful");
             checkState(response.body().isFinalized(), "Token is not finalized!");
 
-            verificationDialog.dismiss();
-            tokenRequest.tokenCallback.onSuccess(new Token(token, response.body()));
+            complete(response.body());
         }
 
         @Override
         public void onFailure(Call<TokenVerification> call, Throwable t) {
             throw new IllegalStateException("Should not be called! Request can be canceled or be successful");
         }
+
+        @Override
+        public void onVerificationReturned(String url) {
+            if (pollingCall.isCanceled()) {
+                return;
+            }
+            // single confirmation request, polling goes on if verification isn't finalized yet
+            enqueueWithRetry(pollingCall.clone(), new Callback<TokenVerification>() {
+
+                @Override
+                public void onResponse(Call<TokenVerification> call, Response<TokenVerification> response) {
+                    if (response.isSuccessful() && response.body().isFinalized()) {
+                        complete(response.body());
+                    }
+                }
+
+                @Override
+                public void onFailure(Call<TokenVerification> call, Throwable t) {
+                    // polling retries it
+                }
+            }, RetryPolicy.fixed(1, 0), retryScheduler, tokenRequest.cancellationScope);
+        }
+
+        private void complete(TokenVerification tokenVerification) {
+            if (!completed.compareAndSet(false, true)) {
+                return;
+            }
+            pollingCall.cancel();
+            tokenRequest.cancellationScope.remove(dialogCloser);
+            dialogCloser.cancel();
+            onTokenReady(tokenRequest, new Token(token, tokenVerification));
+        }
     }
 
     private final class VerificationStatusRetryCondition implements RetrofitUtils.RetryCondition<TokenVerification> {
@@ -242,36 +735,322 @@ public class Start {
 
         @Override
         public void onCancel(DialogInterface dialogInterface) {
-            if (!call.isCanceled()) {
-                call.cancel();
-            }
+            stopPolling();
             tokenRequest.tokenCallback.onCancel();
         }
 
         @Override
         public void onDismiss(DialogInterface dialogInterface) {
+            stopPolling();
+        }
+
+        private void stopPolling() {
             if (!call.isCanceled()) {
                 call.cancel();
             }
+            // scheduled poll and confirmation request are canceled too
+            tokenRequest.cancellationScope.cancel();
+        }
+    }
+
+    /**
+     * Dismisses verification dialog on main thread when request is completed or canceled.
+     */
+    private static final class DialogCloser implements CancellationScope.Cancelable, Runnable {
+
+        private final Dialog dialog;
+
+        private DialogCloser(Dialog dialog) {
+            this.dialog = dialog;
+        }
+
+        @Override
+        public void cancel() {
+            MainThread.HANDLER.post(this);
+        }
+
+        @Override
+        public void run() {
+            dialog.dismiss();
         }
     }
 
     private static final class TokenRequest {
 
+        // null if request has no activity to show verification dialog, e.g. in batch
         private final WeakReference<Activity> activityWeakReference;
         private final TokenCallback tokenCallback;
+        private final CancellationScope cancellationScope;
         private final Integer amountInCents;
         private final String currency;
+        private String cardFingerprint;
+        private String requestFingerprint;
+        private volatile long createdAt;
 
-        private TokenRequest(Activity activity, TokenCallback tokenCallback, Integer amountInCents, String currency) {
-            this.activityWeakReference = new WeakReference<>(activity);
+        private TokenRequest(Activity activity, TokenCallback tokenCallback, CancellationScope cancellationScope, Integer amountInCents,
+                String currency) {
+            this.activityWeakReference = activity != null ? new WeakReference<>(activity) : null;
             this.tokenCallback = tokenCallback;
+            this.cancellationScope = cancellationScope;
             this.amountInCents = amountInCents;
             this.currency = currency;
         }
 
+        private void cacheKeys(String cardFingerprint, String requestFingerprint) {
+            this.cardFingerprint = cardFingerprint;
+            this.requestFingerprint = requestFingerprint;
+        }
+
         private boolean isActivityLive() {
-            return activityWeakReference.get() != null && !activityWeakReference.get().isFinishing();
+            return activityWeakReference != null && activityWeakReference.get() != null && !activityWeakReference.get().isFinishing();
+        }
+    }
+
+    private final class SpeculativeCallFactory implements SpeculativeTokenizer.TokenCallFactory {
+
+        @Override
+        public Call<Token> newTokenCall(Card card) {
+            return Start.this.newTokenCall(card);
+        }
+
+        @Override
+        public void enqueue(Call<Token> call, Callback<Token> callback, CancellationScope cancellationScope) {
+            enqueueWithRetry(call, callback, retryPolicy, retryScheduler, cancellationScope);
+        }
+    }
+
+    private final class BatchTokenizer implements TokenBatch.Tokenizer {
+
+        @Override
+        public CancellationScope createToken(Card card, TokenCallback callback) {
+            CancellationScope cancellationScope = new CancellationScope();
+            // batch delivers results with callback executor itself, after next request is started
+            enqueueTokenCall(new TokenRequest(null, callback, cancellationScope, null, null), newTokenCall(card));
+            return cancellationScope;
+        }
+    }
+
+    private final class SpeculationListener implements SpeculativeTokenizer.Listener {
+
+        private final TokenRequest tokenRequest;
+        private final Card card;
+
+        private SpeculationListener(TokenRequest tokenRequest, Card card) {
+            this.tokenRequest = tokenRequest;
+            this.card = card;
+        }
+
+        @Override
+        public void onToken(Token token, long savedMillis, long startedAt) {
+            StartMetrics.getInstance().recordSpeculationHit(savedMillis);
+            tokenRequest.createdAt = startedAt;
+            onTokenCreated(tokenRequest, token);
+        }
+
+        @Override
+        public void onError(Response<Token> errorResponse) {
+            // card is rejected, sending it again would get the same answer
+            onTokenRejected(tokenRequest, errorResponse);
+        }
+
+        @Override
+        public void onFailure() {
+            // speculative request failed with transport or server error, maybe after user submitted card, so card is
+            // sent again with its own retries
+            enqueueTokenCall(tokenRequest, newTokenCall(card));
+        }
+    }
+
+    /**
+     * {@link TokenCallback} which calls wrapped callback using executor.
+     */
+    private static final class ExecutorTokenCallback implements TokenCallback {
+
+        private final Executor executor;
+        private final TokenCallback callback;
+
+        private ExecutorTokenCallback(Executor executor, TokenCallback callback) {
+            this.executor = executor;
+            this.callback = callback;
+        }
+
+        @Override
+        public void onSuccess(final Token token) {
+            executor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    callback.onSuccess(token);
+                }
+            });
+        }
+
+        @Override
+        public void onError(final StartApiException error) {
+            executor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    callback.onError(error);
+                }
+            });
+        }
+
+        @Override
+        public void onCancel() {
+            executor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    callback.onCancel();
+                }
+            });
+        }
+    }
+
+    /**
+     * Holder of main thread handler used for UI work, it is created on first use.
+     */
+    private static final class MainThread {
+
+        static final Handler HANDLER = new Handler(Looper.getMainLooper());
+    }
+
+    /**
+     * Holder of scheduler which cancels synchronous requests outliving timeout, it is created on first use. Its only
+     * thread is daemon and is independent of main looper, which may be busy or absent while calling thread waits.
+     */
+    private static final class Watchdog {
+
+        static final RetryScheduler SCHEDULER = new ExecutorRetryScheduler(newExecutor());
+
+        private static ScheduledThreadPoolExecutor newExecutor() {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "Start watchdog");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            // watchdog of completed request is canceled, it must not wait in queue until timeout
+            executor.setRemoveOnCancelPolicy(true);
+            return executor;
+        }
+    }
+
+    /**
+     * Builder of {@link Start} with custom threading. Instances created by builder aren't cached.
+     */
+    public static final class Builder {
+
+        private final String apiKey;
+        private Executor callbackExecutor;
+        private RetryScheduler retryScheduler;
+        private RetryPolicy retryPolicy;
+        private HedgePolicy hedgePolicy;
+        private long speculationIdleMillis = -1;
+        private TokenCache tokenCache;
+        private Clock clock = Clock.SYSTEM;
+
+        /**
+         * Creates builder.
+         *
+         * @param apiKey a api key to be used for communication with API
+         * @throws NullPointerException if api key is {@code null}
+         */
+        public Builder(String apiKey) {
+            this.apiKey = checkNotNull(apiKey);
+        }
+
+        /**
+         * Sets executor which calls {@link TokenCallback}. Default executor calls it on main thread.
+         *
+         * @param callbackExecutor an executor. Can't be {@code null}
+         * @return this builder
+         */
+        public Builder callbackExecutor(Executor callbackExecutor) {
+            this.callbackExecutor = checkNotNull(callbackExecutor);
+            return this;
+        }
+
+        /**
+         * Sets scheduler of retries and keep-alive requests, e.g. {@link com.payfort.start.web.ExecutorRetryScheduler}.
+         * Default scheduler runs them on main thread.
+         *
+         * @param retryScheduler a scheduler. Can't be {@code null}
+         * @return this builder
+         */
+        public Builder retryScheduler(RetryScheduler retryScheduler) {
+            this.retryScheduler = checkNotNull(retryScheduler);
+            return this;
+        }
+
+        /**
+         * Sets policy of retrying failed requests. Default is {@link RetryPolicy#DEFAULT}.
+         *
+         * @param retryPolicy a policy. Can't be {@code null}
+         * @return this builder
+         */
+        public Builder retryPolicy(RetryPolicy retryPolicy) {
+            this.retryPolicy = checkNotNull(retryPolicy);
+            return this;
+        }
+
+        /**
+         * Enables hedging of token requests: slow request is sent once more and the first answer is used.
+         * Hedging is disabled by default.
+         *
+         * @param hedgePolicy a policy. Can't be {@code null}
+         * @return this builder
+         */
+        public Builder hedgePolicy(HedgePolicy hedgePolicy) {
+            this.hedgePolicy = checkNotNull(hedgePolicy);
+            return this;
+        }
+
+        /**
+         * Enables speculative tokenization: token is requested in background when valid card passed to
+         * {@link Start#onCardChanged(Card)} hasn't changed for idle delay. It is disabled by default.
+         *
+         * @param idleDelay a time card must stay unchanged. Must be zero or positive
+         * @param timeUnit  a unit of delay. Can't be {@code null}
+         * @return this builder
+         */
+        public Builder speculativeTokenization(long idleDelay, TimeUnit timeUnit) {
+            checkNotNull(timeUnit, "TimeUnit must be not null!");
+            checkArgument(idleDelay >= 0, "Idle delay must be zero or positive!");
+            this.speculationIdleMillis = timeUnit.toMillis(idleDelay);
+            return this;
+        }
+
+        /**
+         * Enables cache of tokens, so resubmit of the same card reuses token and, for the same amount and currency,
+         * its verification. Cache is disabled by default.
+         * <p>
+         * Token is reused only after app calls {@link Start#onTokenNotCharged(Token)}, so charged token is never returned
+         * again for the same card.
+         *
+         * @param tokenCache a cache. Can't be {@code null}
+         * @return this builder
+         */
+        public Builder tokenCache(TokenCache tokenCache) {
+            this.tokenCache = checkNotNull(tokenCache);
+            return this;
+        }
+
+        Builder clock(Clock clock) {
+            this.clock = checkNotNull(clock);
+            return this;
+        }
+
+        public Start build() {
+            return new Start(this);
+        }
+
+        Start build(StartApi startApi) {
+            return new Start(startApi, this);
         }
     }
 }
@@ -0,0 +1,226 @@
+package com.payfort.start;
+
+import com.payfort.start.web.NetworkListener;
+import com.payfort.start.web.StartApiFactory;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import okhttp3.Protocol;
+import okhttp3.TlsVersion;
+
+/**
+ * Process-wide metrics of SDK's network activity. Values are updated by SDK, app may read them to monitor
+ * SDK's behaviour in the field. This implementation is thread-safe.
+ */
+public final class StartMetrics {
+
+    private static final StartMetrics INSTANCE = new StartMetrics();
+
+    static {
+        // transport lives in another package, it reports its events through listener rather than public methods
+        StartApiFactory.setNetworkListener(new Recorder(INSTANCE));
+    }
+
+    private final AtomicLongArray responsesByProtocol = new AtomicLongArray(Protocol.values().length);
+    private volatile Protocol lastProtocol;
+    private volatile TlsVersion lastTlsVersion;
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+    private final AtomicLong speculationHits = new AtomicLong();
+    private final AtomicLong speculationDiscards = new AtomicLong();
+    private final AtomicLong speculationSavedMillis = new AtomicLong();
+
+    private StartMetrics() {
+    }
+
+    /**
+     * Returns process-wide metrics.
+     *
+     * @return a shared instance
+     */
+    public static StartMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Records response received from network.
+     *
+     * @param protocol   a protocol negotiated for connection
+     * @param tlsVersion a TLS version negotiated for connection or {@code null} if connection isn't secure
+     */
+    void recordResponse(Protocol protocol, TlsVersion tlsVersion) {
+        responsesByProtocol.incrementAndGet(protocol.ordinal());
+        lastProtocol = protocol;
+        lastTlsVersion = tlsVersion;
+    }
+
+    /**
+     * Returns protocol of the last response, e.g. {@link Protocol#HTTP_2} if connection is multiplexed.
+     *
+     * @return a protocol or {@code null} if there were no responses
+     */
+    public Protocol getLastProtocol() {
+        return lastProtocol;
+    }
+
+    /**
+     * Returns TLS version of connection used for the last response.
+     *
+     * @return a TLS version or {@code null} if there were no responses or connection wasn't secure
+     */
+    public TlsVersion getLastTlsVersion() {
+        return lastTlsVersion;
+    }
+
+    /**
+     * Returns count of responses received using protocol.
+     *
+     * @param protocol a protocol
+     * @return a count of responses
+     */
+    public long getResponseCount(Protocol protocol) {
+        return responsesByProtocol.get(protocol.ordinal());
+    }
+
+    /**
+     * Records hedge, i.e. second attempt of slow request.
+     */
+    void recordHedge() {
+        hedges.incrementAndGet();
+    }
+
+    /**
+     * Records hedge which answered before original request.
+     */
+    void recordHedgeWin() {
+        hedgeWins.incrementAndGet();
+    }
+
+    /**
+     * Returns count of hedges sent.
+     *
+     * @return a count of hedges
+     */
+    public long getHedgeCount() {
+        return hedges.get();
+    }
+
+    /**
+     * Returns count of hedges which answered before original request. Together with {@link #getHedgeCount()}
+     * it shows whether hedging pays off.
+     *
+     * @return a count of winning hedges
+     */
+    public long getHedgeWinCount() {
+        return hedgeWins.get();
+    }
+
+    /**
+     * Records submit which used speculative token.
+     *
+     * @param savedMillis a time token request had been running before submit
+     */
+    void recordSpeculationHit(long savedMillis) {
+        speculationHits.incrementAndGet();
+        speculationSavedMillis.addAndGet(savedMillis);
+    }
+
+    /**
+     * Records speculative token request discarded because card has changed.
+     */
+    void recordSpeculationDiscarded() {
+        speculationDiscards.incrementAndGet();
+    }
+
+    /**
+     * Returns count of submits which used speculative token.
+     *
+     * @return a count of hits
+     */
+    public long getSpeculationHitCount() {
+        return speculationHits.get();
+    }
+
+    /**
+     * Returns count of speculative token requests discarded because card has changed or token has become too old.
+     *
+     * @return a count of wasted requests
+     */
+    public long getSpeculationDiscardCount() {
+        return speculationDiscards.get();
+    }
+
+    /**
+     * Returns total checkout latency saved by speculative tokenization, i.e. time token requests had been running
+     * before user submitted card.
+     *
+     * @return a saved time in milliseconds
+     */
+    public long getSpeculationSavedMillis() {
+        return speculationSavedMillis.get();
+    }
+
+    /**
+     * Resets all metrics.
+     */
+    public void reset() {
+        for (int i = 0; i < responsesByProtocol.length(); i++) {
+            responsesByProtocol.set(i, 0);
+        }
+        lastProtocol = null;
+        lastTlsVersion = null;
+        hedges.set(0);
+        hedgeWins.set(0);
+        speculationHits.set(0);
+        speculationDiscards.set(0);
+        speculationSavedMillis.set(0);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("StartMetrics{");
+        sb.append("lastProtocol=").append(lastProtocol);
+        sb.append(", lastTlsVersion=").append(lastTlsVersion);
+        sb.append(", hedges=").append(hedges.get());
+        sb.append(", hedgeWins=").append(hedgeWins.get());
+        sb.append(", speculationHits=").append(speculationHits.get());
+        sb.append(", speculationDiscards=").append(speculationDiscards.get());
+        sb.append(", speculationSavedMillis=").append(speculationSavedMillis.get());
+        for (Protocol protocol : Protocol.values()) {
+            long count = getResponseCount(protocol);
+            if (count > 0) {
+                sb.append(", ").append(protocol).append('=').append(count);
+            }
+        }
+        sb.append('}');
+        return sb.toString();
+    }
+
+    /**
+     * Records events of transport into metrics.
+     */
+    private static final class Recorder implements NetworkListener {
+
+        private final StartMetrics metrics;
+
+        private Recorder(StartMetrics metrics) {
+            this.metrics = metrics;
+        }
+
+        @Override
+        public void onResponse(Protocol protocol, TlsVersion tlsVersion) {
+            metrics.recordResponse(protocol, tlsVersion);
+        }
+
+        @Override
+        public void onHedge() {
+            metrics.recordHedge();
+        }
+
+        @Override
+        public void onHedgeWin() {
+            metrics.recordHedgeWin();
+        }
+    }
+}
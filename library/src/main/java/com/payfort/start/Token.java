@@ -12,6 +12,19 @@ public class Token {
     public Token() {
     }
 
+    /**
+     * Constructs token with given fields, e.g. parsed from API response.
+     *
+     * @param id                   an id of token
+     * @param verificationRequired does card require verification
+     * @param verification         a verification of token or {@code null}
+     */
+    public Token(String id, boolean verificationRequired, TokenVerification verification) {
+        this.id = id;
+        this.verificationRequired = verificationRequired;
+        this.verification = verification;
+    }
+
     public Token(Token token, TokenVerification verification) {
         this.id = token.id;
         this.verificationRequired = token.verificationRequired;
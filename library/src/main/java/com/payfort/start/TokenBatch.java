@@ -0,0 +1,240 @@
+package com.payfort.start;
+
+import com.payfort.start.error.StartApiException;
+import com.payfort.start.web.CancellationScope;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static com.payfort.start.util.Preconditions.checkArgument;
+import static com.payfort.start.util.Preconditions.checkNotNull;
+
+/**
+ * Batch of token requests created by {@link Start#createTokens(Collection, int, BatchTokenCallback)}.
+ * <p>
+ * Cards are processed in order of collection's iteration, but no more than max concurrency requests are in flight at once.
+ * Next card is requested as soon as any request completes, without waiting for delivery of its result. Results are
+ * delivered to {@link BatchTokenCallback} with {@link Start}'s callback executor; {@link BatchTokenCallback#onComplete}
+ * is the last call if executor runs tasks sequentially, e.g. on main thread. This implementation is thread-safe.
+ */
+public final class TokenBatch {
+
+    /**
+     * Max allowed count of concurrent requests of one batch.
+     */
+    public static final int MAX_CONCURRENCY = 64;
+
+    /**
+     * Count of concurrent requests used by {@link Start#createTokens(Collection, BatchTokenCallback)}.
+     */
+    public static final int DEFAULT_CONCURRENCY = 8;
+
+    private final List<Card> cards;
+    private final int maxConcurrency;
+    private final Tokenizer tokenizer;
+    private final Executor callbackExecutor;
+    private final BatchTokenCallback callback;
+    private final Token[] tokens;
+    private final StartApiException[] errors;
+    private final boolean[] completed;
+    private final CancellationScope[] requests;
+    private int nextIndex;
+    private int completedCount;
+    private boolean canceled;
+
+    TokenBatch(Collection<Card> cards, int maxConcurrency, Tokenizer tokenizer, Executor callbackExecutor, BatchTokenCallback callback) {
+        checkArgument(maxConcurrency > 0 && maxConcurrency <= MAX_CONCURRENCY, "Max concurrency must be from 1 to " + MAX_CONCURRENCY);
+        this.cards = new ArrayList<>(checkNotNull(cards));
+        for (Card card : this.cards) {
+            checkNotNull(card, "Card must be not null!");
+        }
+        this.maxConcurrency = maxConcurrency;
+        this.tokenizer = checkNotNull(tokenizer);
+        this.callbackExecutor = checkNotNull(callbackExecutor);
+        this.callback = checkNotNull(callback);
+        this.tokens = new Token[this.cards.size()];
+        this.errors = new StartApiException[this.cards.size()];
+        this.completed = new boolean[this.cards.size()];
+        this.requests = new CancellationScope[this.cards.size()];
+    }
+
+    void start() {
+        if (cards.isEmpty()) {
+            deliverComplete(new TokenBatchResult(tokens, errors));
+            return;
+        }
+        for (int i = 0; i < maxConcurrency && startNext(); i++) {
+            // requests are started until limit is reached or cards are over
+        }
+    }
+
+    /**
+     * Cancels requests in flight and doesn't start new ones. {@link BatchTokenCallback#onComplete} is called with results
+     * received so far, results received after cancellation are ignored. Does nothing if batch is already done.
+     */
+    public void cancel() {
+        List<CancellationScope> inFlight = new ArrayList<>();
+        TokenBatchResult result;
+        synchronized (this) {
+            if (canceled || completedCount == cards.size()) {
+                return;
+            }
+            canceled = true;
+            for (int i = 0; i < requests.length; i++) {
+                if (requests[i] != null) {
+                    inFlight.add(requests[i]);
+                    requests[i] = null;
+                }
+            }
+            result = new TokenBatchResult(tokens.clone(), errors.clone());
+        }
+        for (CancellationScope request : inFlight) {
+            request.cancel();
+        }
+        deliverComplete(result);
+    }
+
+    /**
+     * Returns was batch canceled.
+     *
+     * @return {@code true} if {@link #cancel()} was called before all cards were processed
+     */
+    public synchronized boolean isCanceled() {
+        return canceled;
+    }
+
+    /**
+     * Returns are all cards processed or batch canceled.
+     *
+     * @return {@code true} if batch is done
+     */
+    public synchronized boolean isDone() {
+        return canceled || completedCount == cards.size();
+    }
+
+    /**
+     * Returns count of cards in batch.
+     *
+     * @return a count of cards
+     */
+    public int size() {
+        return cards.size();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "TokenBatch{" +
+                "size=" + cards.size() +
+                ", completed=" + completedCount +
+                ", canceled=" + canceled +
+                '}';
+    }
+
+    private boolean startNext() {
+        int index;
+        synchronized (this) {
+            if (canceled || nextIndex == cards.size()) {
+                return false;
+            }
+            index = nextIndex++;
+        }
+        CancellationScope request = tokenizer.createToken(cards.get(index), new ItemCallback(index));
+        boolean cancel;
+        synchronized (this) {
+            cancel = canceled;
+            if (!canceled && !completed[index]) {
+                requests[index] = request;
+            }
+        }
+        if (cancel) {
+            request.cancel();
+        }
+        return true;
+    }
+
+    private void complete(final int index, final Token token, final StartApiException error) {
+        TokenBatchResult result = null;
+        synchronized (this) {
+            if (canceled || completed[index]) {
+                return;
+            }
+            completed[index] = true;
+            tokens[index] = token;
+            errors[index] = error;
+            requests[index] = null;
+            completedCount++;
+            if (completedCount == cards.size()) {
+                result = new TokenBatchResult(tokens, errors);
+            }
+        }
+        if (token != null || error != null) {
+            callbackExecutor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    if (token != null) {
+                        callback.onToken(index, token);
+                    } else {
+                        callback.onError(index, error);
+                    }
+                }
+            });
+        }
+        if (result != null) {
+            deliverComplete(result);
+        } else {
+            startNext();
+        }
+    }
+
+    private void deliverComplete(final TokenBatchResult result) {
+        callbackExecutor.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                callback.onComplete(result);
+            }
+        });
+    }
+
+    /**
+     * Starts token request of one card.
+     */
+    interface Tokenizer {
+
+        /**
+         * Enqueues token request.
+         *
+         * @param card     a card
+         * @param callback a callback to be called with result on any thread
+         * @return a scope of enqueued request, it is canceled with its retries if batch is canceled
+         */
+        CancellationScope createToken(Card card, TokenCallback callback);
+    }
+
+    private final class ItemCallback implements TokenCallback {
+
+        private final int index;
+
+        private ItemCallback(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void onSuccess(Token token) {
+            complete(index, token, null);
+        }
+
+        @Override
+        public void onError(StartApiException error) {
+            complete(index, null, error);
+        }
+
+        @Override
+        public void onCancel() {
+            complete(index, null, null);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.payfort.start;
+
+import com.payfort.start.error.StartApiException;
+
+/**
+ * Aggregated results of {@link TokenBatch}. Every card has either token, error or none of them if it was canceled.
+ */
+public final class TokenBatchResult {
+
+    private final Token[] tokens;
+    private final StartApiException[] errors;
+    private final int tokenCount;
+    private final int errorCount;
+
+    TokenBatchResult(Token[] tokens, StartApiException[] errors) {
+        this.tokens = tokens;
+        this.errors = errors;
+        int tokenCount = 0;
+        int errorCount = 0;
+        for (int i = 0; i < tokens.length; i++) {
+            if (tokens[i] != null) {
+                tokenCount++;
+            } else if (errors[i] != null) {
+                errorCount++;
+            }
+        }
+        this.tokenCount = tokenCount;
+        this.errorCount = errorCount;
+    }
+
+    /**
+     * Returns count of cards in batch.
+     *
+     * @return a count of cards
+     */
+    public int size() {
+        return tokens.length;
+    }
+
+    /**
+     * Returns token of card.
+     *
+     * @param index an index of card in batch
+     * @return a token or {@code null} if token isn't received
+     */
+    public Token getToken(int index) {
+        return tokens[index];
+    }
+
+    /**
+     * Returns error of card.
+     *
+     * @param index an index of card in batch
+     * @return an error or {@code null} if card has token or was canceled
+     */
+    public StartApiException getError(int index) {
+        return errors[index];
+    }
+
+    /**
+     * Returns count of cards with token.
+     *
+     * @return a count of tokens
+     */
+    public int getTokenCount() {
+        return tokenCount;
+    }
+
+    /**
+     * Returns count of cards failed with error.
+     *
+     * @return a count of errors
+     */
+    public int getErrorCount() {
+        return errorCount;
+    }
+
+    /**
+     * Returns count of cards which weren't processed because batch was canceled.
+     *
+     * @return a count of canceled cards
+     */
+    public int getCanceledCount() {
+        return tokens.length - tokenCount - errorCount;
+    }
+
+    @Override
+    public String toString() {
+        return "TokenBatchResult{" +
+                "size=" + size() +
+                ", tokens=" + tokenCount +
+                ", errors=" + errorCount +
+                ", canceled=" + getCanceledCount() +
+                '}';
+    }
+}
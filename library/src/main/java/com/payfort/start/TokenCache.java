@@ -0,0 +1,270 @@
+package com.payfort.start;
+
+import com.payfort.start.util.Clock;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.payfort.start.util.Preconditions.checkArgument;
+import static com.payfort.start.util.Preconditions.checkNotNull;
+
+/**
+ * In-memory cache of tokens created during checkout session, so resubmit of the same card doesn't create new token
+ * and, for the same amount and currency, new verification.
+ * <p>
+ * Tokens are keyed by fingerprint of card details (keyed hash, see {@link CardFingerprint}), card number isn't kept.
+ * Cache is bounded by size (least recently used token is evicted) and by time to live counted since token request,
+ * which must not exceed token's lifetime on server.
+ * <p>
+ * Token can be charged only once, and cache doesn't know when it is charged. So token delivered to app isn't returned
+ * again until app reports with {@link Start#onTokenNotCharged(Token)} that its charge failed or was abandoned; resubmit
+ * of the same card gets new token otherwise.
+ * <p>
+ * Use {@link Start.Builder#tokenCache(TokenCache)} to enable cache. This implementation is thread-safe.
+ */
+public final class TokenCache {
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final Clock clock;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    private TokenCache(Builder builder) {
+        this.maxSize = builder.maxSize;
+        this.ttlMillis = builder.ttlMillis;
+        this.clock = builder.clock;
+    }
+
+    /**
+     * Returns live entry and counts lookup.
+     *
+     * @param key a fingerprint
+     * @return an entry or {@code null} if there is no live entry for key
+     */
+    synchronized Entry get(String key) {
+        Entry entry = peek(key);
+        recordLookup(entry != null);
+        return entry;
+    }
+
+    /**
+     * Returns live entry which may be reused without counting lookup, so request which looks up several keys is counted
+     * once with {@link #recordLookup(boolean)}.
+     *
+     * @param key a fingerprint
+     * @return an entry or {@code null} if there is no live entry for key or its token isn't released
+     */
+    synchronized Entry peek(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null && isExpired(entry)) {
+            entries.remove(key);
+            evictions++;
+            entry = null;
+        }
+        return entry != null && entry.reusable ? entry : null;
+    }
+
+    /**
+     * Returns entry like {@link #peek(String)} does and makes all entries of its token not reusable, because token is
+     * going to be delivered again.
+     *
+     * @param key a fingerprint
+     * @return an entry or {@code null} if there is no live entry for key or its token isn't released
+     */
+    synchronized Entry take(String key) {
+        Entry entry = peek(key);
+        if (entry != null) {
+            setReusable(entry.token, false);
+        }
+        return entry;
+    }
+
+    /**
+     * Counts lookup of token request.
+     *
+     * @param hit {@code true} if token was found
+     */
+    synchronized void recordLookup(boolean hit) {
+        if (hit) {
+            hits++;
+        } else {
+            misses++;
+        }
+    }
+
+    /**
+     * Puts token to cache. Token isn't reused until it is {@link #release(Token) released}.
+     *
+     * @param key       a fingerprint
+     * @param token     a token
+     * @param createdAt a time token was requested at
+     */
+    synchronized void put(String key, Token token, long createdAt) {
+        entries.put(key, new Entry(token, createdAt));
+        evictExpired();
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (entries.size() > maxSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    long currentTimeMillis() {
+        return clock.currentTimeMillis();
+    }
+
+    /**
+     * Allows token to be reused, e.g. when its charge failed or was abandoned. Does nothing if token isn't cached.
+     *
+     * @param token a token to be reused
+     */
+    public synchronized void release(Token token) {
+        checkNotNull(token);
+        setReusable(token, true);
+    }
+
+    /**
+     * Removes all entries of token, e.g. when it is charged.
+     *
+     * @param token a token to be removed
+     */
+    public synchronized void invalidate(Token token) {
+        checkNotNull(token);
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().token.getId().equals(token.getId())) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes all tokens, e.g. when checkout session ends.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        evictExpired();
+        return entries.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * Returns count of tokens evicted because cache was full or they expired. Invalidated tokens aren't counted.
+     *
+     * @return a count of evictions
+     */
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    private void setReusable(Token token, boolean reusable) {
+        for (Entry entry : entries.values()) {
+            if (entry.token.getId().equals(token.getId())) {
+                entry.reusable = reusable;
+            }
+        }
+    }
+
+    private void evictExpired() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (isExpired(iterator.next())) {
+                iterator.remove();
+                evictions++;
+            }
+        }
+    }
+
+    private boolean isExpired(Entry entry) {
+        return clock.currentTimeMillis() - entry.createdAt >= ttlMillis;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "TokenCache{size=" + entries.size() + ", hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + '}';
+    }
+
+    /**
+     * Cached token.
+     */
+    static final class Entry {
+
+        final Token token;
+        final long createdAt;
+        // guarded by cache
+        private boolean reusable;
+
+        private Entry(Token token, long createdAt) {
+            this.token = token;
+            this.createdAt = createdAt;
+        }
+    }
+
+    /**
+     * Builder of {@link TokenCache}.
+     */
+    public static final class Builder {
+
+        private int maxSize = 8;
+        private long ttlMillis = TimeUnit.MINUTES.toMillis(5);
+        private Clock clock = Clock.SYSTEM;
+
+        /**
+         * Sets max count of cached entries. Default is 8.
+         *
+         * @param maxSize a max count of entries. Must be positive
+         * @return this builder
+         */
+        public Builder maxSize(int maxSize) {
+            checkArgument(maxSize > 0, "Max size must be positive!");
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        /**
+         * Sets time to live of token counted since token request. It must not exceed token's lifetime on server.
+         * Default is 5 minutes.
+         *
+         * @param ttl      a time to live. Must be positive
+         * @param timeUnit a unit of time
+         * @return this builder
+         */
+        public Builder ttl(long ttl, TimeUnit timeUnit) {
+            checkNotNull(timeUnit);
+            checkArgument(ttl > 0, "TTL must be positive!");
+            this.ttlMillis = timeUnit.toMillis(ttl);
+            return this;
+        }
+
+        /**
+         * Sets source of time, e.g. fake clock in tests.
+         *
+         * @param clock a clock. Can't be {@code null}
+         * @return this builder
+         */
+        public Builder clock(Clock clock) {
+            this.clock = checkNotNull(clock);
+            return this;
+        }
+
+        public TokenCache build() {
+            return new TokenCache(this);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.payfort.start;
+
+import com.payfort.start.error.StartApiException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static com.payfort.start.util.Preconditions.checkNotNull;
+
+/**
+ * Pending result of {@link Start#createTokenFuture(android.app.Activity, Card, Integer, String)}.
+ * <p>
+ * Token is created in background while app does its own work, e.g. creates order on its backend, and is awaited by
+ * {@link #get(long, TimeUnit)} on background thread or received by callbacks added with {@link #addCallback(TokenCallback)}.
+ * Future is completed on thread which receives result, callbacks are called with {@link Start}'s callback executor.
+ * {@link #get()} must not be called on main thread, verification dialog and default callback executor need it.
+ * This implementation is thread-safe.
+ */
+public final class TokenFuture implements Future<Token> {
+
+    private final Executor callbackExecutor;
+    private final CountDownLatch done = new CountDownLatch(1);
+    private final List<TokenCallback> callbacks = new ArrayList<>(1);
+    private Token token;
+    private StartApiException error;
+    private boolean canceled;
+    private boolean completed;
+    private volatile TokenRequestHandle handle;
+
+    TokenFuture(Executor callbackExecutor) {
+        this.callbackExecutor = checkNotNull(callbackExecutor);
+    }
+
+    /**
+     * Adds callback to be called with result. If future is already done callback is called immediately with its result.
+     * {@link TokenCallback#onCancel()} is called if future is canceled or user canceled verification.
+     *
+     * @param callback a callback. Can't be {@code null}
+     */
+    public void addCallback(TokenCallback callback) {
+        checkNotNull(callback, "TokenCallback must be not null!");
+        synchronized (this) {
+            if (!completed) {
+                callbacks.add(callback);
+                return;
+            }
+        }
+        deliver(callback);
+    }
+
+    /**
+     * Cancels future. {@link #get()} throws {@link CancellationException}, callbacks receive {@link TokenCallback#onCancel()}.
+     * Request is canceled as {@link TokenRequestHandle#cancel()} does.
+     *
+     * @param mayInterruptIfRunning is ignored, requests never block caller's thread
+     * @return {@code false} if future is already done
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (!complete(null, null, true)) {
+            return false;
+        }
+        TokenRequestHandle handle = this.handle;
+        if (handle != null) {
+            handle.cancel();
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return canceled;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return completed;
+    }
+
+    /**
+     * Waits for token.
+     *
+     * @return a token
+     * @throws ExecutionException    if token isn't created, its cause is {@link StartApiException}
+     * @throws CancellationException if future or verification is canceled
+     * @throws InterruptedException  if thread is interrupted
+     */
+    @Override
+    public Token get() throws InterruptedException, ExecutionException {
+        done.await();
+        return getResult();
+    }
+
+    /**
+     * Waits for token no longer than timeout. Request isn't canceled when timeout elapses.
+     *
+     * @param timeout a max time to wait
+     * @param unit    a unit of timeout
+     * @return a token
+     * @throws ExecutionException    if token isn't created, its cause is {@link StartApiException}
+     * @throws CancellationException if future or verification is canceled
+     * @throws InterruptedException  if thread is interrupted
+     * @throws TimeoutException      if timeout elapses
+     */
+    @Override
+    public Token get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (!done.await(timeout, unit)) {
+            throw new TimeoutException("Token isn't created in " + timeout + " " + unit);
+        }
+        return getResult();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "TokenFuture{" +
+                "completed=" + completed +
+                ", canceled=" + canceled +
+                ", failed=" + (error != null) +
+                '}';
+    }
+
+    void setHandle(TokenRequestHandle handle) {
+        this.handle = handle;
+    }
+
+    /**
+     * Returns callback which completes this future.
+     */
+    TokenCallback completer() {
+        return new TokenCallback() {
+
+            @Override
+            public void onSuccess(Token token) {
+                complete(token, null, false);
+            }
+
+            @Override
+            public void onError(StartApiException error) {
+                complete(null, error, false);
+            }
+
+            @Override
+            public void onCancel() {
+                complete(null, null, true);
+            }
+        };
+    }
+
+    private synchronized Token getResult() throws ExecutionException {
+        if (canceled) {
+            throw new CancellationException("Token creation is canceled");
+        }
+        if (error != null) {
+            throw new ExecutionException(error);
+        }
+        return token;
+    }
+
+    private boolean complete(Token token, StartApiException error, boolean canceled) {
+        List<TokenCallback> snapshot;
+        synchronized (this) {
+            if (completed) {
+                return false;
+            }
+            completed = true;
+            this.token = token;
+            this.error = error;
+            this.canceled = canceled;
+            snapshot = new ArrayList<>(callbacks);
+            callbacks.clear();
+        }
+        done.countDown();
+        for (TokenCallback callback : snapshot) {
+            deliver(callback);
+        }
+        return true;
+    }
+
+    private void deliver(final TokenCallback callback) {
+        final Token token;
+        final StartApiException error;
+        synchronized (this) {
+            token = this.token;
+            error = this.error;
+        }
+        callbackExecutor.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                if (token != null) {
+                    callback.onSuccess(token);
+                } else if (error != null) {
+                    callback.onError(error);
+                } else {
+                    callback.onCancel();
+                }
+            }
+        });
+    }
+}
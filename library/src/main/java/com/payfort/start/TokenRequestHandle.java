@@ -0,0 +1,47 @@
+package com.payfort.start;
+
+/**
+ * Handle of token request started by {@link Start#createToken(android.app.Activity, Card, TokenCallback, Integer, String)}.
+ * <p>
+ * {@link #cancel()} stops request, e.g. when user leaves payment screen: call in flight is aborted, scheduled retry is
+ * removed from scheduler, polling of verification is stopped and verification dialog is dismissed. If identical calls
+ * share request, only the caller of this handle leaves it and request goes on until all callers cancel it.
+ * This implementation is thread-safe.
+ */
+public final class TokenRequestHandle {
+
+    // null if result was delivered before handle was returned, e.g. from cache
+    private final CoalescedTokenCallback request;
+    private final TokenCallback callback;
+    private volatile boolean canceled;
+
+    TokenRequestHandle(CoalescedTokenCallback request, TokenCallback callback) {
+        this.request = request;
+        this.callback = callback;
+    }
+
+    /**
+     * Cancels request, callback receives {@link TokenCallback#onCancel()} and is never called with result.
+     * Does nothing if callback has already received result.
+     */
+    public void cancel() {
+        if (request != null && request.leave(callback)) {
+            canceled = true;
+            callback.onCancel();
+        }
+    }
+
+    /**
+     * Returns was request canceled by this handle.
+     *
+     * @return {@code true} if {@link #cancel()} stopped request before result was received
+     */
+    public boolean isCanceled() {
+        return canceled;
+    }
+
+    @Override
+    public String toString() {
+        return "TokenRequestHandle{canceled=" + canceled + '}';
+    }
+}
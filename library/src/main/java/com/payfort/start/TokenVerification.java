@@ -9,6 +9,22 @@ public class TokenVerification {
     private boolean enrolled;
     private boolean finalized;
 
+    public TokenVerification() {
+    }
+
+    /**
+     * Constructs verification with given fields, e.g. parsed from API response.
+     *
+     * @param id        an id of verification
+     * @param enrolled  is card enrolled in 3-D Secure
+     * @param finalized is verification finalized
+     */
+    public TokenVerification(String id, boolean enrolled, boolean finalized) {
+        this.id = id;
+        this.enrolled = enrolled;
+        this.finalized = finalized;
+    }
+
     public boolean isEnrolled() {
         return enrolled;
     }
@@ -0,0 +1,71 @@
+package com.payfort.start;
+
+import android.graphics.Bitmap;
+import android.webkit.WebView;
+import android.webkit.WebViewClient;
+
+import static com.payfort.start.util.Preconditions.checkAllNotNull;
+
+/**
+ * {@link WebViewClient} which detects the moment 3-D Secure flow returns from bank's page to API.
+ * <p>
+ * Verification page redirects to bank's access control server and it redirects back to API's verification url
+ * when user completes authentication. Listener is notified once, on the first page of API loaded after WebView
+ * has left API, so token verification can be checked right away instead of waiting for next poll.
+ */
+final class VerificationWebViewClient extends WebViewClient {
+
+    private final String returnUrlPrefix;
+    private final Listener listener;
+    private boolean leftApi;
+    private boolean returned;
+
+    /**
+     * Creates client.
+     *
+     * @param returnUrlPrefix a prefix of urls which are loaded when flow returns to API, e.g. token's verification url
+     * @param listener        a listener to be notified. Can't be {@code null}
+     */
+    VerificationWebViewClient(String returnUrlPrefix, Listener listener) {
+        checkAllNotNull(returnUrlPrefix, listener);
+        this.returnUrlPrefix = returnUrlPrefix;
+        this.listener = listener;
+    }
+
+    @Override
+    public boolean shouldOverrideUrlLoading(WebView view, String url) {
+        onNavigation(url);
+        return false;
+    }
+
+    @Override
+    public void onPageStarted(WebView view, String url, Bitmap favicon) {
+        // redirects and form posts of bank's page don't always go through shouldOverrideUrlLoading
+        onNavigation(url);
+    }
+
+    @Override
+    public void onPageFinished(WebView view, String url) {
+        onNavigation(url);
+    }
+
+    private void onNavigation(String url) {
+        if (url == null || returned) {
+            return;
+        }
+        if (!url.startsWith(returnUrlPrefix)) {
+            leftApi = true;
+        } else if (leftApi) {
+            returned = true;
+            listener.onVerificationReturned(url);
+        }
+    }
+
+    /**
+     * Listener of 3-D Secure flow completion. It is called on main thread.
+     */
+    interface Listener {
+
+        void onVerificationReturned(String url);
+    }
+}
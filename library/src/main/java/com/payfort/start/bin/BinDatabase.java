@@ -0,0 +1,198 @@
+package com.payfort.start.bin;
+
+import com.payfort.start.Card;
+import com.payfort.start.CardValidator;
+import com.payfort.start.PackedCard;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+
+import static com.payfort.start.util.Preconditions.checkNotNull;
+
+/**
+ * Offline database of card BINs (Bank Identification Numbers). It lets developer find issuer, country, type and brand of card.
+ * <p>
+ * Table is stored in a compact sorted binary format (see {@link BinTableWriter}) and is memory-mapped,
+ * so it doesn't occupy Java heap and lookup is a binary search over mapped memory.
+ * Both 6-digit and 8-digit BINs are supported.
+ * <p>
+ * Table can be replaced with {@link #swap(File)} while database is in use: lookups see either the old or the new table, never a mix.
+ * Never modify a mapped file in place, write the new table to another file (for example with {@link BinTableWriter#writeTo(File)}) instead.
+ * This implementation is thread-safe.
+ */
+public final class BinDatabase {
+
+    private static final int BIN_LENGTH = 8;
+    private static final int MIN_BIN_LENGTH = 6;
+
+    private volatile BinTable table;
+
+    private BinDatabase(BinTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Opens database by mapping file into memory.
+     *
+     * @param file a file with BIN table
+     * @return a database
+     * @throws IOException if file can't be read or has invalid format
+     */
+    public static BinDatabase open(File file) throws IOException {
+        return new BinDatabase(mapTable(file));
+    }
+
+    /**
+     * Opens database by mapping region of file into memory. It is useful to map uncompressed asset using
+     * {@code AssetFileDescriptor.createInputStream().getChannel()}, {@code getStartOffset()} and {@code getLength()}.
+     *
+     * @param channel  a channel of file with BIN table
+     * @param position a position of table in file
+     * @param size     a size of table
+     * @return a database
+     * @throws IOException if table can't be read or has invalid format
+     */
+    public static BinDatabase open(FileChannel channel, long position, long size) throws IOException {
+        return new BinDatabase(new BinTable(channel.map(FileChannel.MapMode.READ_ONLY, position, size)));
+    }
+
+    /**
+     * Loads database from stream to direct (off-heap) memory. Use it if table can't be mapped, for example it is a compressed asset.
+     *
+     * @param inputStream a stream with BIN table. Stream is not closed by this method
+     * @return a database
+     * @throws IOException if table can't be read or has invalid format
+     */
+    public static BinDatabase load(InputStream inputStream) throws IOException {
+        return new BinDatabase(readTable(inputStream));
+    }
+
+    /**
+     * Atomically replaces current table with table from file.
+     *
+     * @param file a file with new BIN table
+     * @throws IOException if file can't be read or has invalid format. Current table is kept in this case
+     */
+    public void swap(File file) throws IOException {
+        table = mapTable(file);
+    }
+
+    /**
+     * Atomically replaces current table with table read from stream.
+     *
+     * @param inputStream a stream with new BIN table. Stream is not closed by this method
+     * @throws IOException if table can't be read or has invalid format. Current table is kept in this case
+     */
+    public void swap(InputStream inputStream) throws IOException {
+        table = readTable(inputStream);
+    }
+
+    /**
+     * Finds information about card's issuer.
+     *
+     * @param card a card
+     * @return an information about issuer or {@code null} if card's BIN is unknown
+     */
+    public BinInfo lookup(Card card) {
+        return lookup(card.number);
+    }
+
+    /**
+     * Finds information about card's issuer reading digits directly from packed card.
+     *
+     * @param card a card, must not be wiped
+     * @return an information about issuer or {@code null} if card's BIN is unknown
+     */
+    public BinInfo lookup(PackedCard card) {
+        int bin = 0;
+        for (int i = 0; i < BIN_LENGTH; i++) {
+            bin = bin * 10 + card.digitAt(i);
+        }
+        return lookup(bin);
+    }
+
+    /**
+     * Finds information about issuer of card number. Only first 8 digits are used.
+     *
+     * @param number a card number or its first digits, may contain separators. Must have at least 6 digits
+     * @return an information about issuer or {@code null} if BIN is unknown or number has less than 6 digits
+     */
+    public BinInfo lookup(CharSequence number) {
+        checkNotNull(number);
+        int bin = 0;
+        int digits = 0;
+        for (int i = 0; i < number.length() && digits < BIN_LENGTH; i++) {
+            char c = number.charAt(i);
+            if (CardValidator.isSeparator(c)) {
+                continue;
+            }
+            if (c < '0' || c > '9') {
+                return null;
+            }
+            bin = bin * 10 + c - '0';
+            digits++;
+        }
+        if (digits < MIN_BIN_LENGTH) {
+            return null;
+        }
+        for (; digits < BIN_LENGTH; digits++) {
+            bin *= 10;
+        }
+        return lookup(bin);
+    }
+
+    /**
+     * Finds information about issuer by 8-digit BIN.
+     *
+     * @param bin an 8-digit BIN. 6-digit BIN must be multiplied by 100
+     * @return an information about issuer or {@code null} if BIN is unknown
+     */
+    public BinInfo lookup(int bin) {
+        BinTable table = this.table;
+        int index = table.find(bin);
+        return index < 0 ? null : table.read(index);
+    }
+
+    /**
+     * Returns count of BIN ranges in current table.
+     *
+     * @return a count of ranges
+     */
+    public int size() {
+        return table.size();
+    }
+
+    private static BinTable mapTable(File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            // mapping stays valid after channel is closed
+            return new BinTable(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    private static BinTable readTable(InputStream inputStream) throws IOException {
+        ReadableByteChannel channel = Channels.newChannel(inputStream);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+        while (channel.read(buffer) >= 0) {
+            if (!buffer.hasRemaining()) {
+                ByteBuffer bigger = ByteBuffer.allocateDirect(buffer.capacity() * 2);
+                buffer.flip();
+                bigger.put(buffer);
+                buffer = bigger;
+            }
+        }
+        buffer.flip();
+        ByteBuffer table = ByteBuffer.allocateDirect(buffer.remaining());
+        table.put(buffer);
+        return new BinTable(table);
+    }
+}
@@ -0,0 +1,97 @@
+package com.payfort.start.bin;
+
+import com.payfort.start.Card;
+
+/**
+ * Information about card issuer found in {@link BinDatabase}.
+ */
+public final class BinInfo {
+
+    private final int low;
+    private final int high;
+    private final String issuer;
+    private final String country;
+    private final CardType cardType;
+    private final Card.Brand brand;
+
+    BinInfo(int low, int high, String issuer, String country, CardType cardType, Card.Brand brand) {
+        this.low = low;
+        this.high = high;
+        this.issuer = issuer;
+        this.country = country;
+        this.cardType = cardType;
+        this.brand = brand;
+    }
+
+    /**
+     * Returns the first 8-digit BIN of range this info belongs to.
+     *
+     * @return a first BIN of range
+     */
+    public int getLow() {
+        return low;
+    }
+
+    /**
+     * Returns the last 8-digit BIN of range this info belongs to.
+     *
+     * @return a last BIN of range
+     */
+    public int getHigh() {
+        return high;
+    }
+
+    /**
+     * Returns name of bank issued card.
+     *
+     * @return an issuer's name
+     */
+    public String getIssuer() {
+        return issuer;
+    }
+
+    /**
+     * Returns country of issuer.
+     *
+     * @return ISO 3166-1 alpha-2 country code
+     */
+    public String getCountry() {
+        return country;
+    }
+
+    public CardType getCardType() {
+        return cardType;
+    }
+
+    public Card.Brand getBrand() {
+        return brand;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("BinInfo{");
+        sb.append("low=").append(low);
+        sb.append(", high=").append(high);
+        sb.append(", issuer='").append(issuer).append('\'');
+        sb.append(", country='").append(country).append('\'');
+        sb.append(", cardType=").append(cardType);
+        sb.append(", brand=").append(brand);
+        sb.append('}');
+        return sb.toString();
+    }
+
+    /**
+     * A type of card.
+     */
+    public enum CardType {
+
+        UNKNOWN(0), DEBIT(1), CREDIT(2), PREPAID(3);
+
+        // code stored in BIN table, it never changes, so tables stay valid when types are added or reordered
+        final int code;
+
+        CardType(int code) {
+            this.code = code;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.payfort.start.bin;
+
+import com.payfort.start.Card;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Read-only view of BIN table stored in a {@link ByteBuffer}. Buffer is accessed only with absolute reads, so table can be
+ * used by many threads simultaneously.
+ * <p>
+ * Binary format (big-endian):
+ * <pre>
+ * header:  int magic 'SBIN', short version, short reserved, int record count, int offset of issuers area
+ * records: int first BIN, int last BIN, int issuer offset, 2 bytes country, byte card type, byte brand;
+ *          sorted by first BIN, BINs are 8-digit, ranges don't overlap
+ * issuers: unsigned short length, UTF-8 bytes
+ * </pre>
+ * Card type and brand are stable codes of {@link BinInfo.CardType} and {@link Card.Brand}. Unknown codes, e.g. of brands
+ * added by newer SDK, are read as {@code UNKNOWN}.
+ */
+final class BinTable {
+
+    static final int MAGIC = 0x5342494E;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 16;
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final BinInfo.CardType[] CARD_TYPES = new BinInfo.CardType[256];
+    private static final Card.Brand[] BRANDS = new Card.Brand[256];
+
+    static {
+        for (BinInfo.CardType cardType : BinInfo.CardType.values()) {
+            CARD_TYPES[cardType.code] = cardType;
+        }
+        for (Card.Brand brand : Card.Brand.values()) {
+            BRANDS[brand.getCode()] = brand;
+        }
+    }
+
+    private final ByteBuffer buffer;
+    private final int recordCount;
+    private final int issuersOffset;
+
+    BinTable(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a BIN table");
+        }
+        if (buffer.getShort(4) != VERSION) {
+            throw new IOException("Unsupported BIN table version " + buffer.getShort(4));
+        }
+        this.recordCount = buffer.getInt(8);
+        this.issuersOffset = buffer.getInt(12);
+        if (recordCount < 0 || issuersOffset != HEADER_SIZE + (long) recordCount * RECORD_SIZE || issuersOffset > buffer.capacity()) {
+            throw new IOException("Corrupted BIN table");
+        }
+    }
+
+    int size() {
+        return recordCount;
+    }
+
+    /**
+     * Finds record which range contains BIN.
+     *
+     * @param bin an 8-digit BIN
+     * @return an index of record or {@code -1} if there is no such record
+     */
+    int find(int bin) {
+        int low = 0;
+        int high = recordCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int offset = HEADER_SIZE + middle * RECORD_SIZE;
+            if (buffer.getInt(offset) > bin) {
+                high = middle - 1;
+            } else if (buffer.getInt(offset + 4) < bin) {
+                low = middle + 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    BinInfo read(int index) {
+        int offset = HEADER_SIZE + index * RECORD_SIZE;
+        int low = buffer.getInt(offset);
+        int high = buffer.getInt(offset + 4);
+        String issuer = readIssuer(issuersOffset + buffer.getInt(offset + 8));
+        String country = new String(new char[]{(char) buffer.get(offset + 12), (char) buffer.get(offset + 13)});
+        BinInfo.CardType cardType = CARD_TYPES[buffer.get(offset + 14) & 0xFF];
+        Card.Brand brand = BRANDS[buffer.get(offset + 15) & 0xFF];
+        return new BinInfo(low, high, issuer, country, cardType != null ? cardType : BinInfo.CardType.UNKNOWN,
+                brand != null ? brand : Card.Brand.UNKNOWN);
+    }
+
+    private String readIssuer(int offset) {
+        int length = buffer.getShort(offset) & 0xFFFF;
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(offset + 2 + i);
+        }
+        return new String(bytes, UTF_8);
+    }
+}
@@ -0,0 +1,222 @@
+package com.payfort.start.bin;
+
+import com.payfort.start.Card;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.payfort.start.util.Preconditions.checkAllNotNull;
+import static com.payfort.start.util.Preconditions.checkArgument;
+
+/**
+ * Builds BIN table file for {@link BinDatabase}.
+ * <p>
+ * BIN can have 6 or 8 digits. 8-digit BIN may be inside 6-digit one, in this case more specific 8-digit BIN wins,
+ * so the table always contains non overlapping ranges and lookup is a plain binary search.
+ */
+public final class BinTableWriter {
+
+    private final List<Entry> entries = new ArrayList<>();
+
+    /**
+     * Adds BIN to table.
+     *
+     * @param bin      a 6 or 8-digit BIN
+     * @param issuer   a name of issuer
+     * @param country  ISO 3166-1 alpha-2 code of issuer's country
+     * @param cardType a type of card
+     * @param brand    a brand of card
+     * @return this writer
+     */
+    public BinTableWriter add(String bin, String issuer, String country, BinInfo.CardType cardType, Card.Brand brand) {
+        checkAllNotNull(bin, issuer, country, cardType, brand);
+        checkArgument((bin.length() == 6 || bin.length() == 8) && isDigitsOnly(bin), "BIN must have 6 or 8 digits: " + bin);
+        checkArgument(country.length() == 2, "Country must be ISO 3166-1 alpha-2 code: " + country);
+        int low = Integer.parseInt(bin);
+        int high = low;
+        if (bin.length() == 6) {
+            low *= 100;
+            high = low + 99;
+        }
+        entries.add(new Entry(low, high, issuer, country, cardType, brand));
+        return this;
+    }
+
+    /**
+     * Writes table to file. Table is written to temporary file first and then renamed, so file is replaced atomically.
+     *
+     * @param file a file to write table to
+     * @throws IOException if error writing file occurs
+     */
+    public void writeTo(File file) throws IOException {
+        File tempFile = new File(file.getPath() + ".tmp");
+        OutputStream outputStream = new FileOutputStream(tempFile);
+        try {
+            writeTo(outputStream);
+        } finally {
+            outputStream.close();
+        }
+        if (!tempFile.renameTo(file)) {
+            tempFile.delete();
+            throw new IOException("Error renaming " + tempFile + " to " + file);
+        }
+    }
+
+    /**
+     * Writes table to stream.
+     *
+     * @param outputStream a stream to write table to. Stream is not closed by this method
+     * @throws IOException if error writing stream occurs
+     */
+    public void writeTo(OutputStream outputStream) throws IOException {
+        List<Entry> records = flatten();
+        ByteArrayOutput issuers = new ByteArrayOutput();
+        Map<String, Integer> issuerOffsets = new HashMap<>();
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream));
+        out.writeInt(BinTable.MAGIC);
+        out.writeShort(BinTable.VERSION);
+        out.writeShort(0);
+        out.writeInt(records.size());
+        out.writeInt(BinTable.HEADER_SIZE + records.size() * BinTable.RECORD_SIZE);
+        for (Entry record : records) {
+            Integer issuerOffset = issuerOffsets.get(record.issuer);
+            if (issuerOffset == null) {
+                issuerOffset = issuers.size();
+                issuerOffsets.put(record.issuer, issuerOffset);
+                byte[] issuer = record.issuer.getBytes(BinTable.UTF_8);
+                checkArgument(issuer.length <= 0xFFFF, "Issuer name is too long: " + record.issuer);
+                issuers.writeShort(issuer.length);
+                issuers.write(issuer);
+            }
+            out.writeInt(record.low);
+            out.writeInt(record.high);
+            out.writeInt(issuerOffset);
+            out.writeByte(record.country.charAt(0));
+            out.writeByte(record.country.charAt(1));
+            out.writeByte(record.cardType.code);
+            out.writeByte(record.brand.getCode());
+        }
+        issuers.writeTo(out);
+        out.flush();
+    }
+
+    // splits ranges around nested ones, so nested (more specific) ranges win
+    private List<Entry> flatten() {
+        List<Entry> sorted = new ArrayList<>(entries);
+        Collections.sort(sorted, new Comparator<Entry>() {
+
+            @Override
+            public int compare(Entry first, Entry second) {
+                if (first.low != second.low) {
+                    return first.low < second.low ? -1 : 1;
+                }
+                return first.high == second.high ? 0 : first.high > second.high ? -1 : 1;  // outer range goes first
+            }
+        });
+
+        List<Entry> records = new ArrayList<>();
+        Deque<Cursor> open = new ArrayDeque<>();
+        for (Entry entry : sorted) {
+            while (!open.isEmpty() && open.peek().entry.high < entry.low) {
+                close(open, records);
+            }
+            Cursor parent = open.peek();
+            if (parent != null) {
+                boolean sameRange = entry.low == parent.entry.low && entry.high == parent.entry.high;
+                checkArgument(entry.high <= parent.entry.high && !sameRange, "BIN ranges overlap: " + parent.entry + " and " + entry);
+                parent.emitUntil(entry.low - 1, records);
+            }
+            open.push(new Cursor(entry));
+        }
+        while (!open.isEmpty()) {
+            close(open, records);
+        }
+        return records;
+    }
+
+    private static void close(Deque<Cursor> open, List<Entry> records) {
+        Cursor cursor = open.pop();
+        cursor.emitUntil(cursor.entry.high, records);
+        Cursor parent = open.peek();
+        if (parent != null) {
+            parent.next = cursor.entry.high + 1;
+        }
+    }
+
+    private static boolean isDigitsOnly(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) < '0' || text.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class Entry {
+
+        private final int low;
+        private final int high;
+        private final String issuer;
+        private final String country;
+        private final BinInfo.CardType cardType;
+        private final Card.Brand brand;
+
+        private Entry(int low, int high, String issuer, String country, BinInfo.CardType cardType, Card.Brand brand) {
+            this.low = low;
+            this.high = high;
+            this.issuer = issuer;
+            this.country = country;
+            this.cardType = cardType;
+            this.brand = brand;
+        }
+
+        private Entry withRange(int low, int high) {
+            return new Entry(low, high, issuer, country, cardType, brand);
+        }
+
+        @Override
+        public String toString() {
+            return "[" + low + ", " + high + "]";
+        }
+    }
+
+    private static final class Cursor {
+
+        private final Entry entry;
+        private int next;
+
+        private Cursor(Entry entry) {
+            this.entry = entry;
+            this.next = entry.low;
+        }
+
+        private void emitUntil(int last, List<Entry> records) {
+            if (next <= last) {
+                records.add(entry.withRange(next, last));
+            }
+            next = last + 1;
+        }
+    }
+
+    private static final class ByteArrayOutput extends ByteArrayOutputStream {
+
+        private void writeShort(int value) {
+            write(value >>> 8);
+            write(value);
+        }
+    }
+}
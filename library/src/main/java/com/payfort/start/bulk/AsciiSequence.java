@@ -0,0 +1,44 @@
+package com.payfort.start.bulk;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reusable {@link CharSequence} view of a region of byte buffer, every byte is a character.
+ */
+final class AsciiSequence implements CharSequence {
+
+    private ByteBuffer buffer;
+    private int start;
+    private int length;
+
+    AsciiSequence set(ByteBuffer buffer, int start, int end) {
+        this.buffer = buffer;
+        this.start = start;
+        this.length = end - start;
+        return this;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) (buffer.get(start + index) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().substring(start, end);
+    }
+
+    @Override
+    public String toString() {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = charAt(i);
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,314 @@
+package com.payfort.start.bulk;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+
+import com.payfort.start.Card;
+import com.payfort.start.CardValidator;
+import com.payfort.start.ExpiryCutoff;
+import com.payfort.start.bulk.BulkValidationReport.Counters;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import static com.payfort.start.util.Preconditions.checkNotNull;
+
+/**
+ * Validates large amount of cards with the same rules as {@link Card} uses.
+ * <p>
+ * Cards are read from file or stream with rows in format {@code number,cvc,expirationMonth,expirationYear,owner}
+ * separated by {@code \n} or {@code \r\n}. Fields are not quoted, so owner can't contain commas.
+ * Input is processed by windows of fixed size, each window is split between threads of {@link ForkJoinPool},
+ * so memory usage doesn't depend on input size. Files are memory-mapped. Validation doesn't create objects per row.
+ * <p>
+ * This class is intended for back-office and server usage. This implementation is thread-safe.
+ * Validator created without pool owns its pool, it must be {@link #close() closed} when it isn't needed anymore.
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+public final class BulkCardValidator implements Closeable {
+
+    private static final int DEFAULT_WINDOW_SIZE = 32 * 1024 * 1024;
+    private static final int MIN_TASK_SIZE = 256 * 1024;
+    private static final int FIELDS_COUNT = 5;
+
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+    private final int windowSize;
+    private final ExpiryCutoff expiryCutoff;
+
+    /**
+     * Constructs new instance which uses its own pool with parallelism equal to count of processors.
+     * Pool is shut down by {@link #close()}.
+     */
+    public BulkCardValidator() {
+        this(new ForkJoinPool(), true, DEFAULT_WINDOW_SIZE, ExpiryCutoff.getDefault());
+    }
+
+    /**
+     * Constructs new instance.
+     *
+     * @param pool       a pool to run validation in. Can't be {@code null}
+     * @param windowSize a max size of input processed at once in bytes. It must be bigger than the longest row
+     */
+    public BulkCardValidator(ForkJoinPool pool, int windowSize) {
+        this(pool, windowSize, ExpiryCutoff.getDefault());
+    }
+
+    /**
+     * Constructs new instance.
+     *
+     * @param pool         a pool to run validation in. It is owned by caller and isn't shut down by {@link #close()}.
+     *                     Can't be {@code null}
+     * @param windowSize   a max size of input processed at once in bytes. It must be bigger than the longest row
+     * @param expiryCutoff a source of current year and month to check expiration date. Can't be {@code null}
+     */
+    public BulkCardValidator(ForkJoinPool pool, int windowSize, ExpiryCutoff expiryCutoff) {
+        this(checkNotNull(pool), false, windowSize, expiryCutoff);
+    }
+
+    private BulkCardValidator(ForkJoinPool pool, boolean ownsPool, int windowSize, ExpiryCutoff expiryCutoff) {
+        this.pool = pool;
+        this.ownsPool = ownsPool;
+        this.windowSize = windowSize;
+        this.expiryCutoff = checkNotNull(expiryCutoff);
+    }
+
+    /**
+     * Shuts down pool created by validator, so its threads don't outlive validator. Pool passed to constructor is left
+     * running. Validator can't be used after it is closed if it owns its pool.
+     */
+    @Override
+    public void close() {
+        if (ownsPool) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Validates cards stored in file.
+     *
+     * @param file     a file with cards
+     * @param listener a listener to be notified about invalid rows. Can be {@code null}
+     * @return a validation report
+     * @throws IOException if error reading file occurs or row is longer than window
+     */
+    public BulkValidationReport validate(File file, InvalidRowListener listener) throws IOException {
+        ValidationContext context = new ValidationContext(listener, expiryCutoff.getYearMonth());
+        Counters counters = new Counters();
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                long length = Math.min(windowSize, size - position);
+                ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                int end = position + length == size ? (int) length : lastRowEnd(window, (int) length);
+                counters.merge(pool.invoke(new ValidationTask(context, window, 0, end, position)));
+                position += end;
+            }
+        } finally {
+            randomAccessFile.close();
+        }
+        return counters.toReport();
+    }
+
+    /**
+     * Validates cards read from stream. Next window is read while the previous one is validated.
+     *
+     * @param inputStream a stream with cards. Stream is not closed by this method
+     * @param listener    a listener to be notified about invalid rows. Can be {@code null}
+     * @return a validation report
+     * @throws IOException if error reading stream occurs or row is longer than window
+     */
+    public BulkValidationReport validate(InputStream inputStream, InvalidRowListener listener) throws IOException {
+        ValidationContext context = new ValidationContext(listener, expiryCutoff.getYearMonth());
+        Counters counters = new Counters();
+        byte[] reading = new byte[windowSize];
+        byte[] validating = new byte[windowSize];
+        ForkJoinTask<Counters> task = null;
+        long offset = 0;
+        int length = 0;
+        boolean endOfStream = false;
+        while (!endOfStream) {
+            int read = inputStream.read(reading, length, windowSize - length);
+            if (read > 0) {
+                length += read;
+                if (length < windowSize) {
+                    continue;
+                }
+            }
+            endOfStream = read < 0;
+            int end = endOfStream ? length : lastRowEnd(ByteBuffer.wrap(reading), length);
+            if (task != null) {
+                counters.merge(task.join());
+            }
+            // validate filled window and keep reading into the buffer just released
+            byte[] filled = reading;
+            reading = validating;
+            validating = filled;
+            System.arraycopy(validating, end, reading, 0, length - end);
+            task = pool.submit(new ValidationTask(context, ByteBuffer.wrap(validating), 0, end, offset));
+            offset += end;
+            length -= end;
+        }
+        counters.merge(task.join());
+        return counters.toReport();
+    }
+
+    private static int lastRowEnd(ByteBuffer window, int length) throws IOException {
+        for (int i = length - 1; i >= 0; i--) {
+            if (window.get(i) == '\n') {
+                return i + 1;
+            }
+        }
+        throw new IOException("Row is longer than window");
+    }
+
+    /**
+     * State shared by all tasks of single validation.
+     */
+    private static final class ValidationContext {
+
+        private final InvalidRowListener listener;
+        private final int currentYear;
+        private final int currentMonth;
+
+        private ValidationContext(InvalidRowListener listener, int yearMonth) {
+            this.listener = listener;
+            this.currentYear = ExpiryCutoff.yearOf(yearMonth);
+            this.currentMonth = ExpiryCutoff.monthOf(yearMonth);
+        }
+    }
+
+    /**
+     * Validates all rows in region of buffer. Region is split by row boundaries into subtasks while it is large enough.
+     */
+    private static final class ValidationTask extends RecursiveTask<Counters> {
+
+        private final ValidationContext context;
+        private final ByteBuffer buffer;
+        private final int start;
+        private final int end;
+        private final long baseOffset;
+
+        private ValidationTask(ValidationContext context, ByteBuffer buffer, int start, int end, long baseOffset) {
+            this.context = context;
+            this.buffer = buffer;
+            this.start = start;
+            this.end = end;
+            this.baseOffset = baseOffset;
+        }
+
+        @Override
+        protected Counters compute() {
+            if (end - start > MIN_TASK_SIZE) {
+                int middle = nextRowStart(start + (end - start) / 2);
+                if (middle < end) {
+                    ValidationTask right = new ValidationTask(context, buffer, middle, end, baseOffset);
+                    right.fork();
+                    Counters left = new ValidationTask(context, buffer, start, middle, baseOffset).compute();
+                    return left.merge(right.join());
+                }
+            }
+            return validateRows();
+        }
+
+        private int nextRowStart(int position) {
+            while (position < end && buffer.get(position - 1) != '\n') {
+                position++;
+            }
+            return position;
+        }
+
+        private Counters validateRows() {
+            Counters counters = new Counters();
+            AsciiSequence number = new AsciiSequence();
+            AsciiSequence cvc = new AsciiSequence();
+            AsciiSequence owner = new AsciiSequence();
+            int[] fieldEnds = new int[FIELDS_COUNT];
+
+            int rowStart = start;
+            while (rowStart < end) {
+                int rowEnd = rowStart;
+                while (rowEnd < end && buffer.get(rowEnd) != '\n') {
+                    rowEnd++;
+                }
+                int next = rowEnd + 1;
+                if (rowEnd > rowStart && buffer.get(rowEnd - 1) == '\r') {
+                    rowEnd--;
+                }
+                if (rowEnd > rowStart) {
+                    int invalidFields = validateRow(rowStart, rowEnd, fieldEnds, number, cvc, owner);
+                    counters.add(invalidFields);
+                    if (invalidFields != 0 && context.listener != null) {
+                        context.listener.onInvalidRow(baseOffset + rowStart, invalidFields);
+                    }
+                }
+                rowStart = next;
+            }
+            return counters;
+        }
+
+        private int validateRow(int rowStart, int rowEnd, int[] fieldEnds, AsciiSequence number, AsciiSequence cvc, AsciiSequence owner) {
+            int fields = 0;
+            for (int i = rowStart; i < rowEnd && fields < FIELDS_COUNT - 1; i++) {
+                if (buffer.get(i) == ',') {
+                    fieldEnds[fields++] = i;
+                }
+            }
+            for (int i = fields; i < FIELDS_COUNT; i++) {
+                fieldEnds[i] = rowEnd;
+            }
+            number.set(buffer, rowStart, fieldEnds[0]);
+            cvc.set(buffer, Math.min(fieldEnds[0] + 1, rowEnd), fieldEnds[1]);
+            int month = parseInt(Math.min(fieldEnds[1] + 1, rowEnd), fieldEnds[2]);
+            int year = parseInt(Math.min(fieldEnds[2] + 1, rowEnd), fieldEnds[3]);
+            owner.set(buffer, Math.min(fieldEnds[3] + 1, rowEnd), fieldEnds[4]);
+            return CardValidator.validate(number, cvc, month, year, owner, context.currentYear, context.currentMonth);
+        }
+
+        private int parseInt(int start, int end) {
+            while (start < end && buffer.get(start) == ' ') {
+                start++;
+            }
+            while (end > start && buffer.get(end - 1) == ' ') {
+                end--;
+            }
+            if (start == end || end - start > 9) {
+                return -1;
+            }
+            int value = 0;
+            for (int i = start; i < end; i++) {
+                int digit = buffer.get(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    return -1;
+                }
+                value = value * 10 + digit;
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Listener of invalid rows. It is called from pool's threads concurrently.
+     */
+    public interface InvalidRowListener {
+
+        /**
+         * To be called for every invalid row.
+         *
+         * @param offset        an offset of row's first byte in input
+         * @param invalidFields a bit mask of invalid fields, bit of field is {@code 1 << Card.Field.ordinal()}
+         */
+        void onInvalidRow(long offset, int invalidFields);
+    }
+}
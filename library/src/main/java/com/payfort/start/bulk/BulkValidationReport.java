@@ -0,0 +1,104 @@
+package com.payfort.start.bulk;
+
+import com.payfort.start.Card;
+
+/**
+ * Aggregated results of bulk card validation.
+ */
+public final class BulkValidationReport {
+
+    private final long rows;
+    private final long invalidRows;
+    private final long[] invalidFields;
+
+    BulkValidationReport(long rows, long invalidRows, long[] invalidFields) {
+        this.rows = rows;
+        this.invalidRows = invalidRows;
+        this.invalidFields = invalidFields;
+    }
+
+    /**
+     * Returns count of validated rows.
+     *
+     * @return a count of rows
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * Returns count of valid rows.
+     *
+     * @return a count of valid rows
+     */
+    public long getValidRows() {
+        return rows - invalidRows;
+    }
+
+    /**
+     * Returns count of rows with at least one invalid field.
+     *
+     * @return a count of invalid rows
+     */
+    public long getInvalidRows() {
+        return invalidRows;
+    }
+
+    /**
+     * Returns count of rows with invalid field.
+     *
+     * @param field a field
+     * @return a count of rows
+     */
+    public long getInvalidCount(Card.Field field) {
+        return invalidFields[field.ordinal()];
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("BulkValidationReport{");
+        sb.append("rows=").append(rows);
+        sb.append(", invalidRows=").append(invalidRows);
+        for (Card.Field field : Card.Field.values()) {
+            sb.append(", ").append(field).append('=').append(invalidFields[field.ordinal()]);
+        }
+        sb.append('}');
+        return sb.toString();
+    }
+
+    /**
+     * Mutable counters of single validation task.
+     */
+    static final class Counters {
+
+        long rows;
+        long invalidRows;
+        final long[] invalidFields = new long[Card.Field.values().length];
+
+        // mask is built by CardValidator, where bit of field is 1 << field.ordinal()
+        void add(int invalidFieldsMask) {
+            rows++;
+            if (invalidFieldsMask != 0) {
+                invalidRows++;
+                for (int i = 0; i < invalidFields.length; i++) {
+                    if ((invalidFieldsMask & (1 << i)) != 0) {
+                        invalidFields[i]++;
+                    }
+                }
+            }
+        }
+
+        Counters merge(Counters other) {
+            rows += other.rows;
+            invalidRows += other.invalidRows;
+            for (int i = 0; i < invalidFields.length; i++) {
+                invalidFields[i] += other.invalidFields[i];
+            }
+            return this;
+        }
+
+        BulkValidationReport toReport() {
+            return new BulkValidationReport(rows, invalidRows, invalidFields.clone());
+        }
+    }
+}
@@ -1,24 +1,27 @@
 package com.payfort.start.error;
 
 import com.payfort.start.Card;
+import com.payfort.start.CardValidationResult;
 
-import java.util.EnumSet;
+import java.util.Set;
 
 /**
  * This exception is thrown during {@link Card} validation.
+ * <p>
+ * Invalid card details are expected input of payment form, so this exception is cheap to create:
+ * it doesn't capture stack trace and shares immutable set of invalid fields with {@link CardValidationResult}.
  */
 public class CardVerificationException extends Exception {
 
-    private final EnumSet<Card.Field> invalidFields;
+    private final CardValidationResult result;
 
     /**
      * Constructs an exception with list of invalid fields
      *
      * @param invalidFields a set with invalid fields
      */
-    public CardVerificationException(EnumSet<Card.Field> invalidFields) {
-        super("Invalid fields: " + invalidFields);
-        this.invalidFields = invalidFields.clone();
+    public CardVerificationException(Set<Card.Field> invalidFields) {
+        this(CardValidationResult.of(invalidFields));
     }
 
     /**
@@ -27,18 +30,61 @@ public class CardVerificationException extends Exception {
      * @param invalidFields a set with invalid fields
      * @param message       an error message
      */
-    public CardVerificationException(EnumSet<Card.Field> invalidFields, String message) {
+    public CardVerificationException(Set<Card.Field> invalidFields, String message) {
+        this(CardValidationResult.of(invalidFields), message);
+    }
+
+    /**
+     * Constructs an exception with result of validation.
+     *
+     * @param result a result with invalid fields
+     */
+    public CardVerificationException(CardValidationResult result) {
+        this(result, null);
+    }
+
+    /**
+     * Constructs an exception with result of validation and error message.
+     *
+     * @param result  a result with invalid fields
+     * @param message an error message, if {@code null} message is built from invalid fields on demand
+     */
+    public CardVerificationException(CardValidationResult result, String message) {
         super(message);
-        this.invalidFields = invalidFields.clone();
+        this.result = result;
+    }
+
+    @Override
+    public String getMessage() {
+        String message = super.getMessage();
+        return message != null ? message : "Invalid fields: " + result.getErrorFields();
+    }
+
+    /**
+     * Stack trace isn't captured: exception describes invalid input rather than failure of code.
+     *
+     * @return this exception
+     */
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
     }
 
     /**
      * Returns list of invalid card's fields.
      *
-     * @return a set of invalid fields.
+     * @return an unmodifiable set of invalid fields
      */
-    public EnumSet<Card.Field> getErrorFields() {
-        return invalidFields.clone();
+    public Set<Card.Field> getErrorFields() {
+        return result.getErrorFields();
     }
 
+    /**
+     * Returns result of validation which caused this exception.
+     *
+     * @return a validation result
+     */
+    public CardValidationResult getResult() {
+        return result;
+    }
 }
@@ -0,0 +1,25 @@
+package com.payfort.start.util;
+
+/**
+ * A source of current time. It lets tests control time used by SDK.
+ */
+public interface Clock {
+
+    /**
+     * Clock which uses {@link System#currentTimeMillis()}.
+     */
+    Clock SYSTEM = new Clock() {
+
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+    };
+
+    /**
+     * Returns current time.
+     *
+     * @return a current time in milliseconds since epoch
+     */
+    long currentTimeMillis();
+}
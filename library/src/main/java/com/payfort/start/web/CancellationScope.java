@@ -0,0 +1,89 @@
+package com.payfort.start.web;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.payfort.start.util.Preconditions.checkNotNull;
+
+/**
+ * Group of work started for one request: calls in flight, scheduled retries and polling, shown dialogs. Every part
+ * registers itself while it is active and unregisters when it is done, so {@link #cancel()} only touches what is active
+ * at the moment: a request never has more than a few parts active at once.
+ * This implementation is thread-safe.
+ */
+public final class CancellationScope {
+
+    private final List<Cancelable> active = new ArrayList<>(2);
+    private boolean canceled;
+
+    /**
+     * Registers active part of work to be canceled with scope.
+     *
+     * @param cancelable a part of work. Can't be {@code null}
+     * @return {@code false} if scope is already canceled, part isn't registered and must not be started
+     */
+    public synchronized boolean add(Cancelable cancelable) {
+        checkNotNull(cancelable);
+        if (canceled) {
+            return false;
+        }
+        active.add(cancelable);
+        return true;
+    }
+
+    /**
+     * Unregisters part of work which is done.
+     *
+     * @param cancelable a part of work
+     */
+    public synchronized void remove(Cancelable cancelable) {
+        active.remove(cancelable);
+    }
+
+    /**
+     * Cancels all active parts of work. Parts registered later are rejected. Does nothing if scope is already canceled.
+     */
+    public void cancel() {
+        List<Cancelable> snapshot;
+        synchronized (this) {
+            if (canceled) {
+                return;
+            }
+            canceled = true;
+            snapshot = new ArrayList<>(active);
+            active.clear();
+        }
+        for (Cancelable cancelable : snapshot) {
+            cancelable.cancel();
+        }
+    }
+
+    /**
+     * Returns was scope canceled.
+     *
+     * @return {@code true} if {@link #cancel()} was called
+     */
+    public synchronized boolean isCanceled() {
+        return canceled;
+    }
+
+    /**
+     * Returns count of registered parts of work.
+     *
+     * @return a count of active parts
+     */
+    public synchronized int activeCount() {
+        return active.size();
+    }
+
+    /**
+     * Part of work which can be canceled.
+     */
+    public interface Cancelable {
+
+        /**
+         * Cancels work, e.g. call or scheduled task. Must be safe to call if work is already done.
+         */
+        void cancel();
+    }
+}
@@ -0,0 +1,90 @@
+package com.payfort.start.web;
+
+import com.payfort.start.CardValidator;
+import com.payfort.start.PackedCard;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.Arrays;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+import static com.payfort.start.util.Preconditions.checkNotNull;
+
+/**
+ * Form-encoded body of token creation request which is written directly from digits of {@link PackedCard}.
+ * Body can be written several times (e.g. on retry) while card isn't wiped.
+ */
+public final class CardFormBody extends RequestBody {
+
+    private static final MediaType CONTENT_TYPE = MediaType.parse("application/x-www-form-urlencoded");
+
+    private final PackedCard card;
+    private final byte[] encodedOwner;
+
+    public CardFormBody(PackedCard card) {
+        this.card = checkNotNull(card);
+        this.encodedOwner = encode(card.getOwner());
+    }
+
+    @Override
+    public MediaType contentType() {
+        return CONTENT_TYPE;
+    }
+
+    /**
+     * Returns exact length of encoded body, so request is sent with {@code Content-Length} rather than chunked.
+     */
+    @Override
+    public long contentLength() throws IOException {
+        int numberLength;
+        int cvcLength;
+        try {
+            numberLength = card.length();
+            cvcLength = card.cvcLength();
+        } catch (IllegalStateException e) {
+            throw new IOException("Card is wiped", e);
+        }
+        return "number=".length() + numberLength
+                + "&cvc=".length() + cvcLength
+                + "&exp_month=".length() + String.valueOf(card.getExpirationMonth()).length()
+                + "&exp_year=".length() + String.valueOf(card.getExpirationYear()).length()
+                + "&name=".length() + encodedOwner.length;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        // digits are unpacked into scratch buffer which is zeroed right after writing
+        byte[] digits = new byte[CardValidator.MAX_NUMBER_LENGTH];
+        try {
+            int length = copy(digits, true);
+            sink.writeUtf8("number=").write(digits, 0, length);
+            length = copy(digits, false);
+            sink.writeUtf8("&cvc=").write(digits, 0, length);
+        } finally {
+            Arrays.fill(digits, (byte) 0);
+        }
+        sink.writeUtf8("&exp_month=").writeDecimalLong(card.getExpirationMonth());
+        sink.writeUtf8("&exp_year=").writeDecimalLong(card.getExpirationYear());
+        sink.writeUtf8("&name=").write(encodedOwner);
+    }
+
+    private int copy(byte[] destination, boolean number) throws IOException {
+        try {
+            return number ? card.copyNumberTo(destination, 0) : card.copyCvcTo(destination, 0);
+        } catch (IllegalStateException e) {
+            throw new IOException("Card is wiped", e);
+        }
+    }
+
+    private static byte[] encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8").getBytes("US-ASCII");
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
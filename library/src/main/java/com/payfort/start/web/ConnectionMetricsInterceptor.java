@@ -0,0 +1,23 @@
+package com.payfort.start.web;
+
+import com.payfort.start.StartMetrics;
+
+import java.io.IOException;
+
+import okhttp3.Handshake;
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+/**
+ * Network interceptor which reports negotiated protocol and TLS version of every response to {@link StartMetrics}.
+ */
+final class ConnectionMetricsInterceptor implements Interceptor {
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Response response = chain.proceed(chain.request());
+        Handshake handshake = response.handshake();
+        NetworkMetrics.recordResponse(response.protocol(), handshake != null ? handshake.tlsVersion() : null);
+        return response;
+    }
+}
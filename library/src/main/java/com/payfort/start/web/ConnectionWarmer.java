@@ -0,0 +1,106 @@
+package com.payfort.start.web;
+
+import com.payfort.start.util.Clock;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import static com.payfort.start.util.Preconditions.checkAllNotNull;
+import static com.payfort.start.util.Preconditions.checkArgument;
+import static com.payfort.start.util.Preconditions.checkNotNull;
+
+/**
+ * Keeps pooled connection to API open during checkout window, so the first real request doesn't pay for DNS lookup,
+ * TCP and TLS handshakes.
+ * <p>
+ * Connection is opened by lightweight {@code HEAD} request and kept alive by repeating it while window lasts, because
+ * server closes idle connections sooner than pool does. Repeated calls only extend the window.
+ * This implementation is thread-safe.
+ */
+final class ConnectionWarmer {
+
+    /**
+     * An interval between requests which keep connection alive. It is shorter than usual server keep-alive timeout.
+     */
+    static final long REFRESH_INTERVAL_MS = TimeUnit.SECONDS.toMillis(45);
+
+    private final OkHttpClient client;
+    private final Request pingRequest;
+    private final Clock clock;
+    private final Runnable refreshTask = new Runnable() {
+
+        @Override
+        public void run() {
+            refresh();
+        }
+    };
+    private RetryScheduler scheduler;
+    private long warmUntil;
+    private long lastPingAt = Long.MIN_VALUE;
+    private boolean refreshScheduled;
+
+    ConnectionWarmer(OkHttpClient client, HttpUrl url, Clock clock) {
+        checkAllNotNull(client, url, clock);
+        this.client = client;
+        this.pingRequest = new Request.Builder().url(url).head().build();
+        this.clock = clock;
+    }
+
+    /**
+     * Opens connection if it wasn't opened recently and keeps it alive for a window.
+     *
+     * @param windowMillis a duration of window in milliseconds. Must be positive
+     * @param scheduler    a scheduler of keep-alive requests. Can't be {@code null}
+     */
+    synchronized void prewarm(long windowMillis, RetryScheduler scheduler) {
+        checkArgument(windowMillis > 0, "Window must be positive!");
+        // the latest caller's scheduler is used, so window extended by background caller is kept off main thread
+        this.scheduler = checkNotNull(scheduler);
+        long now = clock.currentTimeMillis();
+        warmUntil = Math.max(warmUntil, now + windowMillis);
+        if (lastPingAt == Long.MIN_VALUE || now - lastPingAt >= REFRESH_INTERVAL_MS) {
+            ping(now);
+        }
+        scheduleRefresh();
+    }
+
+    private synchronized void refresh() {
+        refreshScheduled = false;
+        long now = clock.currentTimeMillis();
+        if (now < warmUntil) {
+            ping(now);
+            scheduleRefresh();
+        }
+    }
+
+    private void scheduleRefresh() {
+        if (!refreshScheduled && warmUntil - lastPingAt > REFRESH_INTERVAL_MS) {
+            refreshScheduled = true;
+            scheduler.schedule(refreshTask, REFRESH_INTERVAL_MS);
+        }
+    }
+
+    private void ping(long now) {
+        lastPingAt = now;
+        client.newCall(pingRequest).enqueue(new Callback() {
+
+            @Override
+            public void onFailure(Call call, IOException e) {
+                // nothing to do, next real request opens connection itself
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) throws IOException {
+                // response must be closed to return connection to pool
+                response.close();
+            }
+        });
+    }
+}
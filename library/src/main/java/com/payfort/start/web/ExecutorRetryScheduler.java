@@ -0,0 +1,43 @@
+package com.payfort.start.web;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static com.payfort.start.util.Preconditions.checkNotNull;
+
+/**
+ * {@link RetryScheduler} which runs tasks on {@link ScheduledExecutorService}, e.g. to keep SDK off main thread.
+ * Executor is owned by caller and isn't shut down by SDK.
+ * <p>
+ * Executor's settings aren't changed. Canceled retry stays in queue of {@link ScheduledThreadPoolExecutor} until its
+ * delay expires, unless {@link ScheduledThreadPoolExecutor#setRemoveOnCancelPolicy(boolean) remove-on-cancel policy}
+ * is enabled by caller. Canceled task doesn't keep references to request, so it only occupies queue slot.
+ */
+public final class ExecutorRetryScheduler implements RetryScheduler {
+
+    private final ScheduledExecutorService executor;
+
+    /**
+     * Creates scheduler. Enable remove-on-cancel policy of {@link ScheduledThreadPoolExecutor} to drop canceled
+     * retries from its queue at once.
+     *
+     * @param executor an executor which runs retries
+     */
+    public ExecutorRetryScheduler(ScheduledExecutorService executor) {
+        this.executor = checkNotNull(executor);
+    }
+
+    @Override
+    public Task schedule(Runnable task, long delayMillis) {
+        final ScheduledFuture<?> future = executor.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+        return new Task() {
+
+            @Override
+            public void cancel() {
+                future.cancel(false);
+            }
+        };
+    }
+}
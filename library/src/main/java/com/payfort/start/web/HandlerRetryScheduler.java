@@ -0,0 +1,39 @@
+package com.payfort.start.web;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import static com.payfort.start.util.Preconditions.checkNotNull;
+
+/**
+ * {@link RetryScheduler} which runs tasks on {@link Looper} thread of {@link Handler}.
+ */
+public final class HandlerRetryScheduler implements RetryScheduler {
+
+    private final Handler handler;
+
+    public HandlerRetryScheduler(Handler handler) {
+        this.handler = checkNotNull(handler);
+    }
+
+    /**
+     * Creates scheduler which runs tasks on main thread.
+     *
+     * @return a new scheduler
+     */
+    public static HandlerRetryScheduler mainThread() {
+        return new HandlerRetryScheduler(new Handler(Looper.getMainLooper()));
+    }
+
+    @Override
+    public Task schedule(final Runnable task, long delayMillis) {
+        handler.postDelayed(task, delayMillis);
+        return new Task() {
+
+            @Override
+            public void cancel() {
+                handler.removeCallbacks(task);
+            }
+        };
+    }
+}
@@ -0,0 +1,32 @@
+package com.payfort.start.web;
+
+import com.payfort.start.BuildConfig;
+
+import java.io.IOException;
+
+import okhttp3.Credentials;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Adds user agent and authorization headers to every request.
+ */
+final class HeadersInterceptor implements Interceptor {
+
+    private final String apiKey;
+
+    HeadersInterceptor(String apiKey) {
+        this.apiKey = apiKey;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request original = chain.request();
+        Request.Builder builder = original.newBuilder();
+        builder.header("User-Agent", "StartAndroid " + BuildConfig.VERSION_NAME);
+        builder.header("Authorization", Credentials.basic(apiKey, ""));
+        Request request = builder.build();
+        return chain.proceed(request);
+    }
+}
@@ -0,0 +1,156 @@
+package com.payfort.start.web;
+
+import java.util.concurrent.TimeUnit;
+
+import retrofit2.Call;
+
+import static com.payfort.start.util.Preconditions.checkAllNotNull;
+import static com.payfort.start.util.Preconditions.checkArgument;
+import static com.payfort.start.util.Preconditions.checkNotNull;
+
+/**
+ * Policy of hedging requests: if request isn't answered within delay, the same request is sent once more and whichever
+ * answer comes first is used. Delay is percentile of recently observed latencies clamped to {@code [minDelay, maxDelay]},
+ * so only the slowest requests are hedged. Hedges take tokens from {@link RetryBudget}, so they can't double load on
+ * API during outage.
+ * <p>
+ * Hedged requests must be idempotent, e.g. carry {@code Idempotency-Key} header. This implementation is thread-safe.
+ */
+public final class HedgePolicy {
+
+    private static final int MIN_SAMPLES = 10;
+
+    private final double percentile;
+    private final long minDelayMillis;
+    private final long maxDelayMillis;
+    private final RetryBudget budget;
+    private final LatencyTracker latencyTracker;
+
+    private HedgePolicy(Builder builder) {
+        this.percentile = builder.percentile;
+        this.minDelayMillis = builder.minDelayMillis;
+        this.maxDelayMillis = builder.maxDelayMillis;
+        this.budget = builder.budget;
+        this.latencyTracker = new LatencyTracker(builder.window);
+    }
+
+    /**
+     * Wraps call, so its every enqueue is hedged.
+     *
+     * @param call      a call to be hedged. Can't be {@code null}
+     * @param scheduler a scheduler of hedges. Can't be {@code null}
+     * @param <T>       type of response
+     * @return a hedged call
+     */
+    public <T> Call<T> hedge(Call<T> call, RetryScheduler scheduler) {
+        checkAllNotNull(call, scheduler);
+        return new HedgedCall<>(call, this, scheduler);
+    }
+
+    /**
+     * Returns delay after which request is hedged. It is {@code maxDelay} until enough latencies are observed.
+     *
+     * @return a delay in milliseconds
+     */
+    public long getDelayMillis() {
+        if (latencyTracker.count() < MIN_SAMPLES) {
+            return maxDelayMillis;
+        }
+        long delay = latencyTracker.percentile(percentile);
+        return Math.max(minDelayMillis, Math.min(maxDelayMillis, delay));
+    }
+
+    void recordLatency(long latencyMillis) {
+        latencyTracker.record(latencyMillis);
+    }
+
+    boolean tryAcquireHedge() {
+        return budget == null || budget.tryAcquire();
+    }
+
+    @Override
+    public String toString() {
+        return "HedgePolicy{percentile=" + percentile + ", minDelayMillis=" + minDelayMillis + ", maxDelayMillis="
+                + maxDelayMillis + ", delayMillis=" + getDelayMillis() + '}';
+    }
+
+    /**
+     * Builder of {@link HedgePolicy}.
+     */
+    public static final class Builder {
+
+        private double percentile = 0.95;
+        private long minDelayMillis = 300;
+        private long maxDelayMillis = TimeUnit.SECONDS.toMillis(3);
+        private int window = 50;
+        private RetryBudget budget = RetryBudget.shared();
+
+        /**
+         * Sets percentile of latencies used as delay. Default is 0.95, so about 5% of requests are hedged.
+         *
+         * @param percentile a percentile in range {@code (0, 1]}
+         * @return this builder
+         */
+        public Builder percentile(double percentile) {
+            checkArgument(percentile > 0 && percentile <= 1, "Percentile must be in range (0, 1]!");
+            this.percentile = percentile;
+            return this;
+        }
+
+        /**
+         * Sets min delay before hedge. Default is 300 ms.
+         *
+         * @param delay    a delay. Must be zero or positive
+         * @param timeUnit a unit of delay
+         * @return this builder
+         */
+        public Builder minDelay(long delay, TimeUnit timeUnit) {
+            checkNotNull(timeUnit);
+            checkArgument(delay >= 0, "Delay must be zero or positive!");
+            this.minDelayMillis = timeUnit.toMillis(delay);
+            return this;
+        }
+
+        /**
+         * Sets max delay before hedge, it is also used until enough latencies are observed. Default is 3 s.
+         *
+         * @param delay    a delay. Must be zero or positive
+         * @param timeUnit a unit of delay
+         * @return this builder
+         */
+        public Builder maxDelay(long delay, TimeUnit timeUnit) {
+            checkNotNull(timeUnit);
+            checkArgument(delay >= 0, "Delay must be zero or positive!");
+            this.maxDelayMillis = timeUnit.toMillis(delay);
+            return this;
+        }
+
+        /**
+         * Sets count of recent latencies percentile is calculated of. Default is 50.
+         *
+         * @param window a count of latencies. Must be positive
+         * @return this builder
+         */
+        public Builder window(int window) {
+            checkArgument(window > 0, "Window must be positive!");
+            this.window = window;
+            return this;
+        }
+
+        /**
+         * Sets budget hedges are taken from. Default is {@link RetryBudget#shared()}.
+         *
+         * @param budget a budget or {@code null} to hedge without limit
+         * @return this builder
+         */
+        public Builder budget(RetryBudget budget) {
+            this.budget = budget;
+            return this;
+        }
+
+        public HedgePolicy build() {
+            checkArgument(minDelayMillis <= maxDelayMillis, "Min delay must not exceed max delay!");
+            return new HedgePolicy(this);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.payfort.start.web;
+
+import java.io.IOException;
+
+import okhttp3.Request;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+import static com.payfort.start.util.Preconditions.checkNotNull;
+import static com.payfort.start.util.Preconditions.checkState;
+
+/**
+ * {@link Call} which sends second attempt if the first one isn't answered within {@link HedgePolicy#getDelayMillis()}.
+ * The first response wins and the other attempt is canceled. Failure is reported only when no attempt is in flight.
+ * Synchronous {@link #execute()} isn't hedged.
+ */
+final class HedgedCall<T> implements Call<T> {
+
+    private final Call<T> primary;
+    private final HedgePolicy policy;
+    private final RetryScheduler scheduler;
+    private Call<T> hedge;
+    private RetryScheduler.Task hedgeTask;
+    private int inFlight;
+    private boolean executed;
+    private boolean done;
+    private volatile boolean canceled;
+
+    HedgedCall(Call<T> primary, HedgePolicy policy, RetryScheduler scheduler) {
+        this.primary = primary;
+        this.policy = policy;
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public Response<T> execute() throws IOException {
+        synchronized (this) {
+            checkState(!executed, "Already executed");
+            executed = true;
+        }
+        return primary.execute();
+    }
+
+    @Override
+    public void enqueue(final Callback<T> callback) {
+        checkNotNull(callback);
+        final long startedAt = System.nanoTime();
+        synchronized (this) {
+            checkState(!executed, "Already executed");
+            executed = true;
+            inFlight = 1;
+            hedgeTask = scheduler.schedule(new Runnable() {
+
+                @Override
+                public void run() {
+                    sendHedge(callback, startedAt);
+                }
+            }, policy.getDelayMillis());
+        }
+        primary.enqueue(new AttemptCallback(callback, startedAt, false));
+    }
+
+    private void sendHedge(Callback<T> callback, long startedAt) {
+        Call<T> hedge;
+        synchronized (this) {
+            if (done || canceled || !policy.tryAcquireHedge()) {
+                return;
+            }
+            hedge = primary.clone();
+            this.hedge = hedge;
+            inFlight++;
+        }
+        NetworkMetrics.recordHedge();
+        hedge.enqueue(new AttemptCallback(callback, startedAt, true));
+    }
+
+    @Override
+    public synchronized boolean isExecuted() {
+        return executed;
+    }
+
+    @Override
+    public void cancel() {
+        canceled = true;
+        cancelAttempts(null);
+    }
+
+    private void cancelAttempts(Call<T> winner) {
+        Call<T> hedge;
+        RetryScheduler.Task hedgeTask;
+        synchronized (this) {
+            hedge = this.hedge;
+            hedgeTask = this.hedgeTask;
+        }
+        if (hedgeTask != null) {
+            hedgeTask.cancel();
+        }
+        if (primary != winner) {
+            primary.cancel();
+        }
+        if (hedge != null && hedge != winner) {
+            hedge.cancel();
+        }
+    }
+
+    @Override
+    public boolean isCanceled() {
+        return canceled;
+    }
+
+    @SuppressWarnings("CloneDoesntCallSuperClone") // New call with the same request.
+    @Override
+    public Call<T> clone() {
+        return new HedgedCall<>(primary.clone(), policy, scheduler);
+    }
+
+    @Override
+    public Request request() {
+        return primary.request();
+    }
+
+    private final class AttemptCallback implements Callback<T> {
+
+        private final Callback<T> callback;
+        private final long startedAt;
+        private final boolean isHedge;
+
+        private AttemptCallback(Callback<T> callback, long startedAt, boolean isHedge) {
+            this.callback = callback;
+            this.startedAt = startedAt;
+            this.isHedge = isHedge;
+        }
+
+        @Override
+        public void onResponse(Call<T> call, Response<T> response) {
+            synchronized (HedgedCall.this) {
+                if (done) {
+                    return;
+                }
+                done = true;
+            }
+            cancelAttempts(call);
+            // latency as user sees it, i.e. since the first attempt is sent
+            policy.recordLatency((System.nanoTime() - startedAt) / 1000000);
+            if (isHedge) {
+                NetworkMetrics.recordHedgeWin();
+            }
+            callback.onResponse(HedgedCall.this, response);
+        }
+
+        @Override
+        public void onFailure(Call<T> call, Throwable t) {
+            synchronized (HedgedCall.this) {
+                inFlight--;
+                // failed primary is reported at once if hedge isn't sent, retry policy decides what is next
+                if (done || inFlight > 0) {
+                    return;
+                }
+                done = true;
+            }
+            cancelAttempts(call);
+            callback.onFailure(HedgedCall.this, t);
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package com.payfort.start.web;
+
+import java.io.EOFException;
+import java.io.IOException;
+
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ByteString;
+import okio.Options;
+
+/**
+ * Streaming reader of JSON which reads UTF-8 bytes right from {@link BufferedSource}, e.g. body of response.
+ * <p>
+ * Names of members are matched against encoded names selected by caller (see {@link #names(String...)}), so names are
+ * never decoded to {@link String}s, members with other names are skipped without decoding. The only allocations are
+ * strings returned by {@link #nextString()}. Reader supports objects nested no deeper than 64 levels, values nested
+ * deeper are skipped by {@link #skipValue()}.
+ */
+final class JsonSourceReader {
+
+    private static final int MAX_DEPTH = 64;
+    private static final ByteString QUOTE_OR_BACKSLASH = ByteString.encodeUtf8("\"\\");
+    private static final ByteString STRUCTURE = ByteString.encodeUtf8("\"{}[]");
+    private static final ByteString VALUE_END = ByteString.encodeUtf8(",}] \t\r\n");
+    private static final Options LITERALS = Options.of(
+            ByteString.encodeUtf8("true"), ByteString.encodeUtf8("false"), ByteString.encodeUtf8("null"));
+    private static final int TRUE = 0;
+    private static final int FALSE = 1;
+    private static final int NULL = 2;
+
+    private final BufferedSource source;
+    private final Buffer buffer;
+    private int depth;
+    // bit of every open object is set after its first member, so next member must be preceded by comma
+    private long commaExpected;
+
+    JsonSourceReader(BufferedSource source) {
+        this.source = source;
+        this.buffer = source.buffer();
+    }
+
+    /**
+     * Encodes names of members for {@link #selectName(Options)}.
+     *
+     * @param names names of members
+     * @return encoded names, index of name is returned by {@link #selectName(Options)}
+     */
+    static Options names(String... names) {
+        ByteString[] encodedNames = new ByteString[names.length];
+        for (int i = 0; i < names.length; i++) {
+            encodedNames[i] = ByteString.encodeUtf8('"' + names[i] + '"');
+        }
+        return Options.of(encodedNames);
+    }
+
+    void beginObject() throws IOException {
+        consume('{');
+        if (depth == MAX_DEPTH) {
+            throw syntaxError("Nesting is too deep");
+        }
+        commaExpected &= ~(1L << depth);
+        depth++;
+    }
+
+    void endObject() throws IOException {
+        consume('}');
+        depth--;
+    }
+
+    /**
+     * Returns has current object more members. Comma before next member is consumed.
+     *
+     * @return {@code false} if the next token is end of object
+     * @throws IOException if JSON is malformed
+     */
+    boolean hasNext() throws IOException {
+        if (peek() == '}') {
+            return false;
+        }
+        long bit = 1L << (depth - 1);
+        if ((commaExpected & bit) != 0) {
+            consume(',');
+        }
+        commaExpected |= bit;
+        return true;
+    }
+
+    /**
+     * Reads name of member and colon after it.
+     *
+     * @param names encoded names of known members
+     * @return index of name in {@code names} or {@code -1} if name is unknown, its value should be skipped
+     * @throws IOException if JSON is malformed
+     */
+    int selectName(Options names) throws IOException {
+        if (peek() != '"') {
+            throw syntaxError("Expected name");
+        }
+        int index = source.select(names);
+        if (index == -1) {
+            buffer.skip(1);
+            skipString();
+        }
+        consume(':');
+        return index;
+    }
+
+    /**
+     * Reads string value.
+     *
+     * @return a string or {@code null} if value is {@code null}
+     * @throws IOException if value isn't string or JSON is malformed
+     */
+    String nextString() throws IOException {
+        if (peek() != '"') {
+            if (source.select(LITERALS) == NULL) {
+                return null;
+            }
+            throw syntaxError("Expected string");
+        }
+        buffer.skip(1);
+        return readString();
+    }
+
+    /**
+     * Reads boolean value. As Gson does, {@code null} is read as {@code false} and strings are parsed.
+     *
+     * @return a boolean
+     * @throws IOException if value isn't boolean or JSON is malformed
+     */
+    boolean nextBoolean() throws IOException {
+        if (peek() == '"') {
+            buffer.skip(1);
+            return Boolean.parseBoolean(readString());
+        }
+        switch (source.select(LITERALS)) {
+            case TRUE:
+                return true;
+            case FALSE:
+            case NULL:
+                return false;
+            default:
+                throw syntaxError("Expected boolean");
+        }
+    }
+
+    /**
+     * Consumes {@code null} if it is the next value.
+     *
+     * @return {@code true} if {@code null} is consumed
+     * @throws IOException if JSON is malformed
+     */
+    boolean nextNull() throws IOException {
+        if (peek() != 'n') {
+            return false;
+        }
+        if (source.select(LITERALS) != NULL) {
+            throw syntaxError("Expected null");
+        }
+        return true;
+    }
+
+    /**
+     * Skips value of any type including nested objects and arrays.
+     *
+     * @throws IOException if JSON is malformed
+     */
+    void skipValue() throws IOException {
+        byte b = peek();
+        if (b == '"') {
+            buffer.skip(1);
+            skipString();
+        } else if (b == '{' || b == '[') {
+            buffer.skip(1);
+            skipNested();
+        } else if (b == '}' || b == ']' || b == ',' || b == ':') {
+            throw syntaxError("Expected value");
+        } else {
+            // number or literal
+            long end = source.indexOfElement(VALUE_END);
+            if (end == -1) {
+                throw new EOFException("Unterminated value");
+            }
+            buffer.skip(end);
+        }
+    }
+
+    private void skipNested() throws IOException {
+        int nesting = 1;
+        while (nesting > 0) {
+            long index = source.indexOfElement(STRUCTURE);
+            if (index == -1) {
+                throw new EOFException("Unterminated object");
+            }
+            byte b = buffer.getByte(index);
+            buffer.skip(index + 1);
+            if (b == '"') {
+                skipString();
+            } else if (b == '{' || b == '[') {
+                nesting++;
+            } else {
+                nesting--;
+            }
+        }
+    }
+
+    private void skipString() throws IOException {
+        while (true) {
+            long index = source.indexOfElement(QUOTE_OR_BACKSLASH);
+            if (index == -1) {
+                throw new EOFException("Unterminated string");
+            }
+            if (buffer.getByte(index) == '"') {
+                buffer.skip(index + 1);
+                return;
+            }
+            // escaped character is skipped with backslash, digits of unicode escape can't be quote or backslash
+            source.skip(index + 2);
+        }
+    }
+
+    private String readString() throws IOException {
+        // buffer for unescaped value is needed only if string contains escapes
+        Buffer unescaped = null;
+        while (true) {
+            long index = source.indexOfElement(QUOTE_OR_BACKSLASH);
+            if (index == -1) {
+                throw new EOFException("Unterminated string");
+            }
+            if (buffer.getByte(index) == '"') {
+                if (unescaped == null) {
+                    String value = buffer.readUtf8(index);
+                    buffer.skip(1);
+                    return value;
+                }
+                unescaped.write(buffer, index);
+                buffer.skip(1);
+                return unescaped.readUtf8();
+            }
+            if (unescaped == null) {
+                unescaped = new Buffer();
+            }
+            unescaped.write(buffer, index);
+            buffer.skip(1);
+            readEscape(unescaped);
+        }
+    }
+
+    private void readEscape(Buffer unescaped) throws IOException {
+        source.require(1);
+        byte b = buffer.readByte();
+        switch (b) {
+            case 'b':
+                unescaped.writeByte('\b');
+                break;
+            case 'f':
+                unescaped.writeByte('\f');
+                break;
+            case 'n':
+                unescaped.writeByte('\n');
+                break;
+            case 'r':
+                unescaped.writeByte('\r');
+                break;
+            case 't':
+                unescaped.writeByte('\t');
+                break;
+            case 'u':
+                int codePoint = readHex();
+                if (Character.isHighSurrogate((char) codePoint) && source.request(6)
+                        && buffer.getByte(0) == '\\' && buffer.getByte(1) == 'u') {
+                    buffer.skip(2);
+                    char low = (char) readHex();
+                    if (Character.isLowSurrogate(low)) {
+                        codePoint = Character.toCodePoint((char) codePoint, low);
+                    } else {
+                        // unpaired surrogate is written as '?'
+                        unescaped.writeUtf8CodePoint(codePoint);
+                        codePoint = low;
+                    }
+                }
+                unescaped.writeUtf8CodePoint(codePoint);
+                break;
+            case '"':
+            case '\\':
+            case '/':
+                unescaped.writeByte(b);
+                break;
+            default:
+                throw syntaxError("Invalid escape");
+        }
+    }
+
+    private int readHex() throws IOException {
+        source.require(4);
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            int digit = Character.digit(buffer.readByte(), 16);
+            if (digit == -1) {
+                throw syntaxError("Invalid unicode escape");
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+
+    /**
+     * Skips whitespace and returns the next byte without consuming it.
+     */
+    private byte peek() throws IOException {
+        while (true) {
+            source.require(1);
+            byte b = buffer.getByte(0);
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+                return b;
+            }
+            buffer.skip(1);
+        }
+    }
+
+    private void consume(char expected) throws IOException {
+        if (peek() != expected) {
+            throw syntaxError("Expected '" + expected + "'");
+        }
+        buffer.skip(1);
+    }
+
+    private IOException syntaxError(String message) {
+        return new IOException(message + " at depth " + depth);
+    }
+}
@@ -0,0 +1,46 @@
+package com.payfort.start.web;
+
+import java.util.Arrays;
+
+import static com.payfort.start.util.Preconditions.checkArgument;
+
+/**
+ * Keeps latencies of recent requests and calculates their percentiles. This implementation is thread-safe.
+ */
+final class LatencyTracker {
+
+    private final long[] samples;
+    private int count;
+    private int next;
+
+    LatencyTracker(int window) {
+        checkArgument(window > 0, "Window must be positive!");
+        this.samples = new long[window];
+    }
+
+    synchronized void record(long latencyMillis) {
+        samples[next] = latencyMillis;
+        next = (next + 1) % samples.length;
+        count = Math.min(count + 1, samples.length);
+    }
+
+    synchronized int count() {
+        return count;
+    }
+
+    /**
+     * Returns percentile of recorded latencies.
+     *
+     * @param percentile a percentile in range {@code (0, 1]}
+     * @return a latency in milliseconds or {@code -1} if nothing is recorded
+     */
+    synchronized long percentile(double percentile) {
+        if (count == 0) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, index))];
+    }
+}
@@ -0,0 +1,31 @@
+package com.payfort.start.web;
+
+import com.payfort.start.StartMetrics;
+
+import okhttp3.Protocol;
+import okhttp3.TlsVersion;
+
+/**
+ * Receiver of events of SDK's transport. It is implemented by {@link StartMetrics}, which is where app reads them.
+ * Implementations must be thread-safe.
+ */
+public interface NetworkListener {
+
+    /**
+     * Called when response is received from network.
+     *
+     * @param protocol   a protocol negotiated for connection
+     * @param tlsVersion a TLS version negotiated for connection or {@code null} if connection isn't secure
+     */
+    void onResponse(Protocol protocol, TlsVersion tlsVersion);
+
+    /**
+     * Called when hedge, i.e. second attempt of slow request, is sent.
+     */
+    void onHedge();
+
+    /**
+     * Called when hedge answers before original request.
+     */
+    void onHedgeWin();
+}
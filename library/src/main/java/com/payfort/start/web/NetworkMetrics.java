@@ -0,0 +1,43 @@
+package com.payfort.start.web;
+
+import com.payfort.start.StartMetrics;
+
+import okhttp3.Protocol;
+import okhttp3.TlsVersion;
+
+/**
+ * Reports events of transport of this package to {@link NetworkListener} registered by {@link StartMetrics}.
+ */
+final class NetworkMetrics {
+
+    private static volatile NetworkListener listener;
+
+    private NetworkMetrics() {
+    }
+
+    static void setListener(NetworkListener listener) {
+        NetworkMetrics.listener = listener;
+    }
+
+    static void recordResponse(Protocol protocol, TlsVersion tlsVersion) {
+        listener().onResponse(protocol, tlsVersion);
+    }
+
+    static void recordHedge() {
+        listener().onHedge();
+    }
+
+    static void recordHedgeWin() {
+        listener().onHedgeWin();
+    }
+
+    private static NetworkListener listener() {
+        NetworkListener listener = NetworkMetrics.listener;
+        if (listener == null) {
+            // metrics register their listener when class is initialized
+            StartMetrics.getInstance();
+            listener = NetworkMetrics.listener;
+        }
+        return listener;
+    }
+}
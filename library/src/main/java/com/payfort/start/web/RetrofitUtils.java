@@ -1,10 +1,10 @@
 package com.payfort.start.web;
 
-import android.os.Handler;
-import android.os.Looper;
 import android.util.Log;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
 
 import okhttp3.ResponseBody;
 import retrofit2.Call;
@@ -20,8 +20,11 @@ import static com.payfort.start.util.Preconditions.checkNotNull;
  */
 public class RetrofitUtils {
 
+    // blocking socket I/O doesn't respond to interruption, so watchdog checks calling thread with this period
+    private static final long INTERRUPT_CHECK_MILLIS = 50;
+
     /**
-     * Enqueue request call with retries.
+     * Enqueue request call with retries. Retries are scheduled on main thread.
      *
      * @param call        a call to be enqueue. Can't be null
      * @param callback    a callback for call. Can't be null
@@ -30,15 +33,60 @@ public class RetrofitUtils {
      * @param <T>         type of response
      */
     public static <T> void enqueueWithRetry(Call<T> call, Callback<T> callback, int maxAttempts, long delayMillis) {
-        checkAllNotNull(call, callback);
+        enqueueWithRetry(call, callback, maxAttempts, delayMillis, HandlerRetryScheduler.mainThread());
+    }
+
+    /**
+     * Enqueue request call with retries.
+     *
+     * @param call           a call to be enqueue. Can't be null
+     * @param callback       a callback for call. Can't be null
+     * @param maxAttempts    a max count of attempts. Must be positive
+     * @param delayMillis    a delay between retries in milliseconds. Must be zero or positive
+     * @param retryScheduler a scheduler of retries. Can't be null
+     * @param <T>            type of response
+     */
+    public static <T> void enqueueWithRetry(Call<T> call, Callback<T> callback, int maxAttempts, long delayMillis, RetryScheduler retryScheduler) {
         checkArgument(maxAttempts > 0, "MaxAttempts must be positive!");
         checkArgument(delayMillis >= 0, "Delay must be zero or positive!");
 
-        call.enqueue(new CallbackWithRetryWrapper<>(callback, maxAttempts, delayMillis));
+        enqueueWithRetry(call, callback, RetryPolicy.fixed(maxAttempts, delayMillis), retryScheduler);
+    }
+
+    /**
+     * Enqueue request call with retries according to policy.
+     *
+     * @param call           a call to be enqueue. Can't be null
+     * @param callback       a callback for call. Can't be null
+     * @param retryPolicy    a policy of retries. Can't be null
+     * @param retryScheduler a scheduler of retries. Can't be null
+     * @param <T>            type of response
+     */
+    public static <T> void enqueueWithRetry(Call<T> call, Callback<T> callback, RetryPolicy retryPolicy, RetryScheduler retryScheduler) {
+        enqueueWithRetry(call, callback, retryPolicy, retryScheduler, new CancellationScope());
+    }
+
+    /**
+     * Enqueue request call with retries according to policy. Call in flight and scheduled retry are canceled with scope,
+     * callback isn't called after that.
+     *
+     * @param call              a call to be enqueue. Can't be null
+     * @param callback          a callback for call. Can't be null
+     * @param retryPolicy       a policy of retries. Can't be null
+     * @param retryScheduler    a scheduler of retries. Can't be null
+     * @param cancellationScope a scope of request. Can't be null
+     * @param <T>               type of response
+     */
+    public static <T> void enqueueWithRetry(Call<T> call, Callback<T> callback, RetryPolicy retryPolicy, RetryScheduler retryScheduler,
+            CancellationScope cancellationScope) {
+        checkAllNotNull(call, callback, retryPolicy, retryScheduler, cancellationScope);
+
+        new CallbackWithRetryWrapper<>(callback, retryPolicy, retryScheduler, cancellationScope).start(call);
     }
 
     /**
      * Enqueue request call until condition will be satisfied or original call is not canceled.
+     * Retries are scheduled on main thread.
      *
      * @param call           a call to be enqueue. Can't be null
      * @param callback       a callback for call. Can't be null
@@ -47,10 +95,108 @@ public class RetrofitUtils {
      * @param <T>            type of response
      */
     public static <T> void enqueueWithCondition(Call<T> call, Callback<T> callback, RetryCondition<T> retryCondition, long delayMillis) {
-        checkAllNotNull(call, callback, retryCondition);
+        enqueueWithCondition(call, callback, retryCondition, delayMillis, HandlerRetryScheduler.mainThread());
+    }
+
+    /**
+     * Enqueue request call until condition will be satisfied or original call is not canceled.
+     *
+     * @param call           a call to be enqueue. Can't be null
+     * @param callback       a callback for call. Can't be null
+     * @param retryCondition a condition. Can't be null
+     * @param delayMillis    a delay between retries in milliseconds. Must be zero or positive
+     * @param retryScheduler a scheduler of retries. Can't be null
+     * @param <T>            type of response
+     */
+    public static <T> void enqueueWithCondition(Call<T> call, Callback<T> callback, RetryCondition<T> retryCondition, long delayMillis,
+            RetryScheduler retryScheduler) {
+        enqueueWithCondition(call, callback, retryCondition, delayMillis, retryScheduler, new CancellationScope());
+    }
+
+    /**
+     * Enqueue request call until condition will be satisfied or original call or scope is not canceled.
+     * Cancellation of scope stops polling, callback isn't called after that.
+     *
+     * @param call              a call to be enqueue. Can't be null
+     * @param callback          a callback for call. Can't be null
+     * @param retryCondition    a condition. Can't be null
+     * @param delayMillis       a delay between retries in milliseconds. Must be zero or positive
+     * @param retryScheduler    a scheduler of retries. Can't be null
+     * @param cancellationScope a scope of request. Can't be null
+     * @param <T>               type of response
+     */
+    public static <T> void enqueueWithCondition(Call<T> call, Callback<T> callback, RetryCondition<T> retryCondition, long delayMillis,
+            RetryScheduler retryScheduler, CancellationScope cancellationScope) {
+        checkAllNotNull(call, callback, retryCondition, retryScheduler, cancellationScope);
         checkArgument(delayMillis >= 0, "Delay must be zero or positive!");
 
-        call.enqueue(new CallbackWithConditionWrapper<>(callback, retryCondition, delayMillis));
+        new CallbackWithConditionWrapper<>(callback, retryCondition, delayMillis, retryScheduler, cancellationScope).start(call);
+    }
+
+    /**
+     * Executes request call on calling thread with retries according to policy. Thread sleeps between retries.
+     * Call which doesn't complete before timeout or whose thread is interrupted is canceled by watchdog scheduled with
+     * {@code watchdogScheduler}. Watchdog checks interruption every {@value #INTERRUPT_CHECK_MILLIS} ms while attempt
+     * is in progress, sleep between retries is interrupted at once.
+     *
+     * @param call              a call to be executed. Can't be null
+     * @param retryPolicy       a policy of retries. Can't be null
+     * @param watchdogScheduler a scheduler of call's cancellation on timeout. Can't be null
+     * @param timeoutMillis     a max duration of all attempts and delays between them in milliseconds. Must be positive
+     * @param <T>               type of response
+     * @return a response of the last attempt
+     * @throws InterruptedIOException if timeout elapses
+     * @throws IOException            if the last attempt fails and policy doesn't allow to retry it
+     * @throws InterruptedException   if thread is interrupted, the last attempt is canceled
+     */
+    public static <T> Response<T> executeWithRetry(Call<T> call, RetryPolicy retryPolicy, RetryScheduler watchdogScheduler,
+            long timeoutMillis) throws IOException, InterruptedException {
+        checkAllNotNull(call, retryPolicy, watchdogScheduler);
+        checkArgument(timeoutMillis > 0, "Timeout must be positive!");
+
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        int failedAttempts = 0;
+        Call<T> attempt = call;
+        while (true) {
+            if (Thread.interrupted()) {
+                attempt.cancel();
+                throw new InterruptedException();
+            }
+            CallWatchdog watchdog = new CallWatchdog(attempt, Thread.currentThread(), watchdogScheduler, deadlineNanos);
+            watchdog.start();
+            try {
+                return attempt.execute();
+            } catch (IOException e) {
+                if (Thread.interrupted()) {
+                    attempt.cancel();
+                    throw new InterruptedException();
+                }
+                if (attempt.isCanceled()) {
+                    throw timeout(e);
+                }
+                long delayMillis = retryPolicy.nextDelayMillis(++failedAttempts);
+                if (delayMillis < 0) {
+                    throw e;
+                }
+                if (delayMillis >= remainingMillis(deadlineNanos)) {
+                    throw timeout(e);
+                }
+                Thread.sleep(delayMillis);
+            } finally {
+                watchdog.stop();
+            }
+            attempt = attempt.clone();
+        }
+    }
+
+    private static long remainingMillis(long deadlineNanos) {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime()));
+    }
+
+    private static InterruptedIOException timeout(IOException cause) {
+        InterruptedIOException timeout = new InterruptedIOException("timeout");
+        timeout.initCause(cause);
+        return timeout;
     }
 
     /**
@@ -71,60 +217,121 @@ public class RetrofitUtils {
         }
     }
 
-    private static class CallbackWithRetryWrapper<T> implements Callback<T> {
+    /**
+     * Callback of call and its retries. It is registered in scope while call is in flight or retry is scheduled,
+     * so cancellation of scope cancels only the current attempt or pending retry.
+     */
+    private static class CallbackWithRetryWrapper<T> implements Callback<T>, CancellationScope.Cancelable {
 
-        private final int attempts;
         private final Callback<T> callback;
-        private final long delayMillis;
-        private final Handler handler;
-        private int retryCount = 0;
+        private final RetryPolicy retryPolicy;
+        private final RetryScheduler retryScheduler;
+        private final CancellationScope cancellationScope;
+        private int failedAttempts = 0;
+        private volatile Call<T> currentCall;
+        private volatile RetryScheduler.Task pendingRetry;
 
-        private CallbackWithRetryWrapper(Callback<T> callback, int attempts, long delayMillis) {
+        private CallbackWithRetryWrapper(Callback<T> callback, RetryPolicy retryPolicy, RetryScheduler retryScheduler,
+                CancellationScope cancellationScope) {
             this.callback = checkNotNull(callback);
-            checkArgument(attempts > 0);
-            this.attempts = attempts;
-            this.delayMillis = delayMillis;
-            this.handler = new Handler(Looper.getMainLooper());
+            this.retryPolicy = checkNotNull(retryPolicy);
+            this.retryScheduler = checkNotNull(retryScheduler);
+            this.cancellationScope = checkNotNull(cancellationScope);
+        }
+
+        void start(Call<T> call) {
+            currentCall = call;
+            if (cancellationScope.add(this)) {
+                call.enqueue(this);
+            }
         }
 
         @Override
         public void onResponse(Call<T> call, Response<T> response) {
-            callback.onResponse(call, response);
+            if (finish()) {
+                callback.onResponse(call, response);
+            }
         }
 
         @Override
         public void onFailure(Call<T> call, Throwable t) {
-            if (retryCount++ < attempts) {
-                scheduleRetry(call);
-            } else {
+            if (cancellationScope.isCanceled()) {
+                return;
+            }
+            long delayMillis = retryPolicy.nextDelayMillis(++failedAttempts);
+            if (delayMillis >= 0) {
+                scheduleRetry(call, delayMillis);
+            } else if (finish()) {
                 callback.onFailure(call, t);
             }
         }
 
+        @Override
+        public void cancel() {
+            // scope is already canceled, so neither call nor retry is started after this
+            Call<T> call = currentCall;
+            if (call != null) {
+                call.cancel();
+            }
+            RetryScheduler.Task retry = pendingRetry;
+            if (retry != null) {
+                retry.cancel();
+            }
+        }
+
+        /**
+         * Unregisters callback from scope.
+         *
+         * @return {@code false} if scope is canceled and result must be dropped
+         */
+        protected boolean finish() {
+            if (cancellationScope.isCanceled()) {
+                return false;
+            }
+            cancellationScope.remove(this);
+            return true;
+        }
+
         private void retry(Call<T> call) {
-            if (!call.isCanceled()) {
-                call.clone().enqueue(this);
+            pendingRetry = null;
+            if (call.isCanceled() || cancellationScope.isCanceled()) {
+                return;
+            }
+            Call<T> nextCall = call.clone();
+            currentCall = nextCall;
+            nextCall.enqueue(this);
+            if (cancellationScope.isCanceled()) {
+                // scope was canceled before call was published
+                nextCall.cancel();
             }
         }
 
-        protected void scheduleRetry(final Call<T> call) {
-            handler.postDelayed(new Runnable() {
+        protected void scheduleRetry(final Call<T> call, long delayMillis) {
+            currentCall = null;
+            RetryScheduler.Task retry = retryScheduler.schedule(new Runnable() {
 
                 @Override
                 public void run() {
                     retry(call);
                 }
             }, delayMillis);
+            pendingRetry = retry;
+            if (cancellationScope.isCanceled()) {
+                retry.cancel();
+            }
         }
     }
 
     private static class CallbackWithConditionWrapper<T> extends CallbackWithRetryWrapper<T> {
 
         private final RetryCondition<T> retryCondition;
+        private final long delayMillis;
 
-        private CallbackWithConditionWrapper(Callback<T> callback, RetryCondition<T> retryCondition, long delayMillis) {
-            super(callback, Integer.MAX_VALUE, delayMillis);
+        private CallbackWithConditionWrapper(Callback<T> callback, RetryCondition<T> retryCondition, long delayMillis,
+                RetryScheduler retryScheduler, CancellationScope cancellationScope) {
+            super(callback, RetryPolicy.fixed(Integer.MAX_VALUE, delayMillis), retryScheduler, cancellationScope);
             this.retryCondition = retryCondition;
+            this.delayMillis = delayMillis;
         }
 
         @Override
@@ -132,20 +339,62 @@ public class RetrofitUtils {
             if (response.isSuccessful()) {
                 T body = response.body();
                 if (retryCondition.doRetry(body)) {
-                    scheduleRetry(call);
+                    scheduleRetry(call, delayMillis);
                 } else {
                     super.onResponse(call, response);
                 }
             } else {
-                scheduleRetry(call);
+                scheduleRetry(call, delayMillis);
             }
         }
 
         @Override
         public void onFailure(Call<T> call, Throwable t) {
-            scheduleRetry(call);
+            scheduleRetry(call, delayMillis);
+        }
+
+    }
+
+    /**
+     * Cancels call when its thread is interrupted or deadline passes. It reschedules itself until it is stopped.
+     */
+    private static final class CallWatchdog implements Runnable {
+
+        private final Call<?> call;
+        private final Thread thread;
+        private final RetryScheduler scheduler;
+        private final long deadlineNanos;
+        private RetryScheduler.Task task;
+        private boolean stopped;
+
+        private CallWatchdog(Call<?> call, Thread thread, RetryScheduler scheduler, long deadlineNanos) {
+            this.call = call;
+            this.thread = thread;
+            this.scheduler = scheduler;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        @Override
+        public void run() {
+            if (thread.isInterrupted() || remainingMillis(deadlineNanos) == 0) {
+                call.cancel();
+            } else {
+                start();
+            }
+        }
+
+        synchronized void start() {
+            if (!stopped) {
+                task = scheduler.schedule(this, Math.min(INTERRUPT_CHECK_MILLIS, remainingMillis(deadlineNanos)));
+            }
         }
 
+        synchronized void stop() {
+            stopped = true;
+            if (task != null) {
+                task.cancel();
+            }
+        }
     }
 
     public interface RetryCondition<T> {
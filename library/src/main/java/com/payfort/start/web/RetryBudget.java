@@ -0,0 +1,85 @@
+package com.payfort.start.web;
+
+import com.payfort.start.util.Clock;
+
+import static com.payfort.start.util.Preconditions.checkArgument;
+import static com.payfort.start.util.Preconditions.checkNotNull;
+
+/**
+ * Token bucket which limits rate of retries. Every retry takes one token, tokens are refilled at constant rate up to
+ * capacity. When API is down, bucket drains quickly and requests fail fast instead of retrying in lockstep.
+ * This implementation is thread-safe.
+ */
+public final class RetryBudget {
+
+    private static final RetryBudget SHARED = new RetryBudget(10, 1, Clock.SYSTEM);
+
+    private final int capacity;
+    private final double tokensPerMillis;
+    private final Clock clock;
+    private double tokens;
+    private long refilledAt;
+
+    /**
+     * Creates budget which is full initially.
+     *
+     * @param capacity        a max count of retries in burst. Must be positive
+     * @param tokensPerSecond a count of retries refilled per second. Must be positive
+     * @param clock           a source of time. Can't be {@code null}
+     */
+    public RetryBudget(int capacity, double tokensPerSecond, Clock clock) {
+        checkArgument(capacity > 0, "Capacity must be positive!");
+        checkArgument(tokensPerSecond > 0, "Refill rate must be positive!");
+        this.capacity = capacity;
+        this.tokensPerMillis = tokensPerSecond / 1000;
+        this.clock = checkNotNull(clock);
+        this.tokens = capacity;
+        this.refilledAt = clock.currentTimeMillis();
+    }
+
+    /**
+     * Returns process-wide budget: bursts of 10 retries, 1 retry per second on average.
+     *
+     * @return a shared budget
+     */
+    public static RetryBudget shared() {
+        return SHARED;
+    }
+
+    /**
+     * Takes one token if budget isn't exhausted.
+     *
+     * @return {@code true} if retry is allowed
+     */
+    public synchronized boolean tryAcquire() {
+        refill();
+        if (tokens >= 1) {
+            tokens--;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns count of retries allowed right now.
+     *
+     * @return a count of available tokens
+     */
+    public synchronized int available() {
+        refill();
+        return (int) tokens;
+    }
+
+    private void refill() {
+        long now = clock.currentTimeMillis();
+        // clock may go backwards, elapsed time is never negative
+        long elapsed = Math.max(0, now - refilledAt);
+        tokens = Math.min(capacity, tokens + elapsed * tokensPerMillis);
+        refilledAt = now;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "RetryBudget{capacity=" + capacity + ", tokens=" + tokens + '}';
+    }
+}
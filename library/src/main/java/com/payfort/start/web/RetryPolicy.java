@@ -0,0 +1,188 @@
+package com.payfort.start.web;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.payfort.start.util.Preconditions.checkArgument;
+import static com.payfort.start.util.Preconditions.checkNotNull;
+
+/**
+ * Policy of retrying failed requests: exponential backoff with full jitter, capped delay, limited count of attempts
+ * per call and shared {@link RetryBudget}.
+ * <p>
+ * Delay before n-th retry is random in range {@code [0, min(maxDelay, baseDelay * 2^(n-1))]}, so clients which failed
+ * at the same moment don't retry at the same moment. This implementation is thread-safe.
+ */
+public final class RetryPolicy {
+
+    /**
+     * Default policy: up to 4 attempts, 500 ms base delay, 4 s max delay, process-wide budget.
+     */
+    public static final RetryPolicy DEFAULT = new Builder().build();
+
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final RetryBudget budget;
+    private final Random random;
+
+    private RetryPolicy(Builder builder) {
+        this.maxAttempts = builder.maxAttempts;
+        this.baseDelayMillis = builder.baseDelayMillis;
+        this.maxDelayMillis = builder.maxDelayMillis;
+        this.budget = builder.budget;
+        this.random = builder.random;
+    }
+
+    /**
+     * Creates policy which retries with fixed delay, without jitter and budget.
+     *
+     * @param maxAttempts a max count of attempts including the first one. Must be positive
+     * @param delayMillis a delay between attempts in milliseconds. Must be zero or positive
+     * @return a new policy
+     */
+    public static RetryPolicy fixed(int maxAttempts, long delayMillis) {
+        return new Builder()
+                .maxAttempts(maxAttempts)
+                .baseDelay(delayMillis, TimeUnit.MILLISECONDS)
+                .maxDelay(delayMillis, TimeUnit.MILLISECONDS)
+                .jitter(false)
+                .budget(null)
+                .build();
+    }
+
+    /**
+     * Returns delay before next attempt.
+     *
+     * @param failedAttempts a count of attempts failed so far. Must be positive
+     * @return a delay in milliseconds or {@code -1} if call must not be retried
+     */
+    public long nextDelayMillis(int failedAttempts) {
+        checkArgument(failedAttempts > 0, "Count of failed attempts must be positive!");
+        if (failedAttempts >= maxAttempts || (budget != null && !budget.tryAcquire())) {
+            return -1;
+        }
+        long delay = backoffMillis(failedAttempts);
+        if (random == null) {
+            return delay;
+        }
+        synchronized (random) {
+            return (long) (random.nextDouble() * (delay + 1));
+        }
+    }
+
+    private long backoffMillis(int failedAttempts) {
+        // shift is limited to avoid overflow, delay is capped by maxDelay anyway
+        int shift = Math.min(failedAttempts - 1, 30);
+        long delay = baseDelayMillis << shift;
+        return delay < 0 || delay > maxDelayMillis ? maxDelayMillis : delay;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public long getBaseDelayMillis() {
+        return baseDelayMillis;
+    }
+
+    public long getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "RetryPolicy{maxAttempts=" + maxAttempts + ", baseDelayMillis=" + baseDelayMillis + ", maxDelayMillis="
+                + maxDelayMillis + ", jitter=" + (random != null) + ", budget=" + budget + '}';
+    }
+
+    /**
+     * Builder of {@link RetryPolicy}.
+     */
+    public static final class Builder {
+
+        private int maxAttempts = 4;
+        private long baseDelayMillis = 500;
+        private long maxDelayMillis = TimeUnit.SECONDS.toMillis(4);
+        private RetryBudget budget = RetryBudget.shared();
+        private Random random = new Random();
+
+        /**
+         * Sets max count of attempts of single call including the first one. Default is 4.
+         *
+         * @param maxAttempts a count of attempts. Must be positive
+         * @return this builder
+         */
+        public Builder maxAttempts(int maxAttempts) {
+            checkArgument(maxAttempts > 0, "MaxAttempts must be positive!");
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * Sets delay before the first retry, it is doubled for every next one. Default is 500 ms.
+         *
+         * @param delay    a delay. Must be zero or positive
+         * @param timeUnit a unit of delay
+         * @return this builder
+         */
+        public Builder baseDelay(long delay, TimeUnit timeUnit) {
+            checkNotNull(timeUnit);
+            checkArgument(delay >= 0, "Delay must be zero or positive!");
+            this.baseDelayMillis = timeUnit.toMillis(delay);
+            return this;
+        }
+
+        /**
+         * Sets max delay between attempts. Default is 4 s.
+         *
+         * @param delay    a delay. Must be zero or positive
+         * @param timeUnit a unit of delay
+         * @return this builder
+         */
+        public Builder maxDelay(long delay, TimeUnit timeUnit) {
+            checkNotNull(timeUnit);
+            checkArgument(delay >= 0, "Delay must be zero or positive!");
+            this.maxDelayMillis = timeUnit.toMillis(delay);
+            return this;
+        }
+
+        /**
+         * Sets budget shared by calls. Default is {@link RetryBudget#shared()}.
+         *
+         * @param budget a budget or {@code null} to retry without limit
+         * @return this builder
+         */
+        public Builder budget(RetryBudget budget) {
+            this.budget = budget;
+            return this;
+        }
+
+        /**
+         * Enables or disables full jitter. It is enabled by default.
+         *
+         * @param jitter {@code true} to randomize delays
+         * @return this builder
+         */
+        public Builder jitter(boolean jitter) {
+            this.random = jitter ? new Random() : null;
+            return this;
+        }
+
+        /**
+         * Sets source of jitter, e.g. seeded {@link Random} in tests.
+         *
+         * @param random a random. Can't be {@code null}
+         * @return this builder
+         */
+        public Builder random(Random random) {
+            this.random = checkNotNull(random);
+            return this;
+        }
+
+        public RetryPolicy build() {
+            checkArgument(baseDelayMillis <= maxDelayMillis, "Base delay must not exceed max delay!");
+            return new RetryPolicy(this);
+        }
+    }
+}
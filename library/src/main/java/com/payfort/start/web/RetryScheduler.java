@@ -0,0 +1,30 @@
+package com.payfort.start.web;
+
+/**
+ * Schedules delayed tasks of SDK such as retries of failed requests.
+ *
+ * @see HandlerRetryScheduler
+ * @see ExecutorRetryScheduler
+ */
+public interface RetryScheduler {
+
+    /**
+     * Schedules task to be run after delay.
+     *
+     * @param task        a task to be run
+     * @param delayMillis a delay in milliseconds
+     * @return a handle of scheduled task
+     */
+    Task schedule(Runnable task, long delayMillis);
+
+    /**
+     * Handle of scheduled task.
+     */
+    interface Task {
+
+        /**
+         * Cancels task if it isn't run yet.
+         */
+        void cancel();
+    }
+}
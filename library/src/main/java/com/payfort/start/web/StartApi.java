@@ -3,10 +3,13 @@ package com.payfort.start.web;
 import com.payfort.start.Token;
 import com.payfort.start.TokenVerification;
 
+import okhttp3.RequestBody;
 import retrofit2.Call;
+import retrofit2.http.Body;
 import retrofit2.http.Field;
 import retrofit2.http.FormUrlEncoded;
 import retrofit2.http.GET;
+import retrofit2.http.Header;
 import retrofit2.http.POST;
 import retrofit2.http.Path;
 
@@ -15,6 +18,8 @@ import retrofit2.http.Path;
  */
 public interface StartApi {
 
+    String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
     @FormUrlEncoded
     @POST("tokens/")
     Call<Token> createToken(
@@ -25,6 +30,32 @@ public interface StartApi {
             @Field("name") String owner
     );
 
+    /**
+     * Creates token. Attempts of the same request carry the same idempotency key, so server creates token only once.
+     */
+    @FormUrlEncoded
+    @POST("tokens/")
+    Call<Token> createToken(
+            @Header(IDEMPOTENCY_KEY_HEADER) String idempotencyKey,
+            @Field("number") String number,
+            @Field("cvc") String cvc,
+            @Field("exp_month") int expirationMonth,
+            @Field("exp_year") int expirationYear,
+            @Field("name") String owner
+    );
+
+    /**
+     * Creates token with form-encoded card details written by {@link CardFormBody}.
+     */
+    @POST("tokens/")
+    Call<Token> createToken(@Body RequestBody cardForm);
+
+    /**
+     * Creates token with form-encoded card details written by {@link CardFormBody} and idempotency key.
+     */
+    @POST("tokens/")
+    Call<Token> createToken(@Header(IDEMPOTENCY_KEY_HEADER) String idempotencyKey, @Body RequestBody cardForm);
+
     @FormUrlEncoded
     @POST("tokens/{token}/verification")
     Call<TokenVerification> createTokenVerification(
@@ -2,35 +2,40 @@ package com.payfort.start.web;
 
 import android.os.Build;
 
-import com.google.gson.FieldNamingPolicy;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.payfort.start.BuildConfig;
+import com.payfort.start.util.Clock;
 
-import java.io.IOException;
+import java.security.KeyManagementException;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
+import javax.net.ssl.SSLContext;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.TrustManagerFactory;
 import javax.net.ssl.X509TrustManager;
 
 import okhttp3.ConnectionSpec;
-import okhttp3.Credentials;
-import okhttp3.Interceptor;
+import okhttp3.Dispatcher;
+import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.Response;
+import okhttp3.Protocol;
 import okhttp3.TlsVersion;
 import retrofit2.Retrofit;
-import retrofit2.converter.gson.GsonConverterFactory;
+
+import static com.payfort.start.util.Preconditions.checkNotNull;
+import static com.payfort.start.util.Preconditions.checkState;
 
 /**
  * Factory for creating {@link StartApi} instances.
+ * <p>
+ * All instances share process-wide transport: connection pool, dispatcher with its thread pool, TLS setup and
+ * converter of responses are created once. Instances differ only in api key added to requests.
  *
  * @author Alexey Danilov (danikula@gmail.com).
  */
@@ -38,38 +43,184 @@ public class StartApiFactory {
 
     public static final String BASE_URL = "https://api.start.payfort.com/";
 
+    // limit of requests to all hosts of shared client, it is OkHttp's default
+    private static final int MAX_REQUESTS = 64;
+    // batches of token requests bound their own concurrency, OkHttp's default is 5 per host
+    private static final int MAX_REQUESTS_PER_HOST = 64;
+
+    private static final ConcurrentMap<String, StartApi> START_APIS = new ConcurrentHashMap<>();
+
+    private static TlsSessionCache tlsSessionCache;
+    private static OkHttpClient sharedClient;
+
+    /**
+     * Enables TLS session cache for all {@link StartApi} instances. It must be called before the first instance is created,
+     * e.g. in {@code Application.onCreate()}.
+     *
+     * @param tlsSessionCache a cache settings. Can't be {@code null}
+     * @throws IllegalStateException if shared transport is already created
+     */
+    public static synchronized void setTlsSessionCache(TlsSessionCache tlsSessionCache) {
+        checkNotNull(tlsSessionCache);
+        checkState(sharedClient == null, "TLS session cache must be set before the first StartApi is created!");
+        StartApiFactory.tlsSessionCache = tlsSessionCache;
+    }
+
+    /**
+     * Sets receiver of transport events. It is called by {@link com.payfort.start.StartMetrics}, apps read
+     * metrics there and don't need to call it.
+     *
+     * @param listener a listener. Can't be {@code null}
+     */
+    public static void setNetworkListener(NetworkListener listener) {
+        NetworkMetrics.setListener(checkNotNull(listener));
+    }
+
+    /**
+     * Returns {@link StartApi} for api key. Instances are cached, so repeated calls with the same key return the same instance.
+     *
+     * @param apiKey an api key to be used for communication with API
+     * @return a shared api instance
+     */
+    public static StartApi getStartApi(String apiKey) {
+        StartApi startApi = START_APIS.get(apiKey);
+        if (startApi == null) {
+            StartApi newStartApi = newStartApi(apiKey);
+            startApi = START_APIS.putIfAbsent(apiKey, newStartApi);
+            if (startApi == null) {
+                startApi = newStartApi;
+            }
+        }
+        return startApi;
+    }
+
+    /**
+     * Creates new {@link StartApi} which uses shared transport.
+     *
+     * @param apiKey an api key to be used for communication with API
+     * @return a new api instance
+     */
     public static StartApi newStartApi(String apiKey) {
+        return newStartApi(apiKey, HttpUrl.parse(BASE_URL));
+    }
+
+    static StartApi newStartApi(String apiKey, HttpUrl baseUrl) {
+        return newStartApi(apiKey, baseUrl, sharedClient());
+    }
+
+    static StartApi newStartApi(String apiKey, HttpUrl baseUrl, OkHttpClient sharedClient) {
+        // derived client shares connection pool and dispatcher of shared one
+        OkHttpClient client = sharedClient.newBuilder()
+                //.addInterceptor(new HttpLoggingInterceptor().setLevel(BODY))
+                .addInterceptor(new HeadersInterceptor(apiKey))
+                .build();
         return new Retrofit.Builder()
-                .baseUrl(BASE_URL)
-                .client(newClient(apiKey))
-                .addConverterFactory(GsonConverterFactory.create(newGson()))
+                .baseUrl(baseUrl)
+                .client(client)
+                // callbacks are called on OkHttp's threads, Start delivers results via its own callback executor
+                .callbackExecutor(DirectExecutor.INSTANCE)
+                .addConverterFactory(StartConverterFactory.INSTANCE)
                 .build().create(StartApi.class);
     }
 
-    private static Gson newGson() {
-        return new GsonBuilder()
-                .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
-                .create();
+    /**
+     * Opens connection to API in background and keeps it alive during window, so subsequent requests skip handshakes.
+     * Keep-alive requests are scheduled on main thread.
+     *
+     * @param windowMillis a duration of window in milliseconds. Must be positive
+     */
+    public static void prewarm(long windowMillis) {
+        prewarm(windowMillis, HandlerRetryScheduler.mainThread());
+    }
+
+    /**
+     * Opens connection to API in background and keeps it alive during window, so subsequent requests skip handshakes.
+     *
+     * @param windowMillis a duration of window in milliseconds. Must be positive
+     * @param scheduler    a scheduler of keep-alive requests. Can't be {@code null}
+     */
+    public static void prewarm(long windowMillis, RetryScheduler scheduler) {
+        Warmer.INSTANCE.prewarm(windowMillis, scheduler);
     }
 
-    private static OkHttpClient newClient(String apiKey) {
+    static synchronized OkHttpClient sharedClient() {
+        if (sharedClient == null) {
+            sharedClient = newClientBuilder(Build.VERSION.SDK_INT, tlsSessionCache).build();
+        }
+        return sharedClient;
+    }
+
+    /**
+     * Replaces shared transport, e.g. in tests with client which trusts certificate of local server.
+     *
+     * @param client a client to be shared by {@link StartApi} instances created after this call
+     */
+    static synchronized void setSharedClient(OkHttpClient client) {
+        sharedClient = checkNotNull(client);
+    }
+
+    /**
+     * Creates builder of shared client configured for Android version.
+     *
+     * @param sdkInt          a version of Android
+     * @param tlsSessionCache a settings of TLS session cache or {@code null} to use platform's defaults
+     * @return a configured builder
+     */
+    static OkHttpClient.Builder newClientBuilder(int sdkInt, TlsSessionCache tlsSessionCache) {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(MAX_REQUESTS);
+        dispatcher.setMaxRequestsPerHost(MAX_REQUESTS_PER_HOST);
         OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
                 .connectTimeout(5, TimeUnit.SECONDS)
                 .readTimeout(15, TimeUnit.SECONDS)
-                //.addInterceptor(new HttpLoggingInterceptor().setLevel(BODY))
-                .addInterceptor(new HeadersInterceptor(apiKey));
-        enableTls12(builder);
-        return builder.build();
+                // HTTP/2 lets token, verification and polling requests share one multiplexed connection,
+                // HTTP/1.1 is used if server or platform doesn't negotiate HTTP/2 via ALPN
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .addNetworkInterceptor(new ConnectionMetricsInterceptor());
+        enableModernTls(builder, sdkInt, tlsSessionCache);
+        return builder;
     }
 
-    private static void enableTls12(OkHttpClient.Builder clientBuilder) {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+    /**
+     * Configures TLS. Cleartext connection spec is never added, so card details can't be sent over http, even if
+     * redirect leads to http url.
+     */
+    private static void enableModernTls(OkHttpClient.Builder clientBuilder, int sdkInt, TlsSessionCache tlsSessionCache) {
+        if (sdkInt >= Build.VERSION_CODES.LOLLIPOP) {
+            // TLS 1.3 is enabled only where platform supports it (Android 10+), other versions use TLS 1.2
             ConnectionSpec connectionSpec = new ConnectionSpec.Builder(ConnectionSpec.MODERN_TLS)
-                    .tlsVersions(TlsVersion.TLS_1_2)
+                    .tlsVersions(TlsVersion.TLS_1_3, TlsVersion.TLS_1_2)
                     .build();
             clientBuilder.connectionSpecs(Collections.singletonList(connectionSpec));
+            if (tlsSessionCache != null) {
+                X509TrustManager trustManager = getTrustManager();
+                clientBuilder.sslSocketFactory(newSslContext(tlsSessionCache, trustManager).getSocketFactory(), trustManager);
+            }
         } else {
-            clientBuilder.sslSocketFactory(new TLSSocketFactory(), getTrustManager());
+            X509TrustManager trustManager = getTrustManager();
+            clientBuilder.connectionSpecs(Collections.singletonList(ConnectionSpec.MODERN_TLS));
+            clientBuilder.sslSocketFactory(new TLSSocketFactory(newSslContext(tlsSessionCache, trustManager)), trustManager);
+        }
+    }
+
+    /**
+     * Creates context of client sockets.
+     *
+     * @param tlsSessionCache a settings of TLS session cache or {@code null} to use platform's defaults
+     * @param trustManager    a trust manager which checks server certificates
+     * @return an initialized context
+     */
+    static SSLContext newSslContext(TlsSessionCache tlsSessionCache, X509TrustManager trustManager) {
+        try {
+            SSLContext context = SSLContext.getInstance("TLS");
+            context.init(null, new TrustManager[]{trustManager}, null);
+            if (tlsSessionCache != null) {
+                tlsSessionCache.install(context);
+            }
+            return context;
+        } catch (NoSuchAlgorithmException | KeyManagementException e) {
+            throw new IllegalStateException("Error creating SSL context", e);
         }
     }
 
@@ -87,22 +238,24 @@ public class StartApiFactory {
         }
     }
 
-    private static final class HeadersInterceptor implements Interceptor {
+    /**
+     * Executor which runs task on calling thread.
+     */
+    private enum DirectExecutor implements Executor {
 
-        private final String apiKey;
-
-        private HeadersInterceptor(String apiKey) {
-            this.apiKey = apiKey;
-        }
+        INSTANCE;
 
         @Override
-        public Response intercept(Chain chain) throws IOException {
-            Request original = chain.request();
-            Request.Builder builder = original.newBuilder();
-            builder.header("User-Agent", "StartAndroid " + BuildConfig.VERSION_NAME);
-            builder.header("Authorization", Credentials.basic(apiKey, ""));
-            Request request = builder.build();
-            return chain.proceed(request);
+        public void execute(Runnable command) {
+            command.run();
         }
     }
+
+    /**
+     * Holder of connection warmer, it is created on first use.
+     */
+    private static final class Warmer {
+
+        static final ConnectionWarmer INSTANCE = new ConnectionWarmer(sharedClient(), HttpUrl.parse(BASE_URL), Clock.SYSTEM);
+    }
 }
@@ -0,0 +1,116 @@
+package com.payfort.start.web;
+
+import com.payfort.start.Token;
+import com.payfort.start.TokenVerification;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import okhttp3.ResponseBody;
+import okio.Options;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+/**
+ * {@link Converter.Factory} of API responses. {@link Token} and {@link TokenVerification} are read by hand-written
+ * streaming readers from bytes of response, so neither reflection nor intermediate strings are involved, and nothing
+ * has to be kept from ProGuard. Unknown members are skipped, so API may add new ones.
+ */
+final class StartConverterFactory extends Converter.Factory {
+
+    static final StartConverterFactory INSTANCE = new StartConverterFactory();
+
+    private static final Options TOKEN_NAMES = JsonSourceReader.names("id", "verification_required", "verification");
+    private static final Options TOKEN_VERIFICATION_NAMES = JsonSourceReader.names("id", "enrolled", "finalized");
+
+    private StartConverterFactory() {
+    }
+
+    @Override
+    public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations, Retrofit retrofit) {
+        if (type == Token.class) {
+            return TokenConverter.INSTANCE;
+        }
+        if (type == TokenVerification.class) {
+            return TokenVerificationConverter.INSTANCE;
+        }
+        return null;
+    }
+
+    static Token readToken(JsonSourceReader reader) throws IOException {
+        String id = null;
+        boolean verificationRequired = false;
+        TokenVerification verification = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.selectName(TOKEN_NAMES)) {
+                case 0:
+                    id = reader.nextString();
+                    break;
+                case 1:
+                    verificationRequired = reader.nextBoolean();
+                    break;
+                case 2:
+                    verification = reader.nextNull() ? null : readTokenVerification(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new Token(id, verificationRequired, verification);
+    }
+
+    static TokenVerification readTokenVerification(JsonSourceReader reader) throws IOException {
+        String id = null;
+        boolean enrolled = false;
+        boolean finalized = false;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.selectName(TOKEN_VERIFICATION_NAMES)) {
+                case 0:
+                    id = reader.nextString();
+                    break;
+                case 1:
+                    enrolled = reader.nextBoolean();
+                    break;
+                case 2:
+                    finalized = reader.nextBoolean();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new TokenVerification(id, enrolled, finalized);
+    }
+
+    private enum TokenConverter implements Converter<ResponseBody, Token> {
+
+        INSTANCE;
+
+        @Override
+        public Token convert(ResponseBody body) throws IOException {
+            try {
+                return readToken(new JsonSourceReader(body.source()));
+            } finally {
+                body.close();
+            }
+        }
+    }
+
+    private enum TokenVerificationConverter implements Converter<ResponseBody, TokenVerification> {
+
+        INSTANCE;
+
+        @Override
+        public TokenVerification convert(ResponseBody body) throws IOException {
+            try {
+                return readTokenVerification(new JsonSourceReader(body.source()));
+            } finally {
+                body.close();
+            }
+        }
+    }
+}
@@ -4,8 +4,6 @@ import java.io.IOException;
 import java.net.InetAddress;
 import java.net.Socket;
 import java.net.UnknownHostException;
-import java.security.KeyManagementException;
-import java.security.NoSuchAlgorithmException;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLSocket;
@@ -17,16 +15,15 @@ import javax.net.ssl.SSLSocketFactory;
  */
 class TLSSocketFactory extends SSLSocketFactory {
 
-    private SSLSocketFactory internalSSLSocketFactory;
+    private final SSLSocketFactory internalSSLSocketFactory;
 
-    TLSSocketFactory() {
-        try {
-            SSLContext context = SSLContext.getInstance("TLS");
-            context.init(null, null, null);
-            internalSSLSocketFactory = context.getSocketFactory();
-        } catch (NoSuchAlgorithmException | KeyManagementException e) {
-            throw new IllegalStateException("Error creating SSL Socket Factory", e);
-        }
+    /**
+     * Creates factory of sockets which use initialized context, e.g. with tuned session cache.
+     *
+     * @param context an initialized SSL context
+     */
+    TLSSocketFactory(SSLContext context) {
+        internalSSLSocketFactory = context.getSocketFactory();
     }
 
     @Override
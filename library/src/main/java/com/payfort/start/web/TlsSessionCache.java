@@ -0,0 +1,170 @@
+package com.payfort.start.web;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
+
+import static com.payfort.start.util.Preconditions.checkArgument;
+import static com.payfort.start.util.Preconditions.checkNotNull;
+
+/**
+ * Settings of client TLS session cache. Cached sessions let new connections to API use abbreviated handshake.
+ * <p>
+ * Sessions may be persisted to app-private directory, so the first request after app launch resumes session
+ * created during previous launch. Persistence relies on {@code android.net.SSLSessionCache} of platform's TLS provider
+ * and is silently skipped where it isn't available.
+ * <p>
+ * Use {@link StartApiFactory#setTlsSessionCache(TlsSessionCache)} to enable cache.
+ */
+public final class TlsSessionCache {
+
+    private static final String TAG = TlsSessionCache.class.getSimpleName();
+    private static final String PLATFORM_CACHE_CLASS = "android.net.SSLSessionCache";
+
+    private final int size;
+    private final int timeoutSeconds;
+    private final File directory;
+
+    private TlsSessionCache(Builder builder) {
+        this.size = builder.size;
+        this.timeoutSeconds = builder.timeoutSeconds;
+        this.directory = builder.directory;
+    }
+
+    /**
+     * Returns max count of cached sessions.
+     *
+     * @return a size of cache, {@code 0} means no limit
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns time after which cached session can't be resumed.
+     *
+     * @return a timeout in seconds, {@code 0} means no limit
+     */
+    public int getTimeoutSeconds() {
+        return timeoutSeconds;
+    }
+
+    /**
+     * Returns directory where sessions are persisted.
+     *
+     * @return a directory or {@code null} if sessions are kept in memory only
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Applies settings to client session context of {@link SSLContext}.
+     *
+     * @param sslContext an initialized context
+     */
+    void install(SSLContext sslContext) {
+        install(sslContext, PLATFORM_CACHE_CLASS);
+    }
+
+    /**
+     * Applies settings to client session context of {@link SSLContext}, sessions are persisted by given class
+     * with API of {@code android.net.SSLSessionCache}.
+     *
+     * @param sslContext         an initialized context
+     * @param platformCacheClass a name of persistent cache class
+     */
+    void install(SSLContext sslContext, String platformCacheClass) {
+        SSLSessionContext sessionContext = sslContext.getClientSessionContext();
+        sessionContext.setSessionCacheSize(size);
+        sessionContext.setSessionTimeout(timeoutSeconds);
+        if (directory != null) {
+            installPersistentCache(sslContext, platformCacheClass);
+        }
+    }
+
+    private void installPersistentCache(SSLContext sslContext, String platformCacheClass) {
+        // SSLSessionCache.install() isn't part of public SDK, but it is the only way to persist sessions of custom SSLContext
+        try {
+            Class<?> cacheClass = Class.forName(platformCacheClass);
+            Constructor<?> constructor = cacheClass.getConstructor(File.class);
+            Method install = cacheClass.getMethod("install", cacheClass, SSLContext.class);
+            install.invoke(null, constructor.newInstance(directory), sslContext);
+        } catch (Exception | LinkageError e) {
+            Log.w(TAG, "Persistent TLS session cache isn't supported, sessions are cached in memory only", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TlsSessionCache{size=" + size + ", timeoutSeconds=" + timeoutSeconds + ", directory=" + directory + '}';
+    }
+
+    /**
+     * Builder of {@link TlsSessionCache}.
+     */
+    public static final class Builder {
+
+        private int size = 16;
+        private int timeoutSeconds = (int) TimeUnit.HOURS.toSeconds(24);
+        private File directory;
+
+        /**
+         * Sets max count of cached sessions. SDK connects to single host, so small cache is enough. Default is 16.
+         *
+         * @param size a max count of sessions, {@code 0} means no limit
+         * @return this builder
+         */
+        public Builder size(int size) {
+            checkArgument(size >= 0, "Size must be zero or positive!");
+            this.size = size;
+            return this;
+        }
+
+        /**
+         * Sets time after which cached session can't be resumed. Default is 24 hours.
+         *
+         * @param timeout  a timeout, {@code 0} means no limit
+         * @param timeUnit a unit of timeout
+         * @return this builder
+         */
+        public Builder timeout(long timeout, TimeUnit timeUnit) {
+            checkNotNull(timeUnit);
+            checkArgument(timeout >= 0, "Timeout must be zero or positive!");
+            this.timeoutSeconds = (int) Math.min(Integer.MAX_VALUE, timeUnit.toSeconds(timeout));
+            return this;
+        }
+
+        /**
+         * Persists sessions to directory, so they survive app restart.
+         *
+         * @param directory an app-private directory
+         * @return this builder
+         */
+        public Builder persistTo(File directory) {
+            this.directory = checkNotNull(directory);
+            return this;
+        }
+
+        /**
+         * Persists sessions to app-private cache directory.
+         *
+         * @param context a context
+         * @return this builder
+         */
+        public Builder persistTo(Context context) {
+            return persistTo(new File(context.getCacheDir(), "start-tls-sessions"));
+        }
+
+        public TlsSessionCache build() {
+            return new TlsSessionCache(this);
+        }
+    }
+}
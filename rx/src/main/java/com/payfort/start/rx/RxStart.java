@@ -0,0 +1,151 @@
+package com.payfort.start.rx;
+
+import android.app.Activity;
+
+import com.payfort.start.BatchTokenCallback;
+import com.payfort.start.Card;
+import com.payfort.start.Start;
+import com.payfort.start.Token;
+import com.payfort.start.TokenBatch;
+import com.payfort.start.TokenBatchResult;
+import com.payfort.start.TokenCallback;
+import com.payfort.start.TokenFuture;
+import com.payfort.start.error.StartApiException;
+
+import java.util.Collection;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.BackpressureStrategy;
+import io.reactivex.Flowable;
+import io.reactivex.FlowableEmitter;
+import io.reactivex.FlowableOnSubscribe;
+import io.reactivex.Single;
+import io.reactivex.SingleEmitter;
+import io.reactivex.SingleOnSubscribe;
+import io.reactivex.functions.Cancellable;
+
+import static com.payfort.start.util.Preconditions.checkNotNull;
+
+/**
+ * RxJava 2 adapters of {@link Start}. Nothing is requested until subscription, every subscription sends its own request.
+ * Items are emitted with {@link Start}'s callback executor, use {@code observeOn} to move them to another thread.
+ */
+public final class RxStart {
+
+    private RxStart() {
+    }
+
+    /**
+     * Returns {@link Single} which creates token. Disposal cancels request, {@link CancellationException} is
+     * emitted if user cancels verification.
+     *
+     * @param start         a start instance. Can't be {@code null}
+     * @param activity      an activity. May be used to show dialog with verification
+     * @param card          a card to be precessed. Can't be {@code null}
+     * @param amountInCents an amount in cents. Optional argument. Can be {@code null}, Can't be zero.
+     * @param currency      a currency code of amount according to ISO4217.Optional argument. Can be {@code null}
+     * @return a single of token
+     * @see Start#createTokenFuture(Activity, Card, Integer, String)
+     */
+    public static Single<Token> createToken(final Start start, final Activity activity, final Card card,
+            final Integer amountInCents, final String currency) {
+        checkNotNull(start, "Start must be not null!");
+        checkNotNull(card, "Card must be not null!");
+        return Single.create(new SingleOnSubscribe<Token>() {
+
+            @Override
+            public void subscribe(final SingleEmitter<Token> emitter) {
+                final TokenFuture tokenFuture = start.createTokenFuture(activity, card, amountInCents, currency);
+                emitter.setCancellable(new Cancellable() {
+
+                    @Override
+                    public void cancel() {
+                        tokenFuture.cancel(true);
+                    }
+                });
+                tokenFuture.addCallback(new TokenCallback() {
+
+                    @Override
+                    public void onSuccess(Token token) {
+                        emitter.onSuccess(token);
+                    }
+
+                    @Override
+                    public void onError(StartApiException error) {
+                        emitter.tryOnError(error);
+                    }
+
+                    @Override
+                    public void onCancel() {
+                        // disposed emitter ignores it
+                        emitter.tryOnError(new CancellationException("Token creation is canceled"));
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Returns {@link Flowable} which creates tokens for cards and emits result of every card as soon as it is received.
+     * Errors of cards are emitted as items, flowable completes when all cards are processed. Cancellation of subscription
+     * cancels batch.
+     *
+     * @param start          a start instance. Can't be {@code null}
+     * @param cards          cards to create tokens for. Can't be {@code null} or contain {@code null}
+     * @param maxConcurrency a max count of concurrent requests, from 1 to {@link TokenBatch#MAX_CONCURRENCY}
+     * @return a flowable of results
+     * @see Start#createTokens(Collection, int, BatchTokenCallback)
+     */
+    public static Flowable<TokenBatchItem> createTokens(final Start start, final Collection<Card> cards, final int maxConcurrency) {
+        checkNotNull(start, "Start must be not null!");
+        checkNotNull(cards, "Cards must be not null!");
+        // buffer keeps results not requested by subscriber yet, it never holds more items than cards
+        return Flowable.create(new FlowableOnSubscribe<TokenBatchItem>() {
+
+            @Override
+            public void subscribe(FlowableEmitter<TokenBatchItem> emitter) {
+                // multi-threaded callback executor may deliver results concurrently
+                final FlowableEmitter<TokenBatchItem> serializedEmitter = emitter.serialize();
+                // every result and batch's completion count down, so flowable completes after the last item is emitted
+                // even if completion of batch is delivered before it
+                final AtomicInteger remaining = new AtomicInteger(cards.size() + 1);
+                final TokenBatch tokenBatch = start.createTokens(cards, maxConcurrency, new BatchTokenCallback() {
+
+                    @Override
+                    public void onToken(int index, Token token) {
+                        emit(new TokenBatchItem(index, token, null));
+                    }
+
+                    @Override
+                    public void onError(int index, StartApiException error) {
+                        emit(new TokenBatchItem(index, null, error));
+                    }
+
+                    @Override
+                    public void onComplete(TokenBatchResult result) {
+                        countDown();
+                    }
+
+                    private void emit(TokenBatchItem item) {
+                        serializedEmitter.onNext(item);
+                        countDown();
+                    }
+
+                    private void countDown() {
+                        if (remaining.decrementAndGet() == 0) {
+                            serializedEmitter.onComplete();
+                        }
+                    }
+                });
+                serializedEmitter.setCancellable(new Cancellable() {
+
+                    @Override
+                    public void cancel() {
+                        tokenBatch.cancel();
+                    }
+                });
+            }
+        }, BackpressureStrategy.BUFFER);
+    }
+}
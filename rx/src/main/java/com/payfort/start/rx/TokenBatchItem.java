@@ -0,0 +1,64 @@
+package com.payfort.start.rx;
+
+import com.payfort.start.Token;
+import com.payfort.start.error.StartApiException;
+
+/**
+ * Result of one card of batch emitted by {@link RxStart#createTokens(com.payfort.start.Start, java.util.Collection, int)}.
+ */
+public final class TokenBatchItem {
+
+    private final int index;
+    private final Token token;
+    private final StartApiException error;
+
+    TokenBatchItem(int index, Token token, StartApiException error) {
+        this.index = index;
+        this.token = token;
+        this.error = error;
+    }
+
+    /**
+     * Returns index of card in batch.
+     *
+     * @return an index of card
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Returns token of card.
+     *
+     * @return a token or {@code null} if card failed
+     */
+    public Token getToken() {
+        return token;
+    }
+
+    /**
+     * Returns error of card.
+     *
+     * @return an error or {@code null} if token is created
+     */
+    public StartApiException getError() {
+        return error;
+    }
+
+    /**
+     * Returns is token created.
+     *
+     * @return {@code true} if card has token
+     */
+    public boolean isSuccessful() {
+        return token != null;
+    }
+
+    @Override
+    public String toString() {
+        return "TokenBatchItem{" +
+                "index=" + index +
+                ", successful=" + isSuccessful() +
+                '}';
+    }
+}
@@ -0,0 +1,80 @@
+package com.payfort.start;
+
+import android.support.test.InstrumentationRegistry;
+import android.support.test.filters.LargeTest;
+import android.support.test.runner.AndroidJUnit4;
+import android.webkit.WebView;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that {@link VerificationWebViewClient} detects return from bank's page loaded by real {@link WebView}.
+ * Local server plays both API and bank: verification page redirects to bank, bank's page posts form back to API.
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class VerificationRedirectTest {
+
+    private MockWebServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void testReturnIsDetectedWithoutPolling() throws Exception {
+        final String verificationUrl = server.url("/tokens/tok_1/verification").toString();
+        String acsUrl = server.url("/acs").toString();
+        server.enqueue(new MockResponse().setResponseCode(302).setHeader("Location", acsUrl));
+        server.enqueue(new MockResponse().setBody("<html><body onload=\"document.forms[0].submit()\">"
+                + "<form method=\"post\" action=\"" + verificationUrl + "/complete\"><input name=\"PaRes\" value=\"1\"/></form>"
+                + "</body></html>"));
+        server.enqueue(new MockResponse().setBody("<html><body>Done</body></html>"));
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicReference<String> returnUrl = new AtomicReference<>();
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+
+            @Override
+            public void run() {
+                WebView webView = new WebView(InstrumentationRegistry.getTargetContext());
+                webView.getSettings().setJavaScriptEnabled(true);
+                webView.setWebViewClient(new VerificationWebViewClient(verificationUrl, new VerificationWebViewClient.Listener() {
+
+                    @Override
+                    public void onVerificationReturned(String url) {
+                        returnUrl.set(url);
+                        latch.countDown();
+                    }
+                }));
+                webView.loadUrl(verificationUrl + "/verify");
+            }
+        });
+
+        assertTrue("Return isn't detected", latch.await(10, TimeUnit.SECONDS));
+        assertEquals(verificationUrl + "/complete", returnUrl.get());
+        assertEquals("/tokens/tok_1/verification/verify", server.takeRequest().getPath());
+        assertEquals("/acs", server.takeRequest().getPath());
+        assertEquals("POST", server.takeRequest().getMethod());
+    }
+}
@@ -0,0 +1,69 @@
+package com.payfort.start.web;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.test.filters.LargeTest;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import com.payfort.start.util.Clock;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures time to first byte of API request with cold connection pool and after connection is prewarmed.
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class PrewarmTest {
+
+    private static final String TAG = PrewarmTest.class.getSimpleName();
+    private static final int ROUNDS = 5;
+
+    @Test
+    public void testPrewarmReducesTimeToFirstByte() throws Exception {
+        long coldTotal = 0;
+        long warmTotal = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            StartApiFactory.sharedClient().connectionPool().evictAll();
+            coldTotal += timeToFirstByte();
+
+            StartApiFactory.sharedClient().connectionPool().evictAll();
+            // new warmer for every round, shared one doesn't ping again while its connection is expected to be alive
+            new ConnectionWarmer(StartApiFactory.sharedClient(), HttpUrl.parse(StartApiFactory.BASE_URL), Clock.SYSTEM)
+                    .prewarm(TimeUnit.MINUTES.toMillis(1), new HandlerRetryScheduler(new Handler(Looper.getMainLooper())));
+            waitForIdleConnection();
+            warmTotal += timeToFirstByte();
+        }
+        long cold = coldTotal / ROUNDS;
+        long warm = warmTotal / ROUNDS;
+        Log.i(TAG, "Average time to first byte: cold " + cold + " ms, warm " + warm + " ms, saved " + (cold - warm) + " ms");
+        assertTrue("Warm connection must be faster: cold " + cold + " ms, warm " + warm + " ms", warm < cold);
+    }
+
+    private long timeToFirstByte() throws Exception {
+        Request request = new Request.Builder().url(StartApiFactory.BASE_URL).head().build();
+        long start = SystemClock.elapsedRealtime();
+        Response response = StartApiFactory.sharedClient().newCall(request).execute();
+        long elapsed = SystemClock.elapsedRealtime() - start;
+        response.close();
+        return elapsed;
+    }
+
+    private void waitForIdleConnection() throws InterruptedException {
+        long deadline = SystemClock.elapsedRealtime() + TimeUnit.SECONDS.toMillis(10);
+        while (StartApiFactory.sharedClient().connectionPool().idleConnectionCount() == 0 && SystemClock.elapsedRealtime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -19,7 +19,7 @@ import com.payfort.start.TokenCallback;
 import com.payfort.start.error.CardVerificationException;
 import com.payfort.start.error.StartApiException;
 
-import java.util.EnumSet;
+import java.util.Set;
 
 public class MainActivity extends AppCompatActivity implements TokenCallback {
 
@@ -35,7 +35,7 @@ public class MainActivity extends AppCompatActivity implements TokenCallback {
     private ProgressBar progressBar;
     private TextView errorTextView;
     private Button payButton;
-    Start start = new Start(API_OPEN_KEY);
+    Start start = Start.getInstance(API_OPEN_KEY);
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -84,7 +84,7 @@ public class MainActivity extends AppCompatActivity implements TokenCallback {
         ownerEditText.setError(null);
     }
 
-    private void setErrors(EnumSet<Card.Field> errors) {
+    private void setErrors(Set<Card.Field> errors) {
         String error = getString(R.string.edit_text_invalid);
 
         if (errors.contains(Card.Field.NUMBER)) {
@@ -0,0 +1,50 @@
+package com.payfort.start;
+
+import com.payfort.start.support.FixedClock;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * Test for {@link CardFingerprint} class.
+ */
+public class CardFingerprintTest {
+
+    private static final ExpiryCutoff EXPIRY_CUTOFF = new ExpiryCutoff(FixedClock.of(2017, 6, 15));
+
+    @Test
+    public void testSameRequestHasSameFingerprint() throws Exception {
+        assertEquals(CardFingerprint.of(newCard("4111111111111111", "123"), 100, "USD"),
+                CardFingerprint.of(newCard("4111111111111111", "123"), 100, "USD"));
+    }
+
+    @Test
+    public void testPackedCardHasSameFingerprint() throws Exception {
+        PackedCard packedCard = new PackedCard("4111111111111111", "123", 11, 2019, "John Doe", EXPIRY_CUTOFF);
+        assertEquals(CardFingerprint.of(newCard("4111111111111111", "123"), 100, "USD"), CardFingerprint.of(packedCard, 100, "USD"));
+    }
+
+    @Test
+    public void testDifferentRequestsHaveDifferentFingerprints() throws Exception {
+        String fingerprint = CardFingerprint.of(newCard("4111111111111111", "123"), 100, "USD");
+        assertNotEquals(fingerprint, CardFingerprint.of(newCard("4242424242424242", "123"), 100, "USD"));
+        assertNotEquals(fingerprint, CardFingerprint.of(newCard("4111111111111111", "124"), 100, "USD"));
+        assertNotEquals(fingerprint, CardFingerprint.of(newCard("4111111111111111", "123"), 101, "USD"));
+        assertNotEquals(fingerprint, CardFingerprint.of(newCard("4111111111111111", "123"), null, "USD"));
+        assertNotEquals(fingerprint, CardFingerprint.of(newCard("4111111111111111", "123"), 100, "EUR"));
+    }
+
+    @Test
+    public void testFingerprintDoesNotContainCardNumber() throws Exception {
+        String fingerprint = CardFingerprint.of(newCard("4111111111111111", "123"), 100, "USD");
+        assertEquals(64, fingerprint.length());
+        assertFalse(fingerprint.contains("1111"));
+    }
+
+    private static Card newCard(String number, String cvc) throws Exception {
+        return new Card(number, cvc, 11, 2019, "John Doe", EXPIRY_CUTOFF);
+    }
+}
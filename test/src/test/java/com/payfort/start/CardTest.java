@@ -1,6 +1,7 @@
 package com.payfort.start;
 
 import com.payfort.start.error.CardVerificationException;
+import com.payfort.start.support.FixedClock;
 import com.payfort.start.test.BuildConfig;
 
 import org.junit.Assert;
@@ -9,7 +10,6 @@ import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
 
-import java.util.Calendar;
 import java.util.EnumSet;
 
 import static com.payfort.start.Card.Field.CVC;
@@ -18,6 +18,7 @@ import static com.payfort.start.Card.Field.EXPIRATION_YEAR;
 import static com.payfort.start.Card.Field.NUMBER;
 import static com.payfort.start.Card.Field.OWNER;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 /**
  * Test for {@link Card} class.
@@ -27,6 +28,10 @@ import static org.junit.Assert.assertEquals;
 public class CardTest {
 
     private static final String VALID_NUMBER = "4111111111111111";
+    private static final String AMEX_NUMBER = "378282246310005";
+    private static final int CURRENT_YEAR = 2017;
+    private static final int CURRENT_MONTH = 6;
+    private static final ExpiryCutoff EXPIRY_CUTOFF = new ExpiryCutoff(FixedClock.of(CURRENT_YEAR, CURRENT_MONTH, 15));
 
     @Test
     public void testInvalidNumber() throws Exception {
@@ -40,9 +45,9 @@ public class CardTest {
     @Test
     public void testValidNumber() throws Exception {
         // https://www.paypalobjects.com/en_US/vhelp/paypalmanager_help/credit_card_numbers.htm
-        newCard("378 2822 4631 0005");
-        newCard("3714-4963-5398-43-1");
-        newCard("3787\t3449\t367 10-00");
+        newCard("378 2822 4631 0005", "1234");
+        newCard("3714-4963-5398-43-1", "1234");
+        newCard("3787\t3449\t367 10-00", "1234");
         newCard("5610591081018250");
         newCard("30569309025904");
         newCard("38520000023237");
@@ -67,22 +72,23 @@ public class CardTest {
         assertHasSingleError(CVC, VALID_NUMBER, "12345", 1, 2020, "John Doe");
         assertHasSingleError(CVC, VALID_NUMBER, "12q", 1, 2020, "John Doe");
         assertHasSingleError(CVC, VALID_NUMBER, "z123 ", 1, 2020, "John Doe");
+        assertHasSingleError(CVC, VALID_NUMBER, "1234", 1, 2020, "John Doe");
+        assertHasSingleError(CVC, AMEX_NUMBER, "123", 1, 2020, "John Doe");
     }
 
     @Test
     public void testValidCvc() throws Exception {
-        new Card(VALID_NUMBER, "123", 1, 2020, "John Doe");
-        new Card(VALID_NUMBER, "7890", 1, 2020, "John Doe");
-        new Card(VALID_NUMBER, " 123 ", 1, 2020, "John Doe");
-        new Card(VALID_NUMBER, "2 3\t4", 1, 2020, "John Doe");
-        new Card(VALID_NUMBER, "1\t2-3\n4", 1, 2020, "John Doe");
+        new Card(VALID_NUMBER, "123", 1, 2020, "John Doe", EXPIRY_CUTOFF);
+        new Card(AMEX_NUMBER, "7890", 1, 2020, "John Doe", EXPIRY_CUTOFF);
+        new Card(VALID_NUMBER, " 123 ", 1, 2020, "John Doe", EXPIRY_CUTOFF);
+        new Card(VALID_NUMBER, "2 3\t4", 1, 2020, "John Doe", EXPIRY_CUTOFF);
+        new Card(AMEX_NUMBER, "1\t2-3\n4", 1, 2020, "John Doe", EXPIRY_CUTOFF);
     }
 
     @Test
     public void testInvalidExpirationDate() throws Exception {
-        Calendar calendar = Calendar.getInstance();
-        int currentYear = calendar.get(Calendar.YEAR);
-        int currentMonth = calendar.get(Calendar.MONTH) + 1;
+        int currentYear = CURRENT_YEAR;
+        int currentMonth = CURRENT_MONTH;
 
         assertHasSingleError(EXPIRATION_YEAR, VALID_NUMBER, "111", 1, 2010, "John Doe");
         assertHasSingleError(EXPIRATION_YEAR, VALID_NUMBER, "111", 1, 2101, "John Doe");
@@ -93,13 +99,12 @@ public class CardTest {
 
     @Test
     public void testValidExpirationDate() throws Exception {
-        Calendar calendar = Calendar.getInstance();
-        int currentYear = calendar.get(Calendar.YEAR);
-        int currentMonth = calendar.get(Calendar.MONTH) + 1;
+        int currentYear = CURRENT_YEAR;
+        int currentMonth = CURRENT_MONTH;
 
-        new Card(VALID_NUMBER, "123", 1, 2020, "John Doe");
-        new Card(VALID_NUMBER, "123", currentMonth, currentYear, "John Doe");
-        new Card(VALID_NUMBER, "123", 12, currentYear, "John Doe");
+        new Card(VALID_NUMBER, "123", 1, 2020, "John Doe", EXPIRY_CUTOFF);
+        new Card(VALID_NUMBER, "123", currentMonth, currentYear, "John Doe", EXPIRY_CUTOFF);
+        new Card(VALID_NUMBER, "123", 12, currentYear, "John Doe", EXPIRY_CUTOFF);
     }
 
     @Test
@@ -115,10 +120,38 @@ public class CardTest {
 
     @Test
     public void testValidOwner() throws Exception {
-        new Card(VALID_NUMBER, "123", 1, 2020, "John Doe");
-        new Card(VALID_NUMBER, "123", 1, 2020, "A");
-        new Card(VALID_NUMBER, "123", 1, 2020, " A");
-        new Card(VALID_NUMBER, "123", 1, 2020, "A\t");
+        new Card(VALID_NUMBER, "123", 1, 2020, "John Doe", EXPIRY_CUTOFF);
+        new Card(VALID_NUMBER, "123", 1, 2020, "A", EXPIRY_CUTOFF);
+        new Card(VALID_NUMBER, "123", 1, 2020, " A", EXPIRY_CUTOFF);
+        new Card(VALID_NUMBER, "123", 1, 2020, "A\t", EXPIRY_CUTOFF);
+    }
+
+    @Test
+    public void testExceptionIsLightweight() throws Exception {
+        try {
+            new Card("4111", "123", 1, 2020, "John Doe", EXPIRY_CUTOFF);
+            Assert.fail();
+        } catch (CardVerificationException e) {
+            assertEquals(0, e.getStackTrace().length);
+            assertSame(e.getErrorFields(), e.getErrorFields());
+            assertSame(CardValidationResult.of(CardValidator.maskOf(NUMBER)), e.getResult());
+            assertEquals("Invalid fields: [NUMBER]", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testExpirationDateAtMonthRollover() throws Exception {
+        FixedClock clock = FixedClock.of(2017, 6, 30);
+        ExpiryCutoff expiryCutoff = new ExpiryCutoff(clock);
+        new Card(VALID_NUMBER, "123", 6, 2017, "John Doe", expiryCutoff);
+
+        clock.setCurrentTimeMillis(FixedClock.of(2017, 7, 1).currentTimeMillis());
+        try {
+            new Card(VALID_NUMBER, "123", 6, 2017, "John Doe", expiryCutoff);
+            Assert.fail();
+        } catch (CardVerificationException e) {
+            assertEquals(EnumSet.of(EXPIRATION_MONTH), e.getErrorFields());
+        }
     }
 
     @Test
@@ -154,39 +187,69 @@ public class CardTest {
         assertEquals(newCard("2720 0500 0000 0000").getBrand(), Card.Brand.MASTER_CARD);
     }
 
+    @Test
+    public void testDetectOtherBrands() throws Exception {
+        assertEquals(newCard("371449635398431", "1234").getBrand(), Card.Brand.AMERICAN_EXPRESS);
+        assertEquals(newCard("378282246310005", "1234").getBrand(), Card.Brand.AMERICAN_EXPRESS);
+        assertEquals(newCard("6011000990139424").getBrand(), Card.Brand.DISCOVER);
+        assertEquals(newCard("30569309025904").getBrand(), Card.Brand.DINERS_CLUB);
+        assertEquals(newCard("38520000023237").getBrand(), Card.Brand.DINERS_CLUB);
+        assertEquals(newCard("3530111333300000").getBrand(), Card.Brand.JCB);
+        assertEquals(newCard("3566002020360505").getBrand(), Card.Brand.JCB);
+        assertEquals(newCard("6200000000000005").getBrand(), Card.Brand.UNION_PAY);
+        assertEquals(newCard("6759649826438453").getBrand(), Card.Brand.MAESTRO);
+        assertEquals(newCard("5018000000000009").getBrand(), Card.Brand.MAESTRO);
+    }
+
+    @Test
+    public void testDetectMada() throws Exception {
+        assertEquals(newCard("4464040000000007").getBrand(), Card.Brand.MADA);
+        assertEquals(newCard("5297410000000002").getBrand(), Card.Brand.MADA);
+        assertEquals(newCard("5888 4500 0000 0003").getBrand(), Card.Brand.MADA);
+        assertEquals(newCard("4464050000000006").getBrand(), Card.Brand.VISA);
+    }
+
     @Test
     public void testDetectUnknownBrand() throws Exception {
-        assertEquals(newCard("371449635398431").getBrand(), Card.Brand.UNKNOWN);
-        assertEquals(newCard("378282246310005").getBrand(), Card.Brand.UNKNOWN);
-        assertEquals(newCard("6011000990139424").getBrand(), Card.Brand.UNKNOWN);
-        assertEquals(newCard("30569309025904").getBrand(), Card.Brand.UNKNOWN);
-        assertEquals(newCard("38520000023237").getBrand(), Card.Brand.UNKNOWN);
-        assertEquals(newCard("3530111333300000").getBrand(), Card.Brand.UNKNOWN);
-        assertEquals(newCard("3566002020360505").getBrand(), Card.Brand.UNKNOWN);
         assertEquals(newCard("0000000000000000").getBrand(), Card.Brand.UNKNOWN);
+        assertEquals(newCard("9000000000000001").getBrand(), Card.Brand.UNKNOWN);
+        // valid prefix, but invalid length for brand
+        assertEquals(newCard("411111111111116").getBrand(), Card.Brand.UNKNOWN);
+        assertEquals(newCard("37144963539849").getBrand(), Card.Brand.UNKNOWN);
+    }
+
+    @Test
+    public void testCvcLength() throws Exception {
+        assertEquals(4, Card.Brand.AMERICAN_EXPRESS.getCvcLength());
+        assertEquals(3, Card.Brand.VISA.getCvcLength());
+        assertEquals(3, Card.Brand.MADA.getCvcLength());
     }
 
     @Test
     public void testGetLastDigits() throws Exception {
-        assertEquals(newCard("371449635398431").getLastDigits(), "8431");
+        assertEquals(newCard("371449635398431", "1234").getLastDigits(), "8431");
         assertEquals(newCard("30569309025904").getLastDigits(), "5904");
         assertEquals(newCard("0000000000000000").getLastDigits(), "0000");
     }
 
     @Test
     public void testGetBin() throws Exception {
-        assertEquals(newCard("3714-4963-5398431").getBin(), "371449");
+        assertEquals(newCard("3714-4963-5398431", "1234").getBin(), "371449");
         assertEquals(newCard(" 3056 9309 0259 04").getBin(), "305693");
         assertEquals(newCard("0000000000000000").getBin(), "000000");
     }
 
     private Card newCard(String number) throws CardVerificationException {
-        return new Card(number, "123", 1, 2020, "John Doe");
+        return newCard(number, "123");
+    }
+
+    private Card newCard(String number, String cvc) throws CardVerificationException {
+        return new Card(number, cvc, 1, 2020, "John Doe", EXPIRY_CUTOFF);
     }
 
     private void assertHasMultipleError(EnumSet<Card.Field> invalidFields, String number, String cvc, int month, int year, String owner) {
         try {
-            new Card(number, cvc, month, year, owner);
+            new Card(number, cvc, month, year, owner, EXPIRY_CUTOFF);
             Assert.fail();
         } catch (CardVerificationException e) {
             assertEquals(invalidFields, e.getErrorFields());
@@ -0,0 +1,109 @@
+package com.payfort.start;
+
+import com.payfort.start.support.FixedClock;
+
+import org.junit.Test;
+
+import java.util.EnumSet;
+
+import static com.payfort.start.Card.Field.CVC;
+import static com.payfort.start.Card.Field.EXPIRATION_MONTH;
+import static com.payfort.start.Card.Field.NUMBER;
+import static com.payfort.start.Card.Field.OWNER;
+import static com.payfort.start.CardValidator.maskOf;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for {@link CardValidator} class.
+ */
+public class CardValidatorTest {
+
+    @Test
+    public void testNumberWithSeparators() throws Exception {
+        assertTrue(CardValidator.isNumberValid("4111 1111 1111 1111"));
+        assertTrue(CardValidator.isNumberValid("3714-4963-5398-43-1"));
+        assertTrue(CardValidator.isNumberValid("3787\t3449\t367 10-00"));
+        assertTrue(CardValidator.isNumberValid(new StringBuilder("5555.5555.5555.4444")));
+        assertFalse(CardValidator.isNumberValid("4111 1111 1111 1112"));
+        assertFalse(CardValidator.isNumberValid("4111_1111_1111_1111"));
+        assertFalse(CardValidator.isNumberValid(" - "));
+        assertFalse(CardValidator.isNumberValid((CharSequence) null));
+    }
+
+    @Test
+    public void testNumberLength() throws Exception {
+        assertFalse(CardValidator.isNumberValid("00000000000"));
+        assertTrue(CardValidator.isNumberValid("000000000000"));
+        assertTrue(CardValidator.isNumberValid("0000000000000000000"));
+        assertFalse(CardValidator.isNumberValid("00000000000000000000"));
+    }
+
+    @Test
+    public void testNumberInCharArray() throws Exception {
+        char[] buffer = "xx4012 8888 8888 1881xx".toCharArray();
+        assertTrue(CardValidator.isNumberValid(buffer, 2, buffer.length - 4));
+        assertFalse(CardValidator.isNumberValid(buffer, 0, buffer.length));
+        assertFalse(CardValidator.isNumberValid(null, 0, 0));
+    }
+
+    @Test
+    public void testCvc() throws Exception {
+        assertTrue(CardValidator.isCvcValid("123"));
+        assertTrue(CardValidator.isCvcValid(" 12-34 "));
+        assertFalse(CardValidator.isCvcValid("12"));
+        assertFalse(CardValidator.isCvcValid("12345"));
+        assertFalse(CardValidator.isCvcValid("12a"));
+    }
+
+    @Test
+    public void testCvcLengthOfBrand() throws Exception {
+        assertTrue(CardValidator.isCvcValid("1234", Card.Brand.AMERICAN_EXPRESS));
+        assertFalse(CardValidator.isCvcValid("123", Card.Brand.AMERICAN_EXPRESS));
+        assertTrue(CardValidator.isCvcValid("123", Card.Brand.VISA));
+        assertFalse(CardValidator.isCvcValid("1234", Card.Brand.VISA));
+        assertTrue(CardValidator.isCvcValid("123", Card.Brand.UNKNOWN));
+        assertTrue(CardValidator.isCvcValid("1234", Card.Brand.UNKNOWN));
+    }
+
+    @Test
+    public void testValidateChecksCvcLengthOfBrand() throws Exception {
+        assertEquals(0, CardValidator.validate("3782 822463 10005", "1234", 5, 2017, "John Doe", 2017, 5));
+        assertEquals(maskOf(CVC), CardValidator.validate("3782 822463 10005", "123", 5, 2017, "John Doe", 2017, 5));
+        assertEquals(maskOf(CVC), CardValidator.validate("4111-1111-1111-1111", "1234", 5, 2017, "John Doe", 2017, 5));
+        // brand of number with unknown prefix isn't known, so any cvc of 3 or 4 digits is accepted
+        assertEquals(0, CardValidator.validate("0000000000000000", "1234", 5, 2017, "John Doe", 2017, 5));
+    }
+
+    @Test
+    public void testValidateReturnsMask() throws Exception {
+        assertEquals(0, CardValidator.validate("4111111111111111", "123", 5, 2017, "John Doe", 2017, 5));
+        assertEquals(maskOf(EXPIRATION_MONTH), CardValidator.validate("4111111111111111", "123", 4, 2017, "John Doe", 2017, 5));
+        assertEquals(maskOf(NUMBER) | maskOf(CVC) | maskOf(OWNER), CardValidator.validate("4111", "1", 5, 2018, " \t", 2017, 5));
+    }
+
+    @Test
+    public void testCheckReturnsSharedResult() throws Exception {
+        ExpiryCutoff expiryCutoff = new ExpiryCutoff(FixedClock.of(2017, 5, 10));
+        CardValidationResult valid = CardValidator.check("4111111111111111", "123", 5, 2017, "John Doe", expiryCutoff);
+        assertSame(CardValidationResult.VALID, valid);
+        assertTrue(valid.isValid());
+        assertTrue(valid.getErrorFields().isEmpty());
+
+        CardValidationResult invalid = CardValidator.check("4111", "1", 5, 2017, "John Doe", expiryCutoff);
+        assertFalse(invalid.isValid());
+        assertFalse(invalid.isValid(NUMBER));
+        assertTrue(invalid.isValid(OWNER));
+        assertEquals(maskOf(NUMBER) | maskOf(CVC), invalid.getInvalidFields());
+        assertEquals(EnumSet.of(NUMBER, CVC), invalid.getErrorFields());
+        assertSame(invalid, CardValidator.check("4112", "12345", 12, 2020, "A", expiryCutoff));
+        assertSame(invalid, CardValidationResult.of(EnumSet.of(CVC, NUMBER)));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testResultFieldsAreImmutable() throws Exception {
+        CardValidationResult.of(maskOf(NUMBER)).getErrorFields().add(CVC);
+    }
+}
@@ -0,0 +1,74 @@
+package com.payfort.start;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for {@link IncrementalCardNumberValidator} class.
+ */
+public class IncrementalCardNumberValidatorTest {
+
+    @Test
+    public void testValidityMatchesCardValidator() throws Exception {
+        String[] numbers = {"378282246310005", "4111111111111111", "4111111111111112", "30569309025904", "5555555555554444",
+                "6331101999990016", "0000000000000000000"};
+        for (String number : numbers) {
+            IncrementalCardNumberValidator validator = new IncrementalCardNumberValidator();
+            for (int i = 0; i < number.length(); i++) {
+                assertTrue(validator.append(number.charAt(i)));
+                String typed = number.substring(0, i + 1);
+                assertEquals(typed, CardValidator.isNumberValid(typed), validator.isValid());
+            }
+        }
+    }
+
+    @Test
+    public void testDeleteRestoresState() throws Exception {
+        IncrementalCardNumberValidator validator = new IncrementalCardNumberValidator();
+        validator.append("4111 1111 1111 1111");
+        assertTrue(validator.isValid());
+
+        validator.deleteLast();
+        assertFalse(validator.isValid());
+        validator.append('2');
+        assertFalse(validator.isValid());
+        validator.deleteLast();
+        validator.append('1');
+        assertTrue(validator.isValid());
+        assertEquals("4111111111111111", validator.toString());
+
+        validator.clear();
+        assertEquals(0, validator.length());
+        assertFalse(validator.deleteLast());
+        assertEquals(Card.Brand.UNKNOWN, validator.getBrand());
+    }
+
+    @Test
+    public void testRejectsInvalidCharacters() throws Exception {
+        IncrementalCardNumberValidator validator = new IncrementalCardNumberValidator();
+        assertFalse(validator.append('a'));
+        assertTrue(validator.append("0000-0000-0000-0000-000"));
+        assertFalse(validator.append('0'));
+        assertEquals(CardValidator.MAX_NUMBER_LENGTH, validator.length());
+    }
+
+    @Test
+    public void testBrandAndCanBecomeValid() throws Exception {
+        IncrementalCardNumberValidator validator = new IncrementalCardNumberValidator();
+        validator.append("2");
+        assertEquals(Card.Brand.UNKNOWN, validator.getBrand());
+        validator.append("720");
+        assertEquals(Card.Brand.MASTER_CARD, validator.getBrand());
+        validator.append("1700 0000 0006");
+        assertTrue(validator.isValid());
+        validator.append('0');
+        assertEquals(Card.Brand.MASTER_CARD, validator.getBrand());
+        assertFalse(validator.canBecomeValid());
+        validator.deleteLast();
+        validator.deleteLast();
+        assertTrue(validator.canBecomeValid());
+    }
+}
@@ -0,0 +1,127 @@
+package com.payfort.start;
+
+import com.payfort.start.error.CardVerificationException;
+import com.payfort.start.support.FixedClock;
+import com.payfort.start.web.CardFormBody;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.EnumSet;
+
+import okhttp3.FormBody;
+import okio.Buffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for {@link PackedCard} class.
+ */
+public class PackedCardTest {
+
+    private static final ExpiryCutoff EXPIRY_CUTOFF = new ExpiryCutoff(FixedClock.of(2017, 6, 15));
+
+    @Test
+    public void testDerivedFields() throws Exception {
+        PackedCard card = newCard("3714 4963 5398 431", "1234");
+        assertEquals(Card.Brand.AMERICAN_EXPRESS, card.getBrand());
+        assertEquals(15, card.length());
+        assertEquals(4, card.cvcLength());
+        assertEquals(371449, card.getBin());
+        assertEquals(8431, card.getLastDigits());
+        assertEquals(3, card.digitAt(0));
+        assertEquals(1, card.digitAt(14));
+
+        PackedCard zeros = newCard("0000-0000-0000-0000", "000");
+        assertEquals(Card.Brand.UNKNOWN, zeros.getBrand());
+        assertEquals(0, zeros.getLastDigits());
+    }
+
+    @Test
+    public void testCopyDigits() throws Exception {
+        PackedCard card = newCard(CharBuffer.wrap("4111 1111 1111 1111".toCharArray()), "123");
+        byte[] buffer = new byte[CardValidator.MAX_NUMBER_LENGTH];
+        assertEquals(16, card.copyNumberTo(buffer, 0));
+        assertEquals("4111111111111111", new String(buffer, 0, 16, "US-ASCII"));
+        assertEquals(3, card.copyCvcTo(buffer, 1));
+        assertArrayEquals("4123".getBytes("US-ASCII"), Arrays.copyOf(buffer, 4));
+    }
+
+    @Test
+    public void testInvalidFields() throws Exception {
+        try {
+            newCard("4111 1111 1111 1112", "12");
+            Assert.fail();
+        } catch (CardVerificationException e) {
+            assertEquals(EnumSet.of(Card.Field.NUMBER, Card.Field.CVC), e.getErrorFields());
+        }
+    }
+
+    @Test
+    public void testWipe() throws Exception {
+        PackedCard card = newCard("5555555555554444", "123");
+        assertFalse(card.isWiped());
+        card.close();
+        assertTrue(card.isWiped());
+        assertEquals(Card.Brand.MASTER_CARD, card.getBrand());
+        try {
+            card.getBin();
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        try {
+            new CardFormBody(card).writeTo(new Buffer());
+            Assert.fail();
+        } catch (IOException e) {
+            // expected
+        }
+        try {
+            new CardFormBody(card).contentLength();
+            Assert.fail();
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testFormBodyMatchesFormEncoding() throws Exception {
+        PackedCard card = newCard("4111 1111 1111 1111", "123");
+        Buffer packed = new Buffer();
+        CardFormBody body = new CardFormBody(card);
+        body.writeTo(packed);
+
+        Buffer expected = new Buffer();
+        FormBody formBody = new FormBody.Builder()
+                .add("number", "4111111111111111")
+                .add("cvc", "123")
+                .add("exp_month", "11")
+                .add("exp_year", "2019")
+                .add("name", "John Doe")
+                .build();
+        formBody.writeTo(expected);
+
+        assertEquals(expected.readUtf8().replace("%20", "+"), packed.readUtf8());
+        assertEquals(formBody.contentType(), body.contentType());
+    }
+
+    @Test
+    public void testFormBodyContentLength() throws Exception {
+        PackedCard card = new PackedCard("3714 4963 5398 431", "1234", 1, 2021, "J\u00f6hn O'Doe & Co", EXPIRY_CUTOFF);
+        CardFormBody body = new CardFormBody(card);
+        Buffer buffer = new Buffer();
+        body.writeTo(buffer);
+
+        assertEquals(buffer.size(), body.contentLength());
+    }
+
+    private static PackedCard newCard(CharSequence number, String cvc) throws CardVerificationException {
+        return new PackedCard(number, cvc, 11, 2019, "John Doe", EXPIRY_CUTOFF);
+    }
+}
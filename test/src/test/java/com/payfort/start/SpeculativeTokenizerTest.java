@@ -0,0 +1,260 @@
+package com.payfort.start;
+
+import android.app.Activity;
+
+import com.payfort.start.support.DirectExecutor;
+import com.payfort.start.support.FixedClock;
+import com.payfort.start.support.RecordingTokenCallback;
+import com.payfort.start.support.VirtualScheduler;
+import com.payfort.start.web.LocalServers;
+import com.payfort.start.web.RetryPolicy;
+import com.payfort.start.web.StartApiFactoryAccess;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+
+import static com.payfort.start.StartApiTest.TEST_OPEN_KEY;
+import static com.payfort.start.support.TestResponses.TOKEN_RESPONSE;
+import static com.payfort.start.support.TestResponses.VERIFICATION_REQUIRED_RESPONSE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for speculative tokenization of {@link Start} in virtual time.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class SpeculativeTokenizerTest {
+
+    private static final ExpiryCutoff EXPIRY_CUTOFF = new ExpiryCutoff(FixedClock.of(2017, 6, 15));
+    private static final long IDLE_MS = 500;
+    private static final long WAIT_MS = TimeUnit.SECONDS.toMillis(5);
+
+    private MockWebServer server;
+    private FixedClock clock;
+    private VirtualScheduler scheduler;
+    private Start start;
+    private Activity activity;
+
+    @Before
+    public void setUp() throws Exception {
+        server = LocalServers.newServer();
+        server.start();
+        clock = new FixedClock(0);
+        scheduler = new VirtualScheduler(clock);
+        start = new Start.Builder(TEST_OPEN_KEY)
+                .callbackExecutor(DirectExecutor.INSTANCE)
+                .retryScheduler(scheduler)
+                .retryPolicy(RetryPolicy.fixed(1, 0))
+                .speculativeTokenization(IDLE_MS, TimeUnit.MILLISECONDS)
+                .clock(clock)
+                .build(StartApiFactoryAccess.newStartApi(TEST_OPEN_KEY, server.url("/")));
+        activity = Robolectric.setupActivity(TestActivity.class);
+        StartMetrics.getInstance().reset();
+        StartApiFactoryAccess.sharedClient().connectionPool().evictAll();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void testSubmitUsesSpeculativeToken() throws Exception {
+        server.enqueue(new MockResponse().setBody(TOKEN_RESPONSE).setHeadersDelay(300, TimeUnit.MILLISECONDS));
+
+        start.onCardChanged(newCard("4111111111111111"));
+        assertEquals(0, server.getRequestCount());
+        assertEquals(IDLE_MS, scheduler.runNext(WAIT_MS));
+        RecordedRequest tokenRequest = server.takeRequest();
+        assertEquals("/tokens/", tokenRequest.getPath());
+
+        clock.advance(1000);
+        RecordingTokenCallback callback = new RecordingTokenCallback();
+        start.createToken(activity, newCard("4111111111111111"), callback, 100, "USD");
+
+        assertEquals("tok_1", callback.await().getId());
+        assertEquals(1, server.getRequestCount());
+        assertEquals(1, StartMetrics.getInstance().getSpeculationHitCount());
+        assertEquals(1000, StartMetrics.getInstance().getSpeculationSavedMillis());
+    }
+
+    @Test
+    public void testSubmitRunsOnlyVerificationStep() throws Exception {
+        server.enqueue(new MockResponse().setBody(VERIFICATION_REQUIRED_RESPONSE));
+        server.enqueue(new MockResponse().setBody("{\"id\":\"ver_1\",\"enrolled\":false,\"finalized\":true}"));
+
+        start.onCardChanged(newCard("4111111111111111"));
+        scheduler.runNext(WAIT_MS);
+        server.takeRequest();
+
+        RecordingTokenCallback callback = new RecordingTokenCallback();
+        start.createToken(activity, newCard("4111111111111111"), callback, 100, "USD");
+
+        assertEquals("tok_1", callback.await().getId());
+        RecordedRequest verificationRequest = server.takeRequest();
+        assertEquals("/tokens/tok_1/verification", verificationRequest.getPath());
+        assertTrue(verificationRequest.getBody().readUtf8().contains("amount=100"));
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void testCardChangeBeforeIdleDelayDoesNotSendRequest() throws Exception {
+        server.enqueue(new MockResponse().setBody(TOKEN_RESPONSE));
+
+        start.onCardChanged(newCard("4111111111111111"));
+        start.onCardChanged(null);
+        start.onCardChanged(newCard("4242424242424242"));
+        assertEquals(IDLE_MS, scheduler.runNext(WAIT_MS));
+        assertTrue(server.takeRequest().getBody().readUtf8().contains("4242424242424242"));
+        assertEquals(-1, scheduler.runNext(100));
+        assertEquals(1, server.getRequestCount());
+        assertEquals(0, StartMetrics.getInstance().getSpeculationDiscardCount());
+    }
+
+    @Test
+    public void testStaleTokenIsDiscardedWhenCardChanges() throws Exception {
+        server.enqueue(new MockResponse().setBody(TOKEN_RESPONSE));
+        server.enqueue(new MockResponse().setBody("{\"id\":\"tok_2\",\"verification_required\":false}"));
+
+        start.onCardChanged(newCard("4111111111111111"));
+        scheduler.runNext(WAIT_MS);
+        server.takeRequest();
+        awaitSpeculativeResponse();
+        start.onCardChanged(newCard("4242424242424242"));
+        assertEquals(1, StartMetrics.getInstance().getSpeculationDiscardCount());
+
+        RecordingTokenCallback callback = new RecordingTokenCallback();
+        start.createToken(activity, newCard("4111111111111111"), callback, 100, "USD");
+
+        assertEquals("tok_2", callback.await().getId());
+        assertEquals(2, server.getRequestCount());
+        assertEquals(0, StartMetrics.getInstance().getSpeculationHitCount());
+    }
+
+    @Test
+    public void testOldTokenIsNotUsed() throws Exception {
+        server.enqueue(new MockResponse().setBody(TOKEN_RESPONSE));
+        server.enqueue(new MockResponse().setBody("{\"id\":\"tok_2\",\"verification_required\":false}"));
+
+        start.onCardChanged(newCard("4111111111111111"));
+        scheduler.runNext(WAIT_MS);
+        server.takeRequest();
+        awaitSpeculativeResponse();
+        clock.advance(SpeculativeTokenizer.MAX_AGE_MS + 1);
+
+        RecordingTokenCallback callback = new RecordingTokenCallback();
+        start.createToken(activity, newCard("4111111111111111"), callback, 100, "USD");
+
+        assertEquals("tok_2", callback.await().getId());
+        assertEquals(1, StartMetrics.getInstance().getSpeculationDiscardCount());
+    }
+
+    @Test
+    public void testFailedSpeculationFallsBackToRegularRequest() throws Exception {
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START));
+        server.enqueue(new MockResponse().setBody(TOKEN_RESPONSE));
+
+        start.onCardChanged(newCard("4111111111111111"));
+        scheduler.runNext(WAIT_MS);
+        server.takeRequest();
+
+        RecordingTokenCallback callback = new RecordingTokenCallback();
+        start.createToken(activity, newCard("4111111111111111"), callback, 100, "USD");
+
+        assertEquals("tok_1", callback.await().getId());
+        assertEquals(2, server.getRequestCount());
+        assertEquals(0, StartMetrics.getInstance().getSpeculationHitCount());
+    }
+
+    @Test
+    public void testServerErrorOfSpeculationFallsBackToRegularRequest() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setBody(TOKEN_RESPONSE));
+
+        start.onCardChanged(newCard("4111111111111111"));
+        scheduler.runNext(WAIT_MS);
+        server.takeRequest();
+
+        RecordingTokenCallback callback = new RecordingTokenCallback();
+        start.createToken(activity, newCard("4111111111111111"), callback, 100, "USD");
+
+        assertEquals("tok_1", callback.await().getId());
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void testRejectedSpeculationIsReportedWithoutResending() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(422).setBody("{\"error\":\"card_declined\"}"));
+
+        start.onCardChanged(newCard("4111111111111111"));
+        scheduler.runNext(WAIT_MS);
+        server.takeRequest();
+        awaitSpeculativeResponse();
+
+        RecordingTokenCallback callback = new RecordingTokenCallback();
+        start.createToken(activity, newCard("4111111111111111"), callback, 100, "USD");
+
+        callback.await();
+        assertTrue(callback.getError().getMessage().contains("422"));
+        assertTrue(callback.getError().getMessage().contains("card_declined"));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void testDiscardCancelsPendingRetry() throws Exception {
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START));
+        server.enqueue(new MockResponse().setBody(TOKEN_RESPONSE));
+        Start start = new Start.Builder(TEST_OPEN_KEY)
+                .retryScheduler(scheduler)
+                .retryPolicy(RetryPolicy.fixed(2, 1000))
+                .speculativeTokenization(IDLE_MS, TimeUnit.MILLISECONDS)
+                .clock(clock)
+                .build(StartApiFactoryAccess.newStartApi(TEST_OPEN_KEY, server.url("/")));
+
+        start.onCardChanged(newCard("4111111111111111"));
+        scheduler.runNext(WAIT_MS);
+        server.takeRequest();
+        long deadline = System.currentTimeMillis() + WAIT_MS;
+        while (scheduler.pendingCount() == 0) {
+            assertTrue("Retry isn't scheduled", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+        start.onCardChanged(null);
+
+        assertEquals(0, scheduler.pendingCount());
+        assertEquals(-1, scheduler.runNext(100));
+        assertEquals(1, server.getRequestCount());
+        assertEquals(1, StartMetrics.getInstance().getSpeculationDiscardCount());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSpeculationMustBeEnabled() throws Exception {
+        new Start(TEST_OPEN_KEY).onCardChanged(newCard("4111111111111111"));
+    }
+
+    private static void awaitSpeculativeResponse() throws InterruptedException {
+        // otherwise canceled speculative request and the next one race for the first queued response of server
+        long deadline = System.currentTimeMillis() + WAIT_MS;
+        while (StartApiFactoryAccess.sharedClient().connectionPool().idleConnectionCount() == 0) {
+            assertTrue("Speculative response isn't received", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private static Card newCard(String number) throws Exception {
+        return new Card(number, "123", 11, 2019, "John Doe", EXPIRY_CUTOFF);
+    }
+}
@@ -0,0 +1,16 @@
+package com.payfort.start;
+
+import com.payfort.start.web.StartApi;
+
+/**
+ * Gives tests of other packages access to package-private methods of {@link Start}.
+ */
+public final class StartAccess {
+
+    private StartAccess() {
+    }
+
+    public static Start build(Start.Builder builder, StartApi startApi) {
+        return builder.build(startApi);
+    }
+}
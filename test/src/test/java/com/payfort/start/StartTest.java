@@ -1,8 +1,19 @@
 package com.payfort.start;
 
 import android.app.Activity;
+import android.os.Handler;
+import android.os.Looper;
 
+import com.payfort.start.error.StartApiException;
+import com.payfort.start.support.CountingTokenCallback;
 import com.payfort.start.support.EmptyTokenCallback;
+import com.payfort.start.support.FixedClock;
+import com.payfort.start.support.RecordingTokenCallback;
+import com.payfort.start.web.ExecutorRetryScheduler;
+import com.payfort.start.web.LocalServers;
+import com.payfort.start.web.RetryPolicy;
+import com.payfort.start.web.RetryScheduler;
+import com.payfort.start.web.StartApiFactoryAccess;
 
 import org.junit.Assert;
 import org.junit.Before;
@@ -12,7 +23,28 @@ import org.robolectric.Robolectric;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+
 import static com.payfort.start.StartApiTest.TEST_OPEN_KEY;
+import static com.payfort.start.support.TestResponses.TOKEN_RESPONSE;
+import static com.payfort.start.support.TestResponses.VERIFICATION_REQUIRED_RESPONSE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Test for {@link Start} class.
@@ -21,6 +53,8 @@ import static com.payfort.start.StartApiTest.TEST_OPEN_KEY;
 @Config(constants = BuildConfig.class, sdk = 23)
 public class StartTest {
 
+    private static final ExpiryCutoff EXPIRY_CUTOFF = new ExpiryCutoff(FixedClock.of(2017, 6, 15));
+
     private Start start;
     private Activity activity;
 
@@ -38,19 +72,313 @@ public class StartTest {
 
     @Test(expected = NullPointerException.class)
     public void testCallbackNotNull() throws Exception {
-        start.createToken(activity, new Card("4111111111111111", "111", 12, 2020, "John Doe"), null, 100, "USD");
+        start.createToken(activity, new Card("4111111111111111", "111", 12, 2020, "John Doe", EXPIRY_CUTOFF), null, 100, "USD");
         Assert.fail();
     }
 
     @Test(expected = IllegalArgumentException.class)
     public void testCurrencyNotZero() throws Exception {
-        start.createToken(activity, new Card("4111111111111111", "111", 12, 2020, "John Doe"), new EmptyTokenCallback(), 0, "USD");
+        start.createToken(activity, new Card("4111111111111111", "111", 12, 2020, "John Doe", EXPIRY_CUTOFF), new EmptyTokenCallback(), 0, "USD");
         Assert.fail();
     }
 
     @Test(expected = IllegalArgumentException.class)
     public void testCurrencyNotNegative() throws Exception {
-        start.createToken(activity, new Card("4111111111111111", "111", 12, 2020, "John Doe"), new EmptyTokenCallback(), -1, "USD");
+        start.createToken(activity, new Card("4111111111111111", "111", 12, 2020, "John Doe", EXPIRY_CUTOFF), new EmptyTokenCallback(), -1, "USD");
         Assert.fail();
     }
+
+    @Test
+    public void testCallbacksAndRetriesRunOnCustomThreads() throws Exception {
+        MockWebServer server = LocalServers.newServer();
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START));
+        server.enqueue(new MockResponse().setBody(TOKEN_RESPONSE));
+        server.start();
+        ExecutorService callbackExecutor = Executors.newSingleThreadExecutor(namedThreads("callback"));
+        ScheduledExecutorService retryExecutor = Executors.newSingleThreadScheduledExecutor(namedThreads("retry"));
+        try {
+            final AtomicInteger scheduledRetries = new AtomicInteger();
+            final RetryScheduler executorScheduler = new ExecutorRetryScheduler(retryExecutor);
+            RetryScheduler countingScheduler = new RetryScheduler() {
+
+                @Override
+                public Task schedule(Runnable task, long delayMillis) {
+                    scheduledRetries.incrementAndGet();
+                    return executorScheduler.schedule(task, delayMillis);
+                }
+            };
+            Start start = new Start.Builder(TEST_OPEN_KEY)
+                    .callbackExecutor(callbackExecutor)
+                    .retryScheduler(countingScheduler)
+                    .retryPolicy(RetryPolicy.fixed(2, 0))
+                    .build(StartApiFactoryAccess.newStartApi(TEST_OPEN_KEY, server.url("/")));
+            RecordingTokenCallback callback = new RecordingTokenCallback();
+
+            start.createToken(activity, new Card("4111111111111111", "111", 12, 2020, "John Doe", EXPIRY_CUTOFF), callback, 100, "USD");
+
+            assertEquals("tok_1", callback.await().getId());
+            assertEquals("callback", callback.getResultThread().getName());
+            assertNotSame(Looper.getMainLooper().getThread(), callback.getResultThread());
+            assertEquals(1, scheduledRetries.get());
+            assertEquals(2, server.getRequestCount());
+        } finally {
+            callbackExecutor.shutdown();
+            retryExecutor.shutdown();
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void testIdenticalConcurrentCallsAreCoalesced() throws Exception {
+        final int calls = 16;
+        MockWebServer server = LocalServers.newServer();
+        server.enqueue(new MockResponse().setBody(TOKEN_RESPONSE).setHeadersDelay(500, TimeUnit.MILLISECONDS));
+        server.enqueue(new MockResponse().setBody(TOKEN_RESPONSE));
+        server.start();
+        ExecutorService callers = Executors.newFixedThreadPool(calls);
+        ExecutorService callbackExecutor = Executors.newCachedThreadPool();
+        try {
+            final Start start = new Start.Builder(TEST_OPEN_KEY)
+                    .callbackExecutor(callbackExecutor)
+                    .retryPolicy(RetryPolicy.fixed(1, 0))
+                    .build(StartApiFactoryAccess.newStartApi(TEST_OPEN_KEY, server.url("/")));
+            final CountDownLatch startSignal = new CountDownLatch(1);
+            final CountDownLatch results = new CountDownLatch(calls);
+            final AtomicInteger successes = new AtomicInteger();
+            for (int i = 0; i < calls; i++) {
+                // equal, but not the same card, as after double tap
+                final Card card = new Card("4111111111111111", "111", 12, 2020, "John Doe", EXPIRY_CUTOFF);
+                callers.execute(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        try {
+                            startSignal.await();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                        start.createToken(activity, card, new CountingTokenCallback(successes, results), 100, "USD");
+                    }
+                });
+            }
+            startSignal.countDown();
+
+            assertTrue(results.await(10, TimeUnit.SECONDS));
+            assertEquals(calls, successes.get());
+            assertEquals(1, server.getRequestCount());
+
+            // completed request isn't shared with the next call
+            CountDownLatch nextResult = new CountDownLatch(1);
+            start.createToken(activity, new Card("4111111111111111", "111", 12, 2020, "John Doe", EXPIRY_CUTOFF),
+                    new CountingTokenCallback(successes, nextResult), 100, "USD");
+            assertTrue(nextResult.await(10, TimeUnit.SECONDS));
+            assertEquals(2, server.getRequestCount());
+        } finally {
+            callers.shutdown();
+            callbackExecutor.shutdown();
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void testCallsWithDifferentAmountsAreNotCoalesced() throws Exception {
+        MockWebServer server = LocalServers.newServer();
+        server.enqueue(new MockResponse().setBody(TOKEN_RESPONSE).setHeadersDelay(300, TimeUnit.MILLISECONDS));
+        server.enqueue(new MockResponse().setBody(TOKEN_RESPONSE).setHeadersDelay(300, TimeUnit.MILLISECONDS));
+        server.start();
+        ExecutorService callbackExecutor = Executors.newCachedThreadPool();
+        try {
+            Start start = new Start.Builder(TEST_OPEN_KEY)
+                    .callbackExecutor(callbackExecutor)
+                    .retryPolicy(RetryPolicy.fixed(1, 0))
+                    .build(StartApiFactoryAccess.newStartApi(TEST_OPEN_KEY, server.url("/")));
+            AtomicInteger successes = new AtomicInteger();
+            CountDownLatch results = new CountDownLatch(2);
+            Card card = new Card("4111111111111111", "111", 12, 2020, "John Doe", EXPIRY_CUTOFF);
+            start.createToken(activity, card, new CountingTokenCallback(successes, results), 100, "USD");
+            start.createToken(activity, card, new CountingTokenCallback(successes, results), 200, "USD");
+
+            assertTrue(results.await(10, TimeUnit.SECONDS));
+            assertEquals(2, successes.get());
+            assertEquals(2, server.getRequestCount());
+        } finally {
+            callbackExecutor.shutdown();
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void testVerificationFailsIfActivityIsFinished() throws Exception {
+        MockWebServer server = LocalServers.newServer();
+        server.enqueue(new MockResponse().setBody(VERIFICATION_REQUIRED_RESPONSE));
+        server.enqueue(new MockResponse().setBody("{\"id\":\"ver_1\",\"enrolled\":true,\"finalized\":false}"));
+        server.enqueue(new MockResponse().setBody(TOKEN_RESPONSE));
+        server.start();
+        ExecutorService callbackExecutor = Executors.newCachedThreadPool();
+        try {
+            Start start = new Start.Builder(TEST_OPEN_KEY)
+                    .callbackExecutor(callbackExecutor)
+                    .retryPolicy(RetryPolicy.fixed(1, 0))
+                    .build(StartApiFactoryAccess.newStartApi(TEST_OPEN_KEY, server.url("/")));
+            Card card = new Card("4111111111111111", "111", 12, 2020, "John Doe", EXPIRY_CUTOFF);
+            AtomicInteger successes = new AtomicInteger();
+            CountDownLatch failure = new CountDownLatch(1);
+            activity.finish();
+
+            start.createToken(activity, card, new CountingTokenCallback(successes, failure), 100, "USD");
+            assertTrue(failure.await(10, TimeUnit.SECONDS));
+            assertEquals(0, successes.get());
+
+            // failed request is removed, so identical call doesn't join it
+            CountDownLatch nextResult = new CountDownLatch(1);
+            Activity nextActivity = Robolectric.setupActivity(TestActivity.class);
+            start.createToken(nextActivity, card, new CountingTokenCallback(successes, nextResult), 100, "USD");
+            assertTrue(nextResult.await(10, TimeUnit.SECONDS));
+            assertEquals(1, successes.get());
+            assertEquals(3, server.getRequestCount());
+        } finally {
+            callbackExecutor.shutdown();
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void testCreateTokenSyncRunsOnCallingThread() throws Exception {
+        MockWebServer server = LocalServers.newServer();
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START));
+        server.enqueue(new MockResponse().setBody(VERIFICATION_REQUIRED_RESPONSE));
+        server.enqueue(new MockResponse().setBody("{\"id\":\"ver_1\",\"enrolled\":false,\"finalized\":true}"));
+        server.start();
+        ExecutorService worker = Executors.newSingleThreadExecutor(namedThreads("worker"));
+        try {
+            final Start start = new Start.Builder(TEST_OPEN_KEY)
+                    .retryPolicy(RetryPolicy.fixed(2, 0))
+                    .build(StartApiFactoryAccess.newStartApi(TEST_OPEN_KEY, server.url("/")));
+            final Card card = new Card("4111111111111111", "111", 12, 2020, "John Doe", EXPIRY_CUTOFF);
+            Future<Token> token = worker.submit(new Callable<Token>() {
+
+                @Override
+                public Token call() throws Exception {
+                    return start.createTokenSync(card, 100, "USD", 10, TimeUnit.SECONDS);
+                }
+            });
+
+            assertEquals("tok_1", token.get(10, TimeUnit.SECONDS).getId());
+            assertEquals("ver_1", token.get().getVerification().getId());
+            assertEquals(3, server.getRequestCount());
+        } finally {
+            worker.shutdown();
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void testCreateTokenSyncFailsForEnrolledCard() throws Exception {
+        MockWebServer server = LocalServers.newServer();
+        server.enqueue(new MockResponse().setBody(VERIFICATION_REQUIRED_RESPONSE));
+        server.enqueue(new MockResponse().setBody("{\"id\":\"ver_1\",\"enrolled\":true,\"finalized\":false}"));
+        server.start();
+        ExecutorService worker = Executors.newSingleThreadExecutor();
+        try {
+            final Start start = new Start.Builder(TEST_OPEN_KEY)
+                    .build(StartApiFactoryAccess.newStartApi(TEST_OPEN_KEY, server.url("/")));
+            final Card card = new Card("4111111111111111", "111", 12, 2020, "John Doe", EXPIRY_CUTOFF);
+            Future<Token> token = worker.submit(new Callable<Token>() {
+
+                @Override
+                public Token call() throws Exception {
+                    return start.createTokenSync(card, 100, "USD", 10, TimeUnit.SECONDS);
+                }
+            });
+
+            try {
+                token.get(10, TimeUnit.SECONDS);
+                Assert.fail();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof StartApiException);
+            }
+        } finally {
+            worker.shutdown();
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void testCreateTokenSyncTimeoutDoesNotNeedRetryScheduler() throws Exception {
+        MockWebServer server = LocalServers.newServer();
+        server.enqueue(new MockResponse().setBody(TOKEN_RESPONSE).setHeadersDelay(10, TimeUnit.SECONDS));
+        server.start();
+        ExecutorService worker = Executors.newSingleThreadExecutor();
+        try {
+            final AtomicInteger scheduledTasks = new AtomicInteger();
+            // like main thread handler while main thread waits for worker
+            RetryScheduler stuckScheduler = new RetryScheduler() {
+
+                @Override
+                public Task schedule(Runnable task, long delayMillis) {
+                    scheduledTasks.incrementAndGet();
+                    return new Task() {
+
+                        @Override
+                        public void cancel() {
+                        }
+                    };
+                }
+            };
+            final Start start = new Start.Builder(TEST_OPEN_KEY)
+                    .retryScheduler(stuckScheduler)
+                    .build(StartApiFactoryAccess.newStartApi(TEST_OPEN_KEY, server.url("/")));
+            final Card card = new Card("4111111111111111", "111", 12, 2020, "John Doe", EXPIRY_CUTOFF);
+            Future<Token> token = worker.submit(new Callable<Token>() {
+
+                @Override
+                public Token call() throws Exception {
+                    return start.createTokenSync(card, 100, "USD", 500, TimeUnit.MILLISECONDS);
+                }
+            });
+
+            try {
+                token.get(5, TimeUnit.SECONDS);
+                Assert.fail();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof StartApiException);
+            }
+            assertEquals(0, scheduledTasks.get());
+        } finally {
+            worker.shutdown();
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void testCreateTokenSyncOnMainThreadFails() throws Exception {
+        final Card card = new Card("4111111111111111", "111", 12, 2020, "John Doe", EXPIRY_CUTOFF);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final CountDownLatch latch = new CountDownLatch(1);
+        new Handler(Looper.getMainLooper()).post(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    start.createTokenSync(card, 100, "USD", 1, TimeUnit.SECONDS);
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+                latch.countDown();
+            }
+        });
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertTrue(String.valueOf(failure.get()), failure.get() instanceof IllegalStateException);
+    }
+
+    private static ThreadFactory namedThreads(final String name) {
+        return new ThreadFactory() {
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                return new Thread(runnable, name);
+            }
+        };
+    }
 }
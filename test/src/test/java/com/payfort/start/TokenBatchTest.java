@@ -0,0 +1,243 @@
+package com.payfort.start;
+
+import com.payfort.start.error.StartApiException;
+import com.payfort.start.support.FixedClock;
+import com.payfort.start.web.ExecutorRetryScheduler;
+import com.payfort.start.web.LocalServers;
+import com.payfort.start.web.RetryPolicy;
+import com.payfort.start.web.StartApiFactoryAccess;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static com.payfort.start.StartApiTest.TEST_OPEN_KEY;
+import static com.payfort.start.support.TestResponses.VERIFICATION_REQUIRED_RESPONSE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for {@link TokenBatch} class.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class TokenBatchTest {
+
+    private static final ExpiryCutoff EXPIRY_CUTOFF = new ExpiryCutoff(FixedClock.of(2017, 6, 15));
+    private static final String FAILING_NUMBER = "4000000000000002";
+
+    private MockWebServer server;
+    private ExecutorService callbackExecutor;
+    private ScheduledExecutorService retryExecutor;
+    private Start start;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private volatile long responseDelayMillis = 50;
+
+    @Before
+    public void setUp() throws Exception {
+        server = LocalServers.newServer();
+        server.setDispatcher(new Dispatcher() {
+
+            private final AtomicInteger tokenIds = new AtomicInteger();
+
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                int current = inFlight.incrementAndGet();
+                while (true) {
+                    int max = maxInFlight.get();
+                    if (current <= max || maxInFlight.compareAndSet(max, current)) {
+                        break;
+                    }
+                }
+                try {
+                    Thread.sleep(responseDelayMillis);
+                    if (request.getBody().readUtf8().contains(FAILING_NUMBER)) {
+                        return new MockResponse().setResponseCode(400).setBody("{\"error\":\"card_declined\"}");
+                    }
+                    return new MockResponse().setBody("{\"id\":\"tok_" + tokenIds.incrementAndGet() + "\",\"verification_required\":false}");
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            }
+        });
+        server.start();
+        callbackExecutor = Executors.newSingleThreadExecutor();
+        retryExecutor = Executors.newSingleThreadScheduledExecutor();
+        start = new Start.Builder(TEST_OPEN_KEY)
+                .callbackExecutor(callbackExecutor)
+                .retryScheduler(new ExecutorRetryScheduler(retryExecutor))
+                .retryPolicy(RetryPolicy.fixed(1, 0))
+                .build(StartApiFactoryAccess.newStartApi(TEST_OPEN_KEY, server.url("/")));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        callbackExecutor.shutdown();
+        retryExecutor.shutdown();
+        server.shutdown();
+    }
+
+    @Test
+    public void testConcurrencyIsBounded() throws Exception {
+        RecordingCallback callback = new RecordingCallback();
+        start.createTokens(cards(20, -1), 3, callback);
+
+        TokenBatchResult result = callback.await();
+        assertEquals(20, result.getTokenCount());
+        assertEquals(20, callback.tokenIndices.size());
+        assertTrue("Max in flight: " + maxInFlight.get(), maxInFlight.get() <= 3);
+        assertTrue("Max in flight: " + maxInFlight.get(), maxInFlight.get() > 1);
+        assertEquals(20, server.getRequestCount());
+    }
+
+    @Test
+    public void testResultsAreStreamedBeforeCompletion() throws Exception {
+        RecordingCallback callback = new RecordingCallback();
+        start.createTokens(cards(5, -1), 1, callback);
+
+        TokenBatchResult result = callback.await();
+        List<Integer> indices = new ArrayList<>(callback.tokenIndices);
+        assertEquals(5, callback.completedAfterItems.get());
+        Collections.sort(indices);
+        assertEquals(indices, callback.tokenIndices);
+        for (int i = 0; i < result.size(); i++) {
+            assertNotNull(result.getToken(i));
+            assertNull(result.getError(i));
+        }
+    }
+
+    @Test
+    public void testErrorOfCardDoesNotStopBatch() throws Exception {
+        RecordingCallback callback = new RecordingCallback();
+        start.createTokens(cards(5, 1), 2, callback);
+
+        TokenBatchResult result = callback.await();
+        assertEquals(4, result.getTokenCount());
+        assertEquals(1, result.getErrorCount());
+        assertEquals(0, result.getCanceledCount());
+        assertNull(result.getToken(1));
+        assertNotNull(result.getError(1));
+        assertEquals(Collections.singletonList(1), callback.errorIndices);
+    }
+
+    @Test
+    public void testCancelStopsBatch() throws Exception {
+        responseDelayMillis = 300;
+        RecordingCallback callback = new RecordingCallback();
+        TokenBatch batch = start.createTokens(cards(10, -1), 2, callback);
+        batch.cancel();
+
+        TokenBatchResult result = callback.await();
+        assertTrue(batch.isCanceled());
+        assertTrue(batch.isDone());
+        assertEquals(10, result.getCanceledCount());
+        Thread.sleep(500);
+        assertTrue(server.getRequestCount() <= 2);
+        assertTrue(callback.tokenIndices.isEmpty());
+        assertEquals(1, callback.completeCount.get());
+    }
+
+    @Test
+    public void testEmptyBatchCompletes() throws Exception {
+        RecordingCallback callback = new RecordingCallback();
+        TokenBatch batch = start.createTokens(Collections.<Card>emptyList(), callback);
+
+        assertEquals(0, callback.await().size());
+        assertTrue(batch.isDone());
+        assertFalse(batch.isCanceled());
+    }
+
+    @Test
+    public void testCardRequiringVerificationFailsWithoutActivity() throws Exception {
+        server.setDispatcher(new Dispatcher() {
+
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if (request.getPath().endsWith("/verification")) {
+                    return new MockResponse().setBody("{\"id\":\"ver_1\",\"enrolled\":true,\"finalized\":false}");
+                }
+                return new MockResponse().setBody(VERIFICATION_REQUIRED_RESPONSE);
+            }
+        });
+        RecordingCallback callback = new RecordingCallback();
+        start.createTokens(cards(1, -1), callback);
+
+        TokenBatchResult result = callback.await();
+        assertEquals(1, result.getErrorCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConcurrencyMustBePositive() throws Exception {
+        start.createTokens(cards(1, -1), 0, new RecordingCallback());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testCardsMustBeNotNull() throws Exception {
+        start.createTokens(Collections.<Card>singletonList(null), new RecordingCallback());
+    }
+
+    private static List<Card> cards(int count, int failingIndex) throws Exception {
+        List<Card> cards = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String number = i == failingIndex ? FAILING_NUMBER : "4111111111111111";
+            cards.add(new Card(number, "123", 11, 2019, "John Doe", EXPIRY_CUTOFF));
+        }
+        return cards;
+    }
+
+    private static final class RecordingCallback implements BatchTokenCallback {
+
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private final AtomicReference<TokenBatchResult> result = new AtomicReference<>();
+        private final List<Integer> tokenIndices = Collections.synchronizedList(new ArrayList<Integer>());
+        private final List<Integer> errorIndices = Collections.synchronizedList(new ArrayList<Integer>());
+        private final AtomicInteger completedAfterItems = new AtomicInteger(-1);
+        private final AtomicInteger completeCount = new AtomicInteger();
+
+        @Override
+        public void onToken(int index, Token token) {
+            tokenIndices.add(index);
+        }
+
+        @Override
+        public void onError(int index, StartApiException error) {
+            errorIndices.add(index);
+        }
+
+        @Override
+        public void onComplete(TokenBatchResult result) {
+            completedAfterItems.set(tokenIndices.size() + errorIndices.size());
+            completeCount.incrementAndGet();
+            this.result.set(result);
+            latch.countDown();
+        }
+
+        private TokenBatchResult await() throws InterruptedException {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+            return result.get();
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.payfort.start;
+
+import android.app.Activity;
+
+import com.payfort.start.support.DirectExecutor;
+import com.payfort.start.support.FixedClock;
+import com.payfort.start.support.RecordingTokenCallback;
+import com.payfort.start.web.LocalServers;
+import com.payfort.start.web.RetryPolicy;
+import com.payfort.start.web.StartApiFactoryAccess;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static com.payfort.start.StartApiTest.TEST_OPEN_KEY;
+import static com.payfort.start.support.TestResponses.TOKEN_RESPONSE;
+import static com.payfort.start.support.TestResponses.VERIFICATION_REQUIRED_RESPONSE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for {@link TokenCache} class.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class TokenCacheTest {
+
+    private static final ExpiryCutoff EXPIRY_CUTOFF = new ExpiryCutoff(FixedClock.of(2017, 6, 15));
+    private static final long TTL_MS = TimeUnit.MINUTES.toMillis(5);
+
+    private MockWebServer server;
+    private FixedClock clock;
+    private TokenCache cache;
+    private Start start;
+    private Activity activity;
+
+    @Before
+    public void setUp() throws Exception {
+        server = LocalServers.newServer();
+        server.start();
+        clock = new FixedClock(0);
+        cache = new TokenCache.Builder().maxSize(2).ttl(TTL_MS, TimeUnit.MILLISECONDS).clock(clock).build();
+        start = new Start.Builder(TEST_OPEN_KEY)
+                .callbackExecutor(DirectExecutor.INSTANCE)
+                .retryPolicy(RetryPolicy.fixed(1, 0))
+                .tokenCache(cache)
+                .build(StartApiFactoryAccess.newStartApi(TEST_OPEN_KEY, server.url("/")));
+        activity = Robolectric.setupActivity(TestActivity.class);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void testLeastRecentlyUsedTokenIsEvicted() throws Exception {
+        put("a", newToken("tok_a"), 0);
+        put("b", newToken("tok_b"), 0);
+        assertEquals("tok_a", cache.get("a").token.getId());
+        put("c", newToken("tok_c"), 0);
+
+        assertNull(cache.get("b"));
+        assertEquals("tok_a", cache.get("a").token.getId());
+        assertEquals("tok_c", cache.get("c").token.getId());
+        assertEquals(3, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testExpiredTokenIsEvicted() throws Exception {
+        put("a", newToken("tok_a"), 0);
+        clock.setCurrentTimeMillis(TTL_MS - 1);
+        assertEquals("tok_a", cache.get("a").token.getId());
+        clock.setCurrentTimeMillis(TTL_MS);
+        assertNull(cache.get("a"));
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testTtlIsCountedSinceTokenRequest() throws Exception {
+        clock.setCurrentTimeMillis(TTL_MS);
+        put("a", newToken("tok_a"), 0);
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    public void testInvalidateRemovesAllEntriesOfToken() throws Exception {
+        Token token = newToken("tok_a");
+        cache.put("a", token, 0);
+        cache.put("b", token, 0);
+        cache.invalidate(token);
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testTokenIsReusedOnlyAfterRelease() throws Exception {
+        Token token = newToken("tok_a");
+        cache.put("a", token, 0);
+        cache.put("b", token, 0);
+        assertNull(cache.get("a"));
+
+        cache.release(token);
+        assertSame(token, cache.take("a").token);
+        // token is delivered again, so no entry of it is reusable
+        assertNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testDeliveredTokenIsNotReused() throws Exception {
+        server.enqueue(new MockResponse().setBody(TOKEN_RESPONSE));
+        server.enqueue(new MockResponse().setBody("{\"id\":\"tok_2\",\"verification_required\":false}"));
+
+        assertEquals("tok_1", createToken(100).getId());
+        // app doesn't report charge
+        assertEquals("tok_2", createToken(100).getId());
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void testResubmitReusesToken() throws Exception {
+        server.enqueue(new MockResponse().setBody(TOKEN_RESPONSE));
+
+        start.onTokenNotCharged(createToken(100));
+        start.onTokenNotCharged(createToken(100));
+        assertEquals("tok_1", createToken(200).getId());
+        assertEquals(1, server.getRequestCount());
+        // request is counted once, though it looks up token of amount and token of card
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testResubmitReusesVerificationOfSameAmount() throws Exception {
+        server.enqueue(new MockResponse().setBody(VERIFICATION_REQUIRED_RESPONSE));
+        server.enqueue(new MockResponse().setBody("{\"id\":\"ver_1\",\"enrolled\":false,\"finalized\":true}"));
+        server.enqueue(new MockResponse().setBody("{\"id\":\"ver_2\",\"enrolled\":false,\"finalized\":true}"));
+
+        Token token = createToken(100);
+        assertEquals("ver_1", token.getVerification().getId());
+        start.onTokenNotCharged(token);
+        assertSame(token, createToken(100));
+        assertEquals(2, server.getRequestCount());
+        start.onTokenNotCharged(token);
+
+        // other amount needs its own verification, but not new token
+        Token otherAmountToken = createToken(200);
+        assertEquals("tok_1", otherAmountToken.getId());
+        assertEquals("ver_2", otherAmountToken.getVerification().getId());
+        assertEquals(3, server.getRequestCount());
+        assertEquals("/tokens/", server.takeRequest().getPath());
+        assertEquals("/tokens/tok_1/verification", server.takeRequest().getPath());
+        assertEquals("/tokens/tok_1/verification", server.takeRequest().getPath());
+    }
+
+    @Test
+    public void testChargedTokenIsNotReused() throws Exception {
+        server.enqueue(new MockResponse().setBody(TOKEN_RESPONSE));
+        server.enqueue(new MockResponse().setBody("{\"id\":\"tok_2\",\"verification_required\":false}"));
+
+        Token token = createToken(100);
+        start.onTokenNotCharged(token);
+        start.onTokenCharged(token);
+
+        assertEquals("tok_2", createToken(100).getId());
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void testExpiredTokenIsNotReused() throws Exception {
+        server.enqueue(new MockResponse().setBody(TOKEN_RESPONSE));
+        server.enqueue(new MockResponse().setBody("{\"id\":\"tok_2\",\"verification_required\":false}"));
+
+        createToken(100);
+        clock.advance(TTL_MS);
+
+        assertEquals("tok_2", createToken(100).getId());
+        assertTrue(cache.getEvictionCount() > 0);
+    }
+
+    private void put(String key, Token token, long createdAt) {
+        cache.put(key, token, createdAt);
+        cache.release(token);
+    }
+
+    private Token createToken(int amountInCents) throws Exception {
+        RecordingTokenCallback callback = new RecordingTokenCallback();
+        Card card = new Card("4111111111111111", "123", 11, 2019, "John Doe", EXPIRY_CUTOFF);
+        start.createToken(activity, card, callback, amountInCents, "USD");
+        return callback.await();
+    }
+
+    private static Token newToken(String id) {
+        return new Token(id, false, null);
+    }
+}
@@ -0,0 +1,140 @@
+package com.payfort.start;
+
+import android.app.Activity;
+
+import com.payfort.start.error.StartApiException;
+import com.payfort.start.support.DirectExecutor;
+import com.payfort.start.support.FixedClock;
+import com.payfort.start.support.RecordingTokenCallback;
+import com.payfort.start.web.LocalServers;
+import com.payfort.start.web.RetryPolicy;
+import com.payfort.start.web.StartApiFactoryAccess;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static com.payfort.start.StartApiTest.TEST_OPEN_KEY;
+import static com.payfort.start.support.TestResponses.TOKEN_RESPONSE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test for {@link TokenFuture} class.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class TokenFutureTest {
+
+    private static final ExpiryCutoff EXPIRY_CUTOFF = new ExpiryCutoff(FixedClock.of(2017, 6, 15));
+
+    private MockWebServer server;
+    private ExecutorService callbackExecutor;
+    private Start start;
+    private Activity activity;
+
+    @Before
+    public void setUp() throws Exception {
+        server = LocalServers.newServer();
+        server.start();
+        callbackExecutor = Executors.newSingleThreadExecutor();
+        start = new Start.Builder(TEST_OPEN_KEY)
+                .callbackExecutor(callbackExecutor)
+                .retryPolicy(RetryPolicy.fixed(1, 0))
+                .build(StartApiFactoryAccess.newStartApi(TEST_OPEN_KEY, server.url("/")));
+        activity = Robolectric.setupActivity(TestActivity.class);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        callbackExecutor.shutdown();
+        server.shutdown();
+    }
+
+    @Test
+    public void testTokenCreationOverlapsOtherWork() throws Exception {
+        server.enqueue(new MockResponse().setBody(TOKEN_RESPONSE).setHeadersDelay(300, TimeUnit.MILLISECONDS));
+        long startNanos = System.nanoTime();
+
+        TokenFuture token = start.createTokenFuture(activity, newCard(), 100, "USD");
+        Thread.sleep(300); // app's own request, e.g. creation of order
+        assertEquals("tok_1", token.get(5, TimeUnit.SECONDS).getId());
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        assertTrue("Elapsed " + elapsedMillis + " ms", elapsedMillis < 600);
+        assertTrue(token.isDone());
+        assertFalse(token.isCancelled());
+    }
+
+    @Test
+    public void testErrorIsWrapped() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(400).setBody("{\"error\":\"card_declined\"}"));
+
+        TokenFuture token = start.createTokenFuture(activity, newCard(), 100, "USD");
+        try {
+            token.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof StartApiException);
+        }
+    }
+
+    @Test
+    public void testCallbacksAddedBeforeAndAfterCompletion() throws Exception {
+        server.enqueue(new MockResponse().setBody(TOKEN_RESPONSE));
+        TokenFuture token = start.createTokenFuture(activity, newCard(), 100, "USD");
+        RecordingTokenCallback before = new RecordingTokenCallback();
+        token.addCallback(before);
+        assertEquals("tok_1", before.await().getId());
+
+        RecordingTokenCallback after = new RecordingTokenCallback();
+        token.addCallback(after);
+        assertSame(before.await(), after.await());
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        TokenFuture token = new TokenFuture(DirectExecutor.INSTANCE);
+        RecordingTokenCallback callback = new RecordingTokenCallback();
+        token.addCallback(callback);
+
+        assertTrue(token.cancel(true));
+        assertFalse(token.cancel(true));
+        assertTrue(token.isCancelled());
+        assertTrue(token.isDone());
+        assertEquals(1, callback.getCancels());
+        // late result is ignored
+        token.completer().onSuccess(new Token());
+        try {
+            token.get();
+            fail();
+        } catch (CancellationException expected) {
+        }
+    }
+
+    @Test(expected = TimeoutException.class)
+    public void testGetTimeout() throws Exception {
+        new TokenFuture(DirectExecutor.INSTANCE).get(10, TimeUnit.MILLISECONDS);
+    }
+
+    private static Card newCard() throws Exception {
+        return new Card("4111111111111111", "123", 11, 2019, "John Doe", EXPIRY_CUTOFF);
+    }
+}
@@ -0,0 +1,284 @@
+package com.payfort.start;
+
+import android.app.Activity;
+import android.app.Dialog;
+
+import com.payfort.start.support.DirectExecutor;
+import com.payfort.start.support.FixedClock;
+import com.payfort.start.support.RecordingTokenCallback;
+import com.payfort.start.web.ExecutorRetryScheduler;
+import com.payfort.start.web.LocalServers;
+import com.payfort.start.web.RetryPolicy;
+import com.payfort.start.web.StartApiFactoryAccess;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowDialog;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+
+import static com.payfort.start.StartApiTest.TEST_OPEN_KEY;
+import static com.payfort.start.support.TestResponses.TOKEN_RESPONSE;
+import static com.payfort.start.support.TestResponses.VERIFICATION_REQUIRED_RESPONSE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for cancellation of token requests by {@link TokenRequestHandle}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class TokenRequestHandleTest {
+
+    private static final ExpiryCutoff EXPIRY_CUTOFF = new ExpiryCutoff(FixedClock.of(2017, 6, 15));
+    private static final long WAIT_MS = TimeUnit.SECONDS.toMillis(5);
+    private static final int CYCLES = 2000;
+
+    private MockWebServer server;
+    private ScheduledThreadPoolExecutor retryExecutor;
+    private Activity activity;
+
+    @Before
+    public void setUp() throws Exception {
+        server = LocalServers.newServer();
+        server.start();
+        retryExecutor = new ScheduledThreadPoolExecutor(1);
+        retryExecutor.setRemoveOnCancelPolicy(true);
+        activity = Robolectric.setupActivity(TestActivity.class);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        retryExecutor.shutdownNow();
+        server.shutdown();
+    }
+
+    @Test
+    public void testCancelAbortsCallInFlight() throws Exception {
+        server.enqueue(new MockResponse().setBody(TOKEN_RESPONSE).setHeadersDelay(3, TimeUnit.SECONDS));
+        RecordingTokenCallback callback = new RecordingTokenCallback();
+
+        TokenRequestHandle handle = newStart(RetryPolicy.fixed(3, 0)).createToken(activity, newCard(), callback, 100, "USD");
+        server.takeRequest();
+        handle.cancel();
+
+        assertTrue(handle.isCanceled());
+        assertEquals(1, callback.getCancels());
+        awaitIdleDispatcher();
+        Thread.sleep(100);
+        assertEquals(0, callback.getResults());
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void testCancelAbortsTakenSpeculationInFlight() throws Exception {
+        server.enqueue(new MockResponse().setBody(TOKEN_RESPONSE).setHeadersDelay(3, TimeUnit.SECONDS));
+        Start start = new Start.Builder(TEST_OPEN_KEY)
+                .callbackExecutor(DirectExecutor.INSTANCE)
+                .retryScheduler(new ExecutorRetryScheduler(retryExecutor))
+                .retryPolicy(RetryPolicy.fixed(3, 0))
+                .speculativeTokenization(10, TimeUnit.MILLISECONDS)
+                .build(StartApiFactoryAccess.newStartApi(TEST_OPEN_KEY, server.url("/")));
+        start.onCardChanged(newCard());
+        server.takeRequest();
+        RecordingTokenCallback callback = new RecordingTokenCallback();
+
+        TokenRequestHandle handle = start.createToken(activity, newCard(), callback, 100, "USD");
+        long canceledAt = System.nanoTime();
+        handle.cancel();
+
+        awaitIdleDispatcher();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - canceledAt);
+        assertTrue("Elapsed " + elapsedMillis + " ms", elapsedMillis < 2000);
+        awaitRetryQueueSize(0);
+        assertEquals(1, callback.getCancels());
+        assertEquals(0, callback.getResults());
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void testCancelRemovesScheduledRetry() throws Exception {
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START));
+        RecordingTokenCallback callback = new RecordingTokenCallback();
+
+        TokenRequestHandle handle = newStart(RetryPolicy.fixed(3, WAIT_MS)).createToken(activity, newCard(), callback, 100, "USD");
+        awaitRetryQueueSize(1);
+        handle.cancel();
+
+        awaitRetryQueueSize(0);
+        assertEquals(1, callback.getCancels());
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void testCancelOfJoinedCallKeepsSharedRequest() throws Exception {
+        server.enqueue(new MockResponse().setBody(TOKEN_RESPONSE).setHeadersDelay(300, TimeUnit.MILLISECONDS));
+        Start start = newStart(RetryPolicy.fixed(1, 0));
+        RecordingTokenCallback first = new RecordingTokenCallback();
+        RecordingTokenCallback second = new RecordingTokenCallback();
+
+        TokenRequestHandle handle = start.createToken(activity, newCard(), first, 100, "USD");
+        start.createToken(activity, newCard(), second, 100, "USD");
+        handle.cancel();
+
+        assertEquals("tok_1", second.await().getId());
+        assertEquals(1, first.getCancels());
+        assertEquals(0, first.getResults());
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void testCancelAfterResultDoesNothing() throws Exception {
+        server.enqueue(new MockResponse().setBody(TOKEN_RESPONSE));
+        RecordingTokenCallback callback = new RecordingTokenCallback();
+
+        TokenRequestHandle handle = newStart(RetryPolicy.fixed(1, 0)).createToken(activity, newCard(), callback, 100, "USD");
+        assertEquals("tok_1", callback.await().getId());
+        handle.cancel();
+
+        assertFalse(handle.isCanceled());
+        assertEquals(0, callback.getCancels());
+    }
+
+    @Test
+    public void testFutureCancelAbortsRequest() throws Exception {
+        server.enqueue(new MockResponse().setBody(TOKEN_RESPONSE).setHeadersDelay(3, TimeUnit.SECONDS));
+
+        TokenFuture token = newStart(RetryPolicy.fixed(3, 0)).createTokenFuture(activity, newCard(), 100, "USD");
+        server.takeRequest();
+        assertTrue(token.cancel(true));
+
+        awaitIdleDispatcher();
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void testCancelDismissesVerificationDialogAndStopsPolling() throws Exception {
+        server.enqueue(new MockResponse().setBody(VERIFICATION_REQUIRED_RESPONSE));
+        server.enqueue(new MockResponse().setBody("{\"id\":\"ver_1\",\"enrolled\":true,\"finalized\":false}"));
+        server.enqueue(new MockResponse().setBody("{\"id\":\"ver_1\",\"enrolled\":true,\"finalized\":false}"));
+        RecordingTokenCallback callback = new RecordingTokenCallback();
+
+        TokenRequestHandle handle = newStart(RetryPolicy.fixed(1, 0)).createToken(activity, newCard(), callback, 100, "USD");
+        Dialog dialog = awaitVerificationDialog();
+        // the first poll is answered, the next one is scheduled
+        awaitRetryQueueSize(1);
+        handle.cancel();
+        ShadowLooper.idleMainLooper();
+
+        assertFalse(dialog.isShowing());
+        assertEquals(1, callback.getCancels());
+        awaitRetryQueueSize(0);
+        awaitIdleDispatcher();
+        assertEquals(3, server.getRequestCount());
+        assertEquals(0, callback.getResults());
+    }
+
+    /**
+     * Starts and cancels requests both in flight and waiting for retry. Nothing may be left running or scheduled.
+     */
+    @Test
+    public void testStartCancelCyclesLeaveNothingBehind() throws Exception {
+        server.setDispatcher(new okhttp3.mockwebserver.Dispatcher() {
+
+            @Override
+            public MockResponse dispatch(okhttp3.mockwebserver.RecordedRequest request) {
+                return new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START);
+            }
+        });
+        Start start = newStart(RetryPolicy.fixed(Integer.MAX_VALUE, TimeUnit.MINUTES.toMillis(1)));
+        List<RecordingTokenCallback> callbacks = new ArrayList<>(CYCLES);
+
+        for (int i = 0; i < CYCLES; i++) {
+            RecordingTokenCallback callback = new RecordingTokenCallback();
+            callbacks.add(callback);
+            // amounts differ, so requests aren't coalesced
+            TokenRequestHandle handle = start.createToken(activity, newCard(), callback, i + 1, "USD");
+            if (i % 2 == 1) {
+                awaitRetryQueueSize(1);
+            }
+            handle.cancel();
+        }
+
+        awaitIdleDispatcher();
+        awaitRetryQueueSize(0);
+        assertEquals(0, retryExecutor.getActiveCount());
+        ThreadPoolExecutor okHttpExecutor = (ThreadPoolExecutor) dispatcher().executorService();
+        assertEquals(0, okHttpExecutor.getActiveCount());
+        // late failures of aborted calls are dropped
+        Thread.sleep(200);
+        assertEquals(0, retryExecutor.getQueue().size());
+        for (RecordingTokenCallback callback : callbacks) {
+            assertEquals(1, callback.getCancels());
+            assertEquals(0, callback.getResults());
+        }
+    }
+
+    private Start newStart(RetryPolicy retryPolicy) {
+        return new Start.Builder(TEST_OPEN_KEY)
+                .callbackExecutor(DirectExecutor.INSTANCE)
+                .retryScheduler(new ExecutorRetryScheduler(retryExecutor))
+                .retryPolicy(retryPolicy)
+                .build(StartApiFactoryAccess.newStartApi(TEST_OPEN_KEY, server.url("/")));
+    }
+
+    /**
+     * Retry is scheduled and, if request is canceled meanwhile, unscheduled on thread which received failure.
+     */
+    private void awaitRetryQueueSize(int size) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + WAIT_MS;
+        while (retryExecutor.getQueue().size() != size && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(size, retryExecutor.getQueue().size());
+    }
+
+    /**
+     * Dialog is posted to main looper by thread which received verification.
+     */
+    private static Dialog awaitVerificationDialog() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + WAIT_MS;
+        while (ShadowDialog.getLatestDialog() == null && System.currentTimeMillis() < deadline) {
+            ShadowLooper.idleMainLooper();
+            Thread.sleep(5);
+        }
+        Dialog dialog = ShadowDialog.getLatestDialog();
+        assertNotNull(dialog);
+        assertTrue(dialog.isShowing());
+        return dialog;
+    }
+
+    private static void awaitIdleDispatcher() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + WAIT_MS;
+        while (dispatcher().runningCallsCount() + dispatcher().queuedCallsCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(0, dispatcher().runningCallsCount());
+        assertEquals(0, dispatcher().queuedCallsCount());
+    }
+
+    private static Dispatcher dispatcher() {
+        return StartApiFactoryAccess.sharedClient().dispatcher();
+    }
+
+    private static Card newCard() throws Exception {
+        return new Card("4111111111111111", "123", 11, 2019, "John Doe", EXPIRY_CUTOFF);
+    }
+}
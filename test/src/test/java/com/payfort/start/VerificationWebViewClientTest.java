@@ -0,0 +1,76 @@
+package com.payfort.start;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Test for {@link VerificationWebViewClient} class.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class VerificationWebViewClientTest {
+
+    private static final String VERIFICATION_URL = "https://api.start.payfort.com/tokens/tok_1/verification";
+    private static final String ACS_URL = "https://acs.bank.com/pareq";
+    private static final String RETURN_URL = VERIFICATION_URL + "/complete";
+
+    private final List<String> returns = new ArrayList<>();
+    private VerificationWebViewClient client;
+
+    @Before
+    public void setUp() {
+        client = new VerificationWebViewClient(VERIFICATION_URL, new VerificationWebViewClient.Listener() {
+
+            @Override
+            public void onVerificationReturned(String url) {
+                returns.add(url);
+            }
+        });
+    }
+
+    @Test
+    public void testVerificationPageIsNotReturn() throws Exception {
+        client.onPageStarted(null, VERIFICATION_URL + "/verify", null);
+        client.onPageFinished(null, VERIFICATION_URL + "/verify");
+        assertEquals(emptyList(), returns);
+    }
+
+    @Test
+    public void testReturnFromBankIsDetectedOnce() throws Exception {
+        client.onPageStarted(null, VERIFICATION_URL + "/verify", null);
+        client.onPageStarted(null, ACS_URL, null);
+        client.onPageFinished(null, ACS_URL);
+        assertEquals(emptyList(), returns);
+
+        assertFalse(client.shouldOverrideUrlLoading(null, RETURN_URL));
+        client.onPageStarted(null, RETURN_URL, null);
+        client.onPageFinished(null, RETURN_URL);
+        assertEquals(asList(RETURN_URL), returns);
+    }
+
+    @Test
+    public void testReturnIsDetectedOnPageStart() throws Exception {
+        // bank's form posts back to API, so shouldOverrideUrlLoading isn't called
+        client.onPageStarted(null, ACS_URL, null);
+        client.onPageStarted(null, RETURN_URL, null);
+        assertEquals(asList(RETURN_URL), returns);
+    }
+
+    @Test
+    public void testOtherTokenIsNotReturn() throws Exception {
+        client.onPageStarted(null, ACS_URL, null);
+        client.onPageStarted(null, "https://api.start.payfort.com/tokens/tok_2/verification/complete", null);
+        assertEquals(emptyList(), returns);
+    }
+}
@@ -0,0 +1,126 @@
+package com.payfort.start.bin;
+
+import com.payfort.start.Card;
+import com.payfort.start.PackedCard;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+
+import static com.payfort.start.bin.BinInfo.CardType.CREDIT;
+import static com.payfort.start.bin.BinInfo.CardType.DEBIT;
+import static com.payfort.start.bin.BinInfo.CardType.PREPAID;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Test for {@link BinDatabase} class.
+ */
+public class BinDatabaseTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = temporaryFolder.newFile("bins.dat");
+        new BinTableWriter()
+                .add("411111", "Test Bank", "US", CREDIT, Card.Brand.VISA)
+                .add("41111155", "Test Bank Prepaid", "US", PREPAID, Card.Brand.VISA)
+                .add("446404", "Riyad Bank", "SA", DEBIT, Card.Brand.MADA)
+                .add("555555", "Test Bank", "GB", DEBIT, Card.Brand.MASTER_CARD)
+                .writeTo(file);
+    }
+
+    @Test
+    public void testLookup() throws Exception {
+        BinDatabase database = BinDatabase.open(file);
+
+        BinInfo info = database.lookup("4464 0400 0000 0007");
+        assertEquals("Riyad Bank", info.getIssuer());
+        assertEquals("SA", info.getCountry());
+        assertEquals(DEBIT, info.getCardType());
+        assertEquals(Card.Brand.MADA, info.getBrand());
+
+        assertEquals("GB", database.lookup("555555").getCountry());
+        assertNull(database.lookup("5555"));
+        assertNull(database.lookup("4000000000000002"));
+        assertNull(database.lookup("9999999999999995"));
+    }
+
+    @Test
+    public void testEightDigitBinWins() throws Exception {
+        BinDatabase database = BinDatabase.open(file);
+
+        assertEquals(CREDIT, database.lookup("4111110000000000").getCardType());
+        assertEquals(PREPAID, database.lookup("4111115500000000").getCardType());
+        assertEquals(CREDIT, database.lookup("4111115600000000").getCardType());
+        assertEquals(CREDIT, database.lookup("4111119900000000").getCardType());
+        assertEquals(41111156, database.lookup(41111199).getLow());
+        assertEquals(PREPAID, database.lookup(new PackedCard("4111 1155 0000 0009", "123", 12, 2099, "John Doe")).getCardType());
+        assertEquals(5, database.size());
+    }
+
+    @Test
+    public void testLoadFromStream() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        new BinTableWriter().add("123456", "Stream Bank", "AE", CREDIT, Card.Brand.UNKNOWN).writeTo(outputStream);
+
+        BinDatabase database = BinDatabase.load(new ByteArrayInputStream(outputStream.toByteArray()));
+        assertEquals("Stream Bank", database.lookup(12345678).getIssuer());
+    }
+
+    @Test
+    public void testSwap() throws Exception {
+        BinDatabase database = BinDatabase.open(file);
+        File newFile = temporaryFolder.newFile("bins-new.dat");
+        new BinTableWriter().add("411111", "New Bank", "AE", DEBIT, Card.Brand.VISA).writeTo(newFile);
+
+        database.swap(newFile);
+
+        assertEquals("New Bank", database.lookup("4111111111111111").getIssuer());
+        assertNull(database.lookup("5555555555554444"));
+    }
+
+    @Test
+    public void testCodesAreStored() throws Exception {
+        byte[] table = writeTable(PREPAID, Card.Brand.MADA);
+
+        assertEquals(3, table[BinTable.HEADER_SIZE + 14]);
+        assertEquals(8, table[BinTable.HEADER_SIZE + 15]);
+    }
+
+    @Test
+    public void testUnknownCodesAreReadAsUnknown() throws Exception {
+        byte[] table = writeTable(CREDIT, Card.Brand.VISA);
+        // codes which may be written by newer SDK
+        table[BinTable.HEADER_SIZE + 14] = 42;
+        table[BinTable.HEADER_SIZE + 15] = (byte) 0xFF;
+
+        BinInfo info = BinDatabase.load(new ByteArrayInputStream(table)).lookup("4111111111111111");
+        assertEquals("Code Bank", info.getIssuer());
+        assertEquals(BinInfo.CardType.UNKNOWN, info.getCardType());
+        assertEquals(Card.Brand.UNKNOWN, info.getBrand());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOverlappingRanges() throws Exception {
+        new BinTableWriter()
+                .add("411111", "Test Bank", "US", CREDIT, Card.Brand.VISA)
+                .add("411111", "Other Bank", "US", CREDIT, Card.Brand.VISA)
+                .writeTo(new ByteArrayOutputStream());
+    }
+
+    private static byte[] writeTable(BinInfo.CardType cardType, Card.Brand brand) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        new BinTableWriter().add("411111", "Code Bank", "US", cardType, brand).writeTo(outputStream);
+        return outputStream.toByteArray();
+    }
+}
@@ -0,0 +1,122 @@
+package com.payfort.start.bulk;
+
+import com.payfort.start.Card;
+import com.payfort.start.CardValidator;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Test for {@link BulkCardValidator} class.
+ */
+public class BulkCardValidatorTest {
+
+    private static final String ROWS = "4111 1111 1111 1111,123,12,2099,John Doe\n" +
+            "4111111111111112,123,12,2099,John Doe\r\n" +
+            "5555555555554444,12,13,2099,\n" +
+            "\n" +
+            "378282246310005,1234,1,2000,Jane Doe";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testValidateStream() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        BulkValidationReport report = new BulkCardValidator(new ForkJoinPool(2), 64)
+                .validate(new ByteArrayInputStream(ROWS.getBytes("US-ASCII")), listener);
+
+        assertReport(report, 4, 3);
+        assertEquals(1, report.getInvalidCount(Card.Field.CVC));
+        assertEquals(1, report.getInvalidCount(Card.Field.EXPIRATION_YEAR));
+        assertEquals(CardValidator.maskOf(Card.Field.NUMBER), (int) listener.invalidRows.get(41L));
+        assertEquals(mask(Card.Field.CVC, Card.Field.EXPIRATION_MONTH, Card.Field.OWNER), (int) listener.invalidRows.get(80L));
+        assertEquals(CardValidator.maskOf(Card.Field.EXPIRATION_YEAR), (int) listener.invalidRows.get(110L));
+    }
+
+    @Test
+    public void testValidateFile() throws Exception {
+        File file = temporaryFolder.newFile("cards.csv");
+        OutputStream outputStream = new FileOutputStream(file);
+        try {
+            outputStream.write(ROWS.getBytes("US-ASCII"));
+        } finally {
+            outputStream.close();
+        }
+
+        RecordingListener listener = new RecordingListener();
+        BulkValidationReport report = new BulkCardValidator(new ForkJoinPool(2), 64).validate(file, listener);
+
+        assertReport(report, 4, 3);
+        assertEquals(3, listener.invalidRows.size());
+    }
+
+    @Test
+    public void testLargeInputIsSplitBetweenTasks() throws Exception {
+        StringBuilder rows = new StringBuilder();
+        for (int i = 0; i < 50000; i++) {
+            rows.append(i % 10 == 0 ? "4111111111111112" : "4111111111111111").append(",123,12,2099,John Doe\n");
+        }
+        BulkValidationReport report = new BulkCardValidator(new ForkJoinPool(4), 1024 * 1024)
+                .validate(new ByteArrayInputStream(rows.toString().getBytes("US-ASCII")), null);
+
+        assertReport(report, 50000, 5000);
+        assertEquals(5000, report.getInvalidCount(Card.Field.NUMBER));
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void testCloseShutsDownOwnPool() throws Exception {
+        BulkCardValidator validator = new BulkCardValidator();
+        validator.close();
+
+        validator.validate(new ByteArrayInputStream(ROWS.getBytes("US-ASCII")), null);
+    }
+
+    @Test
+    public void testCloseLeavesGivenPoolRunning() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        BulkCardValidator validator = new BulkCardValidator(pool, 64);
+        validator.close();
+
+        assertFalse(pool.isShutdown());
+        assertReport(validator.validate(new ByteArrayInputStream(ROWS.getBytes("US-ASCII")), null), 4, 3);
+        pool.shutdown();
+    }
+
+    private void assertReport(BulkValidationReport report, long rows, long invalidRows) {
+        assertEquals(rows, report.getRows());
+        assertEquals(invalidRows, report.getInvalidRows());
+        assertEquals(rows - invalidRows, report.getValidRows());
+    }
+
+    private static int mask(Card.Field... fields) {
+        int mask = 0;
+        for (Card.Field field : fields) {
+            mask |= CardValidator.maskOf(field);
+        }
+        return mask;
+    }
+
+    private static final class RecordingListener implements BulkCardValidator.InvalidRowListener {
+
+        private final Map<Long, Integer> invalidRows = new ConcurrentHashMap<>();
+
+        @Override
+        public void onInvalidRow(long offset, int invalidFields) {
+            invalidRows.put(offset, invalidFields);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.payfort.start.rx;
+
+import android.app.Activity;
+
+import com.payfort.start.test.BuildConfig;
+import com.payfort.start.Card;
+import com.payfort.start.ExpiryCutoff;
+import com.payfort.start.Start;
+import com.payfort.start.StartAccess;
+import com.payfort.start.TestActivity;
+import com.payfort.start.Token;
+import com.payfort.start.support.FixedClock;
+import com.payfort.start.web.LocalServers;
+import com.payfort.start.web.RetryPolicy;
+import com.payfort.start.web.StartApiFactoryAccess;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.observers.TestObserver;
+import io.reactivex.subscribers.TestSubscriber;
+import okhttp3.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static com.payfort.start.support.TestResponses.TOKEN_RESPONSE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for {@link RxStart} class.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class RxStartTest {
+
+    private static final String API_KEY = "test_open_k_1";
+    private static final ExpiryCutoff EXPIRY_CUTOFF = new ExpiryCutoff(FixedClock.of(2017, 6, 15));
+    private static final long WAIT_MS = TimeUnit.SECONDS.toMillis(10);
+    private static final int BATCH_SIZE = 64;
+
+    private MockWebServer server;
+    private ExecutorService callbackExecutor;
+    private Start start;
+    private Activity activity;
+
+    @Before
+    public void setUp() throws Exception {
+        server = LocalServers.newServer();
+        server.start();
+        // results of batch are delivered concurrently and out of order
+        callbackExecutor = Executors.newFixedThreadPool(8);
+        Start.Builder builder = new Start.Builder(API_KEY)
+                .callbackExecutor(new JitteringExecutor(callbackExecutor))
+                .retryPolicy(RetryPolicy.fixed(1, 0));
+        start = StartAccess.build(builder, StartApiFactoryAccess.newStartApi(API_KEY, server.url("/")));
+        activity = Robolectric.setupActivity(TestActivity.class);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        callbackExecutor.shutdown();
+        server.shutdown();
+    }
+
+    @Test
+    public void testSingleEmitsToken() throws Exception {
+        server.enqueue(new MockResponse().setBody(TOKEN_RESPONSE));
+
+        TestObserver<Token> observer = RxStart.createToken(start, activity, newCard(), 100, "USD").test();
+
+        assertTrue(observer.awaitTerminalEvent(WAIT_MS, TimeUnit.MILLISECONDS));
+        observer.assertValueCount(1);
+        assertEquals("tok_1", observer.values().get(0).getId());
+    }
+
+    @Test
+    public void testSingleDisposalCancelsRequest() throws Exception {
+        server.enqueue(new MockResponse().setBody(TOKEN_RESPONSE).setHeadersDelay(3, TimeUnit.SECONDS));
+
+        TestObserver<Token> observer = RxStart.createToken(start, activity, newCard(), 100, "USD").test();
+        server.takeRequest();
+        observer.dispose();
+
+        // canceled call ends long before server answers
+        awaitIdleDispatcher(TimeUnit.SECONDS.toMillis(1));
+        observer.assertNoValues();
+        observer.assertNoErrors();
+        observer.assertNotComplete();
+    }
+
+    @Test
+    public void testFlowableEmitsEveryCardBeforeCompletion() throws Exception {
+        server.setDispatcher(new okhttp3.mockwebserver.Dispatcher() {
+
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse().setBody(TOKEN_RESPONSE);
+            }
+        });
+        List<Card> cards = newCards(BATCH_SIZE);
+
+        // completion raced with the last items, so it is checked on many batches
+        for (int i = 0; i < 20; i++) {
+            TestSubscriber<TokenBatchItem> subscriber = RxStart.createTokens(start, cards, 16).test();
+
+            assertTrue(subscriber.awaitTerminalEvent(WAIT_MS, TimeUnit.MILLISECONDS));
+            subscriber.assertComplete();
+            subscriber.assertValueCount(BATCH_SIZE);
+            BitSet indexes = new BitSet(BATCH_SIZE);
+            for (TokenBatchItem item : subscriber.values()) {
+                assertEquals("tok_1", item.getToken().getId());
+                indexes.set(item.getIndex());
+            }
+            assertEquals(BATCH_SIZE, indexes.cardinality());
+        }
+    }
+
+    @Test
+    public void testFlowableCancellationStopsBatch() throws Exception {
+        server.setDispatcher(new okhttp3.mockwebserver.Dispatcher() {
+
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse().setBody(TOKEN_RESPONSE).setHeadersDelay(100, TimeUnit.MILLISECONDS);
+            }
+        });
+
+        TestSubscriber<TokenBatchItem> subscriber = RxStart.createTokens(start, newCards(BATCH_SIZE), 1).test();
+        server.takeRequest();
+        subscriber.cancel();
+
+        awaitIdleDispatcher(WAIT_MS);
+        Thread.sleep(300);
+        assertEquals(1, server.getRequestCount());
+        subscriber.assertNotComplete();
+        assertTrue(subscriber.values().size() <= 1);
+    }
+
+    /**
+     * Runs tasks with another executor after random delay, so task executed later may finish first.
+     */
+    private static final class JitteringExecutor implements Executor {
+
+        private final Executor executor;
+        private final Random random = new Random();
+
+        private JitteringExecutor(Executor executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public void execute(final Runnable task) {
+            final int delayMillis = random.nextInt(3);
+            executor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        Thread.sleep(delayMillis);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    task.run();
+                }
+            });
+        }
+    }
+
+    private static void awaitIdleDispatcher(long timeoutMillis) throws InterruptedException {
+        Dispatcher dispatcher = StartApiFactoryAccess.sharedClient().dispatcher();
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (dispatcher.runningCallsCount() + dispatcher.queuedCallsCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(0, dispatcher.runningCallsCount());
+        assertEquals(0, dispatcher.queuedCallsCount());
+    }
+
+    private static List<Card> newCards(int count) throws Exception {
+        List<Card> cards = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            cards.add(newCard());
+        }
+        return cards;
+    }
+
+    private static Card newCard() throws Exception {
+        return new Card("4111111111111111", "123", 11, 2019, "John Doe", EXPIRY_CUTOFF);
+    }
+}
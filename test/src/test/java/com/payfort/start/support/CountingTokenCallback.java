@@ -0,0 +1,41 @@
+package com.payfort.start.support;
+
+import com.payfort.start.Token;
+import com.payfort.start.TokenCallback;
+import com.payfort.start.error.StartApiException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link TokenCallback} of one of many concurrent requests. Every call counts down shared latch, successes with
+ * {@code tok_1} are counted by shared counter.
+ */
+public final class CountingTokenCallback implements TokenCallback {
+
+    private final AtomicInteger successes;
+    private final CountDownLatch results;
+
+    public CountingTokenCallback(AtomicInteger successes, CountDownLatch results) {
+        this.successes = successes;
+        this.results = results;
+    }
+
+    @Override
+    public void onSuccess(Token token) {
+        if ("tok_1".equals(token.getId())) {
+            successes.incrementAndGet();
+        }
+        results.countDown();
+    }
+
+    @Override
+    public void onError(StartApiException error) {
+        results.countDown();
+    }
+
+    @Override
+    public void onCancel() {
+        results.countDown();
+    }
+}
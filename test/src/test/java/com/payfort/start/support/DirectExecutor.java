@@ -0,0 +1,16 @@
+package com.payfort.start.support;
+
+import java.util.concurrent.Executor;
+
+/**
+ * {@link Executor} that runs commands on calling thread.
+ */
+public enum DirectExecutor implements Executor {
+
+    INSTANCE;
+
+    @Override
+    public void execute(Runnable command) {
+        command.run();
+    }
+}
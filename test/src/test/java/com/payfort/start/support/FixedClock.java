@@ -0,0 +1,45 @@
+package com.payfort.start.support;
+
+import com.payfort.start.util.Clock;
+
+import java.util.Calendar;
+
+/**
+ * {@link Clock} which time is set by test.
+ */
+public final class FixedClock implements Clock {
+
+    private volatile long currentTimeMillis;
+
+    public FixedClock(long currentTimeMillis) {
+        this.currentTimeMillis = currentTimeMillis;
+    }
+
+    /**
+     * Creates clock pointing to the given local date.
+     *
+     * @param year  a year
+     * @param month a month, {@code 1} for January
+     * @param day   a day of month
+     * @return a clock
+     */
+    public static FixedClock of(int year, int month, int day) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(year, month - 1, day);
+        return new FixedClock(calendar.getTimeInMillis());
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return currentTimeMillis;
+    }
+
+    public void setCurrentTimeMillis(long currentTimeMillis) {
+        this.currentTimeMillis = currentTimeMillis;
+    }
+
+    public void advance(long millis) {
+        currentTimeMillis += millis;
+    }
+}
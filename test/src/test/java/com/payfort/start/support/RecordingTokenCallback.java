@@ -0,0 +1,87 @@
+package com.payfort.start.support;
+
+import com.payfort.start.Token;
+import com.payfort.start.TokenCallback;
+import com.payfort.start.error.StartApiException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link TokenCallback} that records what it receives and waits for the first call.
+ */
+public final class RecordingTokenCallback implements TokenCallback {
+
+    private static final long WAIT_SECONDS = 10;
+
+    private final CountDownLatch latch = new CountDownLatch(1);
+    private final AtomicReference<Token> token = new AtomicReference<>();
+    private final AtomicReference<StartApiException> error = new AtomicReference<>();
+    private final AtomicReference<Thread> resultThread = new AtomicReference<>();
+    private final AtomicInteger results = new AtomicInteger();
+    private final AtomicInteger cancels = new AtomicInteger();
+
+    @Override
+    public void onSuccess(Token token) {
+        this.token.set(token);
+        onResult();
+    }
+
+    @Override
+    public void onError(StartApiException error) {
+        this.error.set(error);
+        onResult();
+    }
+
+    @Override
+    public void onCancel() {
+        cancels.incrementAndGet();
+        latch.countDown();
+    }
+
+    /**
+     * Waits for the first call and fails if there is none.
+     *
+     * @return received token or {@code null} if request failed or was cancelled
+     */
+    public Token await() throws InterruptedException {
+        assertTrue("Callback isn't called", latch.await(WAIT_SECONDS, TimeUnit.SECONDS));
+        return token.get();
+    }
+
+    public Token getToken() {
+        return token.get();
+    }
+
+    public StartApiException getError() {
+        return error.get();
+    }
+
+    /**
+     * Returns thread which delivered the last success or error.
+     */
+    public Thread getResultThread() {
+        return resultThread.get();
+    }
+
+    /**
+     * Returns number of successes and errors.
+     */
+    public int getResults() {
+        return results.get();
+    }
+
+    public int getCancels() {
+        return cancels.get();
+    }
+
+    private void onResult() {
+        resultThread.set(Thread.currentThread());
+        results.incrementAndGet();
+        latch.countDown();
+    }
+}
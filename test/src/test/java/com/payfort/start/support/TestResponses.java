@@ -0,0 +1,20 @@
+package com.payfort.start.support;
+
+/**
+ * Bodies of API responses shared by tests.
+ */
+public final class TestResponses {
+
+    /**
+     * Token {@code tok_1} which doesn't require verification.
+     */
+    public static final String TOKEN_RESPONSE = "{\"id\":\"tok_1\",\"verification_required\":false}";
+
+    /**
+     * Token {@code tok_1} which requires verification.
+     */
+    public static final String VERIFICATION_REQUIRED_RESPONSE = "{\"id\":\"tok_1\",\"verification_required\":true}";
+
+    private TestResponses() {
+    }
+}
@@ -0,0 +1,71 @@
+package com.payfort.start.support;
+
+import com.payfort.start.web.RetryScheduler;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RetryScheduler} which runs tasks in virtual time. Test runs scheduled tasks one by one and clock is advanced
+ * by their delays, so timing of retries is verified without waiting.
+ */
+public final class VirtualScheduler implements RetryScheduler {
+
+    private final BlockingQueue<ScheduledTask> tasks = new LinkedBlockingQueue<>();
+    private final FixedClock clock;
+
+    public VirtualScheduler(FixedClock clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public Task schedule(Runnable task, long delayMillis) {
+        final ScheduledTask scheduledTask = new ScheduledTask(task, delayMillis);
+        tasks.add(scheduledTask);
+        return new Task() {
+
+            @Override
+            public void cancel() {
+                tasks.remove(scheduledTask);
+            }
+        };
+    }
+
+    /**
+     * Waits for the next scheduled task, advances clock by its delay and runs it.
+     *
+     * @param timeoutMillis a max time to wait for task in real time
+     * @return a delay of task or {@code -1} if no task was scheduled in time
+     * @throws InterruptedException if thread is interrupted
+     */
+    public long runNext(long timeoutMillis) throws InterruptedException {
+        ScheduledTask task = tasks.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+        if (task == null) {
+            return -1;
+        }
+        clock.advance(task.delayMillis);
+        task.runnable.run();
+        return task.delayMillis;
+    }
+
+    /**
+     * Returns count of tasks scheduled and not canceled yet.
+     *
+     * @return a count of pending tasks
+     */
+    public int pendingCount() {
+        return tasks.size();
+    }
+
+    private static final class ScheduledTask {
+
+        private final Runnable runnable;
+        private final long delayMillis;
+
+        private ScheduledTask(Runnable runnable, long delayMillis) {
+            this.runnable = runnable;
+            this.delayMillis = delayMillis;
+        }
+    }
+}
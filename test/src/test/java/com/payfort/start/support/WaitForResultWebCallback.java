@@ -1,6 +1,7 @@
 package com.payfort.start.support;
 
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import retrofit2.Call;
 import retrofit2.Callback;
@@ -22,7 +23,11 @@ public final class WaitForResultWebCallback<T> implements Callback<T> {
     }
 
     public boolean waitForResult(long timeoutInSeconds) throws InterruptedException {
-        return countDownLatch.await(timeoutInSeconds, SECONDS);
+        return waitForResult(timeoutInSeconds, SECONDS);
+    }
+
+    public boolean waitForResult(long timeout, TimeUnit unit) throws InterruptedException {
+        return countDownLatch.await(timeout, unit);
     }
 
     @Override
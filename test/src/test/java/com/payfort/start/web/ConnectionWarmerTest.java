@@ -0,0 +1,103 @@
+package com.payfort.start.web;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.payfort.start.support.FixedClock;
+import com.payfort.start.test.BuildConfig;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static com.payfort.start.support.TestResponses.TOKEN_RESPONSE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for {@link ConnectionWarmer} class.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class ConnectionWarmerTest {
+
+    private static final long WINDOW_MS = TimeUnit.MINUTES.toMillis(2);
+
+    private MockWebServer server;
+    private HttpUrl baseUrl;
+    private FixedClock clock;
+    private ConnectionWarmer warmer;
+    private RetryScheduler scheduler;
+
+    @Before
+    public void setUp() throws Exception {
+        server = LocalServers.newServer();
+        server.start();
+        baseUrl = server.url("/");
+        clock = new FixedClock(0);
+        scheduler = new HandlerRetryScheduler(new Handler(Looper.getMainLooper()));
+        // connections of other tests mustn't be mistaken for warm one
+        StartApiFactory.sharedClient().connectionPool().evictAll();
+        warmer = new ConnectionWarmer(StartApiFactory.sharedClient(), baseUrl, clock);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void testTokenRequestUsesWarmConnection() throws Exception {
+        server.enqueue(new MockResponse());
+        server.enqueue(new MockResponse().setBody(TOKEN_RESPONSE));
+
+        warmer.prewarm(WINDOW_MS, scheduler);
+        RecordedRequest ping = server.takeRequest();
+        assertEquals("HEAD", ping.getMethod());
+        assertNull(ping.getHeader("Authorization"));
+        awaitIdleConnection();
+
+        StartApiFactory.newStartApi("test_open_k_1", baseUrl).createToken("4111111111111111", "123", 11, 2019, "John Doe").execute();
+        RecordedRequest tokenRequest = server.takeRequest();
+        assertEquals("/tokens/", tokenRequest.getPath());
+        assertEquals(1, tokenRequest.getSequenceNumber());
+    }
+
+    @Test
+    public void testRepeatedCallsDontOpenConnections() throws Exception {
+        server.enqueue(new MockResponse());
+        server.enqueue(new MockResponse());
+
+        warmer.prewarm(WINDOW_MS, scheduler);
+        server.takeRequest();
+        clock.setCurrentTimeMillis(ConnectionWarmer.REFRESH_INTERVAL_MS - 1);
+        warmer.prewarm(WINDOW_MS, scheduler);
+        warmer.prewarm(WINDOW_MS, scheduler);
+        assertNull(server.takeRequest(100, TimeUnit.MILLISECONDS));
+
+        clock.setCurrentTimeMillis(ConnectionWarmer.REFRESH_INTERVAL_MS);
+        warmer.prewarm(WINDOW_MS, scheduler);
+        assertEquals(1, server.takeRequest().getSequenceNumber());
+        assertEquals(2, server.getRequestCount());
+    }
+
+    private static void awaitIdleConnection() throws InterruptedException {
+        // ping response is closed asynchronously, connection returns to pool a bit later than server sees request
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+        while (StartApiFactory.sharedClient().connectionPool().idleConnectionCount() == 0) {
+            assertTrue("Connection isn't returned to pool", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+}
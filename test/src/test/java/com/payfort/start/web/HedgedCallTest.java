@@ -0,0 +1,173 @@
+package com.payfort.start.web;
+
+import com.payfort.start.StartMetrics;
+import com.payfort.start.Token;
+import com.payfort.start.support.WaitForResultWebCallback;
+import com.payfort.start.test.BuildConfig;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import retrofit2.Call;
+
+import static com.payfort.start.support.TestResponses.TOKEN_RESPONSE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for {@link HedgedCall} against local server with injected latency.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class HedgedCallTest {
+
+    private static final long SLOW_MS = 2000;
+    private static final long HEDGE_DELAY_MS = 100;
+
+    private MockWebServer server;
+    private ScheduledExecutorService executor;
+    private RetryScheduler scheduler;
+    private StartApi startApi;
+    private HedgePolicy policy;
+
+    @Before
+    public void setUp() throws Exception {
+        server = LocalServers.newServer();
+        server.start();
+        executor = Executors.newSingleThreadScheduledExecutor();
+        scheduler = new ExecutorRetryScheduler(executor);
+        startApi = StartApiFactory.newStartApi("test_open_k_1", server.url("/"));
+        policy = new HedgePolicy.Builder()
+                .minDelay(HEDGE_DELAY_MS, TimeUnit.MILLISECONDS)
+                .maxDelay(HEDGE_DELAY_MS, TimeUnit.MILLISECONDS)
+                .budget(null)
+                .build();
+        StartMetrics.getInstance().reset();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdown();
+        server.shutdown();
+    }
+
+    @Test
+    public void testSlowRequestIsHedged() throws Exception {
+        connect();
+        server.enqueue(new MockResponse().setBody(TOKEN_RESPONSE).setHeadersDelay(SLOW_MS, TimeUnit.MILLISECONDS));
+        server.enqueue(new MockResponse().setBody(TOKEN_RESPONSE));
+        WaitForResultWebCallback<Token> callback = new WaitForResultWebCallback<>();
+
+        long start = System.nanoTime();
+        policy.hedge(newTokenCall("key_1"), scheduler).enqueue(callback);
+
+        assertTrue(callback.waitForResult());
+        long elapsedMs = (System.nanoTime() - start) / 1000000;
+        assertTrue("Hedge must answer before slow request, but took " + elapsedMs + " ms", elapsedMs < SLOW_MS);
+        assertEquals("tok_1", callback.getResponse().body().getId());
+        RecordedRequest first = server.takeRequest();
+        RecordedRequest second = server.takeRequest();
+        assertEquals("key_1", first.getHeader(StartApi.IDEMPOTENCY_KEY_HEADER));
+        assertEquals("key_1", second.getHeader(StartApi.IDEMPOTENCY_KEY_HEADER));
+        assertEquals(1, StartMetrics.getInstance().getHedgeCount());
+        assertEquals(1, StartMetrics.getInstance().getHedgeWinCount());
+    }
+
+    @Test
+    public void testFastRequestIsNotHedged() throws Exception {
+        connect();
+        server.enqueue(new MockResponse().setBody(TOKEN_RESPONSE));
+        WaitForResultWebCallback<Token> callback = new WaitForResultWebCallback<>();
+
+        policy.hedge(newTokenCall("key_1"), scheduler).enqueue(callback);
+
+        assertTrue(callback.waitForResult());
+        Thread.sleep(HEDGE_DELAY_MS * 3);
+        assertEquals(2, server.getRequestCount());
+        assertEquals(0, StartMetrics.getInstance().getHedgeCount());
+    }
+
+    @Test
+    public void testFailureIsReportedWhenNoAttemptIsInFlight() throws Exception {
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START));
+        WaitForResultWebCallback<Token> callback = new WaitForResultWebCallback<>();
+
+        policy.hedge(newTokenCall("key_1"), scheduler).enqueue(callback);
+
+        assertTrue(callback.waitForResult());
+        assertNotNull(callback.getError());
+        Thread.sleep(HEDGE_DELAY_MS * 3);
+        assertEquals(0, StartMetrics.getInstance().getHedgeCount());
+    }
+
+    @Test
+    public void testHedgeFailureWaitsForPrimary() throws Exception {
+        connect();
+        server.enqueue(new MockResponse().setBody(TOKEN_RESPONSE).setHeadersDelay(500, TimeUnit.MILLISECONDS));
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START));
+        WaitForResultWebCallback<Token> callback = new WaitForResultWebCallback<>();
+
+        policy.hedge(newTokenCall("key_1"), scheduler).enqueue(callback);
+
+        assertTrue(callback.waitForResult());
+        assertEquals("tok_1", callback.getResponse().body().getId());
+        assertEquals(1, StartMetrics.getInstance().getHedgeCount());
+        assertEquals(0, StartMetrics.getInstance().getHedgeWinCount());
+    }
+
+    @Test
+    public void testDelayIsPercentileOfLatencies() throws Exception {
+        HedgePolicy policy = new HedgePolicy.Builder()
+                .percentile(0.9)
+                .minDelay(10, TimeUnit.MILLISECONDS)
+                .maxDelay(1, TimeUnit.SECONDS)
+                .window(100)
+                .build();
+        assertEquals(1000, policy.getDelayMillis());
+        for (int latency = 1; latency <= 100; latency++) {
+            policy.recordLatency(latency * 5);
+        }
+        assertEquals(450, policy.getDelayMillis());
+
+        for (int i = 0; i < 100; i++) {
+            policy.recordLatency(1);
+        }
+        assertEquals(10, policy.getDelayMillis());
+        for (int i = 0; i < 100; i++) {
+            policy.recordLatency(60000);
+        }
+        assertEquals(1000, policy.getDelayMillis());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testCallCanBeEnqueuedOnce() throws Exception {
+        server.enqueue(new MockResponse().setBody(TOKEN_RESPONSE));
+        Call<Token> call = policy.hedge(newTokenCall("key_1"), scheduler);
+        call.enqueue(new WaitForResultWebCallback<Token>());
+        call.enqueue(new WaitForResultWebCallback<Token>());
+    }
+
+    // TLS handshake may take longer than hedge delay, so connection is established before requests which are timed
+    private void connect() throws Exception {
+        server.enqueue(new MockResponse().setBody(TOKEN_RESPONSE));
+        newTokenCall("key_0").execute();
+        server.takeRequest();
+    }
+
+    private Call<Token> newTokenCall(String idempotencyKey) {
+        return startApi.createToken(idempotencyKey, "4111111111111111", "123", 11, 2019, "John Doe");
+    }
+}
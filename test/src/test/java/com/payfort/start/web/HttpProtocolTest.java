@@ -0,0 +1,124 @@
+package com.payfort.start.web;
+
+import com.payfort.start.StartMetrics;
+import com.payfort.start.Token;
+import com.payfort.start.TokenVerification;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import okhttp3.ConnectionSpec;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.TlsVersion;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.tls.HandshakeCertificates;
+import okhttp3.tls.HeldCertificate;
+import retrofit2.Call;
+import retrofit2.Response;
+
+import static com.payfort.start.support.TestResponses.VERIFICATION_REQUIRED_RESPONSE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test of protocols negotiated by client built by {@link StartApiFactory} against local TLS server.
+ */
+public class HttpProtocolTest {
+
+    private static final int LOLLIPOP = 21;
+    private static final int Q = 29;
+    private static final String VERIFICATION_RESPONSE = "{\"id\":\"tokv_1\",\"enrolled\":true,\"finalized\":false}";
+
+    private MockWebServer server;
+    private HandshakeCertificates serverCertificates;
+    private HandshakeCertificates clientCertificates;
+
+    @Before
+    public void setUp() throws Exception {
+        HeldCertificate localhost = new HeldCertificate.Builder()
+                .addSubjectAlternativeName("localhost")
+                .build();
+        serverCertificates = new HandshakeCertificates.Builder()
+                .heldCertificate(localhost)
+                .build();
+        clientCertificates = new HandshakeCertificates.Builder()
+                .addTrustedCertificate(localhost.certificate())
+                .build();
+        server = new MockWebServer();
+        server.useHttps(serverCertificates.sslSocketFactory(), false);
+        StartMetrics.getInstance().reset();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void testHttp2SharesOneConnection() throws Exception {
+        server.setProtocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1));
+        server.enqueue(new MockResponse().setBody(VERIFICATION_REQUIRED_RESPONSE));
+        server.enqueue(new MockResponse().setBody(VERIFICATION_RESPONSE));
+        server.enqueue(new MockResponse().setBody(VERIFICATION_RESPONSE));
+        server.start();
+        OkHttpClient client = newClient(Q);
+        StartApi startApi = StartApiFactory.newStartApi("test_open_k_1", server.url("/"), client);
+
+        Response<Token> token = startApi.createToken("4111111111111111", "123", 11, 2019, "John Doe").execute();
+        Call<TokenVerification> createVerification = startApi.createTokenVerification(token.body().getId(), 100, "USD");
+        Call<TokenVerification> getVerification = startApi.getTokenVerification(token.body().getId());
+        assertTrue(createVerification.execute().isSuccessful());
+        assertTrue(getVerification.execute().isSuccessful());
+
+        assertEquals(Protocol.HTTP_2, StartMetrics.getInstance().getLastProtocol());
+        assertEquals(3, StartMetrics.getInstance().getResponseCount(Protocol.HTTP_2));
+        assertEquals(TlsVersion.TLS_1_3, StartMetrics.getInstance().getLastTlsVersion());
+        assertEquals(1, client.connectionPool().connectionCount());
+        server.takeRequest();
+        server.takeRequest();
+        // sequence number is an index of request (stream) on its connection
+        assertEquals(2, server.takeRequest().getSequenceNumber());
+    }
+
+    @Test
+    public void testFallbackToHttp1() throws Exception {
+        server.setProtocols(Collections.singletonList(Protocol.HTTP_1_1));
+        server.enqueue(new MockResponse().setBody(VERIFICATION_REQUIRED_RESPONSE));
+        server.start();
+        OkHttpClient client = newClient(Q);
+
+        StartApiFactory.newStartApi("test_open_k_1", server.url("/"), client)
+                .createToken("4111111111111111", "123", 11, 2019, "John Doe").execute();
+
+        assertEquals(Protocol.HTTP_1_1, StartMetrics.getInstance().getLastProtocol());
+        assertEquals(0, StartMetrics.getInstance().getResponseCount(Protocol.HTTP_2));
+    }
+
+    @Test
+    public void testFallbackToTls12() throws Exception {
+        // platform without TLS 1.3 support, like Android before 10
+        ConnectionSpec tls12 = new ConnectionSpec.Builder(ConnectionSpec.MODERN_TLS).tlsVersions(TlsVersion.TLS_1_2).build();
+        OkHttpClient tls12Client = newClient(LOLLIPOP).newBuilder().connectionSpecs(Collections.singletonList(tls12)).build();
+        server.setProtocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1));
+        server.enqueue(new MockResponse().setBody(VERIFICATION_REQUIRED_RESPONSE));
+        server.start();
+
+        StartApiFactory.newStartApi("test_open_k_1", server.url("/"), tls12Client)
+                .createToken("4111111111111111", "123", 11, 2019, "John Doe").execute();
+
+        assertEquals(TlsVersion.TLS_1_2, StartMetrics.getInstance().getLastTlsVersion());
+        assertEquals(Protocol.HTTP_2, StartMetrics.getInstance().getLastProtocol());
+    }
+
+    private OkHttpClient newClient(int sdkInt) {
+        return StartApiFactory.newClientBuilder(sdkInt, null)
+                .sslSocketFactory(clientCertificates.sslSocketFactory(), clientCertificates.trustManager())
+                .build();
+    }
+}
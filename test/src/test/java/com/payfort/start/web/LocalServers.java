@@ -0,0 +1,62 @@
+package com.payfort.start.web;
+
+import android.os.Build;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.tls.HandshakeCertificates;
+import okhttp3.tls.HeldCertificate;
+
+/**
+ * Local HTTPS stand-ins of API. Shared transport doesn't allow cleartext, so servers present certificate of
+ * {@code localhost} which shared client is made to trust.
+ */
+public final class LocalServers {
+
+    private LocalServers() {
+    }
+
+    /**
+     * Creates server which isn't started yet. {@link StartApi} instances created by
+     * {@link StartApiFactoryAccess#newStartApi} after this call trust it.
+     *
+     * @return a new server
+     */
+    public static MockWebServer newServer() {
+        MockWebServer server = new MockWebServer();
+        server.useHttps(Certificates.SERVER.sslSocketFactory(), false);
+        return server;
+    }
+
+    /**
+     * Returns certificates which trust local servers, e.g. for client built by test itself.
+     */
+    public static HandshakeCertificates clientCertificates() {
+        return Certificates.CLIENT;
+    }
+
+    /**
+     * Holder of certificates, generating key pair is slow, so it is done once.
+     */
+    private static final class Certificates {
+
+        static final HandshakeCertificates SERVER;
+        static final HandshakeCertificates CLIENT;
+
+        static {
+            HeldCertificate localhost = new HeldCertificate.Builder()
+                    .addSubjectAlternativeName("localhost")
+                    .build();
+            SERVER = new HandshakeCertificates.Builder()
+                    .heldCertificate(localhost)
+                    .build();
+            CLIENT = new HandshakeCertificates.Builder()
+                    .addTrustedCertificate(localhost.certificate())
+                    .build();
+            OkHttpClient sharedClient = StartApiFactory.newClientBuilder(Build.VERSION.SDK_INT, null)
+                    .sslSocketFactory(CLIENT.sslSocketFactory(), CLIENT.trustManager())
+                    .build();
+            StartApiFactory.setSharedClient(sharedClient);
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package com.payfort.start.web;
+
+import com.payfort.start.Token;
+import com.payfort.start.support.FixedClock;
+import com.payfort.start.support.VirtualScheduler;
+import com.payfort.start.support.WaitForResultWebCallback;
+import com.payfort.start.test.BuildConfig;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+import retrofit2.Call;
+import retrofit2.Response;
+
+import static com.payfort.start.support.TestResponses.TOKEN_RESPONSE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test for retries of {@link RetrofitUtils} in virtual time.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class RetrofitUtilsTest {
+
+    private static final long WAIT_MS = TimeUnit.SECONDS.toMillis(5);
+
+    private MockWebServer server;
+    private FixedClock clock;
+    private VirtualScheduler scheduler;
+    private StartApi startApi;
+
+    @Before
+    public void setUp() throws Exception {
+        server = LocalServers.newServer();
+        server.start();
+        clock = new FixedClock(0);
+        scheduler = new VirtualScheduler(clock);
+        startApi = StartApiFactory.newStartApi("test_open_k_1", server.url("/"));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void testOutageFailsAfterMaxAttemptsWithBackoff() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START));
+        }
+        RetryPolicy policy = new RetryPolicy.Builder()
+                .maxAttempts(4)
+                .baseDelay(500, TimeUnit.MILLISECONDS)
+                .maxDelay(4, TimeUnit.SECONDS)
+                .jitter(false)
+                .budget(new RetryBudget(10, 1, clock))
+                .build();
+        WaitForResultWebCallback<Token> callback = new WaitForResultWebCallback<>();
+
+        RetrofitUtils.enqueueWithRetry(newTokenCall(), callback, policy, scheduler);
+
+        assertEquals(500, scheduler.runNext(WAIT_MS));
+        assertEquals(1000, scheduler.runNext(WAIT_MS));
+        assertEquals(2000, scheduler.runNext(WAIT_MS));
+        assertTrue(callback.waitForResult());
+        assertNotNull(callback.getError());
+        assertEquals(-1, scheduler.runNext(100));
+        assertEquals(3500, clock.currentTimeMillis());
+        assertEquals(4, server.getRequestCount());
+    }
+
+    @Test
+    public void testRecoveryAfterRetry() throws Exception {
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START));
+        server.enqueue(new MockResponse().setBody(TOKEN_RESPONSE));
+        RetryPolicy policy = new RetryPolicy.Builder().budget(new RetryBudget(10, 1, clock)).build();
+        WaitForResultWebCallback<Token> callback = new WaitForResultWebCallback<>();
+
+        RetrofitUtils.enqueueWithRetry(newTokenCall(), callback, policy, scheduler);
+
+        long delay = scheduler.runNext(WAIT_MS);
+        assertTrue("Jittered delay " + delay + " is out of [0, 500]", delay >= 0 && delay <= 500);
+        assertTrue(callback.waitForResult());
+        assertEquals("tok_1", callback.getResponse().body().getId());
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void testExhaustedBudgetFailsFast() throws Exception {
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START));
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START));
+        RetryBudget budget = new RetryBudget(1, 1, clock);
+        assertTrue(budget.tryAcquire());
+        RetryPolicy policy = new RetryPolicy.Builder().budget(budget).build();
+        WaitForResultWebCallback<Token> callback = new WaitForResultWebCallback<>();
+
+        RetrofitUtils.enqueueWithRetry(newTokenCall(), callback, policy, scheduler);
+
+        assertTrue(callback.waitForResult());
+        assertNotNull(callback.getError());
+        assertEquals(-1, scheduler.runNext(100));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void testExecuteRetriesOnCallingThread() throws Exception {
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START));
+        server.enqueue(new MockResponse().setBody(TOKEN_RESPONSE));
+
+        Response<Token> response = RetrofitUtils.executeWithRetry(newTokenCall(), RetryPolicy.fixed(3, 50), scheduler, WAIT_MS);
+
+        assertEquals("tok_1", response.body().getId());
+        assertEquals(2, server.getRequestCount());
+        // nothing is scheduled except watchdog of every attempt, which is canceled
+        assertEquals(-1, scheduler.runNext(100));
+    }
+
+    @Test
+    public void testExecuteCancelsCallAfterTimeout() throws Exception {
+        server.enqueue(new MockResponse().setBody(TOKEN_RESPONSE).setHeadersDelay(3, TimeUnit.SECONDS));
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        long start = System.nanoTime();
+        try {
+            RetrofitUtils.executeWithRetry(newTokenCall(), RetryPolicy.fixed(3, 0), new ExecutorRetryScheduler(executor), 300);
+            fail();
+        } catch (InterruptedIOException e) {
+            assertEquals("timeout", e.getMessage());
+        } finally {
+            executor.shutdown();
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue("Elapsed " + elapsedMillis + " ms", elapsedMillis < 2000);
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void testExecuteIsInterruptedDuringRetryDelay() throws Exception {
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START));
+        final Thread caller = Thread.currentThread();
+        Thread interrupter = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(300);
+                } catch (InterruptedException ignored) {
+                }
+                caller.interrupt();
+            }
+        });
+        interrupter.start();
+        try {
+            RetrofitUtils.executeWithRetry(newTokenCall(), RetryPolicy.fixed(3, WAIT_MS), scheduler, 2 * WAIT_MS);
+            fail();
+        } catch (InterruptedException e) {
+            assertFalse(Thread.currentThread().isInterrupted());
+        }
+        interrupter.join();
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void testExecuteCancelsCallInFlightOnInterrupt() throws Exception {
+        server.enqueue(new MockResponse().setBody(TOKEN_RESPONSE).setHeadersDelay(3, TimeUnit.SECONDS));
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        final Thread caller = Thread.currentThread();
+        executor.schedule(new Runnable() {
+
+            @Override
+            public void run() {
+                caller.interrupt();
+            }
+        }, 300, TimeUnit.MILLISECONDS);
+        Call<Token> call = newTokenCall();
+        long start = System.nanoTime();
+        try {
+            RetrofitUtils.executeWithRetry(call, RetryPolicy.fixed(3, 0), new ExecutorRetryScheduler(executor), 2 * WAIT_MS);
+            fail();
+        } catch (InterruptedException e) {
+            assertFalse(Thread.currentThread().isInterrupted());
+        } finally {
+            executor.shutdown();
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue("Elapsed " + elapsedMillis + " ms", elapsedMillis < 2000);
+        assertTrue(call.isCanceled());
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void testExecuteDoesNotRetryWhenDelayOutlivesTimeout() throws Exception {
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START));
+        try {
+            RetrofitUtils.executeWithRetry(newTokenCall(), RetryPolicy.fixed(3, WAIT_MS), scheduler, 500);
+            fail();
+        } catch (InterruptedIOException e) {
+            assertEquals("timeout", e.getMessage());
+        }
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void testCancellationRemovesPendingRetry() throws Exception {
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START));
+        CancellationScope cancellationScope = new CancellationScope();
+        WaitForResultWebCallback<Token> callback = new WaitForResultWebCallback<>();
+
+        RetrofitUtils.enqueueWithRetry(newTokenCall(), callback, RetryPolicy.fixed(3, WAIT_MS), scheduler, cancellationScope);
+        awaitPendingRetry();
+        cancellationScope.cancel();
+
+        assertEquals(0, scheduler.pendingCount());
+        assertEquals(0, cancellationScope.activeCount());
+        assertFalse(callback.waitForResult(200, TimeUnit.MILLISECONDS));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void testCancellationAbortsCallInFlight() throws Exception {
+        server.enqueue(new MockResponse().setBody(TOKEN_RESPONSE).setHeadersDelay(3, TimeUnit.SECONDS));
+        CancellationScope cancellationScope = new CancellationScope();
+        WaitForResultWebCallback<Token> callback = new WaitForResultWebCallback<>();
+        long start = System.nanoTime();
+
+        RetrofitUtils.enqueueWithRetry(newTokenCall(), callback, RetryPolicy.fixed(3, 0), scheduler, cancellationScope);
+        server.takeRequest();
+        cancellationScope.cancel();
+
+        // canceled call isn't retried and its failure isn't delivered
+        assertFalse(callback.waitForResult(500, TimeUnit.MILLISECONDS));
+        assertEquals(0, scheduler.pendingCount());
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue("Elapsed " + elapsedMillis + " ms", elapsedMillis < 2000);
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void testCancellationStopsPolling() throws Exception {
+        server.enqueue(new MockResponse().setBody(TOKEN_RESPONSE));
+        server.enqueue(new MockResponse().setBody(TOKEN_RESPONSE));
+        CancellationScope cancellationScope = new CancellationScope();
+        WaitForResultWebCallback<Token> callback = new WaitForResultWebCallback<>();
+        RetrofitUtils.RetryCondition<Token> always = new RetrofitUtils.RetryCondition<Token>() {
+
+            @Override
+            public boolean doRetry(Token token) {
+                return true;
+            }
+        };
+
+        RetrofitUtils.enqueueWithCondition(newTokenCall(), callback, always, 1000, scheduler, cancellationScope);
+        awaitPendingRetry();
+        assertEquals(1000, scheduler.runNext(WAIT_MS));
+        awaitPendingRetry();
+        cancellationScope.cancel();
+
+        assertEquals(-1, scheduler.runNext(100));
+        assertFalse(callback.waitForResult(100, TimeUnit.MILLISECONDS));
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void testCanceledScopeRejectsCall() throws Exception {
+        CancellationScope cancellationScope = new CancellationScope();
+        cancellationScope.cancel();
+        WaitForResultWebCallback<Token> callback = new WaitForResultWebCallback<>();
+
+        RetrofitUtils.enqueueWithRetry(newTokenCall(), callback, RetryPolicy.fixed(3, 0), scheduler, cancellationScope);
+
+        assertFalse(callback.waitForResult(100, TimeUnit.MILLISECONDS));
+        assertEquals(0, server.getRequestCount());
+    }
+
+    private void awaitPendingRetry() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + WAIT_MS;
+        while (scheduler.pendingCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(1, scheduler.pendingCount());
+    }
+
+    private Call<Token> newTokenCall() {
+        return startApi.createToken("4111111111111111", "123", 11, 2019, "John Doe");
+    }
+}
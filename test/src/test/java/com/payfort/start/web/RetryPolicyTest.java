@@ -0,0 +1,125 @@
+package com.payfort.start.web;
+
+import com.payfort.start.support.FixedClock;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test for {@link RetryPolicy} and {@link RetryBudget} classes.
+ */
+public class RetryPolicyTest {
+
+    @Test
+    public void testMaxAttemptsIncludeFirstAttempt() throws Exception {
+        RetryPolicy policy = RetryPolicy.fixed(4, 2000);
+        assertEquals(2000, policy.nextDelayMillis(1));
+        assertEquals(2000, policy.nextDelayMillis(2));
+        assertEquals(2000, policy.nextDelayMillis(3));
+        assertEquals(-1, policy.nextDelayMillis(4));
+    }
+
+    @Test
+    public void testSingleAttemptIsNotRetried() throws Exception {
+        assertEquals(-1, RetryPolicy.fixed(1, 0).nextDelayMillis(1));
+    }
+
+    @Test
+    public void testExponentialBackoffIsCapped() throws Exception {
+        RetryPolicy policy = newPolicy(10).jitter(false).build();
+        assertEquals(500, policy.nextDelayMillis(1));
+        assertEquals(1000, policy.nextDelayMillis(2));
+        assertEquals(2000, policy.nextDelayMillis(3));
+        assertEquals(4000, policy.nextDelayMillis(4));
+        assertEquals(4000, policy.nextDelayMillis(5));
+        assertEquals(4000, policy.nextDelayMillis(9));
+    }
+
+    @Test
+    public void testLargeAttemptDoesNotOverflow() throws Exception {
+        RetryPolicy policy = newPolicy(Integer.MAX_VALUE).jitter(false).build();
+        assertEquals(4000, policy.nextDelayMillis(64));
+        assertEquals(4000, policy.nextDelayMillis(Integer.MAX_VALUE - 1));
+    }
+
+    @Test
+    public void testFullJitterIsWithinBackoff() throws Exception {
+        RetryPolicy policy = newPolicy(10).random(new Random(42)).build();
+        Set<Long> delays = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            for (int attempt = 1; attempt < 10; attempt++) {
+                long delay = policy.nextDelayMillis(attempt);
+                long backoff = Math.min(4000, 500L << (attempt - 1));
+                assertTrue("Delay " + delay + " is out of [0, " + backoff + "]", delay >= 0 && delay <= backoff);
+                delays.add(delay);
+            }
+        }
+        assertTrue("Delays must be spread", delays.size() > 100);
+    }
+
+    @Test
+    public void testBudgetLimitsRetries() throws Exception {
+        FixedClock clock = new FixedClock(0);
+        RetryPolicy policy = newPolicy(10).jitter(false).budget(new RetryBudget(2, 1, clock)).build();
+        assertEquals(500, policy.nextDelayMillis(1));
+        assertEquals(1000, policy.nextDelayMillis(2));
+        assertEquals(-1, policy.nextDelayMillis(3));
+        assertEquals(-1, policy.nextDelayMillis(1));
+
+        clock.advance(999);
+        assertEquals(-1, policy.nextDelayMillis(1));
+        clock.advance(1);
+        assertEquals(500, policy.nextDelayMillis(1));
+    }
+
+    @Test
+    public void testBudgetRefillIsCapped() throws Exception {
+        FixedClock clock = new FixedClock(0);
+        RetryBudget budget = new RetryBudget(3, 2, clock);
+        assertTrue(budget.tryAcquire());
+        assertEquals(2, budget.available());
+
+        clock.advance(TimeUnit.HOURS.toMillis(1));
+        assertEquals(3, budget.available());
+        assertTrue(budget.tryAcquire());
+        assertTrue(budget.tryAcquire());
+        assertTrue(budget.tryAcquire());
+        assertFalse(budget.tryAcquire());
+
+        clock.advance(500);
+        assertTrue(budget.tryAcquire());
+        assertFalse(budget.tryAcquire());
+    }
+
+    @Test
+    public void testBudgetIgnoresClockGoingBack() throws Exception {
+        FixedClock clock = new FixedClock(10000);
+        RetryBudget budget = new RetryBudget(1, 1, clock);
+        assertTrue(budget.tryAcquire());
+        clock.setCurrentTimeMillis(0);
+        assertFalse(budget.tryAcquire());
+        clock.setCurrentTimeMillis(1000);
+        assertTrue(budget.tryAcquire());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBaseDelayNotGreaterThanMaxDelay() throws Exception {
+        new RetryPolicy.Builder().baseDelay(5, TimeUnit.SECONDS).maxDelay(1, TimeUnit.SECONDS).build();
+    }
+
+    private static RetryPolicy.Builder newPolicy(int maxAttempts) {
+        return new RetryPolicy.Builder()
+                .maxAttempts(maxAttempts)
+                .baseDelay(500, TimeUnit.MILLISECONDS)
+                .maxDelay(4, TimeUnit.SECONDS)
+                .budget(null);
+    }
+}
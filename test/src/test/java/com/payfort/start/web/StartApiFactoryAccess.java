@@ -0,0 +1,21 @@
+package com.payfort.start.web;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+
+/**
+ * Gives tests of other packages access to package-private methods of {@link StartApiFactory}.
+ */
+public final class StartApiFactoryAccess {
+
+    private StartApiFactoryAccess() {
+    }
+
+    public static StartApi newStartApi(String apiKey, HttpUrl baseUrl) {
+        return StartApiFactory.newStartApi(apiKey, baseUrl);
+    }
+
+    public static OkHttpClient sharedClient() {
+        return StartApiFactory.sharedClient();
+    }
+}
@@ -0,0 +1,101 @@
+package com.payfort.start.web;
+
+import android.os.Build;
+
+import com.payfort.start.Token;
+import com.payfort.start.test.BuildConfig;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.net.UnknownServiceException;
+
+import okhttp3.Dispatcher;
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Response;
+
+import static com.payfort.start.support.TestResponses.TOKEN_RESPONSE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test for {@link StartApiFactory} class.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class StartApiFactoryTest {
+
+
+    private MockWebServer server;
+    private HttpUrl baseUrl;
+
+    @Before
+    public void setUp() throws Exception {
+        server = LocalServers.newServer();
+        server.start();
+        baseUrl = server.url("/");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void testConnectionIsReusedAcrossInstances() throws Exception {
+        StartApi first = StartApiFactory.newStartApi("test_open_k_1", baseUrl);
+        StartApi second = StartApiFactory.newStartApi("test_open_k_2", baseUrl);
+        server.enqueue(new MockResponse().setBody(TOKEN_RESPONSE));
+        server.enqueue(new MockResponse().setBody(TOKEN_RESPONSE));
+
+        Response<Token> firstResponse = first.createToken("4111111111111111", "123", 11, 2019, "John Doe").execute();
+        Response<Token> secondResponse = second.createToken("4111111111111111", "123", 11, 2019, "John Doe").execute();
+        assertTrue(firstResponse.isSuccessful());
+        assertEquals("tok_1", secondResponse.body().getId());
+
+        RecordedRequest firstRequest = server.takeRequest();
+        RecordedRequest secondRequest = server.takeRequest();
+        // sequence number is an index of request on its connection
+        assertEquals(0, firstRequest.getSequenceNumber());
+        assertEquals(1, secondRequest.getSequenceNumber());
+        assertNotEquals(firstRequest.getHeader("Authorization"), secondRequest.getHeader("Authorization"));
+    }
+
+    @Test
+    public void testCleartextIsRejected() throws Exception {
+        MockWebServer httpServer = new MockWebServer();
+        httpServer.start();
+        try {
+            StartApiFactory.newStartApi("test_open_k_1", httpServer.url("/"))
+                    .createToken("4111111111111111", "123", 11, 2019, "John Doe").execute();
+            fail("Card is sent over http");
+        } catch (UnknownServiceException expected) {
+        } finally {
+            httpServer.shutdown();
+        }
+        assertEquals(0, httpServer.getRequestCount());
+    }
+
+    @Test
+    public void testDispatcherLimits() throws Exception {
+        Dispatcher dispatcher = StartApiFactory.newClientBuilder(Build.VERSION.SDK_INT, null).build().dispatcher();
+
+        assertEquals(64, dispatcher.getMaxRequests());
+        assertEquals(64, dispatcher.getMaxRequestsPerHost());
+    }
+
+    @Test
+    public void testStartApiIsCachedByKey() throws Exception {
+        assertSame(StartApiFactory.getStartApi("test_open_k_1"), StartApiFactory.getStartApi("test_open_k_1"));
+    }
+}
@@ -0,0 +1,149 @@
+package com.payfort.start.web;
+
+import com.payfort.start.Token;
+import com.payfort.start.TokenVerification;
+import com.payfort.start.test.BuildConfig;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.Okio;
+import okio.Source;
+import okio.Timeout;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test for streaming parsing of API responses by {@link StartConverterFactory}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class StartConverterFactoryTest {
+
+    private static final String TOKEN_JSON = "{\"id\":\"tok_9a2e6ac8b4f0e0c1e4b5d0a77e3\",\"card\":{\"id\":\"card_4f8b1b2c3d\",\"last4\":\"1111\"," +
+            "\"brand\":\"Visa\",\"exp_month\":11,\"exp_year\":2019,\"name\":\"John Doe\",\"tags\":[1,[2,{}],\"]\"]},\"verification_required\":true," +
+            "\"livemode\":false,\"created_at\":\"2017-01-15T11:22:33Z\",\"amount\":-1.5e3}";
+
+    @Test
+    public void testTokenWithUnknownMembers() throws Exception {
+        Token token = readToken(TOKEN_JSON);
+
+        assertEquals("tok_9a2e6ac8b4f0e0c1e4b5d0a77e3", token.getId());
+        assertTrue(token.isVerificationRequired());
+        assertNull(token.getVerification());
+    }
+
+    @Test
+    public void testTokenIsReadFromSlowSource() throws Exception {
+        Token token = StartConverterFactory.readToken(new JsonSourceReader(Okio.buffer(new ByteAtATimeSource(TOKEN_JSON))));
+
+        assertEquals("tok_9a2e6ac8b4f0e0c1e4b5d0a77e3", token.getId());
+        assertTrue(token.isVerificationRequired());
+    }
+
+    @Test
+    public void testTokenWithVerification() throws Exception {
+        Token token = readToken(" {\n \"verification\" : { \"finalized\" : true, \"id\" : \"tokv_1\", \"enrolled\" : true } ,\n"
+                + " \"id\" : \"tok_1\" }\n");
+
+        assertEquals("tok_1", token.getId());
+        assertFalse(token.isVerificationRequired());
+        assertEquals("tokv_1", token.getVerification().getId());
+        assertTrue(token.getVerification().isEnrolled());
+        assertTrue(token.getVerification().isFinalized());
+        assertNull(readToken("{\"id\":\"tok_1\",\"verification\":null}").getVerification());
+    }
+
+    @Test
+    public void testTokenVerification() throws Exception {
+        TokenVerification tokenVerification = StartConverterFactory.readTokenVerification(
+                new JsonSourceReader(new Buffer().writeUtf8("{\"id\":\"tokv_0b3a5d2f1c\",\"enrolled\":true,\"finalized\":false,"
+                        + "\"amount\":100,\"currency\":\"USD\"}")));
+
+        assertEquals("tokv_0b3a5d2f1c", tokenVerification.getId());
+        assertTrue(tokenVerification.isEnrolled());
+        assertFalse(tokenVerification.isFinalized());
+    }
+
+    @Test
+    public void testEscapes() throws Exception {
+        Token token = readToken("{\"name\":\"a\\\"}\\\\\",\"id\":\"q\\\"b\\\\s\\/n\\n\\u00e9\\ud83d\\ude00\\t\",\"verification_required\":false}");
+
+        assertEquals("q\"b\\s/n\n\u00e9\ud83d\ude00\t", token.getId());
+        assertEquals("\u00e9\u0436", readToken("{\"id\":\"\u00e9\u0436\"}").getId());
+    }
+
+    @Test
+    public void testNullsAndStringBooleans() throws Exception {
+        Token token = readToken("{\"id\":null,\"verification_required\":\"true\"}");
+
+        assertNull(token.getId());
+        assertTrue(token.isVerificationRequired());
+        assertFalse(readToken("{\"verification_required\":null}").isVerificationRequired());
+        assertNull(readToken("{}").getId());
+    }
+
+    @Test
+    public void testMalformedJsonFails() throws Exception {
+        assertMalformed("{\"id\":\"tok_1\" \"verification_required\":true}");
+        assertMalformed("{\"id\":\"tok_1");
+        assertMalformed("{\"id\":tok_1}");
+        assertMalformed("{\"verification_required\":yes}");
+        assertMalformed("{\"card\":{\"id\":\"card_1\"}");
+        assertMalformed("{\"id\":\"\\x\"}");
+        assertMalformed("[]");
+        assertMalformed("");
+    }
+
+    private static Token readToken(String json) throws IOException {
+        return StartConverterFactory.readToken(new JsonSourceReader(new Buffer().writeUtf8(json)));
+    }
+
+    private static void assertMalformed(String json) {
+        try {
+            readToken(json);
+            fail("Malformed JSON is read: " + json);
+        } catch (IOException expected) {
+        }
+    }
+
+    /**
+     * Source which returns one byte per read, so values span reads.
+     */
+    private static final class ByteAtATimeSource implements Source {
+
+        private final BufferedSource data;
+
+        private ByteAtATimeSource(String json) {
+            this.data = new Buffer().writeUtf8(json);
+        }
+
+        @Override
+        public long read(Buffer sink, long byteCount) throws IOException {
+            if (data.exhausted()) {
+                return -1;
+            }
+            sink.writeByte(data.readByte());
+            return 1;
+        }
+
+        @Override
+        public Timeout timeout() {
+            return Timeout.NONE;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
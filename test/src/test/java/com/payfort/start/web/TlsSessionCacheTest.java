@@ -0,0 +1,295 @@
+package com.payfort.start.web;
+
+import android.os.Build;
+
+import com.payfort.start.test.BuildConfig;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.net.ssl.HandshakeCompletedEvent;
+import javax.net.ssl.HandshakeCompletedListener;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.tls.HandshakeCertificates;
+import okhttp3.tls.HeldCertificate;
+import okio.ByteString;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Test for {@link TlsSessionCache} class. Clients use SSL context and socket factories created as
+ * {@link StartApiFactory} creates them, local TLS server counts full and abbreviated (resumed) handshakes.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class TlsSessionCacheTest {
+
+    // TLS 1.2 has explicit session ids, so server can tell full handshake from resumed one
+    private static final String[] TLS_1_2 = {"TLSv1.2"};
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private MockWebServer server;
+    private CountingSocketFactory serverSocketFactory;
+    private HandshakeCertificates clientCertificates;
+
+    @Before
+    public void setUp() throws Exception {
+        HeldCertificate localhost = new HeldCertificate.Builder()
+                .addSubjectAlternativeName("localhost")
+                .build();
+        HandshakeCertificates serverCertificates = new HandshakeCertificates.Builder()
+                .heldCertificate(localhost)
+                .build();
+        clientCertificates = new HandshakeCertificates.Builder()
+                .addTrustedCertificate(localhost.certificate())
+                .build();
+        serverSocketFactory = new CountingSocketFactory(serverCertificates.sslSocketFactory());
+        server = new MockWebServer();
+        server.useHttps(serverSocketFactory, false);
+        server.start();
+        RecordingPlatformCache.reset();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void testNewConnectionsResumeSession() throws Exception {
+        TlsSessionCache cache = new TlsSessionCache.Builder().size(4).timeout(1, TimeUnit.HOURS).build();
+        OkHttpClient client = newClient(Build.VERSION_CODES.LOLLIPOP, newSslContext(cache));
+
+        for (int i = 0; i < 3; i++) {
+            request(client);
+        }
+
+        assertEquals(1, serverSocketFactory.fullHandshakes.get());
+        assertEquals(2, serverSocketFactory.resumedHandshakes.get());
+    }
+
+    @Test
+    public void testPreLollipopSocketFactoryResumesSession() throws Exception {
+        TlsSessionCache cache = new TlsSessionCache.Builder().size(4).timeout(1, TimeUnit.HOURS).build();
+        OkHttpClient client = newClient(Build.VERSION_CODES.KITKAT, newSslContext(cache));
+
+        for (int i = 0; i < 3; i++) {
+            request(client);
+        }
+
+        assertEquals(1, serverSocketFactory.fullHandshakes.get());
+        assertEquals(2, serverSocketFactory.resumedHandshakes.get());
+    }
+
+    @Test
+    public void testExpiredSessionIsNotResumed() throws Exception {
+        TlsSessionCache cache = new TlsSessionCache.Builder().timeout(1, TimeUnit.SECONDS).build();
+        SSLContext sslContext = newSslContext(cache);
+        OkHttpClient client = newClient(Build.VERSION_CODES.LOLLIPOP, sslContext);
+
+        request(client);
+        awaitExpiry(sslContext.getClientSessionContext());
+        request(client);
+
+        assertEquals(2, serverSocketFactory.fullHandshakes.get());
+        assertEquals(0, serverSocketFactory.resumedHandshakes.get());
+    }
+
+    @Test
+    public void testPersistentCacheIsInstalled() throws Exception {
+        File directory = temporaryFolder.newFolder();
+        TlsSessionCache cache = new TlsSessionCache.Builder().size(4).persistTo(directory).build();
+        SSLContext sslContext = newSslContext(null);
+
+        cache.install(sslContext, RecordingPlatformCache.class.getName());
+
+        assertEquals(directory, RecordingPlatformCache.directory.get());
+        assertSame(sslContext, RecordingPlatformCache.sslContext.get());
+        assertEquals(4, sslContext.getClientSessionContext().getSessionCacheSize());
+    }
+
+    @Test
+    public void testUnsupportedPersistentCacheFallsBackToMemory() throws Exception {
+        File directory = temporaryFolder.newFolder();
+        TlsSessionCache cache = new TlsSessionCache.Builder().size(4).persistTo(directory).build();
+
+        SSLContext missing = newSslContext(null);
+        cache.install(missing, "com.payfort.start.web.MissingSessionCache");
+        // platform cache accepts only contexts of its own TLS provider, not the ones of JVM
+        SSLContext incompatible = newSslContext(cache);
+
+        assertEquals(4, missing.getClientSessionContext().getSessionCacheSize());
+        assertEquals(4, incompatible.getClientSessionContext().getSessionCacheSize());
+        assertNull(RecordingPlatformCache.directory.get());
+        OkHttpClient client = newClient(Build.VERSION_CODES.LOLLIPOP, incompatible);
+        request(client);
+        request(client);
+        assertEquals(1, serverSocketFactory.resumedHandshakes.get());
+    }
+
+    private SSLContext newSslContext(TlsSessionCache cache) {
+        return StartApiFactory.newSslContext(cache, clientCertificates.trustManager());
+    }
+
+    /**
+     * Creates client with socket factory which {@link StartApiFactory} uses on given version of Android.
+     */
+    private OkHttpClient newClient(int sdkInt, SSLContext sslContext) {
+        SSLSocketFactory socketFactory = sdkInt >= Build.VERSION_CODES.LOLLIPOP
+                ? sslContext.getSocketFactory()
+                : new TLSSocketFactory(sslContext);
+        return StartApiFactory.newClientBuilder(sdkInt, null)
+                .sslSocketFactory(socketFactory, clientCertificates.trustManager())
+                .build();
+    }
+
+    private void request(OkHttpClient client) throws IOException {
+        server.enqueue(new MockResponse());
+        Response response = client.newCall(new Request.Builder().url(server.url("/")).build()).execute();
+        response.close();
+        // next request must open new connection and perform handshake
+        client.connectionPool().evictAll();
+    }
+
+    /**
+     * Waits until every cached session is older than session timeout, i.e. until session context considers it expired.
+     */
+    private static void awaitExpiry(SSLSessionContext sessionContext) throws InterruptedException {
+        long timeoutMillis = TimeUnit.SECONDS.toMillis(sessionContext.getSessionTimeout());
+        long expiresAt = 0;
+        for (Enumeration<byte[]> ids = sessionContext.getIds(); ids.hasMoreElements(); ) {
+            SSLSession session = sessionContext.getSession(ids.nextElement());
+            if (session != null) {
+                expiresAt = Math.max(expiresAt, session.getCreationTime() + timeoutMillis);
+            }
+        }
+        long remaining;
+        while ((remaining = expiresAt - System.currentTimeMillis()) >= 0) {
+            Thread.sleep(remaining + 1);
+        }
+    }
+
+    /**
+     * Stand-in of {@code android.net.SSLSessionCache} which records what it is installed to.
+     */
+    public static final class RecordingPlatformCache {
+
+        private static final AtomicReference<File> directory = new AtomicReference<>();
+        private static final AtomicReference<SSLContext> sslContext = new AtomicReference<>();
+
+        private final File cacheDirectory;
+
+        public RecordingPlatformCache(File directory) {
+            this.cacheDirectory = directory;
+        }
+
+        public static void install(RecordingPlatformCache cache, SSLContext context) {
+            directory.set(cache.cacheDirectory);
+            sslContext.set(context);
+        }
+
+        private static void reset() {
+            directory.set(null);
+            sslContext.set(null);
+        }
+    }
+
+    /**
+     * Server socket factory which counts handshakes by session id: repeated id means session was resumed.
+     */
+    private static final class CountingSocketFactory extends SSLSocketFactory implements HandshakeCompletedListener {
+
+        private final SSLSocketFactory delegate;
+        private final Set<String> sessionIds = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        private final AtomicInteger fullHandshakes = new AtomicInteger();
+        private final AtomicInteger resumedHandshakes = new AtomicInteger();
+
+        private CountingSocketFactory(SSLSocketFactory delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void handshakeCompleted(HandshakeCompletedEvent event) {
+            String sessionId = ByteString.of(event.getSession().getId()).hex();
+            if (sessionIds.add(sessionId)) {
+                fullHandshakes.incrementAndGet();
+            } else {
+                resumedHandshakes.incrementAndGet();
+            }
+        }
+
+        @Override
+        public Socket createSocket(Socket socket, String host, int port, boolean autoClose) throws IOException {
+            return listen(delegate.createSocket(socket, host, port, autoClose));
+        }
+
+        @Override
+        public Socket createSocket(String host, int port) throws IOException {
+            return listen(delegate.createSocket(host, port));
+        }
+
+        @Override
+        public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+            return listen(delegate.createSocket(host, port, localHost, localPort));
+        }
+
+        @Override
+        public Socket createSocket(InetAddress host, int port) throws IOException {
+            return listen(delegate.createSocket(host, port));
+        }
+
+        @Override
+        public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+            return listen(delegate.createSocket(address, port, localAddress, localPort));
+        }
+
+        @Override
+        public String[] getDefaultCipherSuites() {
+            return delegate.getDefaultCipherSuites();
+        }
+
+        @Override
+        public String[] getSupportedCipherSuites() {
+            return delegate.getSupportedCipherSuites();
+        }
+
+        private Socket listen(Socket socket) {
+            SSLSocket sslSocket = (SSLSocket) socket;
+            sslSocket.setEnabledProtocols(TLS_1_2);
+            sslSocket.addHandshakeCompletedListener(this);
+            return socket;
+        }
+    }
+}